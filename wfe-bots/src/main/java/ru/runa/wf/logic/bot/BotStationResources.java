@@ -112,6 +112,13 @@ public class BotStationResources {
         return RESOURCES.getBooleanProperty("botstations.autostart.enabled", true);
     }
 
+    /**
+     * @return Period of full task list reload for bot; between reloads only new task assignments are requested.
+     */
+    public static long getTasksFullReloadPeriod() {
+        return RESOURCES.getLongProperty("botstation.tasks.full.reload.period.seconds", 600) * 1000;
+    }
+
     public static int getStuckTimeoutInMinutes() {
         try {
             return RESOURCES.getIntegerProperty("botstation.stuck.timeout.minutes", 5);
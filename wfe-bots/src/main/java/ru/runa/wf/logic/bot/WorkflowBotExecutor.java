@@ -20,6 +20,7 @@ package ru.runa.wf.logic.bot;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -48,6 +49,8 @@ import ru.runa.wfe.lang.SubprocessDefinition;
 import ru.runa.wfe.lang.SubprocessNode;
 import ru.runa.wfe.presentation.BatchPresentationFactory;
 import ru.runa.wfe.service.delegate.Delegates;
+import ru.runa.wfe.task.TaskDoesNotExistException;
+import ru.runa.wfe.task.dto.WfTaskAssignments;
 import ru.runa.wfe.task.dto.WfTask;
 import ru.runa.wfe.user.User;
 
@@ -69,6 +72,8 @@ public class WorkflowBotExecutor {
     private Bot bot;
     private final Map<String, BotTask> botTasks = Maps.newHashMap();
     private final Set<WorkflowBotTaskExecutor> botTaskExecutors = new HashSet<WorkflowBotTaskExecutor>();
+    private Long taskAssignmentsCursor;
+    private long lastTasksReloadTime;
 
     public WorkflowBotExecutor(User user, Bot bot, List<BotTask> tasks) {
         this.user = user;
@@ -120,6 +125,13 @@ public class WorkflowBotExecutor {
         return result;
     }
 
+    /**
+     * Requests full task list loading on next {@link #getNewTasks()} invocation.
+     */
+    public void requestTasksReload() {
+        taskAssignmentsCursor = null;
+    }
+
     public Set<WfTask> getNewTasks() {
         Set<WfTask> result = new HashSet<WfTask>();
         for (Iterator<WorkflowBotTaskExecutor> botIterator = botTaskExecutors.iterator(); botIterator.hasNext();) {
@@ -134,7 +146,7 @@ public class WorkflowBotExecutor {
             }
         }
 
-        List<WfTask> currentTasks = Delegates.getTaskService().getMyTasks(user, BatchPresentationFactory.TASKS.createNonPaged());
+        List<WfTask> currentTasks = getCurrentTasks();
         if (bot.isTransactional()) {
             if (isEmbeddedSubprocessEndedToWhichBotIsBound()) {
                 log.debug("Unbinding bot from " + bot.getBoundProcessId() + ":" + bot.getBoundSubprocessId());
@@ -186,6 +198,42 @@ public class WorkflowBotExecutor {
         return result;
     }
 
+    /**
+     * Loads tasks, assigned since previous invocation. Full task list is loaded periodically and if failed tasks must be retried or bot is
+     * transactional.
+     */
+    private List<WfTask> getCurrentTasks() {
+        if (taskAssignmentsCursor != null && !bot.isTransactional() && !hasFailedTasksToRetry()
+                && System.currentTimeMillis() - lastTasksReloadTime < BotStationResources.getTasksFullReloadPeriod()) {
+            WfTaskAssignments assignments = Delegates.getBotService().getAssignedTaskIds(user, taskAssignmentsCursor);
+            if (assignments.isComplete()) {
+                taskAssignmentsCursor = assignments.getCursor();
+                List<WfTask> tasks = new ArrayList<WfTask>(assignments.getTaskIds().size());
+                for (Long taskId : assignments.getTaskIds()) {
+                    try {
+                        tasks.add(Delegates.getTaskService().getTask(user, taskId));
+                    } catch (TaskDoesNotExistException e) {
+                        log.debug("Task " + taskId + " is already completed");
+                    }
+                }
+                return tasks;
+            }
+        }
+        // Cursor is requested before task list loading to not miss assignments, made during loading
+        taskAssignmentsCursor = Delegates.getBotService().getAssignedTaskIds(user, null).getCursor();
+        lastTasksReloadTime = System.currentTimeMillis();
+        return Delegates.getTaskService().getMyTasks(user, BatchPresentationFactory.TASKS.createNonPaged());
+    }
+
+    private boolean hasFailedTasksToRetry() {
+        for (WorkflowBotTaskExecutor taskExecutor : botTaskExecutors) {
+            if (taskExecutor.isReadyToAttemptExecuteFailedTask()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void getNewTasks_updateBot() {
         val newVersion = Delegates.getBotService().updateBot(user, bot, false).getVersion();
         bot.setVersion(newVersion);
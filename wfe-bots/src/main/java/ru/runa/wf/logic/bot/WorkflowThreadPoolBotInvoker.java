@@ -215,6 +215,8 @@ public class WorkflowThreadPoolBotInvoker implements BotInvoker, Runnable {
                 log.error("No handler for bot task " + task.getName() + " in " + botExecutor.getBot());
             } else if (botTaskConfiguration.isSequentialExecution()
                     && scheduledTasks.containsKey(new WorkflowSequentialBotTaskExecutor(botExecutor.getBot(), botTaskConfiguration, null))) {
+                // Task will be scheduled after current sequential execution completion
+                botExecutor.requestTasksReload();
                 continue;
             }
             WorkflowBotTaskExecutor botTaskExecutor = botExecutor.createBotTaskExecutor(task);
@@ -0,0 +1,57 @@
+package ru.runa.wfe.audit;
+
+import java.util.HashMap;
+import java.util.Map;
+import ru.runa.wfe.commons.xml.XmlUtils;
+
+/**
+ * Compact length-prefixed representation of process log attributes: <code>#</code> followed by <code>length:name length:value</code> pairs.
+ *
+ * Logs, written by previous versions, contain attributes in XML (starting with <code>&lt;</code>) and are still readable.
+ */
+public final class AttributesCodec {
+    private static final char MARKER = '#';
+    private static final char SEPARATOR = ':';
+
+    private AttributesCodec() {
+    }
+
+    public static String encode(Map<String, String> attributes) {
+        StringBuilder builder = new StringBuilder(64);
+        builder.append(MARKER);
+        for (Map.Entry<String, String> entry : attributes.entrySet()) {
+            append(builder, entry.getKey());
+            // same as in XML serialization
+            append(builder, String.valueOf(entry.getValue()));
+        }
+        return builder.toString();
+    }
+
+    public static HashMap<String, String> decode(String string) {
+        if (string.isEmpty() || string.charAt(0) != MARKER) {
+            return XmlUtils.deserialize(string);
+        }
+        HashMap<String, String> attributes = new HashMap<>();
+        int[] position = { 1 };
+        while (position[0] < string.length()) {
+            String name = read(string, position);
+            attributes.put(name, read(string, position));
+        }
+        return attributes;
+    }
+
+    private static void append(StringBuilder builder, String string) {
+        builder.append(string.length()).append(SEPARATOR).append(string);
+    }
+
+    private static String read(String string, int[] position) {
+        int separatorIndex = string.indexOf(SEPARATOR, position[0]);
+        if (separatorIndex == -1) {
+            throw new IllegalArgumentException("Invalid attributes at " + position[0] + ": " + string);
+        }
+        int start = separatorIndex + 1;
+        int end = start + Integer.parseInt(string.substring(position[0], separatorIndex));
+        position[0] = end;
+        return string.substring(start, end);
+    }
+}
@@ -54,7 +54,6 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Index;
 import ru.runa.wfe.commons.CalendarUtil;
 import ru.runa.wfe.commons.SystemProperties;
-import ru.runa.wfe.commons.xml.XmlUtils;
 
 /**
  * Base class for logging process unit of work.
@@ -159,7 +158,7 @@ public abstract class ProcessLog implements Attributes, Serializable, Comparable
 
     public void serializeAttributes() {
         if (attributes != null) {
-            serializedAttributes = XmlUtils.serialize(attributes);
+            serializedAttributes = AttributesCodec.encode(attributes);
         }
     }
 
@@ -254,7 +253,7 @@ public abstract class ProcessLog implements Attributes, Serializable, Comparable
             if (serializedAttributes == null) {
                 attributes = new HashMap<>();
             } else {
-                attributes = XmlUtils.deserialize(serializedAttributes);
+                attributes = AttributesCodec.decode(serializedAttributes);
             }
         }
         return attributes;
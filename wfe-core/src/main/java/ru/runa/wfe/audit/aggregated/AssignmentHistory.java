@@ -48,7 +48,7 @@ public class AssignmentHistory {
         super();
     }
 
-    public AssignmentHistory(long objectId, Date assignDate, String oldExecutorName, String newExecutorName) {
+    public AssignmentHistory(Long objectId, Date assignDate, String oldExecutorName, String newExecutorName) {
         this.assignDate = assignDate;
         this.oldExecutorName = oldExecutorName;
         this.newExecutorName = newExecutorName;
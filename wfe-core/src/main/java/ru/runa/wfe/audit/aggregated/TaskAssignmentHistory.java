@@ -19,7 +19,7 @@ public class TaskAssignmentHistory extends AssignmentHistory {
     public TaskAssignmentHistory() {
     }
 
-    public TaskAssignmentHistory(TaskAggregatedLog taskAggregatedLog, long objectId, Date assignDate, String oldExecutorName, String newExecutorName) {
+    public TaskAssignmentHistory(TaskAggregatedLog taskAggregatedLog, Long objectId, Date assignDate, String oldExecutorName, String newExecutorName) {
         super(objectId, assignDate, oldExecutorName, newExecutorName);
         log = taskAggregatedLog;
     }
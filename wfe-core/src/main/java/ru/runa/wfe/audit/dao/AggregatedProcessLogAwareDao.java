@@ -1,24 +1,33 @@
 package ru.runa.wfe.audit.dao;
 
+import java.util.List;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import ru.runa.wfe.audit.ProcessLog;
 import ru.runa.wfe.commons.dao.CommonDao;
 import ru.runa.wfe.definition.dao.ProcessDefinitionLoader;
-import ru.runa.wfe.execution.Process;
-import ru.runa.wfe.execution.Token;
 
 @Component
 public class AggregatedProcessLogAwareDao extends CommonDao implements ProcessLogAwareDao {
+    private static final Log log = LogFactory.getLog(AggregatedProcessLogAwareDao.class);
 
     @Autowired
     private ProcessDefinitionLoader processDefinitionLoader;
-    @Autowired
-    private ProcessLogDao processLogDao;
 
+    /**
+     * Failure on one log skips only its aggregated log update, as it was when logs were handled one by one.
+     */
     @Override
-    public void addLog(ProcessLog processLog, Process process, Token token) {
-        UpdateAggregatedLogOperation op = new UpdateAggregatedLogOperation(sessionFactory, queryFactory, processDefinitionLoader, process, token);
-        processLog.processBy(op);
+    public void addLogs(List<PendingProcessLog> processLogs) {
+        UpdateAggregatedLogOperation op = new UpdateAggregatedLogOperation(sessionFactory, queryFactory, processDefinitionLoader);
+        for (PendingProcessLog pendingLog : processLogs) {
+            try {
+                op.apply(pendingLog);
+            } catch (Throwable e) {
+                log.warn("Unable to update aggregated log by " + pendingLog.getProcessLog(), e);
+            }
+        }
+        op.saveCreatedLogs();
     }
 }
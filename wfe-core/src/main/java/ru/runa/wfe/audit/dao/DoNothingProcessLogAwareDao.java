@@ -1,12 +1,10 @@
 package ru.runa.wfe.audit.dao;
 
-import ru.runa.wfe.audit.ProcessLog;
-import ru.runa.wfe.execution.Process;
-import ru.runa.wfe.execution.Token;
+import java.util.List;
 
 public class DoNothingProcessLogAwareDao implements ProcessLogAwareDao {
 
     @Override
-    public void addLog(ProcessLog processLog, Process process, Token token) {
+    public void addLogs(List<PendingProcessLog> processLogs) {
     }
 }
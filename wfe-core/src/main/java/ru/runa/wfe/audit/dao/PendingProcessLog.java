@@ -0,0 +1,32 @@
+package ru.runa.wfe.audit.dao;
+
+import ru.runa.wfe.audit.ProcessLog;
+import ru.runa.wfe.execution.Process;
+import ru.runa.wfe.execution.Token;
+
+/**
+ * Process log, added in current transaction, with its process and token.
+ */
+public class PendingProcessLog {
+    private final ProcessLog processLog;
+    private final Process process;
+    private final Token token;
+
+    public PendingProcessLog(ProcessLog processLog, Process process, Token token) {
+        this.processLog = processLog;
+        this.process = process;
+        this.token = token;
+    }
+
+    public ProcessLog getProcessLog() {
+        return processLog;
+    }
+
+    public Process getProcess() {
+        return process;
+    }
+
+    public Token getToken() {
+        return token;
+    }
+}
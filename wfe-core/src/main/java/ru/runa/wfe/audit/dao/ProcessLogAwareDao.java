@@ -1,9 +1,11 @@
 package ru.runa.wfe.audit.dao;
 
-import ru.runa.wfe.audit.ProcessLog;
-import ru.runa.wfe.execution.Process;
-import ru.runa.wfe.execution.Token;
+import java.util.List;
 
 public interface ProcessLogAwareDao {
-    public void addLog(ProcessLog processLog, Process process, Token token);
+
+    /**
+     * Handles process logs, added in one transaction, in order of addition. Called on session flush after logs are saved.
+     */
+    public void addLogs(List<PendingProcessLog> processLogs);
 }
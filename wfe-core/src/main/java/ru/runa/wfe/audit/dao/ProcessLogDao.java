@@ -1,11 +1,21 @@
 package ru.runa.wfe.audit.dao;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.querydsl.core.Tuple;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.transaction.Synchronization;
+import javax.transaction.Transaction;
 import org.hibernate.Query;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import ru.runa.wfe.InternalApplicationException;
 import ru.runa.wfe.audit.ProcessLog;
 import ru.runa.wfe.audit.ProcessLogFilter;
 import ru.runa.wfe.audit.ProcessLogsCleanLog;
@@ -13,6 +23,8 @@ import ru.runa.wfe.audit.QNodeEnterLog;
 import ru.runa.wfe.audit.QProcessLog;
 import ru.runa.wfe.audit.Severity;
 import ru.runa.wfe.commons.ClassLoaderUtil;
+import ru.runa.wfe.commons.SystemProperties;
+import ru.runa.wfe.commons.Utils;
 import ru.runa.wfe.commons.dao.GenericDao;
 import ru.runa.wfe.execution.Process;
 import ru.runa.wfe.execution.Token;
@@ -35,6 +47,11 @@ public class ProcessLogDao extends GenericDao<ProcessLog> {
     @Autowired
     protected SystemLogDao systemLogDao;
 
+    /**
+     * Logs, added in transactions and not yet saved in session.
+     */
+    private final Map<Transaction, List<PendingProcessLog>> pendingLogs = new ConcurrentHashMap<>();
+
     public List<ProcessLog> getAll(Long processId) {
         QProcessLog pl = QProcessLog.processLog;
         return queryFactory.selectFrom(pl).where(pl.processId.eq(processId)).orderBy(pl.id.asc()).fetch();
@@ -49,6 +66,14 @@ public class ProcessLogDao extends GenericDao<ProcessLog> {
                 .fetch();
     }
 
+    /**
+     * @return greatest log id and logs count of process, together they change on any modification of process logs
+     */
+    public Tuple getLastLogIdAndCount(Long processId) {
+        QProcessLog pl = QProcessLog.processLog;
+        return queryFactory.select(pl.id.max(), pl.id.count()).from(pl).where(pl.processId.eq(processId)).fetchOne();
+    }
+
     @SuppressWarnings("unchecked")
     public List<ProcessLog> getAll(final ProcessLogFilter filter) {
         Preconditions.checkArgument(ProcessLog.class.isAssignableFrom(ClassLoaderUtil.loadClass(filter.getRootClassName())),
@@ -113,11 +138,22 @@ public class ProcessLogDao extends GenericDao<ProcessLog> {
         queryFactory.delete(pl).where(pl.processId.eq(processId)).execute();
     }
 
+    /**
+     * @return deleted logs count
+     */
+    public long deleteByProcessIds(Collection<Long> processIds) {
+        QProcessLog pl = QProcessLog.processLog;
+        return queryFactory.delete(pl).where(pl.processId.in(processIds)).execute();
+    }
+
     public boolean isNodeEntered(Process process, String nodeId) {
         QNodeEnterLog nel = QNodeEnterLog.nodeEnterLog;
         return queryFactory.select(nel.id).from(nel).where(nel.processId.eq(process.getId()).and(nel.nodeId.eq(nodeId))).fetchFirst() != null;
     }
 
+    /**
+     * Adds log to current transaction. Logs are written to database in batch on session flush (before queries and on commit).
+     */
     public void addLog(ProcessLog processLog, Process process, Token token) {
         processLog.setProcessId(process.getId());
         if (token == null) {
@@ -129,13 +165,53 @@ public class ProcessLogDao extends GenericDao<ProcessLog> {
         }
         processLog.setCreateDate(new Date());
         processLog.serializeAttributes();
-        this.create(processLog);
-        registerInCustomizationDao(processLog, process, token);
+        PendingProcessLog pendingLog = new PendingProcessLog(processLog, process, token);
+        Transaction transaction = isBufferingEnabled() ? getTransaction() : null;
+        if (transaction == null) {
+            writeLogs(Lists.newArrayList(pendingLog));
+            return;
+        }
+        List<PendingProcessLog> logs = pendingLogs.get(transaction);
+        if (logs == null) {
+            logs = new ArrayList<>();
+            pendingLogs.put(transaction, logs);
+            PendingLogsSynchronization.register(transaction, pendingLogs);
+        }
+        logs.add(pendingLog);
+    }
+
+    /**
+     * Writes logs, added in current transaction. Called by {@link ProcessLogFlushEventListener} before session flush.
+     */
+    public void flushPendingLogs() {
+        if (pendingLogs.isEmpty()) {
+            return;
+        }
+        Transaction transaction = getTransaction();
+        if (transaction == null) {
+            return;
+        }
+        List<PendingProcessLog> logs = pendingLogs.remove(transaction);
+        if (logs != null) {
+            writeLogs(logs);
+        }
     }
 
-    private void registerInCustomizationDao(ProcessLog processLog, Process process, Token token) {
+    boolean isBufferingEnabled() {
+        return SystemProperties.isProcessLogBufferingEnabled();
+    }
+
+    Transaction getTransaction() {
+        return Utils.getTransaction();
+    }
+
+    private void writeLogs(List<PendingProcessLog> logs) {
+        Session session = sessionFactory.getCurrentSession();
+        for (PendingProcessLog pendingLog : logs) {
+            session.save(pendingLog.getProcessLog());
+        }
         try {
-            customizationDao.addLog(processLog, process, token);
+            customizationDao.addLogs(logs);
         } catch (Throwable e) {
             log.warn("Custom log handler throws exception", e);
         }
@@ -146,4 +222,49 @@ public class ProcessLogDao extends GenericDao<ProcessLog> {
         queryFactory.delete(pl).where(pl.createDate.before(date)).execute();
         systemLogDao.create(new ProcessLogsCleanLog(user.getActor().getId(), date));
     }
+
+    /**
+     * Deletes not more than limit logs (with smallest ids), created before date; used for deletion in several transactions.
+     *
+     * @return deleted logs count
+     */
+    public long deleteBeforeDate(Date date, int limit) {
+        QProcessLog pl = QProcessLog.processLog;
+        List<Long> ids = queryFactory.select(pl.id).from(pl).where(pl.createDate.before(date)).orderBy(pl.id.asc()).limit(limit).fetch();
+        long result = 0;
+        for (List<Long> idsPart : Lists.partition(ids, SystemProperties.getDatabaseParametersCount())) {
+            result += queryFactory.delete(pl).where(pl.id.in(idsPart)).execute();
+        }
+        return result;
+    }
+
+    /**
+     * Drops logs of rolled back transaction (and of transaction, completed without flush).
+     */
+    static class PendingLogsSynchronization implements Synchronization {
+        private final Transaction transaction;
+        private final Map<Transaction, List<PendingProcessLog>> pendingLogs;
+
+        PendingLogsSynchronization(Transaction transaction, Map<Transaction, List<PendingProcessLog>> pendingLogs) {
+            this.transaction = transaction;
+            this.pendingLogs = pendingLogs;
+        }
+
+        @Override
+        public void beforeCompletion() {
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            pendingLogs.remove(transaction);
+        }
+
+        public static void register(Transaction transaction, Map<Transaction, List<PendingProcessLog>> pendingLogs) {
+            try {
+                transaction.registerSynchronization(new PendingLogsSynchronization(transaction, pendingLogs));
+            } catch (Exception e) {
+                throw new InternalApplicationException("Unexpected error on process logs synchronization registration", e);
+            }
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package ru.runa.wfe.audit.dao;
+
+import org.hibernate.HibernateException;
+import org.hibernate.event.AutoFlushEvent;
+import org.hibernate.event.AutoFlushEventListener;
+import org.hibernate.event.FlushEvent;
+import org.hibernate.event.FlushEventListener;
+import org.hibernate.event.def.DefaultAutoFlushEventListener;
+import org.hibernate.event.def.DefaultFlushEventListener;
+import ru.runa.wfe.commons.ApplicationContextFactory;
+
+/**
+ * Saves process logs, buffered by {@link ProcessLogDao} in current transaction, before session flush. So logs are visible to queries and are
+ * written on commit in JDBC batch.
+ */
+public class ProcessLogFlushEventListener implements FlushEventListener, AutoFlushEventListener {
+    private static final long serialVersionUID = 1L;
+    private final FlushEventListener flushEventListener;
+    private final AutoFlushEventListener autoFlushEventListener;
+    // looked up lazily: session factory is created before DAO
+    private transient ProcessLogDao processLogDao;
+
+    public ProcessLogFlushEventListener() {
+        this(null, new DefaultFlushEventListener(), new DefaultAutoFlushEventListener());
+    }
+
+    ProcessLogFlushEventListener(ProcessLogDao processLogDao, FlushEventListener flushEventListener, AutoFlushEventListener autoFlushEventListener) {
+        this.processLogDao = processLogDao;
+        this.flushEventListener = flushEventListener;
+        this.autoFlushEventListener = autoFlushEventListener;
+    }
+
+    @Override
+    public void onFlush(FlushEvent event) throws HibernateException {
+        getProcessLogDao().flushPendingLogs();
+        flushEventListener.onFlush(event);
+    }
+
+    @Override
+    public void onAutoFlush(AutoFlushEvent event) throws HibernateException {
+        getProcessLogDao().flushPendingLogs();
+        autoFlushEventListener.onAutoFlush(event);
+    }
+
+    private ProcessLogDao getProcessLogDao() {
+        if (processLogDao == null) {
+            processLogDao = ApplicationContextFactory.getProcessLogDAO();
+        }
+        return processLogDao;
+    }
+}
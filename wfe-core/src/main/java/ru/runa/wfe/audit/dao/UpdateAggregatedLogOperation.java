@@ -1,5 +1,10 @@
 package ru.runa.wfe.audit.dao;
 
+import com.google.common.base.Objects;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.hibernate.SessionFactory;
 import ru.runa.wfe.audit.ActionLog;
 import ru.runa.wfe.audit.AdminActionLog;
@@ -50,22 +55,44 @@ import ru.runa.wfe.execution.Token;
 import ru.runa.wfe.lang.BaseReceiveMessageNode;
 import ru.runa.wfe.lang.NodeType;
 
+/**
+ * Updates aggregated logs by process logs, added in one transaction. Aggregated logs are cached during operation, so repeated updates of one
+ * aggregated log are coalesced; aggregated logs created by operation are saved once by {@link #saveCreatedLogs()} in their final state.
+ */
 public class UpdateAggregatedLogOperation implements ProcessLogVisitor {
 
     private final SessionFactory sessionFactory;
     private final HibernateQueryFactory queryFactory;
-    private final Process process;
-    private final Token token;
     private final ProcessDefinitionLoader processDefinitionLoader;
+    private final Map<Long, ProcessInstanceAggregatedLog> processInstanceLogs = new HashMap<>();
+    private final Map<Long, TaskAggregatedLog> taskLogs = new HashMap<>();
+    private final List<TimerAggregatedLog> createdTimerLogs = new ArrayList<>();
+    private final List<SignalListenerAggregatedLog> createdSignalListenerLogs = new ArrayList<>();
+    private final List<Object> createdLogs = new ArrayList<>();
+    private Process process;
+    private Token token;
 
     public UpdateAggregatedLogOperation(SessionFactory sessionFactory, HibernateQueryFactory queryFactory,
-            ProcessDefinitionLoader processDefinitionLoader,
-            Process process, Token token) {
+            ProcessDefinitionLoader processDefinitionLoader) {
         this.sessionFactory = sessionFactory;
         this.queryFactory = queryFactory;
         this.processDefinitionLoader = processDefinitionLoader;
-        this.process = process;
-        this.token = token;
+    }
+
+    public void apply(PendingProcessLog pendingLog) {
+        process = pendingLog.getProcess();
+        token = pendingLog.getToken();
+        pendingLog.getProcessLog().processBy(this);
+    }
+
+    /**
+     * Saves aggregated logs, created by operation.
+     */
+    public void saveCreatedLogs() {
+        for (Object logEntry : createdLogs) {
+            sessionFactory.getCurrentSession().save(logEntry);
+        }
+        createdLogs.clear();
     }
 
     @Override
@@ -73,7 +100,9 @@ public class UpdateAggregatedLogOperation implements ProcessLogVisitor {
         if (getProcessInstanceLog(processStartLog.getProcessId()) != null) {
             return;
         }
-        sessionFactory.getCurrentSession().save(new ProcessInstanceAggregatedLog(processStartLog, process, token));
+        ProcessInstanceAggregatedLog logEntry = new ProcessInstanceAggregatedLog(processStartLog, process, token);
+        processInstanceLogs.put(processStartLog.getProcessId(), logEntry);
+        createdLogs.add(logEntry);
     }
 
     @Override
@@ -91,7 +120,6 @@ public class UpdateAggregatedLogOperation implements ProcessLogVisitor {
             return;
         }
         logEntry.update(processEndLog);
-        sessionFactory.getCurrentSession().merge(logEntry);
     }
 
     @Override
@@ -101,28 +129,26 @@ public class UpdateAggregatedLogOperation implements ProcessLogVisitor {
             return;
         }
         logEntry.update(processCancelLog);
-        sessionFactory.getCurrentSession().merge(logEntry);
     }
 
     @Override
     public void onNodeEnterLog(NodeEnterLog nodeEnterLog) {
         if (nodeEnterLog.getNode() instanceof BaseReceiveMessageNode) {
-            sessionFactory.getCurrentSession().save(
-                    new SignalListenerAggregatedLog(nodeEnterLog, ((BaseReceiveMessageNode) nodeEnterLog.getNode()).getEventType()));
+            SignalListenerAggregatedLog logEntry = new SignalListenerAggregatedLog(nodeEnterLog,
+                    ((BaseReceiveMessageNode) nodeEnterLog.getNode()).getEventType());
+            createdSignalListenerLogs.add(logEntry);
+            createdLogs.add(logEntry);
         }
     }
 
     @Override
     public void onNodeLeaveLog(NodeLeaveLog nodeLeaveLog) {
         if (nodeLeaveLog.getNodeType() == NodeType.TIMER) {
-            QTimerAggregatedLog l = QTimerAggregatedLog.timerAggregatedLog;
-            TimerAggregatedLog logEntry = queryFactory.selectFrom(l)
-                    .where(l.processId.eq(nodeLeaveLog.getProcessId()).and(l.nodeId.eq(nodeLeaveLog.getNodeId()))).orderBy(l.id.desc()).fetchFirst();
+            TimerAggregatedLog logEntry = getTimerLog(nodeLeaveLog.getProcessId(), nodeLeaveLog.getNodeId());
             if (logEntry == null) {
                 return;
             }
             logEntry.setEndDate(nodeLeaveLog.getCreateDate());
-            sessionFactory.getCurrentSession().merge(logEntry);
         }
     }
 
@@ -132,15 +158,11 @@ public class UpdateAggregatedLogOperation implements ProcessLogVisitor {
 
     @Override
     public void onReceiveMessageLog(ReceiveMessageLog receiveMessageLog) {
-        QSignalListenerAggregatedLog l = QSignalListenerAggregatedLog.signalListenerAggregatedLog;
-        SignalListenerAggregatedLog logEntry = queryFactory.selectFrom(l)
-                .where(l.processId.eq(receiveMessageLog.getProcessId()).and(l.nodeId.eq(receiveMessageLog.getNodeId()))).orderBy(l.id.desc())
-                .fetchFirst();
+        SignalListenerAggregatedLog logEntry = getSignalListenerLog(receiveMessageLog.getProcessId(), receiveMessageLog.getNodeId());
         if (logEntry == null) {
             return;
         }
         logEntry.setExecuteDate(receiveMessageLog.getCreateDate());
-        sessionFactory.getCurrentSession().merge(logEntry);
     }
 
     @Override
@@ -161,7 +183,9 @@ public class UpdateAggregatedLogOperation implements ProcessLogVisitor {
 
     @Override
     public void onCreateTimerLog(CreateTimerLog createTimerLog) {
-        sessionFactory.getCurrentSession().save(new TimerAggregatedLog(createTimerLog));
+        TimerAggregatedLog logEntry = new TimerAggregatedLog(createTimerLog);
+        createdTimerLogs.add(logEntry);
+        createdLogs.add(logEntry);
     }
 
     @Override
@@ -169,7 +193,9 @@ public class UpdateAggregatedLogOperation implements ProcessLogVisitor {
         if (getTaskLog(taskCreateLog.getTaskId()) != null) {
             return;
         }
-        sessionFactory.getCurrentSession().save(new TaskAggregatedLog(taskCreateLog, processDefinitionLoader, process, token));
+        TaskAggregatedLog logEntry = new TaskAggregatedLog(taskCreateLog, processDefinitionLoader, process, token);
+        taskLogs.put(taskCreateLog.getTaskId(), logEntry);
+        createdLogs.add(logEntry);
     }
 
     @Override
@@ -179,7 +205,6 @@ public class UpdateAggregatedLogOperation implements ProcessLogVisitor {
             return;
         }
         logEntry.updateAssignment(taskAssignLog);
-        sessionFactory.getCurrentSession().merge(logEntry);
     }
 
     @Override
@@ -254,13 +279,45 @@ public class UpdateAggregatedLogOperation implements ProcessLogVisitor {
     }
 
     private ProcessInstanceAggregatedLog getProcessInstanceLog(long processId) {
+        if (processInstanceLogs.containsKey(processId)) {
+            return processInstanceLogs.get(processId);
+        }
         QProcessInstanceAggregatedLog l = QProcessInstanceAggregatedLog.processInstanceAggregatedLog;
-        return queryFactory.selectFrom(l).where(l.processInstanceId.eq(processId)).fetchFirst();
+        ProcessInstanceAggregatedLog logEntry = queryFactory.selectFrom(l).where(l.processInstanceId.eq(processId)).fetchFirst();
+        processInstanceLogs.put(processId, logEntry);
+        return logEntry;
     }
 
     private TaskAggregatedLog getTaskLog(long taskId) {
+        if (taskLogs.containsKey(taskId)) {
+            return taskLogs.get(taskId);
+        }
         QTaskAggregatedLog l = QTaskAggregatedLog.taskAggregatedLog;
-        return queryFactory.selectFrom(l).where(l.taskId.eq(taskId)).fetchFirst();
+        TaskAggregatedLog logEntry = queryFactory.selectFrom(l).where(l.taskId.eq(taskId)).fetchFirst();
+        taskLogs.put(taskId, logEntry);
+        return logEntry;
+    }
+
+    private TimerAggregatedLog getTimerLog(Long processId, String nodeId) {
+        for (int i = createdTimerLogs.size() - 1; i >= 0; i--) {
+            TimerAggregatedLog logEntry = createdTimerLogs.get(i);
+            if (Objects.equal(logEntry.getProcessId(), processId) && Objects.equal(logEntry.getNodeId(), nodeId)) {
+                return logEntry;
+            }
+        }
+        QTimerAggregatedLog l = QTimerAggregatedLog.timerAggregatedLog;
+        return queryFactory.selectFrom(l).where(l.processId.eq(processId).and(l.nodeId.eq(nodeId))).orderBy(l.id.desc()).fetchFirst();
+    }
+
+    private SignalListenerAggregatedLog getSignalListenerLog(Long processId, String nodeId) {
+        for (int i = createdSignalListenerLogs.size() - 1; i >= 0; i--) {
+            SignalListenerAggregatedLog logEntry = createdSignalListenerLogs.get(i);
+            if (Objects.equal(logEntry.getProcessId(), processId) && Objects.equal(logEntry.getNodeId(), nodeId)) {
+                return logEntry;
+            }
+        }
+        QSignalListenerAggregatedLog l = QSignalListenerAggregatedLog.signalListenerAggregatedLog;
+        return queryFactory.selectFrom(l).where(l.processId.eq(processId).and(l.nodeId.eq(nodeId))).orderBy(l.id.desc()).fetchFirst();
     }
 
     private void onTaskEnd(TaskEndLog taskEndLog, EndReason endReason) {
@@ -269,6 +326,5 @@ public class UpdateAggregatedLogOperation implements ProcessLogVisitor {
             return;
         }
         logEntry.updateOnEnd(taskEndLog.getCreateDate(), taskEndLog.getActorName(), endReason, taskEndLog.getTransitionName());
-        sessionFactory.getCurrentSession().merge(logEntry);
     }
 }
@@ -19,7 +19,10 @@ package ru.runa.wfe.bot.logic;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Sets;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
 import ru.runa.wfe.InternalApplicationException;
 import ru.runa.wfe.bot.Bot;
@@ -38,6 +41,10 @@ import ru.runa.wfe.commons.SystemProperties;
 import ru.runa.wfe.commons.logic.CommonLogic;
 import ru.runa.wfe.security.Permission;
 import ru.runa.wfe.security.SecuredSingleton;
+import ru.runa.wfe.task.Task;
+import ru.runa.wfe.task.dao.TaskDao;
+import ru.runa.wfe.task.dto.WfTaskAssignments;
+import ru.runa.wfe.task.logic.TaskAssignmentJournal;
 import ru.runa.wfe.user.Actor;
 import ru.runa.wfe.user.Group;
 import ru.runa.wfe.user.User;
@@ -49,6 +56,10 @@ public class BotLogic extends CommonLogic {
     private BotDao botDao;
     @Autowired
     private BotTaskDao botTaskDao;
+    @Autowired
+    private TaskDao taskDao;
+    @Autowired
+    private TaskAssignmentJournal taskAssignmentJournal;
 
     public List<BotStation> getBotStations() {
         return botStationDao.getAll();
@@ -161,6 +172,26 @@ public class BotLogic extends CommonLogic {
         botDao.delete(id);
     }
 
+    /**
+     * Loads tasks, assigned to user actor or it groups since cursor.
+     */
+    public WfTaskAssignments getAssignedTaskIds(User user, Long cursor) {
+        checkPermission(user, Permission.READ);
+        Set<Long> executorIds = Sets.newHashSet(user.getActor().getId());
+        for (Group group : executorDao.getExecutorParentsAll(user.getActor())) {
+            executorIds.add(group.getId());
+        }
+        WfTaskAssignments assignments = taskAssignmentJournal.getAssignments(executorIds, cursor);
+        // Task may be completed or reassigned after assignment
+        for (Iterator<Long> iterator = assignments.getTaskIds().iterator(); iterator.hasNext();) {
+            Task task = taskDao.get(iterator.next());
+            if (task == null || task.getExecutor() == null || !executorIds.contains(task.getExecutor().getId())) {
+                iterator.remove();
+            }
+        }
+        return assignments;
+    }
+
     public BotTask createBotTask(User user, BotTask botTask) throws BotTaskAlreadyExistsException {
         checkPermission(user, Permission.UPDATE);
         Preconditions.checkNotNull(botTask.getBot());
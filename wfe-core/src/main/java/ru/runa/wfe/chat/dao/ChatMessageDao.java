@@ -1,5 +1,6 @@
 package ru.runa.wfe.chat.dao;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
@@ -48,4 +49,9 @@ public class ChatMessageDao extends GenericDao<ChatMessage> {
         final QChatMessage message = QChatMessage.chatMessage;
         return queryFactory.select(message).from(message).where(message.process.id.eq(processId)).fetch();
     }
+
+    public List<Long> getProcessIdsWithMessages(Collection<Long> processIds) {
+        final QChatMessage message = QChatMessage.chatMessage;
+        return queryFactory.selectDistinct(message.process.id).from(message).where(message.process.id.in(processIds)).fetch();
+    }
 }
\ No newline at end of file
@@ -33,9 +33,11 @@ import ru.runa.wfe.relation.dao.RelationDao;
 import ru.runa.wfe.relation.dao.RelationPairDao;
 import ru.runa.wfe.report.dao.ReportDao;
 import ru.runa.wfe.security.dao.PermissionDao;
+import ru.runa.wfe.ss.cache.SubstitutionCache;
 import ru.runa.wfe.ss.dao.SubstitutionDao;
 import ru.runa.wfe.task.dao.TaskDao;
 import ru.runa.wfe.task.logic.TaskNotifier;
+import ru.runa.wfe.user.cache.ExecutorCache;
 import ru.runa.wfe.user.dao.ExecutorDao;
 import ru.runa.wfe.user.logic.ExecutorLogic;
 import ru.runa.wfe.var.logic.VariableLogic;
@@ -184,6 +186,14 @@ public class ApplicationContextFactory implements ApplicationContextAware {
         return getContext().getBean(ReportDao.class);
     }
 
+    public static ExecutorCache getExecutorCache() {
+        return getContext().getBean(ExecutorCache.class);
+    }
+
+    public static SubstitutionCache getSubstitutionCache() {
+        return getContext().getBean(SubstitutionCache.class);
+    }
+
     public static List<TaskNotifier> getTaskNotifiers() {
         return Lists.newArrayList(getContext().getBeansOfType(TaskNotifier.class).values());
     }
@@ -2,17 +2,23 @@ package ru.runa.wfe.commons;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
 import groovy.lang.Binding;
 import groovy.lang.GroovyShell;
+import groovy.lang.Script;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.codehaus.groovy.GroovyExceptionInterface;
+import org.codehaus.groovy.runtime.InvokerHelper;
 import ru.runa.wfe.InternalApplicationException;
 import ru.runa.wfe.commons.ClassLoaderUtil.ExtensionObjectInputStream;
 import ru.runa.wfe.execution.dto.WfProcess;
@@ -23,14 +29,23 @@ import ru.runa.wfe.var.VariableProvider;
 
 public class GroovyScriptExecutor {
     protected static final Log log = LogFactory.getLog(GroovyScriptExecutor.class);
+    /**
+     * Compiled script classes by script text. Script class is instantiated with new binding on each invocation. Extension class loader is not
+     * reloaded at runtime, and changed scripts of redeployed definitions have own keys, so no explicit invalidation is required.
+     */
+    private static final Cache<String, Class<?>> scriptClasses = CacheBuilder.newBuilder()
+            .maximumSize(SystemProperties.getGroovyScriptCacheSize()).build();
+    private static final AtomicLong compilationCount = new AtomicLong();
+    private static final AtomicLong compilationTime = new AtomicLong();
+    private static final AtomicLong executionCount = new AtomicLong();
+    private static final AtomicLong executionTime = new AtomicLong();
 
     public Map<String, Object> executeScript(VariableProvider variableProvider, String script, GroovyNodeInfoLogExecutor nodeInfoLogExecutor) {
         try {
             GroovyScriptBinding binding = createBinding(variableProvider);
             binding.setVariable(GroovyScriptBinding.VARIABLE_PROVIDER_VARIABLE_NAME, variableProvider);
             binding.setVariable(GroovyScriptBinding.NODE_LOG_VARIABLE_NAME, nodeInfoLogExecutor);
-            GroovyShell shell = new GroovyShell(ClassLoaderUtil.getExtensionClassLoader(), binding);
-            shell.evaluate(script);
+            run(script, binding);
             return binding.getAdjustedVariables();
         } catch (Exception e) {
             log.error("Groovy execution failed, script=" + script, e);
@@ -45,8 +60,7 @@ public class GroovyScriptExecutor {
         try {
             GroovyScriptBinding binding = createBinding(variableProvider);
             binding.setVariable(GroovyScriptBinding.VARIABLE_PROVIDER_VARIABLE_NAME, variableProvider);
-            GroovyShell shell = new GroovyShell(ClassLoaderUtil.getExtensionClassLoader(), binding);
-            return shell.evaluate(script);
+            return run(script, binding);
         } catch (ValidatorException e) {
             throw e;
         } catch (Exception e) {
@@ -58,6 +72,51 @@ public class GroovyScriptExecutor {
         }
     }
 
+    public static long getCompiledScriptsCount() {
+        return compilationCount.get();
+    }
+
+    public static long getCompilationTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(compilationTime.get());
+    }
+
+    public static long getExecutedScriptsCount() {
+        return executionCount.get();
+    }
+
+    public static long getExecutionTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(executionTime.get());
+    }
+
+    private Object run(String script, Binding binding) {
+        Script instance = InvokerHelper.createScript(getScriptClass(script), binding);
+        long startTime = System.nanoTime();
+        try {
+            return instance.run();
+        } finally {
+            executionCount.incrementAndGet();
+            executionTime.addAndGet(System.nanoTime() - startTime);
+        }
+    }
+
+    private static Class<?> getScriptClass(String script) {
+        Class<?> scriptClass = scriptClasses.getIfPresent(script);
+        if (scriptClass == null) {
+            long startTime = System.nanoTime();
+            // Each script is compiled by own class loader, so evicted script class may be unloaded.
+            scriptClass = new GroovyShell(ClassLoaderUtil.getExtensionClassLoader()).parse(script).getClass();
+            long time = System.nanoTime() - startTime;
+            compilationCount.incrementAndGet();
+            compilationTime.addAndGet(time);
+            if (log.isDebugEnabled()) {
+                log.debug("Script compiled in " + TimeUnit.NANOSECONDS.toMillis(time) + " ms, total compiled: " + getCompiledScriptsCount() + " in "
+                        + getCompilationTimeMillis() + " ms, total executed: " + getExecutedScriptsCount() + " in " + getExecutionTimeMillis() + " ms");
+            }
+            scriptClasses.put(script, scriptClass);
+        }
+        return scriptClass;
+    }
+
     protected GroovyScriptBinding createBinding(VariableProvider variableProvider) {
         return new GroovyScriptBinding(variableProvider);
     }
@@ -71,6 +71,20 @@ public class SystemProperties {
         return RESOURCES.getBooleanProperty("v4.2.list.variable.compatibility", true);
     }
 
+    /**
+     * Load all process variables by one query on first access in transaction (unless overridden in process definition).
+     */
+    public static boolean isVariablesPrefetchEnabled() {
+        return RESOURCES.getBooleanProperty("variables.prefetch.enabled", true);
+    }
+
+    /**
+     * Processes with more variables are not prefetched.
+     */
+    public static int getVariablesPrefetchMaxCount() {
+        return RESOURCES.getIntegerProperty("variables.prefetch.max.count", 1000);
+    }
+
     /**
      * List variable back compatibility mode with version 4.2.x.
      */
@@ -92,6 +106,96 @@ public class SystemProperties {
         return NO_DATABASE_RESOURCES.getBooleanProperty("nonruntime.susbstitution.cache", true);
     }
 
+    /**
+     * Using task list cache with per actor invalidation instead of dropping whole task list cache on any related change.
+     */
+    public static boolean useChangeTrackingTaskCache() {
+        return NO_DATABASE_RESOURCES.getBooleanProperty("task.cache.change.tracking.enabled", false);
+    }
+
+    /**
+     * Using last committed cache generation for readers while changing transactions are not completed instead of bypassing cache.
+     */
+    public static boolean useSnapshotCacheStates() {
+        return NO_DATABASE_RESOURCES.getBooleanProperty("cache.snapshot.states.enabled", false);
+    }
+
+    /**
+     * Max compiled groovy scripts count, held in memory.
+     */
+    public static int getGroovyScriptCacheSize() {
+        return NO_DATABASE_RESOURCES.getIntegerProperty("groovy.script.cache.size", 500);
+    }
+
+    /**
+     * Max parsed freemarker templates count, held in memory.
+     */
+    public static int getFreemarkerTemplateCacheSize() {
+        return NO_DATABASE_RESOURCES.getIntegerProperty("freemarker.template.cache.size", 500);
+    }
+
+    /**
+     * Max loaded compiled reports count, held in memory.
+     */
+    public static int getReportCacheSize() {
+        return NO_DATABASE_RESOURCES.getIntegerProperty("report.cache.size", 50);
+    }
+
+    /**
+     * Report pages count held in memory during filling, others are swapped to file; 0 disables swapping.
+     */
+    public static int getReportVirtualizerMaxPages() {
+        return RESOURCES.getIntegerProperty("report.virtualizer.max.pages", 100);
+    }
+
+    public static String getReportVirtualizerDirectory() {
+        return RESOURCES.getStringProperty("report.virtualizer.directory", System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Max rendered process and history diagrams count, held in memory.
+     */
+    public static int getProcessDiagramCacheSize() {
+        return NO_DATABASE_RESOURCES.getIntegerProperty("process.diagram.cache.size", 200);
+    }
+
+    /**
+     * Max decoded definition graph images count, held in memory (until memory is needed) for diagrams drawn in edging only mode.
+     */
+    public static int getDefinitionGraphImageCacheSize() {
+        return NO_DATABASE_RESOURCES.getIntegerProperty("definition.graph.image.cache.size", 50);
+    }
+
+    /**
+     * Store complex variable values in compact binary format instead of java serialization. Values written in this format can't be read by
+     * versions without the codec, so disabling it later doesn't allow to downgrade.
+     */
+    public static boolean isBinaryVariableCodecEnabled() {
+        return NO_DATABASE_RESOURCES.getBooleanProperty("variable.binary.codec.enabled", false);
+    }
+
+    /**
+     * Max compiled batch presentation queries count, held in memory.
+     */
+    public static int getBatchPresentationCompiledQueriesCacheSize() {
+        return NO_DATABASE_RESOURCES.getIntegerProperty("batch.presentation.compiled.queries.cache.size", 1000);
+    }
+
+    /**
+     * Max objects count with permissions, held in memory for executor and secured object type; permissions of executors with more objects are
+     * checked by database.
+     */
+    public static int getPermissionCacheMaxObjectsPerType() {
+        return NO_DATABASE_RESOURCES.getIntegerProperty("permission.cache.max.objects.per.type", 10000);
+    }
+
+    /**
+     * Max task assignments count, held in memory for incremental bot task lists loading.
+     */
+    public static int getTaskAssignmentJournalCapacity() {
+        return NO_DATABASE_RESOURCES.getIntegerProperty("task.assignment.journal.capacity", 10000);
+    }
+
     /**
      * Product name
      */
@@ -145,6 +249,24 @@ public class SystemProperties {
         return RESOURCES.getIntegerProperty("file.variable.local.storage.enableforfilesgreaterthan", 100000);
     }
 
+    /**
+     * Read process definition files from deployment archive on demand instead of holding them unpacked in cached definition.
+     */
+    public static boolean isDefinitionFilesLoadedOnDemand() {
+        return RESOURCES.getBooleanProperty("definition.files.load.on.demand", true);
+    }
+
+    /**
+     * Parse definitions with active processes in background after server start.
+     */
+    public static boolean isDefinitionCacheWarmUpEnabled() {
+        return RESOURCES.getBooleanProperty("definition.cache.warmup.enabled", false);
+    }
+
+    public static int getDefinitionCacheWarmUpThreadsCount() {
+        return RESOURCES.getIntegerProperty("definition.cache.warmup.threads", 4);
+    }
+
     public static String getStrongPasswordsRegexp() {
         return RESOURCES.getStringProperty("strong.passwords.regexp");
     }
@@ -180,6 +302,13 @@ public class SystemProperties {
         return RESOURCES.getIntegerProperty("log.attribute.max.length", 512);
     }
 
+    /**
+     * Buffer process logs in transaction and write them in batch on session flush.
+     */
+    public static boolean isProcessLogBufferingEnabled() {
+        return RESOURCES.getBooleanProperty("process.log.buffering.enabled", true);
+    }
+
     public static int getTokenMaximumDepth() {
         return RESOURCES.getIntegerProperty("token.maximum.depth", 100);
     }
@@ -432,6 +561,36 @@ public class SystemProperties {
         return RESOURCES.getBooleanProperty("datasource.password.export", true);
     }
 
+    /**
+     * Whether connections of JDBC data sources are pooled.
+     */
+    public static boolean isDataSourcePoolEnabled() {
+        return RESOURCES.getBooleanProperty("datasource.pool.enabled", true);
+    }
+
+    public static int getDataSourcePoolMaxSize() {
+        return RESOURCES.getIntegerProperty("datasource.pool.max.size", 10);
+    }
+
+    public static long getDataSourcePoolBorrowTimeoutMillis() {
+        return RESOURCES.getLongProperty("datasource.pool.borrow.timeout.millis", 30000);
+    }
+
+    public static long getDataSourcePoolIdleTimeoutMillis() {
+        return RESOURCES.getLongProperty("datasource.pool.idle.timeout.millis", 600000);
+    }
+
+    public static int getDataSourcePoolValidationTimeoutSeconds() {
+        return RESOURCES.getIntegerProperty("datasource.pool.validation.timeout.seconds", 5);
+    }
+
+    /**
+     * Max cached prepared statements count per pooled connection; 0 disables caching.
+     */
+    public static int getDataSourcePoolStatementCacheSize() {
+        return RESOURCES.getIntegerProperty("datasource.pool.statement.cache.size", 50);
+    }
+
     public static boolean ignoreErrorsInSendEmailActionHandler() {
         return RESOURCES.getBooleanProperty("SendEmailActionHandler.ignore.errors", false);
     }
@@ -471,6 +630,27 @@ public class SystemProperties {
         return RESOURCES.getLongProperty("job.executor.batch.size", 50L);
     }
 
+    /**
+     * Time after which job claim is expired and job may be claimed by other job executor (node).
+     */
+    public static int getJobExecutorLockTimeoutSeconds() {
+        return RESOURCES.getIntegerProperty("job.executor.lock.timeout.seconds", 600);
+    }
+
+    /**
+     * Delay before failed job retry; other jobs of process are not executed until retry.
+     */
+    public static int getJobExecutorRetryDelaySeconds() {
+        return RESOURCES.getIntegerProperty("job.executor.retry.delay.seconds", 5);
+    }
+
+    /**
+     * Maximum batches claimed by job executor in one invocation; claiming stops earlier if not full batch is claimed.
+     */
+    public static int getJobExecutorMaxBatchesPerInvocation() {
+        return RESOURCES.getIntegerProperty("job.executor.max.batches.per.invocation", 100);
+    }
+
     public static String getChatFileStoragePath() {
         return RESOURCES.getStringProperty("chat.files.storage.path", IoCommons.getAppServerDirPath() + "/wfe.chat-files-storage");
     }
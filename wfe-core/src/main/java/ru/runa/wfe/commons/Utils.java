@@ -46,7 +46,7 @@ public class Utils {
     public static final String CATEGORY_DELIMITER = "/";
     private static Log log = LogFactory.getLog(Utils.class);
     private static volatile InitialContext initialContext;
-    private static TransactionManager transactionManager;
+    private static volatile TransactionManager transactionManager;
     private static ConnectionFactory connectionFactory;
     private static Queue bpmMessageQueue;
     private static Queue emailQueue;
@@ -70,20 +70,25 @@ public class Utils {
         }
     }
 
-    public static synchronized TransactionManager getTransactionManager() {
-        if (transactionManager != null) {
-            return transactionManager;
+    public static TransactionManager getTransactionManager() {
+        TransactionManager result = transactionManager;
+        if (result != null) {
+            return result;
         }
-        String jndiName = "java:/TransactionManager";
-        try {
-            transactionManager = (TransactionManager) getInitialContext().lookup(jndiName);
+        synchronized (Utils.class) {
+            if (transactionManager == null) {
+                String jndiName = "java:/TransactionManager";
+                try {
+                    transactionManager = (TransactionManager) getInitialContext().lookup(jndiName);
+                } catch (NamingException e) {
+                    throw new InternalApplicationException("Unable to find TransactionManager by name '" + jndiName + "'", e);
+                }
+            }
             return transactionManager;
-        } catch (NamingException e) {
-            throw new InternalApplicationException("Unable to find TransactionManager by name '" + jndiName + "'", e);
         }
     }
 
-    public static synchronized Transaction getTransaction() {
+    public static Transaction getTransaction() {
         try {
             return getTransactionManager().getTransaction();
         } catch (SystemException e) {
@@ -207,6 +212,15 @@ public class Utils {
     }
 
     public static String getReceiveMessageNodeSelector(VariableProvider variableProvider, BaseMessageNode messageNode) {
+        return getReceiveMessageNodeSelector(variableProvider, messageNode, true);
+    }
+
+    /**
+     * @param withNullValues
+     *            Whether to include selector terms with null expected value. Selector without such terms is used as correlation index: message,
+     *            which does not contain property, matches null expected value.
+     */
+    public static String getReceiveMessageNodeSelector(VariableProvider variableProvider, BaseMessageNode messageNode, boolean withNullValues) {
         List<String> selectors = Lists.newArrayList();
         if (messageNode.getEventType() == MessageEventType.error && messageNode.getParentElement() instanceof Node) {
             selectors.add(BaseMessageNode.EVENT_TYPE + MESSAGE_SELECTOR_VALUE_DELIMITER + MessageEventType.error.name());
@@ -217,8 +231,10 @@ public class Utils {
         } else {
             for (VariableMapping mapping : messageNode.getVariableMappings()) {
                 if (mapping.isPropertySelector()) {
-                    selectors.add(
-                            mapping.getName() + MESSAGE_SELECTOR_VALUE_DELIMITER + getMessageSelectorValue(variableProvider, messageNode, mapping));
+                    String value = getMessageSelectorValue(variableProvider, messageNode, mapping);
+                    if (value != null || withNullValues) {
+                        selectors.add(mapping.getName() + MESSAGE_SELECTOR_VALUE_DELIMITER + value);
+                    }
                 }
             }
         }
@@ -226,6 +242,20 @@ public class Utils {
         return Joiner.on(MESSAGE_SELECTOR_DELIMITER).join(selectors);
     }
 
+    /**
+     * Converts token selector evaluated with null values to correlation index form (see
+     * {@link #getReceiveMessageNodeSelector(VariableProvider, BaseMessageNode, boolean)}).
+     */
+    public static String removeNullMessageSelectorTerms(String selector) {
+        List<String> selectors = Lists.newArrayList();
+        for (String term : Splitter.on(MESSAGE_SELECTOR_DELIMITER).split(selector)) {
+            if (!term.endsWith(MESSAGE_SELECTOR_VALUE_DELIMITER + null)) {
+                selectors.add(term);
+            }
+        }
+        return Joiner.on(MESSAGE_SELECTOR_DELIMITER).join(selectors);
+    }
+
     public static String getObjectMessageStrictSelector(Map<String, String> routingData) {
         return Joiner.on(MESSAGE_SELECTOR_DELIMITER).join(getObjectMessageSelectorSelectors(routingData));
     }
@@ -55,6 +55,15 @@ public class CacheStatistic {
         return counter;
     }
 
+    /**
+     * Get statistic counter for specified cache without registering rebuild event.
+     * @param cacheName Cache name.
+     * @return statistic counter for cache or null, if counter is not registered yet.
+     */
+    public static StatisticCounter getCacheCounter(String cacheName) {
+        return counters.get(cacheName);
+    }
+
     /**
      * Log cache counters.
      */
@@ -81,7 +90,9 @@ public class CacheStatistic {
             logMessage.append("Hit on contains: ").append(counter.getHitOnContainsValue()).append(" (").
                 append(getPerSecond(counter.getHitOnContainsValue(), elapsedMillis)).append(" per second); ");
             logMessage.append("Miss on contains: ").append(counter.getMissOnContainsValue()).append(" (").
-                append(getPerSecond(counter.getMissOnContainsValue(), elapsedMillis)).append(" per second).\n");
+                append(getPerSecond(counter.getMissOnContainsValue(), elapsedMillis)).append(" per second); ");
+            logMessage.append("Eviction: ").append(counter.getEvictionValue()).append(" (").
+                append(getPerSecond(counter.getEvictionValue(), elapsedMillis)).append(" per second).\n");
         }
         if (!statisticSnapshot.isEmpty()) {
             log.debug(logMessage);
@@ -78,7 +78,11 @@ class CacheStatisticProxy<K extends Serializable, V extends Serializable> implem
 
     @Override
     public boolean remove(K key) {
-        return delegatedImpl.remove(key);
+        boolean removed = delegatedImpl.remove(key);
+        if (removed) {
+            stats.registerCacheEviction();
+        }
+        return removed;
     }
 
     @Override
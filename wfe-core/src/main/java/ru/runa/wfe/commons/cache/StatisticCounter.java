@@ -42,6 +42,10 @@ public class StatisticCounter {
      * Counter for cache miss on contains operation events.
      */
     private final AtomicInteger missOnContainsCounter = new AtomicInteger();
+    /**
+     * Counter for cache element eviction events.
+     */
+    private final AtomicInteger evictionCounter = new AtomicInteger();
     /**
      * Counter for cache rebuild events.
      */
@@ -80,6 +84,7 @@ public class StatisticCounter {
         missOnGetCounter.set(counter.missOnGetCounter.getAndSet(0));
         hitOnContainsCounter.set(counter.hitOnContainsCounter.getAndSet(0));
         missOnContainsCounter.set(counter.missOnContainsCounter.getAndSet(0));
+        evictionCounter.set(counter.evictionCounter.getAndSet(0));
         rebuildCounter.set(counter.rebuildCounter.getAndSet(0));
         commitCounter.set(counter.commitCounter.getAndSet(0));
         creationDate = System.currentTimeMillis();
@@ -114,6 +119,13 @@ public class StatisticCounter {
         missOnContainsCounter.incrementAndGet();
     }
 
+    /**
+     * Register cache element eviction event.
+     */
+    public void registerCacheEviction() {
+        evictionCounter.incrementAndGet();
+    }
+
     /**
      * Register cache rebuild event.
      */
@@ -185,6 +197,13 @@ public class StatisticCounter {
         return missOnContainsCounter.get();
     }
 
+    /**
+     * @return Cache element eviction counts.
+     */
+    public int getEvictionValue() {
+        return evictionCounter.get();
+    }
+
     /**
      * @return Cache rebuild counts.
      */
@@ -0,0 +1,256 @@
+package ru.runa.wfe.commons.cache.cluster;
+
+import com.google.common.collect.Maps;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import javax.transaction.Transaction;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.proxy.HibernateProxyHelper;
+import ru.runa.wfe.commons.cache.Change;
+import ru.runa.wfe.commons.cache.sm.CachingLogic;
+
+/**
+ * Sends committed changes of cached objects to other cluster nodes and drops local caches on their changes.
+ *
+ * Changes are collected per transaction and coalesced by object; committed transaction becomes one message with next sequence number of this
+ * node. Messages are published and received by {@link #execute()}, so other nodes see changes after the delay up to execution period. Missed
+ * message of other node (sequence number gap, including dropped on outgoing queue overflow) leads to all caches drop. Node id is unique per
+ * start, so sequence numbers of nodes, which sent nothing during expiration period, are forgotten.
+ */
+public class CacheInvalidationBus {
+    private static final Log log = LogFactory.getLog(CacheInvalidationBus.class);
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID();
+    private final ConcurrentMap<Transaction, TransactionEvents> transactionEvents = Maps.newConcurrentMap();
+    private final Deque<CacheInvalidationMessage> outgoing = new ArrayDeque<>();
+    private final Map<String, Long> receivedSequenceNumbers = new HashMap<>();
+    private final Map<String, Long> receivedTimes = new HashMap<>();
+    private long sequenceNumber;
+    private boolean enabled;
+    private int maxEventsPerTransaction = 100;
+    private int maxQueueSize = 10000;
+    private long nodeExpirationMillis = 3600000;
+    private CacheInvalidationTransport transport;
+    private CacheInvalidationTarget target = new CachingLogicInvalidationTarget();
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Transaction with more changed objects is sent as changes of object types.
+     */
+    public void setMaxEventsPerTransaction(int maxEventsPerTransaction) {
+        this.maxEventsPerTransaction = maxEventsPerTransaction;
+    }
+
+    /**
+     * Oldest not published messages are dropped on overflow.
+     */
+    public void setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    /**
+     * Must be greater than the period, during which transport may return already received messages.
+     */
+    public void setNodeExpirationMillis(long nodeExpirationMillis) {
+        this.nodeExpirationMillis = nodeExpirationMillis;
+    }
+
+    public void setTransport(CacheInvalidationTransport transport) {
+        this.transport = transport;
+    }
+
+    public void setTarget(CacheInvalidationTarget target) {
+        this.target = target;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void init() {
+        if (enabled) {
+            log.info("Cluster cache invalidation is enabled on node " + nodeId + " using " + transport.getClass().getName());
+            CachingLogic.setInvalidationBus(this);
+        }
+    }
+
+    /**
+     * Records change of cached object in transaction.
+     *
+     * @param entityId
+     *            object id, may be <code>null</code>
+     */
+    public void onChange(Transaction transaction, Object entity, Serializable entityId, Change change) {
+        String className = HibernateProxyHelper.getClassWithoutInitializingProxy(entity).getName();
+        TransactionEvents events = transactionEvents.get(transaction);
+        if (events == null) {
+            events = new TransactionEvents();
+            transactionEvents.put(transaction, events);
+        }
+        events.add(new CacheInvalidationEvent(className, entityId != null ? entityId.toString() : null, change), maxEventsPerTransaction);
+    }
+
+    /**
+     * Enqueues changes of committed transaction for publication; changes of rolled back transaction are discarded.
+     */
+    public void onTransactionComplete(Transaction transaction, boolean committed) {
+        TransactionEvents events = transactionEvents.remove(transaction);
+        if (events == null || !committed) {
+            return;
+        }
+        synchronized (outgoing) {
+            if (outgoing.size() >= maxQueueSize) {
+                log.warn("Outgoing queue is full, dropping " + outgoing.pollFirst());
+            }
+            outgoing.addLast(new CacheInvalidationMessage(nodeId, ++sequenceNumber, events.getEvents()));
+        }
+    }
+
+    public synchronized void execute() {
+        if (!enabled) {
+            return;
+        }
+        publish();
+        receive();
+    }
+
+    private void publish() {
+        List<CacheInvalidationMessage> messages;
+        synchronized (outgoing) {
+            messages = new ArrayList<>(outgoing);
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+        try {
+            transport.publish(messages);
+        } catch (Exception e) {
+            log.warn("Unable to publish " + messages.size() + " messages, will retry", e);
+            return;
+        }
+        long lastPublished = messages.get(messages.size() - 1).getSequenceNumber();
+        synchronized (outgoing) {
+            while (!outgoing.isEmpty() && outgoing.peekFirst().getSequenceNumber() <= lastPublished) {
+                outgoing.pollFirst();
+            }
+        }
+    }
+
+    private void receive() {
+        List<CacheInvalidationMessage> messages;
+        try {
+            messages = new ArrayList<>(transport.receive());
+        } catch (Exception e) {
+            log.warn("Unable to receive messages", e);
+            return;
+        }
+        Collections.sort(messages, new Comparator<CacheInvalidationMessage>() {
+
+            @Override
+            public int compare(CacheInvalidationMessage m1, CacheInvalidationMessage m2) {
+                int result = m1.getNodeId().compareTo(m2.getNodeId());
+                return result != 0 ? result : Long.compare(m1.getSequenceNumber(), m2.getSequenceNumber());
+            }
+        });
+        long now = currentTimeMillis();
+        boolean messagesMissed = false;
+        Map<String, CacheInvalidationEvent> events = new LinkedHashMap<>();
+        for (CacheInvalidationMessage message : messages) {
+            if (nodeId.equals(message.getNodeId())) {
+                continue;
+            }
+            Long lastSequenceNumber = receivedSequenceNumbers.get(message.getNodeId());
+            if (lastSequenceNumber != null && message.getSequenceNumber() <= lastSequenceNumber) {
+                continue;
+            }
+            if (lastSequenceNumber != null && message.getSequenceNumber() != lastSequenceNumber + 1) {
+                log.warn("Missed messages " + (lastSequenceNumber + 1) + ".." + (message.getSequenceNumber() - 1) + " of node " + message.getNodeId());
+                messagesMissed = true;
+            }
+            receivedSequenceNumbers.put(message.getNodeId(), message.getSequenceNumber());
+            receivedTimes.put(message.getNodeId(), now);
+            for (CacheInvalidationEvent event : message.getEvents()) {
+                merge(events, event);
+            }
+        }
+        if (messagesMissed) {
+            target.invalidateAll();
+        } else if (!events.isEmpty()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Invalidating caches by " + events.values());
+            }
+            target.invalidate(events.values());
+        }
+        expireNodes(now);
+    }
+
+    private void expireNodes(long now) {
+        Iterator<Map.Entry<String, Long>> iterator = receivedTimes.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            if (entry.getValue() < now - nodeExpirationMillis) {
+                log.info("Node " + entry.getKey() + " sent nothing since " + new Date(entry.getValue()) + ", forgetting it");
+                receivedSequenceNumbers.remove(entry.getKey());
+                iterator.remove();
+            }
+        }
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    Set<String> getReceivedNodeIds() {
+        return Collections.unmodifiableSet(receivedSequenceNumbers.keySet());
+    }
+
+    private static void merge(Map<String, CacheInvalidationEvent> events, CacheInvalidationEvent event) {
+        CacheInvalidationEvent previous = events.get(event.getKey());
+        events.put(event.getKey(), previous != null ? previous.merge(event) : event);
+    }
+
+    /**
+     * Coalesced changes of one transaction.
+     */
+    private static class TransactionEvents {
+        private Map<String, CacheInvalidationEvent> events = new LinkedHashMap<>();
+        private boolean typesOnly;
+
+        synchronized void add(CacheInvalidationEvent event, int maxEvents) {
+            if (typesOnly) {
+                event = new CacheInvalidationEvent(event.getClassName(), null, event.getChange());
+            }
+            merge(events, event);
+            if (!typesOnly && events.size() > maxEvents) {
+                typesOnly = true;
+                Map<String, CacheInvalidationEvent> typeEvents = new LinkedHashMap<>();
+                for (CacheInvalidationEvent objectEvent : events.values()) {
+                    merge(typeEvents, new CacheInvalidationEvent(objectEvent.getClassName(), null, objectEvent.getChange()));
+                }
+                events = typeEvents;
+            }
+        }
+
+        synchronized List<CacheInvalidationEvent> getEvents() {
+            return new ArrayList<>(events.values());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ru.runa.wfe.commons.cache.cluster;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import ru.runa.wfe.commons.cache.Change;
+
+/**
+ * Committed change of cached persistent object, sent to other cluster nodes.
+ */
+public class CacheInvalidationEvent {
+    private final String className;
+    private final String entityId;
+    private final Change change;
+
+    /**
+     * @param entityId
+     *            changed object id, <code>null</code> if unknown or event is related to all objects of given type
+     */
+    public CacheInvalidationEvent(String className, String entityId, Change change) {
+        this.className = className;
+        this.entityId = entityId;
+        this.change = change;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public Change getChange() {
+        return change;
+    }
+
+    /**
+     * Events with the same key are coalesced into one event.
+     */
+    public String getKey() {
+        return entityId != null ? className + "#" + entityId : className;
+    }
+
+    /**
+     * Creates event, which replaces this and later event with the same key.
+     */
+    public CacheInvalidationEvent merge(CacheInvalidationEvent later) {
+        Change mergedChange;
+        if (change == later.change) {
+            mergedChange = change;
+        } else if (change == Change.DELETE || later.change == Change.DELETE) {
+            mergedChange = Change.DELETE;
+        } else if (change == Change.CREATE) {
+            mergedChange = Change.CREATE;
+        } else {
+            mergedChange = Change.UPDATE;
+        }
+        return new CacheInvalidationEvent(className, entityId, mergedChange);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof CacheInvalidationEvent)) {
+            return false;
+        }
+        CacheInvalidationEvent event = (CacheInvalidationEvent) obj;
+        return Objects.equal(className, event.className) && Objects.equal(entityId, event.entityId) && change == event.change;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(className, entityId, change);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("class", className).add("id", entityId).add("change", change).omitNullValues().toString();
+    }
+}
@@ -0,0 +1,65 @@
+package ru.runa.wfe.commons.cache.cluster;
+
+import com.google.common.base.MoreObjects;
+import java.util.ArrayList;
+import java.util.List;
+import ru.runa.wfe.commons.cache.Change;
+
+/**
+ * Events of one committed transaction. Messages of each node are numbered sequentially, so receiver can detect missed messages.
+ */
+public class CacheInvalidationMessage {
+    private final String nodeId;
+    private final long sequenceNumber;
+    private final List<CacheInvalidationEvent> events;
+
+    public CacheInvalidationMessage(String nodeId, long sequenceNumber, List<CacheInvalidationEvent> events) {
+        this.nodeId = nodeId;
+        this.sequenceNumber = sequenceNumber;
+        this.events = events;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public List<CacheInvalidationEvent> getEvents() {
+        return events;
+    }
+
+    /**
+     * Text form of events for transports: one event per line, line contains change, class name and optional id separated by tabs.
+     */
+    public String getEventsAsText() {
+        StringBuilder result = new StringBuilder();
+        for (CacheInvalidationEvent event : events) {
+            result.append(event.getChange()).append('\t').append(event.getClassName());
+            if (event.getEntityId() != null) {
+                result.append('\t').append(event.getEntityId().replace('\t', ' ').replace('\n', ' '));
+            }
+            result.append('\n');
+        }
+        return result.toString();
+    }
+
+    public static CacheInvalidationMessage parse(String nodeId, long sequenceNumber, String eventsText) {
+        List<CacheInvalidationEvent> events = new ArrayList<>();
+        for (String line : eventsText.split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] parts = line.split("\t", 3);
+            events.add(new CacheInvalidationEvent(parts[1], parts.length > 2 ? parts[2] : null, Change.valueOf(parts[0])));
+        }
+        return new CacheInvalidationMessage(nodeId, sequenceNumber, events);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("node", nodeId).add("sequence", sequenceNumber).add("events", events.size()).toString();
+    }
+}
@@ -0,0 +1,19 @@
+package ru.runa.wfe.commons.cache.cluster;
+
+import java.util.Collection;
+
+/**
+ * Local caches, which are invalidated by events from other cluster nodes.
+ */
+public interface CacheInvalidationTarget {
+
+    /**
+     * Drops caches, affected by given events.
+     */
+    void invalidate(Collection<CacheInvalidationEvent> events);
+
+    /**
+     * Drops all caches; called when some messages from other node were missed.
+     */
+    void invalidateAll();
+}
@@ -0,0 +1,25 @@
+package ru.runa.wfe.commons.cache.cluster;
+
+import java.util.List;
+
+/**
+ * Delivers cache invalidation messages between cluster nodes. Methods are called by single thread of {@link CacheInvalidationBus}.
+ */
+public interface CacheInvalidationTransport {
+
+    /**
+     * Sends messages to all cluster nodes.
+     *
+     * @param messages
+     *            messages in sequence number order
+     * @throws Exception
+     *             if messages are not sent; they will be sent again on next call
+     */
+    void publish(List<CacheInvalidationMessage> messages) throws Exception;
+
+    /**
+     * Returns messages, published since previous call. Result may contain own messages and already received messages: they are filtered by
+     * sequence number.
+     */
+    List<CacheInvalidationMessage> receive() throws Exception;
+}
@@ -0,0 +1,34 @@
+package ru.runa.wfe.commons.cache.cluster;
+
+import java.util.Collection;
+import lombok.extern.apachecommons.CommonsLog;
+import ru.runa.wfe.commons.ClassLoaderUtil;
+import ru.runa.wfe.commons.cache.sm.CachingLogic;
+
+/**
+ * Notifies change listeners, registered in {@link CachingLogic}, about changed objects by their ids; listener drops only cached data of
+ * changed object if it can (whole cache otherwise).
+ */
+@CommonsLog
+public class CachingLogicInvalidationTarget implements CacheInvalidationTarget {
+
+    @Override
+    public void invalidate(Collection<CacheInvalidationEvent> events) {
+        for (CacheInvalidationEvent event : events) {
+            Class<?> objectType;
+            try {
+                objectType = ClassLoaderUtil.loadClass(event.getClassName(), getClass());
+            } catch (ClassNotFoundException e) {
+                log.warn("Unknown class in " + event + ", dropping all caches");
+                invalidateAll();
+                return;
+            }
+            CachingLogic.onRemoteChange(objectType, event.getEntityId(), event.getChange());
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        CachingLogic.resetAllCaches();
+    }
+}
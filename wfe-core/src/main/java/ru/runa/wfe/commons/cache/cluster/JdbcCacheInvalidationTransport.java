@@ -0,0 +1,122 @@
+package ru.runa.wfe.commons.cache.cluster;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.runa.wfe.commons.ApplicationContextFactory;
+import ru.runa.wfe.commons.ManualTransactionManager;
+import ru.runa.wfe.commons.ManualTransactionManager.TxCallable;
+import ru.runa.wfe.commons.ManualTransactionManager.TxRunnable;
+
+/**
+ * Transport through WFE_CACHE_INVALIDATION table, shared by all cluster nodes.
+ *
+ * Row ids are generated before commit, so row with smaller id may become visible after row with greater id. Rows are read again until they are
+ * older than settle period; repeated messages are skipped by sequence number. Rows older than retention period are deleted.
+ */
+public class JdbcCacheInvalidationTransport implements CacheInvalidationTransport {
+    private static final String TABLE_NAME = "WFE_CACHE_INVALIDATION";
+
+    @Autowired
+    private ManualTransactionManager transactionManager;
+    private long settleMillis = 10000;
+    private long retentionMillis = 600000;
+
+    private Long settledId;
+    private final Deque<long[]> polls = new ArrayDeque<>();
+    private long lastCleanupTime = System.currentTimeMillis();
+
+    /**
+     * Maximum time between row id generation and commit.
+     */
+    public void setSettleMillis(long settleMillis) {
+        this.settleMillis = settleMillis;
+    }
+
+    public void setRetentionMillis(long retentionMillis) {
+        this.retentionMillis = retentionMillis;
+    }
+
+    @Override
+    public void publish(final List<CacheInvalidationMessage> messages) throws Exception {
+        transactionManager.runInTransaction(new TxRunnable() {
+            @Override
+            public void run(Connection conn) throws Exception {
+                try (PreparedStatement stmt = conn.prepareStatement(getInsertSql())) {
+                    Timestamp now = new Timestamp(System.currentTimeMillis());
+                    for (CacheInvalidationMessage message : messages) {
+                        String events = message.getEventsAsText();
+                        stmt.setString(1, message.getNodeId());
+                        stmt.setLong(2, message.getSequenceNumber());
+                        stmt.setTimestamp(3, now);
+                        stmt.setCharacterStream(4, new StringReader(events), events.length());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+            }
+        });
+    }
+
+    @Override
+    public List<CacheInvalidationMessage> receive() throws Exception {
+        final long now = System.currentTimeMillis();
+        return transactionManager.callInTransaction(new TxCallable<List<CacheInvalidationMessage>>() {
+            @Override
+            public List<CacheInvalidationMessage> call(Connection conn) throws Exception {
+                List<CacheInvalidationMessage> messages = new ArrayList<>();
+                if (settledId == null) {
+                    // Caches of started node are empty, so previous messages are not needed.
+                    try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT MAX(ID) FROM " + TABLE_NAME)) {
+                        rs.next();
+                        settledId = rs.getLong(1);
+                    }
+                    return messages;
+                }
+                while (!polls.isEmpty() && polls.peekFirst()[0] < now - settleMillis) {
+                    settledId = Math.max(settledId, polls.pollFirst()[1]);
+                }
+                long maxId = settledId;
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT ID, NODE_ID, SEQUENCE_NUMBER, EVENTS FROM " + TABLE_NAME
+                        + " WHERE ID > ? ORDER BY ID")) {
+                    stmt.setLong(1, settledId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            maxId = Math.max(maxId, rs.getLong(1));
+                            messages.add(CacheInvalidationMessage.parse(rs.getString(2), rs.getLong(3), rs.getString(4)));
+                        }
+                    }
+                }
+                polls.addLast(new long[] { now, maxId });
+                if (lastCleanupTime < now - retentionMillis / 2) {
+                    try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + TABLE_NAME + " WHERE CREATE_DATE < ?")) {
+                        stmt.setTimestamp(1, new Timestamp(now - retentionMillis));
+                        stmt.executeUpdate();
+                    }
+                    lastCleanupTime = now;
+                }
+                return messages;
+            }
+        });
+    }
+
+    private static String getInsertSql() {
+        String columns = "NODE_ID, SEQUENCE_NUMBER, CREATE_DATE, EVENTS";
+        switch (ApplicationContextFactory.getDbType()) {
+            case ORACLE:
+                return "INSERT INTO " + TABLE_NAME + " (ID, " + columns + ") VALUES (SEQ_" + TABLE_NAME + ".nextval, ?, ?, ?, ?)";
+            case POSTGRESQL:
+                return "INSERT INTO " + TABLE_NAME + " (ID, " + columns + ") VALUES (nextval('SEQ_" + TABLE_NAME + "'), ?, ?, ?, ?)";
+            default:
+                return "INSERT INTO " + TABLE_NAME + " (" + columns + ") VALUES (?, ?, ?, ?)";
+        }
+    }
+}
@@ -95,6 +95,18 @@ public abstract class BaseCacheCtrl<CacheImpl extends CacheImplementation, State
         stateMachine.onTransactionCompleted(transaction);
     }
 
+    /**
+     * Drops current cache implementation: changes, affected by object, can't be computed without object itself. Override to drop only cached data
+     * of changed object.
+     */
+    @Override
+    public void onRemoteChange(Class<?> objectType, String objectId, Change change) {
+        if (log.isTraceEnabled()) {
+            log.trace("Cache is uninitialized due to remote " + change + " of " + objectType.getName() + " " + objectId);
+        }
+        stateMachine.dropCache();
+    }
+
     @Override
     public void uninitialize(Object object, Change change) {
         if (log.isTraceEnabled()) {
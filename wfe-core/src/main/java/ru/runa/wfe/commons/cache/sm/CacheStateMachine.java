@@ -5,6 +5,7 @@ import javax.transaction.Transaction;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hibernate.type.Type;
+import ru.runa.wfe.commons.SystemProperties;
 import ru.runa.wfe.commons.cache.CacheImplementation;
 import ru.runa.wfe.commons.cache.Change;
 import ru.runa.wfe.commons.cache.ChangedObjectParameter;
@@ -15,6 +16,7 @@ import ru.runa.wfe.commons.cache.states.CacheState;
 import ru.runa.wfe.commons.cache.states.CacheStateFactory;
 import ru.runa.wfe.commons.cache.states.DefaultStateContext;
 import ru.runa.wfe.commons.cache.states.IsolatedCacheStateFactory;
+import ru.runa.wfe.commons.cache.states.SnapshotCacheStateFactory;
 import ru.runa.wfe.commons.cache.states.StateCommandResult;
 import ru.runa.wfe.commons.cache.states.StateCommandResultWithCache;
 import ru.runa.wfe.commons.cache.states.StateCommandResultWithData;
@@ -325,7 +327,7 @@ public class CacheStateMachine<CacheImpl extends CacheImplementation, StateConte
     public static <CacheImpl extends CacheImplementation> CacheStateMachine<CacheImpl, DefaultStateContext> createStateMachine(
             LazyInitializedCacheFactory<CacheImpl> factory, Object monitor) {
         DefaultCacheTransactionalExecutor transactionalExecutor = new DefaultCacheTransactionalExecutor();
-        CacheStateFactory<CacheImpl, DefaultStateContext> stateFactory = new IsolatedCacheStateFactory<CacheImpl>();
+        CacheStateFactory<CacheImpl, DefaultStateContext> stateFactory = createIsolatedStateFactory();
         LazyCacheFactoryImpl<CacheImpl> cacheFactory = new LazyCacheFactoryImpl<CacheImpl>(factory, transactionalExecutor);
         return new CacheStateMachine<CacheImpl, DefaultStateContext>(cacheFactory, stateFactory, monitor);
     }
@@ -341,11 +343,36 @@ public class CacheStateMachine<CacheImpl extends CacheImplementation, StateConte
      */
     public static <CacheImpl extends CacheImplementation> CacheStateMachine<CacheImpl, DefaultStateContext> createStateMachine(
             StaticCacheFactory<CacheImpl> factory, Object monitor) {
-        CacheStateFactory<CacheImpl, DefaultStateContext> stateFactory = new IsolatedCacheStateFactory<CacheImpl>();
+        return createStateMachine(factory, CacheStateMachine.<CacheImpl> createIsolatedStateFactory(), monitor);
+    }
+
+    /**
+     * Creates implementation of cache state machine for cache, initialized via {@link StaticCacheFactory}. Used for tests.
+     *
+     * @param factory
+     *            Factory to create cache instances.
+     * @param stateFactory
+     *            Factory to create cache states.
+     * @param monitor
+     *            Monitor, used for exclusive access.
+     * @return Returns cache state machine for cache control.
+     */
+    public static <CacheImpl extends CacheImplementation> CacheStateMachine<CacheImpl, DefaultStateContext> createStateMachine(
+            StaticCacheFactory<CacheImpl> factory, CacheStateFactory<CacheImpl, DefaultStateContext> stateFactory, Object monitor) {
         StaticCacheFactoryImpl<CacheImpl> cacheFactory = new StaticCacheFactoryImpl<CacheImpl>(factory);
         return new CacheStateMachine<CacheImpl, DefaultStateContext>(cacheFactory, stateFactory, monitor);
     }
 
+    /**
+     * Creates state factory for caches with isolated dirty transactions. Readers are locked by dirty transactions unless snapshot states is enabled.
+     */
+    private static <CacheImpl extends CacheImplementation> CacheStateFactory<CacheImpl, DefaultStateContext> createIsolatedStateFactory() {
+        if (SystemProperties.useSnapshotCacheStates()) {
+            return new SnapshotCacheStateFactory<CacheImpl>();
+        }
+        return new IsolatedCacheStateFactory<CacheImpl>();
+    }
+
     /**
      * Creates default implementation of cache state machine for cache, initialized via {@link NonRuntimeCacheFactory}.
      *
@@ -20,12 +20,14 @@ package ru.runa.wfe.commons.cache.sm;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import java.io.Serializable;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.transaction.HeuristicMixedException;
 import javax.transaction.HeuristicRollbackException;
 import javax.transaction.RollbackException;
+import javax.transaction.Status;
 import javax.transaction.Synchronization;
 import javax.transaction.SystemException;
 import javax.transaction.Transaction;
@@ -38,6 +40,7 @@ import ru.runa.wfe.commons.Utils;
 import ru.runa.wfe.commons.cache.CacheImplementation;
 import ru.runa.wfe.commons.cache.Change;
 import ru.runa.wfe.commons.cache.ChangedObjectParameter;
+import ru.runa.wfe.commons.cache.cluster.CacheInvalidationBus;
 
 /**
  * Main class for RunaWFE caching. Register {@link ChangeListener} there to receive events on objects change and transaction complete.
@@ -67,6 +70,11 @@ public class CachingLogic {
      */
     private static ConcurrentMap<Class<?>, Set<ChangeListener>> objectTypeToListenersAll = Maps.newConcurrentMap();
 
+    /**
+     * Sends committed changes of listened objects to other cluster nodes. Null if cluster invalidation is disabled.
+     */
+    private static volatile CacheInvalidationBus invalidationBus;
+
     /**
      * Register listener. Listener will be notified on events, according to implemented interfaces.
      *
@@ -113,6 +121,16 @@ public class CachingLogic {
         return result;
     }
 
+    /**
+     * Set bus, which sends committed changes to other cluster nodes.
+     *
+     * @param bus
+     *            Cluster invalidation bus.
+     */
+    public static void setInvalidationBus(CacheInvalidationBus bus) {
+        invalidationBus = bus;
+    }
+
     /**
      * Enables/disables changes tracking. It may be set to false in case of mass update for performance reason.
      *
@@ -144,10 +162,33 @@ public class CachingLogic {
      *            Property types.
      */
     public static void onChange(Object entity, Change change, Object[] currentState, Object[] previousState, String[] propertyNames, Type[] types) {
+        onChange(entity, null, change, currentState, previousState, propertyNames, types);
+    }
+
+    /**
+     * Notify registered listeners on entity change.
+     *
+     * @param entity
+     *            Changed object.
+     * @param entityId
+     *            Changed object id. May be null.
+     * @param change
+     *            operation type
+     * @param currentState
+     *            Current state of object properties.
+     * @param previousState
+     *            Previous state of object properties.
+     * @param propertyNames
+     *            Property names (same order as in currentState).
+     * @param types
+     *            Property types.
+     */
+    public static void onChange(Object entity, Serializable entityId, Change change, Object[] currentState, Object[] previousState,
+            String[] propertyNames, Type[] types) {
         if (enabled.get() > 0) {
             return;
         }
-        onWriteTransaction(getChangeListeners(entity.getClass()), entity, change, currentState, previousState, propertyNames, types);
+        onWriteTransaction(getChangeListeners(entity.getClass()), entity, entityId, change, currentState, previousState, propertyNames, types);
     }
 
     /**
@@ -170,6 +211,8 @@ public class CachingLogic {
      *            Listeners to notify. May be null.
      * @param object
      *            Changed object.
+     * @param entityId
+     *            Changed object id. May be null.
      * @param currentState
      *            Current state of object properties.
      * @param previousState
@@ -179,8 +222,8 @@ public class CachingLogic {
      * @param types
      *            Property types.
      */
-    private static void onWriteTransaction(Set<ChangeListener> notifyThis, Object changed, Change change, Object[] currentState,
-            Object[] previousState, String[] propertyNames, Type[] types) {
+    private static void onWriteTransaction(Set<ChangeListener> notifyThis, Object changed, Serializable entityId, Change change,
+            Object[] currentState, Object[] previousState, String[] propertyNames, Type[] types) {
         Preconditions.checkNotNull(changed);
         Transaction transaction = Utils.getTransaction();
         if (transaction == null) {
@@ -193,11 +236,18 @@ public class CachingLogic {
             DirtyTransactionSynchronization.register(transaction);
         }
         if (notifyThis != null) {
+            boolean affected = false;
             for (ChangeListener listener : notifyThis) {
                 if (listener.onChange(transaction, new ChangedObjectParameter(changed, change, currentState, previousState, propertyNames, types))) {
                     toNotify.add(listener);
+                    affected = true;
                 }
             }
+            CacheInvalidationBus bus = invalidationBus;
+            // Cache implementations are local for node.
+            if (bus != null && affected && !(changed instanceof CacheImplementation)) {
+                bus.onChange(transaction, changed, entityId, change);
+            }
         }
     }
 
@@ -281,6 +331,22 @@ public class CachingLogic {
         }
     }
 
+    /**
+     * Notifies listeners about object, changed on other cluster node.
+     *
+     * @param objectType
+     *            Changed object type.
+     * @param objectId
+     *            Changed object id as string or null, if all objects of given type may be changed.
+     * @param change
+     *            Change type.
+     */
+    public static void onRemoteChange(Class<?> objectType, String objectId, Change change) {
+        for (ChangeListener listener : getChangeListeners(objectType)) {
+            listener.onRemoteChange(objectType, objectId, change);
+        }
+    }
+
     /**
      * Callback object to receive dirty transaction commit/rollback events.
      */
@@ -301,6 +367,10 @@ public class CachingLogic {
         @Override
         public void afterCompletion(int status) {
             CachingLogic.onTransactionComplete(transaction);
+            CacheInvalidationBus bus = invalidationBus;
+            if (bus != null) {
+                bus.onTransactionComplete(transaction, status == Status.STATUS_COMMITTED);
+            }
         }
 
         public static void register(Transaction transaction) {
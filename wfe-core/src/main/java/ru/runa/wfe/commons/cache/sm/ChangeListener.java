@@ -60,6 +60,18 @@ public interface ChangeListener {
      */
     public void onTransactionCompleted(Transaction transaction);
 
+    /**
+     * Called, when object of listened type is changed by committed transaction on other cluster node. Changed object itself is not available.
+     *
+     * @param objectType
+     *            Changed object type.
+     * @param objectId
+     *            Changed object id as string or null, if all objects of given type may be changed.
+     * @param change
+     *            Change type.
+     */
+    public void onRemoteChange(Class<?> objectType, String objectId, Change change);
+
     /**
      * Drops current cache implementation.
      *
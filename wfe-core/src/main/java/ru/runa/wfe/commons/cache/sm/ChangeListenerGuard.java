@@ -75,6 +75,15 @@ public class ChangeListenerGuard implements ChangeListener {
         return delegated.onChange(transaction, changedObject);
     }
 
+    @Override
+    public void onRemoteChange(Class<?> objectType, String objectId, Change change) {
+        try {
+            delegated.onRemoteChange(objectType, objectId, change);
+        } catch (Exception e) {
+            log.error("onRemoteChange() call failed on " + delegated.getClass().getName(), e);
+        }
+    }
+
     @Override
     public void uninitialize(Object object, Change change) {
         try {
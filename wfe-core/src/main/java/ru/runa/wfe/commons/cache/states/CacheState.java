@@ -12,9 +12,9 @@ import ru.runa.wfe.commons.cache.sm.CacheStateMachineContext;
 public interface CacheState<CacheImpl extends CacheImplementation, StateContext> {
 
     /**
-     * Check if dirty transactions exists for cache.
+     * Check if dirty transactions exists for cache and locks it: not changing transactions must not build cache in this state.
      *
-     * @return Return true, if dirty transaction exists and false otherwise.
+     * @return Return true, if locking dirty transaction exists and false otherwise.
      */
     boolean isDirtyTransactionExists();
 
@@ -0,0 +1,16 @@
+package ru.runa.wfe.commons.cache.states;
+
+import ru.runa.wfe.commons.cache.CacheImplementation;
+
+/**
+ * State factory for caches, which serves last committed cache generation to readers while dirty transactions exists (see
+ * {@link SnapshotDirtyCacheState}).
+ */
+public class SnapshotCacheStateFactory<CacheImpl extends CacheImplementation> extends IsolatedCacheStateFactory<CacheImpl> {
+
+    @Override
+    public CacheState<CacheImpl, DefaultStateContext> createDirtyState(CacheImpl cache, DirtyTransactions<CacheImpl> dirtyTransactions,
+            DefaultStateContext context) {
+        return new SnapshotDirtyCacheState<CacheImpl>(cache, dirtyTransactions);
+    }
+}
@@ -0,0 +1,213 @@
+package ru.runa.wfe.commons.cache.states;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.transaction.Status;
+import javax.transaction.SystemException;
+import javax.transaction.Transaction;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import ru.runa.wfe.commons.cache.CacheImplementation;
+import ru.runa.wfe.commons.cache.ChangedObjectParameter;
+import ru.runa.wfe.commons.cache.sm.CacheFactory;
+import ru.runa.wfe.commons.cache.sm.CacheStateMachineContext;
+
+/**
+ * Cache state with existing dirty transactions, which does not lock readers. Not changing transactions use last committed cache generation. Every
+ * dirty transaction uses private cache instance (overlay), which is built after last transaction change. On transaction commit overlay becomes
+ * committed generation if no other transaction is completed since overlay creation; otherwise new empty generation is committed.
+ *
+ * Caches with delayed initialization can't be built while dirty transactions exists: last committed generation is used until any dirty transaction
+ * completes and cache is not available after that until all dirty transactions completes.
+ */
+public class SnapshotDirtyCacheState<CacheImpl extends CacheImplementation> implements CacheState<CacheImpl, DefaultStateContext> {
+
+    /**
+     * Logging support.
+     */
+    private static final Log log = LogFactory.getLog(SnapshotDirtyCacheState.class);
+
+    /**
+     * Transactions, which change cache persistent objects, and it overlays.
+     */
+    private final DirtyTransactions<CacheImpl> dirtyTransactions;
+
+    /**
+     * Last committed cache generation for not changing transactions. May be null.
+     */
+    private final CacheImpl cache;
+
+    /**
+     * Count of completed dirty transactions since this dirty period is started.
+     */
+    private final long generation;
+
+    /**
+     * Map from dirty transaction to generation, which was current on it overlay creation.
+     */
+    private final Map<Transaction, Long> overlayGenerations;
+
+    public SnapshotDirtyCacheState(CacheImpl cache, DirtyTransactions<CacheImpl> dirtyTransactions) {
+        this(cache, dirtyTransactions, 0, new HashMap<Transaction, Long>());
+    }
+
+    private SnapshotDirtyCacheState(CacheImpl cache, DirtyTransactions<CacheImpl> dirtyTransactions, long generation,
+            Map<Transaction, Long> overlayGenerations) {
+        this.cache = cache;
+        this.dirtyTransactions = dirtyTransactions;
+        this.generation = generation;
+        this.overlayGenerations = overlayGenerations;
+    }
+
+    /**
+     * Readers is not locked by dirty transactions in this state.
+     */
+    @Override
+    public boolean isDirtyTransactionExists() {
+        return false;
+    }
+
+    @Override
+    public boolean isDirtyTransaction(Transaction transaction) {
+        return dirtyTransactions.isDirtyTransaction(transaction);
+    }
+
+    @Override
+    public CacheImpl getCacheQuickNoBuild(Transaction transaction) {
+        return dirtyTransactions.getCache(transaction, cache);
+    }
+
+    @Override
+    public StateCommandResultWithCache<CacheImpl, DefaultStateContext> getCache(CacheStateMachineContext<CacheImpl, DefaultStateContext> context,
+            Transaction transaction) {
+        CacheImpl currentCache = dirtyTransactions.getCache(transaction, cache);
+        if (currentCache != null) {
+            return StateCommandResultWithCache.createNoStateSwitch(currentCache);
+        }
+        if (context.getCacheFactory().hasDelayedInitialization()) {
+            return StateCommandResultWithCache.createNoStateSwitch(context.getCacheFactory().createCache());
+        }
+        return buildCache(context, transaction);
+    }
+
+    @Override
+    public StateCommandResultWithCache<CacheImpl, DefaultStateContext> getCacheIfNotLocked(
+            CacheStateMachineContext<CacheImpl, DefaultStateContext> context, Transaction transaction) {
+        CacheImpl currentCache = dirtyTransactions.getCache(transaction, cache);
+        if (currentCache != null || context.getCacheFactory().hasDelayedInitialization()) {
+            return StateCommandResultWithCache.createNoStateSwitch(currentCache);
+        }
+        return buildCache(context, transaction);
+    }
+
+    private StateCommandResultWithCache<CacheImpl, DefaultStateContext> buildCache(CacheStateMachineContext<CacheImpl, DefaultStateContext> context,
+            Transaction transaction) {
+        if (dirtyTransactions.isDirtyTransaction(transaction)) {
+            CacheImpl overlay = context.getCacheFactory().createCache();
+            Map<Transaction, Long> newOverlayGenerations = new HashMap<Transaction, Long>(overlayGenerations);
+            newOverlayGenerations.put(transaction, generation);
+            DirtyTransactions<CacheImpl> newDirtyTransactions = dirtyTransactions.addDirtyTransactionAndClone(transaction, overlay);
+            return StateCommandResultWithCache.create(
+                    new SnapshotDirtyCacheState<CacheImpl>(cache, newDirtyTransactions, generation, newOverlayGenerations), overlay);
+        }
+        CacheImpl committedCache = createCommittedCache(context);
+        return StateCommandResultWithCache.create(
+                new SnapshotDirtyCacheState<CacheImpl>(committedCache, dirtyTransactions, generation, overlayGenerations), committedCache);
+    }
+
+    @Override
+    public StateCommandResult<CacheImpl, DefaultStateContext> onChange(CacheStateMachineContext<CacheImpl, DefaultStateContext> context,
+            Transaction transaction, ChangedObjectParameter changedObject) {
+        // Overlay may contain data, loaded before this change.
+        DirtyTransactions<CacheImpl> newDirtyTransactions = dirtyTransactions.addDirtyTransactionAndClone(transaction, null);
+        Map<Transaction, Long> newOverlayGenerations = overlayGenerations;
+        if (overlayGenerations.containsKey(transaction)) {
+            newOverlayGenerations = new HashMap<Transaction, Long>(overlayGenerations);
+            newOverlayGenerations.remove(transaction);
+        }
+        return StateCommandResult.create(new SnapshotDirtyCacheState<CacheImpl>(cache, newDirtyTransactions, generation, newOverlayGenerations));
+    }
+
+    @Override
+    public StateCommandResult<CacheImpl, DefaultStateContext> beforeTransactionComplete(
+            CacheStateMachineContext<CacheImpl, DefaultStateContext> context, Transaction transaction) {
+        // Committed generation stays valid until transaction completion is published.
+        return StateCommandResult.createNoStateSwitch();
+    }
+
+    @Override
+    public StateCommandResultWithData<CacheImpl, Boolean, DefaultStateContext> completeTransaction(
+            CacheStateMachineContext<CacheImpl, DefaultStateContext> context, Transaction transaction) {
+        CacheImpl overlay = dirtyTransactions.isDirtyTransaction(transaction) ? dirtyTransactions.getCache(transaction, null) : null;
+        Long overlayGeneration = overlayGenerations.get(transaction);
+        CacheImpl committedCache;
+        if (overlay != null && overlayGeneration != null && overlayGeneration == generation && isCommitted(transaction)) {
+            overlay.commitCache();
+            committedCache = overlay;
+        } else {
+            // Rolled back transaction may also affect committed generation if it was used before first change flush.
+            committedCache = createCommittedCache(context);
+        }
+        DirtyTransactions<CacheImpl> dirtyTransactionAfterRemove = dirtyTransactions.removeDirtyTransactionAndClone(transaction);
+        if (dirtyTransactionAfterRemove.isLocked()) {
+            Map<Transaction, Long> newOverlayGenerations = new HashMap<Transaction, Long>(overlayGenerations);
+            newOverlayGenerations.remove(transaction);
+            CacheState<CacheImpl, DefaultStateContext> nextDirtyState =
+                    new SnapshotDirtyCacheState<CacheImpl>(committedCache, dirtyTransactionAfterRemove, generation + 1, newOverlayGenerations);
+            return StateCommandResultWithData.create(nextDirtyState, false);
+        }
+        if (committedCache == null) {
+            return StateCommandResultWithData.create(context.getStateFactory().createEmptyState(null, null), true);
+        }
+        return StateCommandResultWithData.create(context.getStateFactory().createInitializedState(committedCache, null), true);
+    }
+
+    @Override
+    public StateCommandResult<CacheImpl, DefaultStateContext> commitCache(CacheStateMachineContext<CacheImpl, DefaultStateContext> context,
+            CacheImpl cache) {
+        log.error("commitCache must not be called on " + this);
+        return StateCommandResult.createNoStateSwitch();
+    }
+
+    @Override
+    public void discard() {
+    }
+
+    @Override
+    public void accept(CacheStateMachineContext<CacheImpl, DefaultStateContext> context) {
+    }
+
+    @Override
+    public StateCommandResult<CacheImpl, DefaultStateContext> dropCache(CacheStateMachineContext<CacheImpl, DefaultStateContext> context) {
+        // Generation increment prevents overlays publication.
+        return StateCommandResult.create(new SnapshotDirtyCacheState<CacheImpl>(createCommittedCache(context), dirtyTransactions, generation + 1,
+                overlayGenerations));
+    }
+
+    /**
+     * Creates new committed cache generation.
+     *
+     * @return Returns cache or null, if cache has delayed initialization.
+     */
+    private CacheImpl createCommittedCache(CacheStateMachineContext<CacheImpl, DefaultStateContext> context) {
+        CacheFactory<CacheImpl> cacheFactory = context.getCacheFactory();
+        if (cacheFactory.hasDelayedInitialization()) {
+            return null;
+        }
+        CacheImpl committedCache = cacheFactory.createCache();
+        committedCache.commitCache();
+        return committedCache;
+    }
+
+    private static boolean isCommitted(Transaction transaction) {
+        try {
+            return transaction.getStatus() == Status.STATUS_COMMITTED;
+        } catch (SystemException e) {
+            log.warn("Unable to get transaction status", e);
+            return false;
+        }
+    }
+}
@@ -241,6 +241,16 @@ public abstract class DbMigration {
         }
     }
 
+    protected final List<String> getDDLAlterSequenceIncrement(String sequenceName, int increment) {
+        switch (dbType) {
+            case ORACLE:
+            case POSTGRESQL:
+                return list("alter sequence " + sequenceName + " increment by " + increment);
+            default:
+                return null;
+        }
+    }
+
     protected final List<String> getDDLRenameSequence(String sequenceName, String newName) {
         checkIndentifierLength(newName);
         switch (dbType) {
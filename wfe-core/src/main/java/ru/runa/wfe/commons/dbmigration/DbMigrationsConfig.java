@@ -15,6 +15,7 @@ import ru.runa.wfe.commons.dbmigration.impl.AddDeploymentAuditPatch;
 import ru.runa.wfe.commons.dbmigration.impl.AddDueDateExpressionToJobAndTask;
 import ru.runa.wfe.commons.dbmigration.impl.AddEmbeddedFileForBotTask;
 import ru.runa.wfe.commons.dbmigration.impl.AddHierarchyProcess;
+import ru.runa.wfe.commons.dbmigration.impl.AddJobLockColumnsPatch;
 import ru.runa.wfe.commons.dbmigration.impl.AddMultiTaskIndexToTaskPatch;
 import ru.runa.wfe.commons.dbmigration.impl.AddNodeIdToProcessLogPatch;
 import ru.runa.wfe.commons.dbmigration.impl.AddParentProcessIdPatch;
@@ -36,6 +37,7 @@ import ru.runa.wfe.commons.dbmigration.impl.AddVariableUniqueKeyPatch;
 import ru.runa.wfe.commons.dbmigration.impl.CorrectChatRoomViewRenameColumn;
 import ru.runa.wfe.commons.dbmigration.impl.CreateAdminScriptTables;
 import ru.runa.wfe.commons.dbmigration.impl.CreateAggregatedLogsTables;
+import ru.runa.wfe.commons.dbmigration.impl.CreateCacheInvalidationTable;
 import ru.runa.wfe.commons.dbmigration.impl.CreateChatDbPatch;
 import ru.runa.wfe.commons.dbmigration.impl.CreateReportsTables;
 import ru.runa.wfe.commons.dbmigration.impl.CreateSignalListenerAggregatedLogTable;
@@ -53,6 +55,7 @@ import ru.runa.wfe.commons.dbmigration.impl.JbpmRefactoringPatch;
 import ru.runa.wfe.commons.dbmigration.impl.NodeTypeChangePatch;
 import ru.runa.wfe.commons.dbmigration.impl.PerformancePatch401;
 import ru.runa.wfe.commons.dbmigration.impl.PermissionMappingPatch403;
+import ru.runa.wfe.commons.dbmigration.impl.ProcessLogSequenceIncrementPatch;
 import ru.runa.wfe.commons.dbmigration.impl.RefactorPermissionsBack;
 import ru.runa.wfe.commons.dbmigration.impl.RefactorPermissionsStep1;
 import ru.runa.wfe.commons.dbmigration.impl.RefactorPermissionsStep3;
@@ -62,6 +65,7 @@ import ru.runa.wfe.commons.dbmigration.impl.RenameColumnInChatMessageRecipientPa
 import ru.runa.wfe.commons.dbmigration.impl.TaskCreateLogSeverityChangedPatch;
 import ru.runa.wfe.commons.dbmigration.impl.TaskEndDateRemovalPatch;
 import ru.runa.wfe.commons.dbmigration.impl.TaskOpenedByExecutorsPatch;
+import ru.runa.wfe.commons.dbmigration.impl.TokenMessageSelectorNullTermsPatch;
 import ru.runa.wfe.commons.dbmigration.impl.TransitionLogPatch;
 
 /**
@@ -168,6 +172,10 @@ public class DbMigrationsConfig {
         dbMigrations.add(AddTransitionNameForTaskPatch.class);
         dbMigrations.add(DeleteBatchPresentationsRm3017.class);
         dbMigrations.add(DeleteBatchPresentationsRm3056.class);
+        dbMigrations.add(AddJobLockColumnsPatch.class);
+        dbMigrations.add(CreateCacheInvalidationTable.class);
+        dbMigrations.add(ProcessLogSequenceIncrementPatch.class);
+        dbMigrations.add(TokenMessageSelectorNullTermsPatch.class);
         return dbMigrations;
     }
 }
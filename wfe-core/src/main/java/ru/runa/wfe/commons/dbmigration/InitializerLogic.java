@@ -29,6 +29,8 @@ import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Component;
 import ru.runa.wfe.commons.DatabaseProperties;
 import ru.runa.wfe.commons.PropertyResources;
+import ru.runa.wfe.commons.SystemProperties;
+import ru.runa.wfe.definition.cache.ProcessDefinitionCacheWarmer;
 
 /**
  * Initial DB population and update during version change.
@@ -44,6 +46,8 @@ public class InitializerLogic implements ApplicationListener<ContextRefreshedEve
     private DbTransactionalInitializer dbTransactionalInitializer;
     @Autowired
     private DbMigrationManager dbMigrationManager;
+    @Autowired
+    private ProcessDefinitionCacheWarmer processDefinitionCacheWarmer;
 
     private final AtomicBoolean initialized = new AtomicBoolean(false);
 
@@ -67,6 +71,9 @@ public class InitializerLogic implements ApplicationListener<ContextRefreshedEve
             }
             log.info("Initialization completed.");
             initialized.set(true);
+            if (SystemProperties.isDefinitionCacheWarmUpEnabled()) {
+                processDefinitionCacheWarmer.warmUpInBackground();
+            }
         } catch (Exception e) {
             Throwables.propagate(e);
         }
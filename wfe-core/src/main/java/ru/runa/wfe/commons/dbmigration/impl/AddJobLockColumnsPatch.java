@@ -0,0 +1,17 @@
+package ru.runa.wfe.commons.dbmigration.impl;
+
+import ru.runa.wfe.commons.dbmigration.DbMigration;
+
+/**
+ * Adds BPM_JOB.LOCK_OWNER and BPM_JOB.LOCK_EXPIRATION_DATE columns for claim-based job execution.
+ */
+public class AddJobLockColumnsPatch extends DbMigration {
+
+    @Override
+    protected void executeDDLBefore() {
+        executeUpdates(getDDLCreateColumn("BPM_JOB", new VarcharColumnDef("LOCK_OWNER", 255)),
+                getDDLCreateColumn("BPM_JOB", new TimestampColumnDef("LOCK_EXPIRATION_DATE")));
+        executeUpdates(getDDLCreateIndex("BPM_JOB", "IX_JOB_DUE_DATE", "DUE_DATE"));
+    }
+
+}
@@ -0,0 +1,23 @@
+package ru.runa.wfe.commons.dbmigration.impl;
+
+import ru.runa.wfe.commons.dbmigration.DbMigration;
+
+/**
+ * Creates WFE_CACHE_INVALIDATION table for cluster cache invalidation messages.
+ */
+public class CreateCacheInvalidationTable extends DbMigration {
+
+    @Override
+    protected void executeDDLBefore() {
+        executeUpdates(
+                getDDLCreateTable("WFE_CACHE_INVALIDATION", list(
+                        new BigintColumnDef("ID").primaryKey(),
+                        new VarcharColumnDef("NODE_ID", 255).notNull(),
+                        new BigintColumnDef("SEQUENCE_NUMBER").notNull(),
+                        new TimestampColumnDef("CREATE_DATE").notNull(),
+                        new ClobColumnDef("EVENTS").notNull()
+                )),
+                getDDLCreateSequence("SEQ_WFE_CACHE_INVALIDATION")
+        );
+    }
+}
@@ -0,0 +1,15 @@
+package ru.runa.wfe.commons.dbmigration.impl;
+
+import ru.runa.wfe.commons.dbmigration.DbMigration;
+
+/**
+ * Process log ids are allocated by pools of 50 on databases with sequences (see {@link ru.runa.wfe.commons.hibernate.WfeSessionFactoryBean}),
+ * so sequence value is upper bound of allocated pool.
+ */
+public class ProcessLogSequenceIncrementPatch extends DbMigration {
+
+    @Override
+    protected void executeDDLBefore() {
+        executeUpdates(getDDLAlterSequenceIncrement("SEQ_BPM_LOG", 50));
+    }
+}
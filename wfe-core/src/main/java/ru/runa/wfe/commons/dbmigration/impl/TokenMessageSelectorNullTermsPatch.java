@@ -0,0 +1,43 @@
+package ru.runa.wfe.commons.dbmigration.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import ru.runa.wfe.commons.SystemProperties;
+import ru.runa.wfe.commons.Utils;
+import ru.runa.wfe.commons.dbmigration.DbMigration;
+
+/**
+ * Without predefined selectors token message selector is used as correlation index which omits terms with null expected value. Selectors of
+ * waiting tokens stored before that contain "name=null" terms, so they are not found by messages without these properties.
+ */
+public class TokenMessageSelectorNullTermsPatch extends DbMigration {
+
+    @Override
+    public void executeDML(Connection conn) throws SQLException {
+        if (SystemProperties.isProcessExecutionMessagePredefinedSelectorEnabled()) {
+            return;
+        }
+        Map<Long, String> selectors = new LinkedHashMap<>();
+        try (Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT ID, MESSAGE_SELECTOR FROM BPM_TOKEN WHERE NODE_TYPE = 'RECEIVE_MESSAGE' AND END_DATE IS NULL "
+                    + "AND MESSAGE_SELECTOR LIKE '%=null%'");
+            while (rs.next()) {
+                selectors.put(rs.getLong(1), Utils.removeNullMessageSelectorTerms(rs.getString(2)));
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE BPM_TOKEN SET MESSAGE_SELECTOR = ? WHERE ID = ?")) {
+            for (Map.Entry<Long, String> entry : selectors.entrySet()) {
+                stmt.setString(1, entry.getValue());
+                stmt.setLong(2, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        log.info("Updated message selectors of " + selectors.size() + " tokens");
+    }
+}
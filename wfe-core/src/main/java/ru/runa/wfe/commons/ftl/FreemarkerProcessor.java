@@ -4,12 +4,22 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import ru.runa.wfe.commons.SystemProperties;
+
 import com.google.common.base.Charsets;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
 
 import freemarker.core.Environment;
 import freemarker.template.Configuration;
@@ -27,23 +37,141 @@ public class FreemarkerProcessor {
         cfg.setLocalizedLookup(false);
         cfg.setTemplateExceptionHandler(new CustomExceptionHandler());
     }
+    /**
+     * Parsed templates (they are thread safe). Template content hash is part of the key, so changed template is never taken from cache; templates
+     * of definition are dropped on its change just to free memory.
+     */
+    private static final Cache<TemplateKey, Template> templates = CacheBuilder.newBuilder()
+            .maximumSize(SystemProperties.getFreemarkerTemplateCacheSize()).build();
+    private static final AtomicLong hitCount = new AtomicLong();
+    private static final AtomicLong missCount = new AtomicLong();
+    private static final AtomicLong parseTime = new AtomicLong();
+    private static final AtomicLong renderCount = new AtomicLong();
+    private static final AtomicLong renderTime = new AtomicLong();
 
     public static String process(String ftlTemplate, Object model) {
+        return process(null, null, ftlTemplate, model);
+    }
+
+    /**
+     * @param definitionId
+     *            definition, template belongs to, can be <code>null</code>
+     * @param name
+     *            template name (form node id, for example), can be <code>null</code>
+     */
+    public static String process(Long definitionId, String name, String ftlTemplate, Object model) {
         try {
             if (ftlTemplate == null) {
                 return null;
             }
-            Template template = new Template("", new StringReader(ftlTemplate), cfg, Charsets.UTF_8.name());
-            StringWriter out = new StringWriter();
-            template.process(model, out);
-            out.flush();
-            return out.toString();
+            Template template = getTemplate(definitionId, name, ftlTemplate);
+            long startTime = System.nanoTime();
+            try {
+                StringWriter out = new StringWriter();
+                template.process(model, out);
+                out.flush();
+                return out.toString();
+            } finally {
+                renderCount.incrementAndGet();
+                renderTime.addAndGet(System.nanoTime() - startTime);
+            }
         } catch (Exception e) {
             log.warn(ftlTemplate + ": " + e);
             throw Throwables.propagate(e);
         }
     }
 
+    /**
+     * Drops cached templates of definition.
+     */
+    public static void invalidate(Long definitionId) {
+        Iterator<TemplateKey> iterator = templates.asMap().keySet().iterator();
+        while (iterator.hasNext()) {
+            if (Objects.equal(definitionId, iterator.next().definitionId)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops all cached templates.
+     */
+    public static void invalidateAll() {
+        templates.invalidateAll();
+    }
+
+    public static long getCacheHitCount() {
+        return hitCount.get();
+    }
+
+    public static long getCacheMissCount() {
+        return missCount.get();
+    }
+
+    public static long getParseTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(parseTime.get());
+    }
+
+    public static long getRenderedTemplatesCount() {
+        return renderCount.get();
+    }
+
+    public static long getRenderTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(renderTime.get());
+    }
+
+    private static Template getTemplate(Long definitionId, String name, String ftlTemplate) throws IOException {
+        TemplateKey key = new TemplateKey(definitionId, name, Hashing.sha256().hashString(ftlTemplate, Charsets.UTF_8).toString());
+        Template template = templates.getIfPresent(key);
+        if (template != null) {
+            hitCount.incrementAndGet();
+            return template;
+        }
+        long startTime = System.nanoTime();
+        template = new Template(name != null ? name : "", new StringReader(ftlTemplate), cfg, Charsets.UTF_8.name());
+        long time = System.nanoTime() - startTime;
+        missCount.incrementAndGet();
+        parseTime.addAndGet(time);
+        if (log.isDebugEnabled()) {
+            log.debug("Template " + key + " parsed in " + TimeUnit.NANOSECONDS.toMillis(time) + " ms, cache hits: " + getCacheHitCount()
+                    + ", misses: " + getCacheMissCount() + " (" + getParseTimeMillis() + " ms), rendered: " + getRenderedTemplatesCount() + " in "
+                    + getRenderTimeMillis() + " ms");
+        }
+        templates.put(key, template);
+        return template;
+    }
+
+    private static class TemplateKey {
+        private final Long definitionId;
+        private final String name;
+        private final String hash;
+
+        private TemplateKey(Long definitionId, String name, String hash) {
+            this.definitionId = definitionId;
+            this.name = name;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TemplateKey)) {
+                return false;
+            }
+            TemplateKey key = (TemplateKey) obj;
+            return Objects.equal(definitionId, key.definitionId) && Objects.equal(name, key.name) && hash.equals(key.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(definitionId, name, hash);
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this).add("definitionId", definitionId).add("name", name).add("hash", hash).toString();
+        }
+    }
+
     private static class CustomExceptionHandler implements TemplateExceptionHandler {
 
         @Override
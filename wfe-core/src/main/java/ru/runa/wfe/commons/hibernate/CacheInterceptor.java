@@ -32,8 +32,8 @@ public class CacheInterceptor extends EmptyInterceptor {
         return ApplicationContextFactory.getDbType() == DbType.ORACLE;
     }
 
-    private boolean onChanges(Object entity, Change change, Object[] state, Object[] previousState, String[] propertyNames, Type[] types,
-            boolean fixOracleStrings) {
+    private boolean onChanges(Object entity, Serializable id, Change change, Object[] state, Object[] previousState, String[] propertyNames,
+            Type[] types, boolean fixOracleStrings) {
         boolean modified = false;
         if (fixOracleStrings && isOracleDatabase()) {
             // Oracle handles empty strings as NULLs so we change empty strings to ' '.
@@ -44,22 +44,22 @@ public class CacheInterceptor extends EmptyInterceptor {
                 }
             }
         }
-        ru.runa.wfe.commons.cache.sm.CachingLogic.onChange(entity, change, state, previousState, propertyNames, types);
+        ru.runa.wfe.commons.cache.sm.CachingLogic.onChange(entity, id, change, state, previousState, propertyNames, types);
         return modified;
     }
 
     @Override
     public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) throws CallbackException {
-        return onChanges(entity, Change.CREATE, state, null, propertyNames, types, true);
+        return onChanges(entity, id, Change.CREATE, state, null, propertyNames, types, true);
     }
 
     @Override
     public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) throws CallbackException {
-        onChanges(entity, Change.DELETE, state, null, propertyNames, types, false);
+        onChanges(entity, id, Change.DELETE, state, null, propertyNames, types, false);
     }
 
     @Override
     public boolean onFlushDirty(Object entity, Serializable id, Object[] state, Object[] previousState, String[] propertyNames, Type[] types) {
-        return onChanges(entity, Change.UPDATE, state, previousState, propertyNames, types, true);
+        return onChanges(entity, id, Change.UPDATE, state, previousState, propertyNames, types, true);
     }
 }
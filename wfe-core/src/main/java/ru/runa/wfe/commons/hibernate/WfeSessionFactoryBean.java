@@ -0,0 +1,49 @@
+package ru.runa.wfe.commons.hibernate;
+
+import java.util.Properties;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.id.SequenceGenerator;
+import org.hibernate.id.enhanced.OptimizerFactory;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.SimpleValue;
+import org.springframework.orm.hibernate3.annotation.AnnotationSessionFactoryBean;
+import ru.runa.wfe.audit.ProcessLog;
+
+/**
+ * Session factory with process log ids allocated by pools: logs are inserted in JDBC batches, and one sequence call per log would double
+ * database round trips. Pooling is used only if log ids are generated by sequence (native generator of dialect); identity columns are not
+ * changed.
+ */
+public class WfeSessionFactoryBean extends AnnotationSessionFactoryBean {
+    /**
+     * Must be equal to SEQ_BPM_LOG increment, set by ProcessLogSequenceIncrementPatch.
+     */
+    public static final int PROCESS_LOG_ID_POOL_SIZE = 50;
+    static final String PROCESS_LOG_SEQUENCE_NAME = "SEQ_BPM_LOG";
+
+    @Override
+    protected void postProcessConfiguration(Configuration config) {
+        super.postProcessConfiguration(config);
+        Dialect dialect = Dialect.getDialect(config.getProperties());
+        if (isSequenceNative(dialect)) {
+            PersistentClass processLogMapping = config.getClassMapping(ProcessLog.class.getName());
+            SimpleValue identifier = (SimpleValue) processLogMapping.getIdentifier();
+            identifier.setIdentifierGeneratorStrategy(SequenceStyleGenerator.class.getName());
+            identifier.getIdentifierGeneratorProperties().putAll(getPooledSequenceProperties(PROCESS_LOG_SEQUENCE_NAME, PROCESS_LOG_ID_POOL_SIZE));
+        }
+    }
+
+    static boolean isSequenceNative(Dialect dialect) {
+        return dialect.getNativeIdentifierGeneratorClass() == SequenceGenerator.class;
+    }
+
+    static Properties getPooledSequenceProperties(String sequenceName, int poolSize) {
+        Properties properties = new Properties();
+        properties.setProperty(SequenceStyleGenerator.SEQUENCE_PARAM, sequenceName);
+        properties.setProperty(SequenceStyleGenerator.INCREMENT_PARAM, String.valueOf(poolSize));
+        properties.setProperty(SequenceStyleGenerator.OPT_PARAM, OptimizerFactory.POOL);
+        return properties;
+    }
+}
@@ -110,9 +110,23 @@ public class DataSourceStorage implements DataSourceStuff {
     }
 
     private static synchronized boolean moveToHistory(File dsFile) {
+        String name = dsFile.getName();
+        if (name.endsWith(DATA_SOURCE_FILE_SUFFIX)) {
+            evict(name.substring(0, name.length() - DATA_SOURCE_FILE_SUFFIX.length()));
+        }
         return dsFile.renameTo(new File(getStorageHistoryDir(), dsFile.getName() + TIMESTAMP_FORMAT.format(new Date())));
     }
 
+    /**
+     * Removes data source from cache and closes its connections pool.
+     */
+    private static void evict(String dsName) {
+        DataSource dataSource = dataSources.remove(dsName);
+        if (dataSource instanceof JdbcDataSource) {
+            ((JdbcDataSource) dataSource).close();
+        }
+    }
+
     public static synchronized boolean moveToHistory(String dsName) {
         return moveToHistory(new File(getStorageDir(), dsName + DATA_SOURCE_FILE_SUFFIX));
     }
@@ -127,7 +141,7 @@ public class DataSourceStorage implements DataSourceStuff {
                                 "*{" + EXCEL_FILE_XLS_SUFFIX + "," + EXCEL_FILE_XLSX_SUFFIX + "}")) {
                             File file = path.toFile();
                             if (file.isFile() && file.delete()) {
-                                dataSources.remove(dsName);
+                                evict(dsName);
                                 log.info(file + " is removed");
                             }
                         }
@@ -164,7 +178,11 @@ public class DataSourceStorage implements DataSourceStuff {
             Document document = XmlUtils.parseWithoutValidation(restore(dsName));
             dataSource = DataSourceCreator.create(DataSourceType.valueOf(document.getRootElement().attributeValue(ATTR_TYPE)));
             dataSource.init(document);
-            dataSources.put(dsName, dataSource);
+            DataSource existing = dataSources.putIfAbsent(dsName, dataSource);
+            if (existing != null) {
+                // loaded concurrently
+                return existing;
+            }
         }
         return dataSource;
     }
@@ -252,7 +270,7 @@ public class DataSourceStorage implements DataSourceStuff {
                 }
                 try (FileOutputStream fos = new FileOutputStream(dsFile)) {
                     fos.write(contentTmp);
-                    dataSources.remove(dsName);
+                    evict(dsName);
                     return true;
                 } catch (IOException e) {
                     throw new InternalApplicationException(e);
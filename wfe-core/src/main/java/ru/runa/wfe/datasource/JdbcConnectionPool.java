@@ -0,0 +1,556 @@
+package ru.runa.wfe.datasource;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import ru.runa.wfe.commons.SystemProperties;
+
+/**
+ * Pool of connections to external JDBC data source.
+ *
+ * Connections idle for more than a second are validated on borrow, connections idle for more than idle timeout are closed by evictor, which is
+ * scheduled while pool is open. Statements prepared by {@link Connection#prepareStatement(String)} and {@link Connection#prepareCall(String)}
+ * are cached per connection and reused after close; statements, which settings (max rows, fetch size, query timeout etc.) are changed by client,
+ * are closed instead of caching; result sets left open are closed and parameters are cleared before caching.
+ * Statements left open by client are closed (or returned to cache) on connection close; transaction left open is rolled back. Connection
+ * settings (read only, transaction isolation, catalog, schema, holdability) changed by client are restored to the values, which connection had
+ * on creation.
+ */
+public class JdbcConnectionPool {
+    private static final Log log = LogFactory.getLog(JdbcConnectionPool.class);
+    private static final long VALIDATION_INTERVAL_MILLIS = 1000;
+    private static final String CONNECTION_EXCEPTION_SQL_STATE_CLASS = "08";
+    private static final Set<String> STATEMENT_SETTINGS_METHOD_NAMES = ImmutableSet.of("setMaxRows", "setLargeMaxRows", "setFetchSize",
+            "setFetchDirection", "setQueryTimeout", "setMaxFieldSize", "setEscapeProcessing", "setPoolable", "setCursorName", "closeOnCompletion");
+    private static final Set<String> CONNECTION_SETTINGS_METHOD_NAMES = ImmutableSet.of("setReadOnly", "setTransactionIsolation", "setCatalog",
+            "setSchema", "setHoldability");
+    private static final int UNKNOWN_HOLDABILITY = -1;
+    /**
+     * Evicts idle connections of all pools.
+     */
+    private static final ScheduledExecutorService evictionExecutor = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setNameFormat("jdbc-pool-evictor-%d").setDaemon(true).build());
+
+    private final String name;
+    private final ConnectionFactory connectionFactory;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final ScheduledFuture<?> evictionTask;
+    private volatile boolean closed;
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong waitTime = new AtomicLong();
+    private final AtomicLong statementCacheHitCount = new AtomicLong();
+    private final AtomicLong statementCacheMissCount = new AtomicLong();
+
+    public static JdbcConnectionPool create(String name, ConnectionFactory connectionFactory) {
+        return new JdbcConnectionPool(name, connectionFactory, SystemProperties.getDataSourcePoolMaxSize(),
+                SystemProperties.getDataSourcePoolBorrowTimeoutMillis(), SystemProperties.getDataSourcePoolIdleTimeoutMillis(),
+                SystemProperties.getDataSourcePoolValidationTimeoutSeconds(), SystemProperties.getDataSourcePoolStatementCacheSize());
+    }
+
+    JdbcConnectionPool(String name, ConnectionFactory connectionFactory, int maxSize, long borrowTimeoutMillis, long idleTimeoutMillis,
+            int validationTimeoutSeconds, int statementCacheSize) {
+        this.name = name;
+        this.connectionFactory = connectionFactory;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+        long evictionPeriodMillis = Math.max(idleTimeoutMillis / 2, 1);
+        this.evictionTask = evictionExecutor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    evictIdleConnections();
+                } catch (RuntimeException e) {
+                    log.warn("Unable to evict idle connections of pool " + name, e);
+                }
+            }
+        }, evictionPeriodMillis, evictionPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool " + name + " is closed");
+        }
+        long startTime = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for connection from pool " + name + " (" + getStatistics() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for connection from pool " + name, e);
+        } finally {
+            waitTime.addAndGet(System.nanoTime() - startTime);
+        }
+        try {
+            PooledConnection connection = takeIdleConnection();
+            if (connection == null) {
+                connection = new PooledConnection(connectionFactory.create());
+                createdCount.incrementAndGet();
+            }
+            borrowCount.incrementAndGet();
+            activeCount.incrementAndGet();
+            return connection.borrow();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes idle connections, active connections are closed on return.
+     */
+    public void close() {
+        closed = true;
+        evictionTask.cancel(false);
+        PooledConnection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            destroy(connection);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount.get();
+    }
+
+    public long getWaitTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitTime.get());
+    }
+
+    public long getStatementCacheHitCount() {
+        return statementCacheHitCount.get();
+    }
+
+    public long getStatementCacheMissCount() {
+        return statementCacheMissCount.get();
+    }
+
+    public String getStatistics() {
+        return "active: " + getActiveCount() + ", idle: " + getIdleCount() + ", max: " + maxSize + ", borrowed: " + getBorrowCount()
+                + ", created: " + getCreatedCount() + ", destroyed: " + getDestroyedCount() + ", wait time: " + getWaitTimeMillis()
+                + " ms, statement cache hits: " + getStatementCacheHitCount() + ", misses: " + getStatementCacheMissCount();
+    }
+
+    private PooledConnection takeIdleConnection() {
+        PooledConnection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            long idleTime = System.currentTimeMillis() - connection.lastUsedTime;
+            if (idleTime > idleTimeoutMillis || idleTime > VALIDATION_INTERVAL_MILLIS && !connection.isValid()) {
+                destroy(connection);
+                continue;
+            }
+            return connection;
+        }
+        return null;
+    }
+
+    private void release(PooledConnection connection, boolean broken, boolean settingsChanged) {
+        activeCount.decrementAndGet();
+        try {
+            if (broken || closed || !connection.reset(settingsChanged)) {
+                destroy(connection);
+            } else {
+                connection.lastUsedTime = System.currentTimeMillis();
+                idleConnections.offerFirst(connection);
+                if (closed) {
+                    close();
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evictIdleConnections() {
+        PooledConnection connection;
+        long expirationTime = System.currentTimeMillis() - idleTimeoutMillis;
+        while ((connection = idleConnections.peekLast()) != null && connection.lastUsedTime < expirationTime) {
+            if (idleConnections.removeLastOccurrence(connection)) {
+                destroy(connection);
+            }
+        }
+    }
+
+    private void destroy(PooledConnection connection) {
+        destroyedCount.incrementAndGet();
+        connection.destroy();
+    }
+
+    private static boolean isConnectionBroken(Throwable throwable) {
+        if (throwable instanceof SQLException) {
+            String sqlState = ((SQLException) throwable).getSQLState();
+            return sqlState != null && sqlState.startsWith(CONNECTION_EXCEPTION_SQL_STATE_CLASS);
+        }
+        return false;
+    }
+
+    public interface ConnectionFactory {
+
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * Physical connection with its statements cache; is used by single thread at a time.
+     */
+    private class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > statementCacheSize) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        private final boolean readOnly;
+        private final int transactionIsolation;
+        private final String catalog;
+        private final String schema;
+        private final int holdability;
+        private volatile long lastUsedTime;
+
+        private PooledConnection(Connection connection) throws SQLException {
+            this.connection = connection;
+            try {
+                readOnly = connection.isReadOnly();
+                transactionIsolation = connection.getTransactionIsolation();
+                catalog = connection.getCatalog();
+            } catch (SQLException | RuntimeException e) {
+                connection.close();
+                throw e;
+            }
+            schema = getSchema(connection);
+            holdability = getHoldability(connection);
+        }
+
+        private Connection borrow() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+                    new ConnectionHandler(this));
+        }
+
+        private boolean isValid() {
+            try {
+                return connection.isValid(validationTimeoutSeconds);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private boolean reset(boolean settingsChanged) {
+            try {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                if (settingsChanged) {
+                    connection.setReadOnly(readOnly);
+                    connection.setTransactionIsolation(transactionIsolation);
+                    if (catalog != null) {
+                        connection.setCatalog(catalog);
+                    }
+                    if (schema != null) {
+                        connection.setSchema(schema);
+                    }
+                    if (holdability != UNKNOWN_HOLDABILITY) {
+                        connection.setHoldability(holdability);
+                    }
+                }
+                connection.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                log.warn("Unable to reset connection of pool " + name + ": " + e);
+                return false;
+            }
+        }
+
+        private PreparedStatement prepare(String key, String sql, boolean call) throws SQLException {
+            PreparedStatement statement = statementCacheSize > 0 ? statements.remove(key) : null;
+            if (statement != null) {
+                statementCacheHitCount.incrementAndGet();
+                return statement;
+            }
+            if (statementCacheSize > 0) {
+                statementCacheMissCount.incrementAndGet();
+            }
+            return call ? connection.prepareCall(sql) : connection.prepareStatement(sql);
+        }
+
+        private void cache(String key, PreparedStatement statement) {
+            if (statementCacheSize == 0) {
+                closeQuietly(statement);
+                return;
+            }
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.clearWarnings();
+            } catch (SQLException e) {
+                closeQuietly(statement);
+                return;
+            }
+            PreparedStatement previous = statements.put(key, statement);
+            if (previous != null) {
+                // same statement has been prepared twice
+                closeQuietly(previous);
+            }
+        }
+
+        private void destroy() {
+            for (PreparedStatement statement : statements.values()) {
+                closeQuietly(statement);
+            }
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.warn("Unable to close connection of pool " + name + ": " + e);
+            }
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final PooledConnection pooledConnection;
+        private final List<Statement> statements = new ArrayList<>();
+        private final List<CachedStatementHandler> cachedStatements = new ArrayList<>();
+        private boolean closed;
+        private boolean broken;
+        private boolean settingsChanged;
+
+        private ConnectionHandler(PooledConnection pooledConnection) {
+            this.pooledConnection = pooledConnection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if ("close".equals(methodName)) {
+                close();
+                return null;
+            }
+            if ("isClosed".equals(methodName)) {
+                return closed;
+            }
+            if ("equals".equals(methodName)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(methodName)) {
+                return System.identityHashCode(proxy);
+            }
+            if ("toString".equals(methodName)) {
+                return "Pooled " + pooledConnection.connection;
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            try {
+                if (args != null && args.length == 1 && ("prepareStatement".equals(methodName) || "prepareCall".equals(methodName))) {
+                    return prepare((Connection) proxy, methodName, (String) args[0]);
+                }
+                settingsChanged |= CONNECTION_SETTINGS_METHOD_NAMES.contains(methodName);
+                Object result = method.invoke(pooledConnection.connection, args);
+                if (result instanceof Statement) {
+                    statements.add((Statement) result);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                broken |= isConnectionBroken(e.getCause());
+                throw e.getCause();
+            } catch (SQLException e) {
+                broken |= isConnectionBroken(e);
+                throw e;
+            }
+        }
+
+        private Object prepare(Connection proxy, String methodName, String sql) throws SQLException {
+            boolean call = "prepareCall".equals(methodName);
+            String key = (call ? "call:" : "statement:") + sql;
+            PreparedStatement statement = pooledConnection.prepare(key, sql, call);
+            CachedStatementHandler handler = new CachedStatementHandler(this, proxy, key, statement);
+            cachedStatements.add(handler);
+            Class<?> statementClass = call ? CallableStatement.class : PreparedStatement.class;
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { statementClass }, handler);
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Statement statement : statements) {
+                closeQuietly(statement);
+            }
+            for (CachedStatementHandler handler : cachedStatements) {
+                handler.close();
+            }
+            release(pooledConnection, broken, settingsChanged);
+        }
+    }
+
+    private class CachedStatementHandler implements InvocationHandler {
+        private final ConnectionHandler connectionHandler;
+        private final Connection connection;
+        private final String key;
+        private final PreparedStatement statement;
+        private final List<ResultSet> resultSets = new ArrayList<>();
+        private boolean settingsChanged;
+        private boolean closed;
+
+        private CachedStatementHandler(ConnectionHandler connectionHandler, Connection connection, String key, PreparedStatement statement) {
+            this.connectionHandler = connectionHandler;
+            this.connection = connection;
+            this.key = key;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if ("close".equals(methodName)) {
+                close();
+                return null;
+            }
+            if ("isClosed".equals(methodName)) {
+                return closed;
+            }
+            if ("getConnection".equals(methodName)) {
+                return connection;
+            }
+            if ("equals".equals(methodName)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(methodName)) {
+                return System.identityHashCode(proxy);
+            }
+            if ("toString".equals(methodName)) {
+                return "Cached " + statement;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            settingsChanged |= STATEMENT_SETTINGS_METHOD_NAMES.contains(methodName);
+            try {
+                Object result = method.invoke(statement, args);
+                if (result instanceof ResultSet) {
+                    resultSets.add((ResultSet) result);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                connectionHandler.broken |= isConnectionBroken(e.getCause());
+                throw e.getCause();
+            }
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (connectionHandler.broken || settingsChanged) {
+                closeQuietly(statement);
+            } else {
+                for (ResultSet resultSet : resultSets) {
+                    try {
+                        resultSet.close();
+                    } catch (SQLException e) {
+                        log.debug("Unable to close result set: " + e);
+                    }
+                }
+                connectionHandler.pooledConnection.cache(key, statement);
+            }
+        }
+    }
+
+    /**
+     * @return schema or null if it is not supported by driver (JDBC 4.1 method)
+     */
+    private static String getSchema(Connection connection) {
+        try {
+            return connection.getSchema();
+        } catch (SQLException | AbstractMethodError e) {
+            log.debug("Unable to get connection schema: " + e);
+            return null;
+        }
+    }
+
+    private static int getHoldability(Connection connection) {
+        try {
+            return connection.getHoldability();
+        } catch (SQLException | UnsupportedOperationException e) {
+            log.debug("Unable to get connection holdability: " + e);
+            return UNKNOWN_HOLDABILITY;
+        }
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            log.debug("Unable to close statement: " + e);
+        }
+    }
+}
@@ -4,10 +4,12 @@ import com.google.common.base.Strings;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
+import java.sql.SQLException;
 import java.util.StringJoiner;
 import lombok.SneakyThrows;
 import org.dom4j.Document;
 import org.dom4j.Element;
+import ru.runa.wfe.commons.SystemProperties;
 
 public class JdbcDataSource extends DataSource {
     private JdbcDataSourceType dbType;
@@ -15,6 +17,8 @@ public class JdbcDataSource extends DataSource {
     private String dbName;
     private String userName;
     private String password;
+    private JdbcConnectionPool pool;
+    private boolean closed;
 
     @Override
     void init(Document document) {
@@ -48,7 +52,50 @@ public class JdbcDataSource extends DataSource {
         return password;
     }
 
+    /**
+     * @return pooled connection (if pooling is enabled), should be closed after usage
+     */
     public Connection getConnection() throws Exception {
+        JdbcConnectionPool connectionPool = SystemProperties.isDataSourcePoolEnabled() ? getPool() : null;
+        if (connectionPool == null) {
+            return openConnection();
+        }
+        return connectionPool.getConnection();
+    }
+
+    /**
+     * @return connections pool or <code>null</code> if it is not created yet
+     */
+    public synchronized JdbcConnectionPool getPoolIfCreated() {
+        return pool;
+    }
+
+    /**
+     * Closes pooled connections, is called when data source definition is changed or removed. Connections of closed data source (still
+     * referenced by somebody) are not pooled.
+     */
+    synchronized void close() {
+        closed = true;
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    private synchronized JdbcConnectionPool getPool() {
+        if (pool == null && !closed) {
+            pool = JdbcConnectionPool.create(getName(), new JdbcConnectionPool.ConnectionFactory() {
+
+                @Override
+                public Connection create() throws SQLException {
+                    return openConnection();
+                }
+            });
+        }
+        return pool;
+    }
+
+    private Connection openConnection() throws SQLException {
         return DriverManager.getConnection(getDbType() == null ? getUrl() : DataSourceStuff.adjustUrl(this), getUserName(), getPassword());
     }
 
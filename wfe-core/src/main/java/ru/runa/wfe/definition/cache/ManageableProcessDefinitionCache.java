@@ -4,4 +4,9 @@ import ru.runa.wfe.commons.cache.CacheImplementation;
 
 interface ManageableProcessDefinitionCache extends CacheImplementation, ProcessDefinitionCache {
 
+    /**
+     * Drops cached definition with given id and all latest definition ids (changed definition may be the latest one).
+     */
+    void invalidate(Long definitionId);
+
 }
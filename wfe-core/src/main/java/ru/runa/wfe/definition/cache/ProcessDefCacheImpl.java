@@ -71,6 +71,12 @@ class ProcessDefCacheImpl extends BaseCacheImpl implements ManageableProcessDefi
         return getDefinition(deploymentDao, definitionId);
     }
 
+    @Override
+    public void invalidate(Long definitionId) {
+        definitionIdToDefinition.remove(definitionId);
+        definitionNameToId.clear();
+    }
+
     @Override
     public boolean onChange(ChangedObjectParameter changedObject) {
         return false;
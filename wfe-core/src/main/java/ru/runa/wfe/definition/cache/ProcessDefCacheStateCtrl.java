@@ -2,11 +2,16 @@ package ru.runa.wfe.definition.cache;
 
 import java.util.ArrayList;
 import java.util.List;
+import javax.transaction.Transaction;
 import org.springframework.beans.factory.annotation.Autowired;
+import ru.runa.wfe.commons.Utils;
+import ru.runa.wfe.commons.cache.Change;
+import ru.runa.wfe.commons.cache.ChangedObjectParameter;
 import ru.runa.wfe.commons.cache.sm.BaseCacheCtrl;
 import ru.runa.wfe.commons.cache.sm.CachingLogic;
 import ru.runa.wfe.commons.cache.sm.factories.StaticCacheFactory;
 import ru.runa.wfe.commons.cache.states.DefaultStateContext;
+import ru.runa.wfe.commons.ftl.FreemarkerProcessor;
 import ru.runa.wfe.definition.DefinitionDoesNotExistException;
 import ru.runa.wfe.definition.Deployment;
 import ru.runa.wfe.definition.dao.DeploymentDao;
@@ -22,6 +27,32 @@ class ProcessDefCacheStateCtrl extends BaseCacheCtrl<ManageableProcessDefinition
         CachingLogic.registerChangeListener(this);
     }
 
+    @Override
+    public boolean onChange(Transaction transaction, ChangedObjectParameter changedObject) {
+        if (changedObject.object instanceof Deployment) {
+            FreemarkerProcessor.invalidate(((Deployment) changedObject.object).getId());
+        }
+        return super.onChange(transaction, changedObject);
+    }
+
+    /**
+     * Drops only changed definition. Remote changes are applied outside of transaction, so committed cache is used.
+     */
+    @Override
+    public void onRemoteChange(Class<?> objectType, String objectId, Change change) {
+        if (objectId == null) {
+            FreemarkerProcessor.invalidateAll();
+            super.onRemoteChange(objectType, objectId, change);
+            return;
+        }
+        Long deploymentId = Long.valueOf(objectId);
+        FreemarkerProcessor.invalidate(deploymentId);
+        ManageableProcessDefinitionCache cache = stateMachine.getCacheQuick(Utils.getTransaction());
+        if (cache != null) {
+            cache.invalidate(deploymentId);
+        }
+    }
+
     @Override
     public ProcessDefinition getDefinition(Long definitionId) throws DefinitionDoesNotExistException {
         ManageableProcessDefinitionCache cache = CachingLogic.getCacheImpl(stateMachine);
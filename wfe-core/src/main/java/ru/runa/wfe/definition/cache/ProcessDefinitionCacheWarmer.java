@@ -0,0 +1,107 @@
+package ru.runa.wfe.definition.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Resource;
+import lombok.extern.apachecommons.CommonsLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+import ru.runa.wfe.commons.SystemProperties;
+import ru.runa.wfe.definition.dao.ProcessDefinitionLoader;
+import ru.runa.wfe.definition.par.ArchiveFileData;
+import ru.runa.wfe.execution.dao.ProcessDao;
+import ru.runa.wfe.lang.ProcessDefinition;
+
+/**
+ * Parses definitions with active processes into cache after server start, so first requests do not wait for parsing.
+ *
+ * Definitions are parsed concurrently, most used first. Estimated memory footprint of each parsed definition is logged afterwards.
+ */
+@CommonsLog
+public class ProcessDefinitionCacheWarmer {
+    @Autowired
+    private ProcessDao processDao;
+    @Autowired
+    private ProcessDefinitionLoader processDefinitionLoader;
+    @Resource(name = "processDefinitionCacheWarmer")
+    private ProcessDefinitionCacheWarmer self;
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    public void warmUpInBackground() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                warmUp();
+            }
+        }, "ProcessDefinitionCacheWarmer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void warmUp() {
+        long startTime = System.currentTimeMillis();
+        List<Long> definitionIds = self.getActiveDefinitionIds();
+        log.info("Warming up cache for " + definitionIds.size() + " definition(s)");
+        ExecutorService executorService = Executors.newFixedThreadPool(SystemProperties.getDefinitionCacheWarmUpThreadsCount());
+        List<Future<ProcessDefinition>> futures = new ArrayList<>(definitionIds.size());
+        try {
+            for (final Long definitionId : definitionIds) {
+                futures.add(executorService.submit(() -> self.loadDefinition(definitionId)));
+            }
+            List<ProcessDefinition> definitions = new ArrayList<>(futures.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    definitions.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    log.warn("Unable to parse definition " + definitionIds.get(i), e.getCause());
+                }
+            }
+            log.info("Cache warmed up for " + definitions.size() + " definition(s) in " + (System.currentTimeMillis() - startTime) + " ms");
+            logFootprint(definitions);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> getActiveDefinitionIds() {
+        return processDao.getActiveProcessesDefinitionIds();
+    }
+
+    @Transactional(readOnly = true)
+    public ProcessDefinition loadDefinition(Long definitionId) {
+        return processDefinitionLoader.getDefinition(definitionId);
+    }
+
+    private void logFootprint(List<ProcessDefinition> definitions) {
+        StringBuilder report = new StringBuilder("Definitions footprint (id, name, version, archive bytes, files bytes, loaded files bytes, nodes):");
+        for (ProcessDefinition definition : definitions) {
+            report.append("\n").append(definition.getId()).append(", ").append(definition.getName()).append(", ");
+            report.append(definition.getDeployment().getVersion()).append(", ");
+            if (definition.getProcessFiles() instanceof ArchiveFileData) {
+                ArchiveFileData fileData = (ArchiveFileData) definition.getProcessFiles();
+                report.append(fileData.getArchiveSize()).append(", ").append(fileData.getTotalSize()).append(", ").append(fileData.getLoadedSize());
+            } else {
+                long filesSize = 0;
+                for (byte[] bytes : definition.getProcessFiles().values()) {
+                    filesSize += bytes.length;
+                }
+                report.append(definition.getDeployment().getContent().length).append(", ").append(filesSize).append(", ").append(filesSize);
+            }
+            report.append(", ").append(definition.getNodes(true).size());
+        }
+        log.info(report);
+    }
+}
@@ -102,6 +102,7 @@ public class JpdlXmlReader {
     private static final String IGNORE_SUBSTITUTION_RULES = "ignoreSubstitutionRules";
     private static final String MULTI_TASK_CREATION_MODE = "multiTaskCreationMode";
     private static final String NODE_ASYNC_EXECUTION = "asyncExecution";
+    private static final String VARIABLES_PREFETCH = "variablesPrefetch";
     private static final String BEHAVIOUR = "behavior";
     private static final String BEHAVIOUR_TERMINATE = "TERMINATE";
     private static final String EXECUTION_CONDITION = "executionCondition";
@@ -151,6 +152,10 @@ public class JpdlXmlReader {
             if (!Strings.isNullOrEmpty(nodeAsyncExecutionString)) {
                 processDefinition.setNodeAsyncExecution("new".equals(nodeAsyncExecutionString));
             }
+            String variablesPrefetchString = root.attributeValue(VARIABLES_PREFETCH);
+            if (!Strings.isNullOrEmpty(variablesPrefetchString)) {
+                processDefinition.setVariablesPrefetch(Boolean.valueOf(variablesPrefetchString));
+            }
 
             // 1: read most content
             readSwimlanes(processDefinition, root);
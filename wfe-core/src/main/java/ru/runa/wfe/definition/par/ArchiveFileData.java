@@ -0,0 +1,154 @@
+package ru.runa.wfe.definition.par;
+
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.ref.SoftReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import ru.runa.wfe.definition.DefinitionArchiveFormatException;
+
+/**
+ * Read-only files of process definition, read from deployment archive on demand.
+ *
+ * Only archive (which is held by deployment anyway) and file names are kept; read files are softly referenced, so rarely used files (images,
+ * forms, scripts) do not stay in heap along with cached process definition. Serialized as plain map with all files.
+ */
+public class ArchiveFileData extends AbstractMap<String, byte[]> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final byte[] archive;
+    private final Map<String, Integer> fileSizes = new LinkedHashMap<>();
+    private final transient Map<String, SoftReference<byte[]>> loadedFiles = new ConcurrentHashMap<>();
+
+    /**
+     * @param archive
+     *            deployment archive
+     * @param fileData
+     *            unpacked archive files (used only to determine names and sizes)
+     */
+    public ArchiveFileData(byte[] archive, Map<String, byte[]> fileData) {
+        this.archive = archive;
+        for (Map.Entry<String, byte[]> entry : fileData.entrySet()) {
+            fileSizes.put(entry.getKey(), entry.getValue().length);
+        }
+    }
+
+    @Override
+    public byte[] get(Object fileName) {
+        if (!fileSizes.containsKey(fileName)) {
+            return null;
+        }
+        SoftReference<byte[]> reference = loadedFiles.get(fileName);
+        byte[] bytes = reference != null ? reference.get() : null;
+        if (bytes == null) {
+            bytes = read((String) fileName);
+            loadedFiles.put((String) fileName, new SoftReference<>(bytes));
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean containsKey(Object fileName) {
+        return fileSizes.containsKey(fileName);
+    }
+
+    @Override
+    public int size() {
+        return fileSizes.size();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return Collections.unmodifiableSet(fileSizes.keySet());
+    }
+
+    @Override
+    public Set<Map.Entry<String, byte[]>> entrySet() {
+        return new AbstractSet<Map.Entry<String, byte[]>>() {
+
+            @Override
+            public Iterator<Map.Entry<String, byte[]>> iterator() {
+                final Iterator<String> iterator = fileSizes.keySet().iterator();
+                return new Iterator<Map.Entry<String, byte[]>>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, byte[]> next() {
+                        String fileName = iterator.next();
+                        return new SimpleImmutableEntry<>(fileName, get(fileName));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return fileSizes.size();
+            }
+        };
+    }
+
+    /**
+     * @return size of archive in bytes
+     */
+    public int getArchiveSize() {
+        return archive.length;
+    }
+
+    /**
+     * @return total size of unpacked files in bytes
+     */
+    public long getTotalSize() {
+        long result = 0;
+        for (Integer size : fileSizes.values()) {
+            result += size;
+        }
+        return result;
+    }
+
+    /**
+     * @return size of files, currently held in heap, in bytes
+     */
+    public long getLoadedSize() {
+        long result = 0;
+        for (SoftReference<byte[]> reference : loadedFiles.values()) {
+            byte[] bytes = reference.get();
+            if (bytes != null) {
+                result += bytes.length;
+            }
+        }
+        return result;
+    }
+
+    private byte[] read(String fileName) {
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry zipEntry = zis.getNextEntry();
+            while (zipEntry != null) {
+                if (fileName.equals(zipEntry.getName())) {
+                    return ByteStreams.toByteArray(zis);
+                }
+                zipEntry = zis.getNextEntry();
+            }
+        } catch (IOException e) {
+            throw new DefinitionArchiveFormatException(e);
+        }
+        throw new DefinitionArchiveFormatException(new IOException("No entry '" + fileName + "' found in archive"));
+    }
+
+    private Object writeReplace() {
+        return new HashMap<>(this);
+    }
+}
@@ -23,6 +23,7 @@ package ru.runa.wfe.definition.par;
 
 import java.util.Map;
 
+import ru.runa.wfe.commons.SystemProperties;
 import ru.runa.wfe.lang.ProcessDefinition;
 
 public class FileArchiveParser implements ProcessArchiveParser {
@@ -34,6 +35,10 @@ public class FileArchiveParser implements ProcessArchiveParser {
     
     @Override
     public void readFromArchive(ProcessArchive processArchive, ProcessDefinition processDefinition) {
+        if (SystemProperties.isDefinitionFilesLoadedOnDemand()) {
+            processDefinition.setProcessFiles(new ArchiveFileData(processArchive.getDeployment().getContent(), processArchive.getFileData()));
+            return;
+        }
         for (Map.Entry<String, byte[]> entry : processArchive.getFileData().entrySet()) {
             processDefinition.addFile(entry.getKey(), entry.getValue());
         }
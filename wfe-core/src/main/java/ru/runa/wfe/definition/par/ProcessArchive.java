@@ -88,8 +88,8 @@ public class ProcessArchive {
         for (ProcessArchiveParser processArchiveParser : processArchiveParsers) {
             processArchiveParser.readFromArchive(this, processDefinition);
         }
-        for (Map.Entry<String, byte[]> entry : processDefinition.getProcessFiles().entrySet()) {
-            Matcher matcher = SUBPROCESS_DEFINITION_PATTERN.matcher(entry.getKey());
+        for (String fileName : processDefinition.getProcessFiles().keySet()) {
+            Matcher matcher = SUBPROCESS_DEFINITION_PATTERN.matcher(fileName);
             if (matcher.matches()) {
                 int subprocessIndex = Integer.parseInt(matcher.group(1));
                 SubprocessDefinition subprocessDefinition = new SubprocessDefinition(processDefinition);
@@ -106,6 +106,10 @@ public class ProcessArchive {
         return processDefinition;
     }
 
+    public Deployment getDeployment() {
+        return deployment;
+    }
+
     public Map<String, byte[]> getFileData() {
         return fileData;
     }
@@ -51,7 +51,9 @@ import ru.runa.wfe.execution.dao.SwimlaneDao;
 import ru.runa.wfe.execution.dao.TokenDao;
 import ru.runa.wfe.job.Job;
 import ru.runa.wfe.job.dao.JobDao;
+import ru.runa.wfe.lang.BaseReceiveMessageNode;
 import ru.runa.wfe.lang.Node;
+import ru.runa.wfe.lang.NodeType;
 import ru.runa.wfe.lang.ProcessDefinition;
 import ru.runa.wfe.lang.SwimlaneDefinition;
 import ru.runa.wfe.task.Task;
@@ -299,6 +301,33 @@ public class ExecutionContext {
             throw new InternalApplicationException("Unexpected " + variableDefinition.getStoreType());
         }
         }
+        updateMessageSelectors(variableDefinition.getName());
+    }
+
+    /**
+     * Without predefined selectors token message selector is used as correlation index, so it is re-evaluated on correlation variable change.
+     */
+    private void updateMessageSelectors(String variableName) {
+        if (SystemProperties.isProcessExecutionMessagePredefinedSelectorEnabled()) {
+            return;
+        }
+        boolean dependentNodeExists = false;
+        for (Node node : getProcessDefinition().getNodes(true)) {
+            if (node instanceof BaseReceiveMessageNode && ((BaseReceiveMessageNode) node).isMessageSelectorDependsOn(variableName)) {
+                dependentNodeExists = true;
+                break;
+            }
+        }
+        if (!dependentNodeExists) {
+            return;
+        }
+        VariableProvider variableProvider = getVariableProvider();
+        for (Token token : tokenDao.findByProcessAndNodeTypeAndExecutionStatusIsNotEnded(getProcess(), NodeType.RECEIVE_MESSAGE)) {
+            Node node = token.getNodeNotNull(getProcessDefinition());
+            if (node instanceof BaseReceiveMessageNode && ((BaseReceiveMessageNode) node).isMessageSelectorDependsOn(variableName)) {
+                ((BaseReceiveMessageNode) node).updateMessageSelector(token, variableProvider);
+            }
+        }
     }
 
     private Object convertValueForVariableType(final VariableDefinition variableDefinition, final Object value) {
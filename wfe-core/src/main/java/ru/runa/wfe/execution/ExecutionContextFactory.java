@@ -1,9 +1,29 @@
 package ru.runa.wfe.execution;
 
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.runa.wfe.definition.dao.ProcessDefinitionLoader;
+import ru.runa.wfe.execution.dao.NodeProcessDao;
+import ru.runa.wfe.execution.dao.ProcessDao;
+import ru.runa.wfe.execution.dao.SwimlaneDao;
 import ru.runa.wfe.lang.ProcessDefinition;
 import ru.runa.wfe.task.Task;
+import ru.runa.wfe.var.Variable;
+import ru.runa.wfe.var.dao.BaseProcessVariableLoader;
+import ru.runa.wfe.var.dao.VariableDao;
+import ru.runa.wfe.var.dao.VariableLoader;
 
 public class ExecutionContextFactory {
+    @Autowired
+    private ProcessDefinitionLoader processDefinitionLoader;
+    @Autowired
+    private ProcessDao processDao;
+    @Autowired
+    private NodeProcessDao nodeProcessDao;
+    @Autowired
+    private VariableDao variableDao;
+    @Autowired
+    private SwimlaneDao swimlaneDao;
 
     public ExecutionContext createExecutionContext(ProcessDefinition processDefinition, Token token) {
         return new ExecutionContext(processDefinition, token);
@@ -17,4 +37,25 @@ public class ExecutionContextFactory {
         return new ExecutionContext(processDefinition, task);
     }
 
+    /**
+     * Creates read-only variable provider for lists and rendering.
+     *
+     * @param loadedVariables
+     *            preloaded variables, can be <code>null</code>
+     * @param disableVariableDaoLoading
+     *            whether missing in loadedVariables variables should not be loaded from database
+     */
+    public ProcessVariableProvider createVariableProvider(ProcessDefinition processDefinition, Process process,
+            Map<Process, Map<String, Variable<?>>> loadedVariables, boolean disableVariableDaoLoading) {
+        VariableLoader variableLoader;
+        if (disableVariableDaoLoading) {
+            variableLoader = new VariableLoader(loadedVariables);
+        } else {
+            variableLoader = new VariableLoader(variableDao, loadedVariables);
+        }
+        BaseProcessVariableLoader baseProcessVariableLoader = new BaseProcessVariableLoader(variableLoader, processDefinition, process,
+                nodeProcessDao, processDefinitionLoader, processDao);
+        return new ProcessVariableProvider(processDefinition, process, baseProcessVariableLoader, swimlaneDao);
+    }
+
 }
@@ -0,0 +1,81 @@
+package ru.runa.wfe.execution;
+
+import ru.runa.wfe.execution.dao.SwimlaneDao;
+import ru.runa.wfe.lang.ProcessDefinition;
+import ru.runa.wfe.lang.SwimlaneDefinition;
+import ru.runa.wfe.var.AbstractVariableProvider;
+import ru.runa.wfe.var.UserType;
+import ru.runa.wfe.var.dao.BaseProcessVariableLoader;
+import ru.runa.wfe.var.dto.WfVariable;
+
+/**
+ * Read-only variable access to process for lists and rendering.
+ *
+ * Unlike {@link ExecutionContext} it is created with resolved collaborators (see {@link ExecutionContextFactory}) and does not initialize
+ * swimlanes. Can be shared between tasks of the same process.
+ */
+public class ProcessVariableProvider extends AbstractVariableProvider {
+    private final ProcessDefinition processDefinition;
+    private final Process process;
+    private final BaseProcessVariableLoader baseProcessVariableLoader;
+    private final SwimlaneDao swimlaneDao;
+
+    public ProcessVariableProvider(ProcessDefinition processDefinition, Process process, BaseProcessVariableLoader baseProcessVariableLoader,
+            SwimlaneDao swimlaneDao) {
+        this.processDefinition = processDefinition;
+        this.process = process;
+        this.baseProcessVariableLoader = baseProcessVariableLoader;
+        this.swimlaneDao = swimlaneDao;
+    }
+
+    @Override
+    public Long getProcessDefinitionId() {
+        return processDefinition.getId();
+    }
+
+    @Override
+    public String getProcessDefinitionName() {
+        return processDefinition.getName();
+    }
+
+    @Override
+    public ProcessDefinition getProcessDefinition() {
+        return processDefinition;
+    }
+
+    @Override
+    public Long getProcessId() {
+        return process.getId();
+    }
+
+    @Override
+    public UserType getUserType(String name) {
+        return processDefinition.getUserType(name);
+    }
+
+    @Override
+    public Object getValue(String variableName) {
+        WfVariable variable = getVariable(variableName);
+        return variable != null ? variable.getValue() : null;
+    }
+
+    @Override
+    public WfVariable getVariable(String variableName) {
+        return getVariable(variableName, true);
+    }
+
+    /**
+     * @return the variable value with the given name, same as {@link ExecutionContext#getVariable(String, boolean)}.
+     */
+    public WfVariable getVariable(String name, boolean searchInSwimlanes) {
+        if (searchInSwimlanes) {
+            SwimlaneDefinition swimlaneDefinition = processDefinition.getSwimlane(name);
+            if (swimlaneDefinition != null) {
+                Swimlane swimlane = swimlaneDao.findByProcessAndName(process, swimlaneDefinition.getName());
+                return new WfVariable(swimlaneDefinition.toVariableDefinition(), swimlane != null ? swimlane.getExecutor() : null);
+            }
+        }
+        return baseProcessVariableLoader.get(name);
+    }
+
+}
@@ -1,8 +1,12 @@
 package ru.runa.wfe.execution.dao;
 
 import com.google.common.collect.Lists;
+import com.querydsl.core.Tuple;
 import com.querydsl.jpa.JPQLQuery;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.springframework.stereotype.Component;
 import ru.runa.wfe.commons.dao.GenericDao;
 import ru.runa.wfe.execution.NodeProcess;
@@ -42,6 +46,26 @@ public class NodeProcessDao extends GenericDao<NodeProcess> {
         queryFactory.delete(np).where(np.process.eq(process)).execute();
     }
 
+    /**
+     * @return deleted subprocess nodes count
+     */
+    public long deleteByProcessIds(Collection<Long> processIds) {
+        QNodeProcess np = QNodeProcess.nodeProcess;
+        return queryFactory.delete(np).where(np.process.id.in(processIds)).execute();
+    }
+
+    /**
+     * @return parent process id by subprocess id, for direct subprocesses of processes
+     */
+    public Map<Long, Long> getSubprocessIds(Collection<Long> processIds) {
+        QNodeProcess np = QNodeProcess.nodeProcess;
+        Map<Long, Long> result = new HashMap<>();
+        for (Tuple tuple : queryFactory.select(np.subProcess.id, np.process.id).from(np).where(np.process.id.in(processIds)).fetch()) {
+            result.put(tuple.get(0, Long.class), tuple.get(1, Long.class));
+        }
+        return result;
+    }
+
     public List<Process> getSubprocesses(Process process) {
         List<NodeProcess> nodeProcesses = getNodeProcesses(process, null, null, null);
         List<Process> result = Lists.newArrayListWithExpectedSize(nodeProcesses.size());
@@ -1,16 +1,25 @@
 package ru.runa.wfe.execution.dao;
 
+import com.google.common.collect.Lists;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.JPQLQuery;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.springframework.stereotype.Component;
+import ru.runa.wfe.commons.SystemProperties;
 import ru.runa.wfe.commons.dao.GenericDao;
 import ru.runa.wfe.execution.ExecutionStatus;
 import ru.runa.wfe.execution.Process;
 import ru.runa.wfe.execution.ProcessDoesNotExistException;
 import ru.runa.wfe.execution.ProcessFilter;
+import ru.runa.wfe.execution.QNodeProcess;
 import ru.runa.wfe.execution.QProcess;
 import ru.runa.wfe.execution.QSwimlane;
 import ru.runa.wfe.execution.QToken;
@@ -44,6 +53,18 @@ public class ProcessDao extends GenericDao<Process> {
         return queryFactory.selectFrom(p).where(p.id.in(ids)).fetch();
     }
 
+    /**
+     * @return identities of existing processes from ids.
+     */
+    public Set<Long> getExistingProcessIds(Collection<Long> ids) {
+        Set<Long> result = new HashSet<>();
+        QProcess p = QProcess.process;
+        for (List<Long> idsPart : Lists.partition(new ArrayList<>(ids), SystemProperties.getDatabaseParametersCount())) {
+            result.addAll(queryFactory.select(p.id).from(p).where(p.id.in(idsPart)).fetch());
+        }
+        return result;
+    }
+
     public Set<Long> getDependentProcessIds(Executor executor) {
         Set<Long> processes = new HashSet<>();
         QSwimlane s = QSwimlane.swimlane;
@@ -105,6 +126,63 @@ public class ProcessDao extends GenericDao<Process> {
         super.delete(process);
     }
 
+    /**
+     * @return identities of ended processes, not being subprocesses, with id greater than afterId, ordered by id.
+     * @param definitionNames
+     *            empty list matches all definitions
+     */
+    public List<Long> getEndedRootProcessIds(Date endedBefore, List<String> definitionNames, long afterId, int limit) {
+        QProcess p = QProcess.process;
+        QNodeProcess np = QNodeProcess.nodeProcess;
+        JPQLQuery<Long> q = queryFactory.select(p.id).from(p).where(p.id.gt(afterId).and(p.executionStatus.eq(ExecutionStatus.ENDED))
+                .and(p.endDate.before(endedBefore)).and(JPAExpressions.selectFrom(np).where(np.subProcess.eq(p)).notExists()));
+        if (!definitionNames.isEmpty()) {
+            q.where(p.deployment.name.in(definitionNames));
+        }
+        return q.orderBy(p.id.asc()).limit(limit).fetch();
+    }
+
+    /**
+     * @return identities of not ended processes from ids.
+     */
+    public Set<Long> getNotEndedProcessIds(Collection<Long> ids) {
+        QProcess p = QProcess.process;
+        return new HashSet<>(queryFactory.select(p.id).from(p).where(p.id.in(ids).and(p.endDate.isNull())).fetch());
+    }
+
+    /**
+     * @return definition name by process id.
+     */
+    public Map<Long, String> getDefinitionNames(Collection<Long> ids) {
+        QProcess p = QProcess.process;
+        Map<Long, String> result = new HashMap<>();
+        for (Tuple tuple : queryFactory.select(p.id, p.deployment.name).from(p).where(p.id.in(ids)).fetch()) {
+            result.put(tuple.get(p.id), tuple.get(p.deployment.name));
+        }
+        return result;
+    }
+
+    /**
+     * Deletes processes with their tokens by bulk statements, objects of processes must be deleted before.
+     *
+     * @return deleted processes and tokens count
+     */
+    public long deleteByIds(Collection<Long> ids) {
+        QToken t = QToken.token;
+        QProcess p = QProcess.process;
+        List<Long> tokenIds = queryFactory.select(t.id).from(t).where(t.process.id.in(ids)).fetch();
+        List<List<Long>> tokenIdsParts = Lists.partition(tokenIds, SystemProperties.getDatabaseParametersCount());
+        // process references root token, tokens reference process and parent token
+        for (List<Long> tokenIdsPart : tokenIdsParts) {
+            queryFactory.update(t).setNull(t.parent).setNull(t.process).where(t.id.in(tokenIdsPart)).execute();
+        }
+        long result = queryFactory.delete(p).where(p.id.in(ids)).execute();
+        for (List<Long> tokenIdsPart : tokenIdsParts) {
+            result += queryFactory.delete(t).where(t.id.in(tokenIdsPart)).execute();
+        }
+        return result;
+    }
+
     public long getAllCompletedProcessesCount() {
         QProcess p = QProcess.process;
         return queryFactory.selectFrom(p)
@@ -112,6 +190,15 @@ public class ProcessDao extends GenericDao<Process> {
                 .fetchCount();
     }
 
+    /**
+     * @return identities of definitions with active processes, ordered by active processes count (descending).
+     */
+    public List<Long> getActiveProcessesDefinitionIds() {
+        QProcess p = QProcess.process;
+        return queryFactory.select(p.deployment.id).from(p).where(p.endDate.isNull()).groupBy(p.deployment.id).orderBy(p.id.count().desc())
+                .fetch();
+    }
+
     public long getAllActiveProcessesCount() {
         QProcess p = QProcess.process;
         return queryFactory.selectFrom(p)
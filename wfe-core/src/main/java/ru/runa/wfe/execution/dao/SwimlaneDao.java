@@ -1,5 +1,6 @@
 package ru.runa.wfe.execution.dao;
 
+import java.util.Collection;
 import java.util.List;
 import org.springframework.stereotype.Component;
 import ru.runa.wfe.commons.dao.GenericDao;
@@ -77,4 +78,12 @@ public class SwimlaneDao extends GenericDao<Swimlane> {
         QSwimlane s = QSwimlane.swimlane;
         queryFactory.delete(s).where(s.process.eq(process)).execute();
     }
+
+    /**
+     * @return deleted swimlanes count
+     */
+    public long deleteByProcessIds(Collection<Long> processIds) {
+        QSwimlane s = QSwimlane.swimlane;
+        return queryFactory.delete(s).where(s.process.id.in(processIds)).execute();
+    }
 }
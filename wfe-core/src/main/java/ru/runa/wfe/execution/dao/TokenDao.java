@@ -61,6 +61,13 @@ public class TokenDao extends GenericDao<Token> {
                 .fetch();
     }
 
+    public List<Token> findByProcessAndNodeTypeAndExecutionStatusIsNotEnded(ru.runa.wfe.execution.Process process, NodeType nodeType) {
+        QToken t = QToken.token;
+        return queryFactory.selectFrom(t)
+                .where(t.process.eq(process).and(t.nodeType.eq(nodeType)).and(t.executionStatus.ne(ExecutionStatus.ENDED)))
+                .fetch();
+    }
+
     public List<Token> findByMessageSelectorIsNullAndExecutionStatusIsNotEnded() {
         QToken t = QToken.token;
         return queryFactory.selectFrom(t)
@@ -80,6 +87,18 @@ public class TokenDao extends GenericDao<Token> {
                 .where(t.messageSelector.in(messageSelectors).and(t.executionStatus.ne(ExecutionStatus.SUSPENDED)).and(t.endDate.isNull())).fetch();
     }
 
+    /**
+     * Finds tokens in receive message nodes by selectors, including tokens with empty selector (which accept any message).
+     */
+    public List<Token> findByMessageSelectorInOrEmptyInActiveProcesses(Collection<String> messageSelectors) {
+        QToken t = QToken.token;
+        return queryFactory.selectFrom(t)
+                .where(t.nodeType.eq(NodeType.RECEIVE_MESSAGE)
+                        .and(t.messageSelector.in(messageSelectors).or(t.messageSelector.isNull()).or(t.messageSelector.eq("")))
+                        .and(t.executionStatus.ne(ExecutionStatus.SUSPENDED)).and(t.endDate.isNull()))
+                .fetch();
+    }
+
     public List<Token> findByProcessAndEndDateGreaterThanOrEquals(ru.runa.wfe.execution.Process process, Date endDate) {
         QToken t = QToken.token;
         return queryFactory.selectFrom(t)
@@ -24,6 +24,7 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.querydsl.core.Tuple;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -57,6 +58,7 @@ import ru.runa.wfe.definition.DefinitionVariableProvider;
 import ru.runa.wfe.definition.Deployment;
 import ru.runa.wfe.definition.update.ProcessDefinitionUpdateManager;
 import ru.runa.wfe.execution.ExecutionContext;
+import ru.runa.wfe.execution.ExecutionContextFactory;
 import ru.runa.wfe.execution.ExecutionStatus;
 import ru.runa.wfe.execution.NodeProcess;
 import ru.runa.wfe.execution.Process;
@@ -72,6 +74,7 @@ import ru.runa.wfe.execution.dto.WfSwimlane;
 import ru.runa.wfe.execution.dto.WfToken;
 import ru.runa.wfe.extension.AssignmentHandler;
 import ru.runa.wfe.extension.assign.AssignmentHelper;
+import ru.runa.wfe.graph.DiagramCache;
 import ru.runa.wfe.graph.DrawProperties;
 import ru.runa.wfe.graph.history.GraphHistoryBuilder;
 import ru.runa.wfe.graph.image.GraphImageBuilder;
@@ -83,6 +86,7 @@ import ru.runa.wfe.job.dao.JobDao;
 import ru.runa.wfe.job.dto.WfJob;
 import ru.runa.wfe.lang.Delegation;
 import ru.runa.wfe.lang.Node;
+import ru.runa.wfe.lang.NodeType;
 import ru.runa.wfe.lang.ProcessDefinition;
 import ru.runa.wfe.lang.StartNode;
 import ru.runa.wfe.lang.SubprocessNode;
@@ -112,9 +116,15 @@ import ru.runa.wfe.var.dto.WfVariable;
  */
 public class ExecutionLogic extends WfCommonLogic {
     private static final SecuredObjectType[] PROCESS_EXECUTION_CLASSES = { SecuredObjectType.PROCESS };
+    /**
+     * Max message properties count for correlation by selectors (selectors count grows as power of 2).
+     */
+    private static final int MAX_MESSAGE_CORRELATION_PROPERTIES = 8;
     @Autowired
     private ProcessFactory processFactory;
     @Autowired
+    private ExecutionContextFactory executionContextFactory;
+    @Autowired
     private ExecutorLogic executorLogic;
     @Autowired
     private NodeAsyncExecutor nodeAsyncExecutor;
@@ -263,16 +273,25 @@ public class ExecutionLogic extends WfCommonLogic {
             if (subprocessId != null) {
                 processDefinition = processDefinition.getEmbeddedSubprocessByIdNotNull(subprocessId);
             }
-            ProcessLogs processLogs = new ProcessLogs(processId);
-            processLogs.addLogs(processLogDao.get(processId, processDefinition), false);
-            GraphImageBuilder builder = new GraphImageBuilder(processDefinition);
-            builder.setHighlightedToken(highlightedToken);
             List<Token> activeTokens = tokenDao.findByProcessAndExecutionStatusIsNotEnded(process);
             Set<String> activeNodeIds = new HashSet<>();
             for (Token token : activeTokens) {
                 activeNodeIds.add(token.getNodeId());
             }
-            return builder.createDiagram(process, processLogs, activeNodeIds);
+            Tuple logsVersion = processLogDao.getLastLogIdAndCount(processId);
+            DiagramCache.Key key = DiagramCache.createProcessDiagramKey(processId, processDefinition.getDeployment(), subprocessId,
+                    logsVersion.get(0, Long.class), logsVersion.get(1, Long.class), highlightedToken != null ? highlightedToken.getId() : null,
+                    activeNodeIds);
+            byte[] diagram = DiagramCache.get(key);
+            if (diagram == null) {
+                ProcessLogs processLogs = new ProcessLogs(processId);
+                processLogs.addLogs(processLogDao.get(processId, processDefinition), false);
+                GraphImageBuilder builder = new GraphImageBuilder(processDefinition);
+                builder.setHighlightedToken(highlightedToken);
+                diagram = builder.createDiagram(process, processLogs, activeNodeIds);
+                DiagramCache.put(key, diagram, builder.getValidUntil());
+            }
+            return diagram;
         } catch (Exception e) {
             throw Throwables.propagate(e);
         }
@@ -324,8 +343,16 @@ public class ExecutionLogic extends WfCommonLogic {
             Process process = processDao.getNotNull(processId);
             permissionDao.checkAllowed(user, Permission.READ, process);
             ProcessDefinition processDefinition = getDefinition(process);
-            List<ProcessLog> logs = processLogDao.getAll(processId);
-            return new GraphHistoryBuilder(process, processDefinition, logs, subprocessId).createDiagram();
+            Tuple logsVersion = processLogDao.getLastLogIdAndCount(processId);
+            DiagramCache.Key key = DiagramCache.createHistoryDiagramKey(processId, processDefinition.getDeployment(), subprocessId,
+                    logsVersion.get(0, Long.class), logsVersion.get(1, Long.class));
+            byte[] diagram = DiagramCache.get(key);
+            if (diagram == null) {
+                List<ProcessLog> logs = processLogDao.getAll(processId);
+                diagram = new GraphHistoryBuilder(process, processDefinition, logs, subprocessId).createDiagram();
+                DiagramCache.put(key, diagram, Long.MAX_VALUE);
+            }
+            return diagram;
         } catch (Exception e) {
             throw Throwables.propagate(e);
         }
@@ -701,7 +728,13 @@ public class ExecutionLogic extends WfCommonLogic {
                 return tokenDao.findByMessageSelectorInActiveProcesses(messageSelectors);
             }
         } else {
-            throw new InternalApplicationException("Method not implemented for process.execution.message.predefined.selector.enabled = false");
+            // Selectors are used as correlation index, tokens are checked by variable mappings evaluation after that
+            if (routingData.size() > MAX_MESSAGE_CORRELATION_PROPERTIES) {
+                log.warn("Message contains " + routingData.size() + " properties, checking all tokens in receive message nodes");
+                return tokenDao.findByNodeTypeInActiveProcesses(NodeType.RECEIVE_MESSAGE);
+            }
+            Set<String> messageSelectors = Utils.getObjectMessageCombinationSelectors(routingData);
+            return tokenDao.findByMessageSelectorInOrEmptyInActiveProcesses(messageSelectors);
         }
     }
 
@@ -710,10 +743,10 @@ public class ExecutionLogic extends WfCommonLogic {
         if (!Utils.isNullOrEmpty(variableNamesToInclude)) {
             try {
                 ProcessDefinition processDefinition = getDefinition(process);
-                ExecutionContext executionContext = new ExecutionContext(processDefinition, process, variables, false);
+                VariableProvider variableProvider = executionContextFactory.createVariableProvider(processDefinition, process, variables, false);
                 for (String variableName : variableNamesToInclude) {
                     try {
-                        wfVariables.add(executionContext.getVariableProvider().getVariable(variableName));
+                        wfVariables.add(variableProvider.getVariable(variableName));
                     } catch (Exception e) {
                         log.error("Unable to get '" + variableName + "' in " + process, e);
                     }
@@ -1,8 +1,10 @@
 package ru.runa.wfe.extension.handler.report;
 
 import com.google.common.base.Strings;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.sql.Connection;
 import java.util.HashMap;
@@ -10,7 +12,6 @@ import java.util.Map;
 import javax.naming.InitialContext;
 import net.sf.jasperreports.engine.JRAbstractExporter;
 import net.sf.jasperreports.engine.JRException;
-import net.sf.jasperreports.engine.JasperFillManager;
 import net.sf.jasperreports.engine.JasperPrint;
 import net.sf.jasperreports.engine.export.HtmlExporter;
 import net.sf.jasperreports.engine.export.JRPdfExporter;
@@ -28,6 +29,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import ru.runa.wfe.InternalApplicationException;
 import ru.runa.wfe.commons.ApplicationContextFactory;
+import ru.runa.wfe.commons.SystemProperties;
 import ru.runa.wfe.datasource.DataSource;
 import ru.runa.wfe.datasource.DataSourceStorage;
 import ru.runa.wfe.datasource.JdbcDataSource;
@@ -38,9 +40,12 @@ import ru.runa.wfe.report.ReportFormatterImpl;
 import ru.runa.wfe.report.dao.ReportDao;
 import ru.runa.wfe.report.dto.WfReport;
 import ru.runa.wfe.report.dto.WfReportParameter;
-import ru.runa.wfe.report.impl.ReportBuildResult;
+import ru.runa.wfe.report.impl.ReportFiller;
 import ru.runa.wfe.var.UserTypeMap;
+import ru.runa.wfe.var.file.FileVariable;
 import ru.runa.wfe.var.file.FileVariableImpl;
+import ru.runa.wfe.var.file.LocalFileSystemStorage;
+import ru.runa.wfe.var.file.LocalFileSystemVariable;
 
 public class ReportHandler extends CommonParamBasedHandler {
 
@@ -75,15 +80,14 @@ public class ReportHandler extends CommonParamBasedHandler {
         }
 
         ReportGenerationType reportGenerationType = ReportGenerationType.valueOf(format);
-        ReportBuildResult result = reportGenerationType.exportReport(report.getName(), fillReport(params, reportGenerationType, report));
-        FileVariableImpl fileVariable = new FileVariableImpl();
-        fileVariable.setName(result.getReportFileName());
-        fileVariable.setData((byte[]) result.getReportData());
-        fileVariable.setContentType(CONTENT_TYPE);
-        handlerData.setOutputParam(OUTPUT_PARAM_RESULT, fileVariable);
+        try (ReportFiller reportFiller = new ReportFiller()) {
+            JasperPrint print = fillReport(reportFiller, params, report);
+            handlerData.setOutputParam(OUTPUT_PARAM_RESULT, exportReport(report.getName() + reportGenerationType.reportFileSuffix(),
+                    reportGenerationType, print, handlerData.getProcessId()));
+        }
     }
 
-    private JasperPrint fillReport(Map<String, Object> params, ReportGenerationType reportGenerationType, WfReport report) throws Exception {
+    private JasperPrint fillReport(ReportFiller reportFiller, Map<String, Object> params, WfReport report) throws Exception {
         Connection connection;
         if (!Strings.isNullOrEmpty(dataSource)) {
             DataSource ds = DataSourceStorage.getDataSource(dataSource);
@@ -99,12 +103,33 @@ public class ReportHandler extends CommonParamBasedHandler {
         }
         try {
             params.put("DataFormatter", new ReportFormatterImpl());
-            return JasperFillManager.fillReport(new ByteArrayInputStream(report.getCompiledReport()), params, connection);
+            return reportFiller.fill(report, params, connection);
         } finally {
             DataSourceUtils.releaseConnection(connection, ApplicationContextFactory.getDataSource());
         }
     }
 
+    private FileVariable exportReport(String fileName, ReportGenerationType reportGenerationType, JasperPrint print, Long processId)
+            throws Exception {
+        if (SystemProperties.isLocalFileStorageEnabled()) {
+            // stored to blob without reading to memory, variable save only adds blob reference
+            File directory = LocalFileSystemStorage.getUploadsDirectory();
+            directory.mkdirs();
+            File file = File.createTempFile("report", null, directory);
+            try {
+                try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file))) {
+                    reportGenerationType.exportReport(print, outputStream);
+                }
+                return new LocalFileSystemVariable(fileName, CONTENT_TYPE, LocalFileSystemStorage.saveBlob(file, processId));
+            } finally {
+                file.delete();
+            }
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        reportGenerationType.exportReport(print, outputStream);
+        return new FileVariableImpl(fileName, outputStream.toByteArray(), CONTENT_TYPE);
+    }
+
     private static enum ReportGenerationType {
 
         EXCEL {
@@ -194,13 +219,11 @@ public class ReportHandler extends CommonParamBasedHandler {
 
         };
 
-        protected ReportBuildResult exportReport(String reportName, JasperPrint report) throws JRException {
+        protected void exportReport(JasperPrint report, OutputStream outputStream) throws JRException {
             JRAbstractExporter exporter = exporter();
             exporter.setExporterInput(new SimpleExporterInput(report));
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             exporter.setExporterOutput(output(outputStream));
             exporter.exportReport();
-            return new ReportBuildResult(reportName + reportFileSuffix(), outputStream.toByteArray());
         }
 
         protected ExporterOutput output(OutputStream os) {
@@ -1,10 +1,9 @@
 package ru.runa.wfe.extension.handler.sql;
 
 import com.google.common.collect.Sets;
-import com.google.common.io.Closeables;
-import java.io.ByteArrayInputStream;
+import com.google.common.io.ByteStreams;
 import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
+import java.io.InputStream;
 import java.io.ObjectOutputStream;
 import java.sql.Blob;
 import java.sql.CallableStatement;
@@ -35,6 +34,7 @@ import ru.runa.wfe.var.UserType;
 import ru.runa.wfe.var.UserTypeMap;
 import ru.runa.wfe.var.VariableDefinition;
 import ru.runa.wfe.var.VariableProvider;
+import ru.runa.wfe.var.converter.SerializableToByteArrayConverter;
 import ru.runa.wfe.var.dto.WfVariable;
 import ru.runa.wfe.var.file.FileVariable;
 import ru.runa.wfe.var.file.FileVariableImpl;
@@ -218,23 +218,28 @@ public abstract class AbstractSqlHandler extends CommonHandler {
                 PropertyUtils.setProperty(variableValue, fieldName, newValue);
                 newValue = variableValue;
             }
-            if (newValue instanceof Blob) {
-                ObjectInputStream ois = new ObjectInputStream(((Blob) newValue).getBinaryStream());
-                newValue = ois.readObject();
-                Closeables.closeQuietly(ois);
-            }
-            if (newValue instanceof byte[]) {
-                ByteArrayInputStream bais = new ByteArrayInputStream((byte[]) newValue);
-                ObjectInputStream ois = new ObjectInputStream(bais);
-                newValue = ois.readObject();
-                Closeables.closeQuietly(ois);
-            }
+            newValue = revertBytes(newValue);
             ((MapDelegableVariableProvider) variableProvider).add(sqlHandlerQueryResult.getVariableName(), newValue);
             outputVariables.put(sqlHandlerQueryResult.getVariableName(), newValue);
         }
         return outputVariables;
     }
 
+    /**
+     * Reads value, stored as bytes by {@link SerializableToByteArrayConverter}: in binary codec format or by java serialization.
+     */
+    static Object revertBytes(Object value) throws Exception {
+        if (value instanceof Blob) {
+            try (InputStream inputStream = ((Blob) value).getBinaryStream()) {
+                value = ByteStreams.toByteArray(inputStream);
+            }
+        }
+        if (value instanceof byte[]) {
+            return new SerializableToByteArrayConverter().revert(value);
+        }
+        return value;
+    }
+
     private String findAttributeByColumnNameIgnoreCase(UserType userType, String columnName) throws Exception {
         for (VariableDefinition variableDefinition : userType.getAttributes()) {
             if (variableDefinition.getName().equalsIgnoreCase(columnName)) {
@@ -31,6 +31,9 @@ import javax.sql.DataSource;
 
 import ru.runa.wfe.InternalApplicationException;
 import ru.runa.wfe.commons.SqlCommons;
+import ru.runa.wfe.datasource.DataSourceStorage;
+import ru.runa.wfe.datasource.DataSourceStuff;
+import ru.runa.wfe.datasource.JdbcDataSource;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
@@ -192,6 +195,12 @@ public class SqlFunctionDao {
 
     private static Connection getConnection() throws SQLException {
         try {
+            String dataSourceName = SqlFunctionResources.getDataSourceName();
+            if (dataSourceName.startsWith(DataSourceStuff.PATH_PREFIX_DATA_SOURCE)) {
+                // pooled connection to data source from storage
+                String dsName = dataSourceName.substring(DataSourceStuff.PATH_PREFIX_DATA_SOURCE.length());
+                return ((JdbcDataSource) DataSourceStorage.getDataSource(dsName)).getConnection();
+            }
             DataSource ds = (DataSource) getInitialContext().lookup(SqlFunctionResources.getDataSourceName());
             if (ds == null) {
                 throw new InternalApplicationException("No DataSource found for " + SqlFunctionResources.getDataSourceName());
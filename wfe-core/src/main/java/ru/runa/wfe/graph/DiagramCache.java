@@ -0,0 +1,138 @@
+package ru.runa.wfe.graph;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import ru.runa.wfe.commons.SystemProperties;
+import ru.runa.wfe.definition.Deployment;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Rendered process and history diagrams. Key contains greatest process log id and logs count, so diagram is rebuilt after any process change;
+ * process diagram is rebuilt also when active task deadline colors change.
+ */
+public class DiagramCache {
+    private static final Log log = LogFactory.getLog(DiagramCache.class);
+    private static final Cache<Key, Diagram> diagrams = CacheBuilder.newBuilder().maximumSize(SystemProperties.getProcessDiagramCacheSize())
+            .build();
+    private static final AtomicLong hitCount = new AtomicLong();
+    private static final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * @return cached diagram or <code>null</code>
+     */
+    public static byte[] get(Key key) {
+        Diagram diagram = diagrams.getIfPresent(key);
+        if (diagram != null && diagram.validUntil > System.currentTimeMillis()) {
+            hitCount.incrementAndGet();
+            return diagram.image;
+        }
+        missCount.incrementAndGet();
+        if (log.isDebugEnabled()) {
+            log.debug("Building diagram " + key + ", cache hits: " + getCacheHitCount() + ", misses: " + getCacheMissCount());
+        }
+        return null;
+    }
+
+    /**
+     * @param validUntil
+     *            time when diagram becomes outdated, {@link Long#MAX_VALUE} if it depends on process logs only
+     */
+    public static void put(Key key, byte[] image, long validUntil) {
+        diagrams.put(key, new Diagram(image, validUntil));
+    }
+
+    public static long getCacheHitCount() {
+        return hitCount.get();
+    }
+
+    public static long getCacheMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @param lastLogId
+     *            greatest process log id
+     * @param logsCount
+     *            process logs count
+     */
+    public static Key createProcessDiagramKey(Long processId, Deployment deployment, String subprocessId, Long lastLogId, Long logsCount,
+            Long highlightedTokenId, Set<String> activeNodeIds) {
+        return new Key(false, processId, deployment, subprocessId, lastLogId, logsCount, highlightedTokenId, activeNodeIds);
+    }
+
+    /**
+     * @param lastLogId
+     *            greatest process log id
+     * @param logsCount
+     *            process logs count
+     */
+    public static Key createHistoryDiagramKey(Long processId, Deployment deployment, String subprocessId, Long lastLogId, Long logsCount) {
+        return new Key(true, processId, deployment, subprocessId, lastLogId, logsCount, null, null);
+    }
+
+    private static class Diagram {
+        private final byte[] image;
+        private final long validUntil;
+
+        private Diagram(byte[] image, long validUntil) {
+            this.image = image;
+            this.validUntil = validUntil;
+        }
+    }
+
+    public static class Key {
+        private final boolean history;
+        private final Long processId;
+        private final Long deploymentId;
+        private final Long deploymentUpdateTime;
+        private final String subprocessId;
+        private final Long lastLogId;
+        private final Long logsCount;
+        private final Long highlightedTokenId;
+        private final Set<String> activeNodeIds;
+
+        private Key(boolean history, Long processId, Deployment deployment, String subprocessId, Long lastLogId, Long logsCount,
+                Long highlightedTokenId, Set<String> activeNodeIds) {
+            this.history = history;
+            this.processId = processId;
+            this.deploymentId = deployment.getId();
+            this.deploymentUpdateTime = deployment.getUpdateDate() != null ? deployment.getUpdateDate().getTime() : null;
+            this.subprocessId = subprocessId;
+            this.lastLogId = lastLogId;
+            this.logsCount = logsCount;
+            this.highlightedTokenId = highlightedTokenId;
+            this.activeNodeIds = activeNodeIds;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) obj;
+            return history == key.history && Objects.equal(processId, key.processId) && Objects.equal(deploymentId, key.deploymentId)
+                    && Objects.equal(deploymentUpdateTime, key.deploymentUpdateTime) && Objects.equal(subprocessId, key.subprocessId)
+                    && Objects.equal(lastLogId, key.lastLogId) && Objects.equal(logsCount, key.logsCount)
+                    && Objects.equal(highlightedTokenId, key.highlightedTokenId) && Objects.equal(activeNodeIds, key.activeNodeIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(history, processId, deploymentId, subprocessId, lastLogId, logsCount, highlightedTokenId);
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this).add("history", history).add("processId", processId).add("subprocessId", subprocessId)
+                    .add("lastLogId", lastLogId).add("highlightedTokenId", highlightedTokenId).omitNullValues().toString();
+        }
+    }
+}
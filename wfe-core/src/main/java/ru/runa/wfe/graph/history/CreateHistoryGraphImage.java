@@ -5,13 +5,11 @@ import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
-import javax.imageio.ImageIO;
-
 import ru.runa.wfe.graph.DrawProperties;
 import ru.runa.wfe.graph.RenderHits;
+import ru.runa.wfe.graph.image.GraphImageHelper;
 import ru.runa.wfe.graph.image.figure.AbstractFigure;
 import ru.runa.wfe.graph.image.figure.TransitionFigure;
 import ru.runa.wfe.history.graph.HistoryGraphForkNodeModel;
@@ -27,7 +25,6 @@ import ru.runa.wfe.history.graph.HistoryGraphTransitionModel;
  */
 public class CreateHistoryGraphImage implements HistoryGraphNodeVisitor<CreateHistoryGraphImageContext> {
 
-    private static final String FORMAT = "png";
     private final BufferedImage resultImage;
     private final Graphics2D graphics;
 
@@ -46,9 +43,7 @@ public class CreateHistoryGraphImage implements HistoryGraphNodeVisitor<CreateHi
      * Get image, generated by process history graph.
      */
     public byte[] getImageBytes() throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ImageIO.write(resultImage, FORMAT, outputStream);
-        return outputStream.toByteArray();
+        return GraphImageHelper.toPngBytes(resultImage);
     }
 
     @Override
@@ -17,6 +17,8 @@
  */
 package ru.runa.wfe.graph.image;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.awt.BasicStroke;
 import java.awt.Font;
 import java.awt.Graphics2D;
@@ -24,11 +26,13 @@ import java.awt.RenderingHints;
 import java.awt.Stroke;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import javax.imageio.ImageIO;
 import lombok.SneakyThrows;
+import ru.runa.wfe.commons.SystemProperties;
+import ru.runa.wfe.definition.Deployment;
 import ru.runa.wfe.definition.Language;
 import ru.runa.wfe.graph.DrawProperties;
 import ru.runa.wfe.graph.RenderHits;
@@ -37,7 +41,11 @@ import ru.runa.wfe.graph.image.figure.TransitionFigure;
 import ru.runa.wfe.lang.ProcessDefinition;
 
 public class GraphImage {
-    private static final String FORMAT = "png";
+    /**
+     * Decoded definition graph images by deployment id, update date and embedded subprocess id; they are copied before drawing.
+     */
+    private static final Cache<String, BufferedImage> definitionImages = CacheBuilder.newBuilder()
+            .maximumSize(SystemProperties.getDefinitionGraphImageCacheSize()).softValues().build();
     private BufferedImage image;
     private final ProcessDefinition processDefinition;
     private final Map<TransitionFigure, RenderHits> transitions;
@@ -47,7 +55,7 @@ public class GraphImage {
     @SneakyThrows
     public GraphImage(ProcessDefinition processDefinition, Map<TransitionFigure, RenderHits> transitions, Map<AbstractFigure, RenderHits> nodes) {
         if (useEdgingOnly) {
-            image = ImageIO.read(new ByteArrayInputStream(processDefinition.getGraphImageBytesNotNull()));
+            image = GraphImageHelper.copy(getDefinitionImage(processDefinition));
         }
         this.processDefinition = processDefinition;
         this.transitions = transitions;
@@ -88,9 +96,24 @@ public class GraphImage {
             drawAbstractFigure(graphics, entry.getKey(), entry.getValue(), new BasicStroke(lineWidth));
         }
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ImageIO.write(image, FORMAT, outputStream);
-        return outputStream.toByteArray();
+        return GraphImageHelper.toPngBytes(image);
+    }
+
+    private static BufferedImage getDefinitionImage(final ProcessDefinition processDefinition) throws Exception {
+        Callable<BufferedImage> loader = new Callable<BufferedImage>() {
+
+            @Override
+            public BufferedImage call() throws IOException {
+                return ImageIO.read(new ByteArrayInputStream(processDefinition.getGraphImageBytesNotNull()));
+            }
+        };
+        Deployment deployment = processDefinition.getDeployment();
+        if (deployment.getId() == null) {
+            return loader.call();
+        }
+        String key = deployment.getId() + "/" + (deployment.getUpdateDate() != null ? deployment.getUpdateDate().getTime() : 0) + "/"
+                + processDefinition.getNodeId();
+        return definitionImages.get(key, loader);
     }
 
     private void drawAbstractFigure(Graphics2D graphics, AbstractFigure figure, RenderHits hits, Stroke stroke) {
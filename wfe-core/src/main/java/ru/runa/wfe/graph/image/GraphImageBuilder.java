@@ -58,6 +58,7 @@ public class GraphImageBuilder {
     private final Map<TransitionFigure, RenderHits> transitionFigures = Maps.newHashMap();
     private final Map<AbstractFigure, RenderHits> nodeFigures = Maps.newLinkedHashMap();
     private final boolean smoothTransitions;
+    private long validUntil = Long.MAX_VALUE;
 
     public GraphImageBuilder(ProcessDefinition processDefinition) {
         this.processDefinition = processDefinition;
@@ -68,6 +69,13 @@ public class GraphImageBuilder {
         this.highlightedToken = highlightedToken;
     }
 
+    /**
+     * @return time when created diagram becomes outdated due to active task deadline, {@link Long#MAX_VALUE} if there are no such tasks
+     */
+    public long getValidUntil() {
+        return validUntil;
+    }
+
     public byte[] createDiagram(Process process, ProcessLogs logs, Set<String> activeNodeIds) throws Exception {
         AbstractFigureFactory factory;
         if (processDefinition.getDeployment().getLanguage() == Language.BPMN2) {
@@ -180,6 +188,8 @@ public class GraphImageBuilder {
             Date deadlineWarningDate = TaskDeadlineUtils.getDeadlineWarningDate(entry.getKey().getCreateDate(), deadlineDate);
             Color color = null;
             if (activeTask) {
+                updateValidUntil(deadlineWarningDate, endDate);
+                updateValidUntil(deadlineDate, endDate);
                 color = DrawProperties.getBaseColor();
                 if (highlightedToken != null && Objects.equal(entry.getKey().getTokenId(), highlightedToken.getId())) {
                     color = DrawProperties.getHighlightColor();
@@ -196,4 +206,10 @@ public class GraphImageBuilder {
         }
     }
 
+    private void updateValidUntil(Date date, Date now) {
+        if (date != null && date.after(now)) {
+            validUntil = Math.min(validUntil, date.getTime());
+        }
+    }
+
 }
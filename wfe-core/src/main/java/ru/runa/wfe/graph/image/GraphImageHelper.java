@@ -1,5 +1,14 @@
 package ru.runa.wfe.graph.image;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 import ru.runa.wfe.job.TimerJob;
 import ru.runa.wfe.lang.Action;
 import ru.runa.wfe.lang.ActionEvent;
@@ -11,6 +20,40 @@ import ru.runa.wfe.lang.jpdl.CancelTimerAction;
 import ru.runa.wfe.lang.jpdl.CreateTimerAction;
 
 public class GraphImageHelper {
+    private static final String PNG_FORMAT = "png";
+    /**
+     * Low deflate level, diagrams consist of plain color areas and are compressed well by it.
+     */
+    private static final float PNG_COMPRESSION_QUALITY = 0.75f;
+
+    /**
+     * Encodes image in png format. Unlike {@link ImageIO#write(java.awt.image.RenderedImage, String, java.io.OutputStream)} it does not use
+     * temporary file cache and uses fast compression if png writer supports it.
+     */
+    public static byte[] toPngBytes(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(PNG_FORMAT).next();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(outputStream)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(PNG_COMPRESSION_QUALITY);
+            }
+            writer.setOutput(imageOutputStream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * @return copy of image which can be drawn on
+     */
+    public static BufferedImage copy(BufferedImage image) {
+        return new BufferedImage(image.getColorModel(), image.copyData(null), image.isAlphaPremultiplied(), null);
+    }
+
     public static int processActionsInEvent(ActionEvent actionEvent) {
         int result = 0;
         for (Action action : actionEvent.getActions()) {
@@ -46,6 +46,8 @@ public abstract class Job {
     private Process process;
     private Token token;
     private Date createDate;
+    private String lockOwner;
+    private Date lockExpirationDate;
 
     public Job() {
     }
@@ -97,6 +99,7 @@ public abstract class Job {
     }
 
     @Column(name = "DUE_DATE")
+    @Index(name = "IX_JOB_DUE_DATE")
     public Date getDueDate() {
         return dueDate;
     }
@@ -137,6 +140,30 @@ public abstract class Job {
         this.createDate = createDate;
     }
 
+    /**
+     * @return Identifier of job executor, which claimed this job for execution, or null.
+     */
+    @Column(name = "LOCK_OWNER")
+    public String getLockOwner() {
+        return lockOwner;
+    }
+
+    public void setLockOwner(String lockOwner) {
+        this.lockOwner = lockOwner;
+    }
+
+    /**
+     * @return Date, after which claim is expired and job may be claimed by other job executor.
+     */
+    @Column(name = "LOCK_EXPIRATION_DATE")
+    public Date getLockExpirationDate() {
+        return lockExpirationDate;
+    }
+
+    public void setLockExpirationDate(Date lockExpirationDate) {
+        this.lockExpirationDate = lockExpirationDate;
+    }
+
     public abstract void execute(ExecutionContext executionContext);
 
     @Override
@@ -1,7 +1,14 @@
 package ru.runa.wfe.job.dao;
 
+import com.google.common.collect.Lists;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import org.hibernate.LockOptions;
 import org.springframework.stereotype.Component;
 import ru.runa.wfe.commons.dao.GenericDao;
 import ru.runa.wfe.execution.ExecutionStatus;
@@ -20,20 +27,79 @@ import ru.runa.wfe.job.QTimerJob;
 @Component
 public class JobDao extends GenericDao<Job> {
 
-    public List<Long> getExpiredJobIds(Long limit) {
+    public Long getExpiredJobsCount() {
         QJob j = QJob.job;
-        return queryFactory.select(j.id).from(j)
+        return queryFactory.selectFrom(j)
                 .where(j.dueDate.loe(new Date()).and(j.token.executionStatus.ne(ExecutionStatus.SUSPENDED)).and(j.token.endDate.isNull()))
-                .orderBy(j.dueDate.asc())
+                .fetchCount();
+    }
+
+    /**
+     * Claims expired jobs for execution by process: all expired jobs of process are claimed together, and process is claimed only if it has no
+     * live claim or pending retry (job with not expired {@link Job#getLockExpirationDate()}). Process row is locked while checking and claiming, so
+     * jobs of one process are never claimed by two job executors (nodes).
+     * 
+     * @param owner
+     *            job executor identifier
+     * @param lockExpirationDate
+     *            date, after which claim is expired
+     * @param limit
+     *            maximum processes count to claim
+     * @return claimed jobs (id, process id, due date) ordered by due date
+     */
+    public List<Tuple> claimExpiredJobs(String owner, Date lockExpirationDate, Long limit) {
+        QJob j = QJob.job;
+        QJob pj = new QJob("pj");
+        Date now = new Date();
+        List<Long> processIds = queryFactory.select(j.process.id).from(j)
+                .where(getExpiredCondition(j, now)
+                        .and(JPAExpressions.selectFrom(pj).where(pj.process.eq(j.process).and(pj.lockExpirationDate.goe(now))).notExists()))
+                .groupBy(j.process.id)
+                .orderBy(j.dueDate.min().asc())
                 .limit(limit)
                 .fetch();
+        if (processIds.isEmpty()) {
+            return Lists.newArrayList();
+        }
+        // Processes are locked in same order by all job executors to avoid deadlocks
+        Collections.sort(processIds);
+        List<Long> claimedProcessIds = Lists.newArrayList();
+        for (Long processId : processIds) {
+            Process process = (Process) sessionFactory.getCurrentSession().get(Process.class, processId, LockOptions.UPGRADE);
+            if (process == null) {
+                continue;
+            }
+            long claimedJobsCount = queryFactory.selectFrom(j).where(j.process.id.eq(processId).and(j.lockExpirationDate.goe(now))).fetchCount();
+            if (claimedJobsCount > 0) {
+                continue;
+            }
+            List<Long> jobIds = queryFactory.select(j.id).from(j).where(j.process.id.eq(processId).and(getExpiredCondition(j, now))).fetch();
+            if (jobIds.isEmpty()) {
+                continue;
+            }
+            queryFactory.update(j).set(j.lockOwner, owner).set(j.lockExpirationDate, lockExpirationDate).where(j.id.in(jobIds)).execute();
+            claimedProcessIds.add(processId);
+        }
+        if (claimedProcessIds.isEmpty()) {
+            return Lists.newArrayList();
+        }
+        return queryFactory.select(j.id, j.process.id, j.dueDate).from(j)
+                .where(j.process.id.in(claimedProcessIds).and(j.lockOwner.eq(owner)))
+                .orderBy(j.dueDate.asc(), j.id.asc())
+                .fetch();
     }
 
-    public Long getExpiredJobsCount() {
+    /**
+     * Releases claim of not executed jobs.
+     */
+    public void releaseClaims(String owner, Collection<Long> jobIds) {
         QJob j = QJob.job;
-        return queryFactory.selectFrom(j)
-                .where(j.dueDate.loe(new Date()).and(j.token.executionStatus.ne(ExecutionStatus.SUSPENDED)).and(j.token.endDate.isNull()))
-                .fetchCount();
+        queryFactory.update(j).setNull(j.lockOwner).setNull(j.lockExpirationDate).where(j.id.in(jobIds).and(j.lockOwner.eq(owner))).execute();
+    }
+
+    private static BooleanExpression getExpiredCondition(QJob j, Date now) {
+        return j.dueDate.loe(now).and(j.token.executionStatus.ne(ExecutionStatus.SUSPENDED)).and(j.token.endDate.isNull())
+                .and(j.lockExpirationDate.isNull().or(j.lockExpirationDate.lt(now)));
     }
 
     public List<Job> findByProcess(Process process) {
@@ -56,4 +122,12 @@ public class JobDao extends GenericDao<Job> {
         QJob j = QJob.job;
         queryFactory.delete(j).where(j.process.eq(process)).execute();
     }
+
+    /**
+     * @return deleted jobs count
+     */
+    public long deleteByProcessIds(Collection<Long> processIds) {
+        QJob j = QJob.job;
+        return queryFactory.delete(j).where(j.process.id.in(processIds)).execute();
+    }
 }
@@ -1,25 +1,165 @@
 package ru.runa.wfe.job.impl;
 
+import com.querydsl.core.Tuple;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.AsyncTaskExecutor;
+import ru.runa.wfe.commons.SystemProperties;
 
+/**
+ * Executes expired jobs. Jobs are claimed in batches by process (so several cluster nodes may execute jobs concurrently without double execution)
+ * and executed by worker threads. Jobs of one process are executed sequentially in due date order; after job failure next jobs of process wait
+ * for failed job retry.
+ */
 public class JobExecutor {
     protected final Log log = LogFactory.getLog(getClass());
 
     @Autowired
     private JobTransactionalExecutor jobTransactionalExecutor;
+    private AsyncTaskExecutor workerExecutor;
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID();
+
+    private final AtomicLong executedJobsCount = new AtomicLong();
+    private final AtomicLong failedJobsCount = new AtomicLong();
+    private volatile long backlogSize;
+    private volatile long lagMillis;
+
+    public void setWorkerExecutor(AsyncTaskExecutor workerExecutor) {
+        this.workerExecutor = workerExecutor;
+    }
 
     public void execute() {
-        for (Long jobId : jobTransactionalExecutor.getExpiredJobIds()) {
+        long batchSize = SystemProperties.getJobExecutorBatchSize();
+        int maxBatches = SystemProperties.getJobExecutorMaxBatchesPerInvocation();
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<Tuple> jobs = jobTransactionalExecutor.claimExpiredJobs(owner);
+            if (jobs.isEmpty()) {
+                backlogSize = 0;
+                lagMillis = 0;
+                return;
+            }
+            Map<Long, List<Long>> processJobIds = getProcessJobIds(jobs);
+            updateStatistic(jobs, processJobIds.size() < batchSize);
+            executeClaimedJobs(processJobIds);
+            if (processJobIds.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Expired jobs count, observed on last full batch claim.
+     */
+    public long getBacklogSize() {
+        return backlogSize;
+    }
+
+    /**
+     * @return Delay between oldest claimed job due date and claim time on last claim.
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public long getExecutedJobsCount() {
+        return executedJobsCount.get();
+    }
+
+    public long getFailedJobsCount() {
+        return failedJobsCount.get();
+    }
+
+    private void updateStatistic(List<Tuple> jobs, boolean allClaimed) {
+        Date oldestDueDate = jobs.get(0).get(2, Date.class);
+        lagMillis = oldestDueDate != null ? System.currentTimeMillis() - oldestDueDate.getTime() : 0;
+        // Expired jobs count is requested only if there are more processes with expired jobs than batch size
+        backlogSize = allClaimed ? jobs.size() : jobTransactionalExecutor.getExpiredJobsCount();
+        if (log.isDebugEnabled()) {
+            log.debug("Claimed jobs: " + jobs.size() + ", expired jobs: " + backlogSize + ", lag: " + lagMillis + " ms");
+        }
+    }
+
+    private static Map<Long, List<Long>> getProcessJobIds(List<Tuple> jobs) {
+        Map<Long, List<Long>> processJobIds = new LinkedHashMap<>();
+        for (Tuple job : jobs) {
+            Long processId = job.get(1, Long.class);
+            List<Long> jobIds = processJobIds.get(processId);
+            if (jobIds == null) {
+                jobIds = new ArrayList<>();
+                processJobIds.put(processId, jobIds);
+            }
+            jobIds.add(job.get(0, Long.class));
+        }
+        return processJobIds;
+    }
+
+    private void executeClaimedJobs(Map<Long, List<Long>> processJobIds) {
+        if (workerExecutor == null || processJobIds.size() == 1) {
+            for (List<Long> jobIds : processJobIds.values()) {
+                executeJobs(jobIds);
+            }
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>(processJobIds.size());
+        for (final List<Long> jobIds : processJobIds.values()) {
+            futures.add(workerExecutor.submit(new Runnable() {
+
+                @Override
+                public void run() {
+                    executeJobs(jobIds);
+                }
+            }));
+        }
+        // Batch is completed before next claim to keep jobs order within process
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                log.error("Unexpected job worker error", e);
+            }
+        }
+    }
+
+    private void executeJobs(List<Long> jobIds) {
+        for (int i = 0; i < jobIds.size(); i++) {
+            Long jobId = jobIds.get(i);
             try {
                 log.debug("executing job " + jobId);
                 jobTransactionalExecutor.execute(jobId);
+                executedJobsCount.incrementAndGet();
             } catch (Exception e) {
                 log.error("Error executing job " + jobId, e);
-                jobTransactionalExecutor.onExecutionFailed(jobId, e);
+                failedJobsCount.incrementAndGet();
+                try {
+                    jobTransactionalExecutor.onExecutionFailed(jobId, e);
+                } catch (Exception e2) {
+                    log.error("Unable to mark job " + jobId + " as failed", e2);
+                }
+                // Next jobs of process are executed after failed job retry
+                releaseClaims(jobIds.subList(i + 1, jobIds.size()));
+                return;
             }
         }
     }
 
+    private void releaseClaims(List<Long> jobIds) {
+        if (jobIds.isEmpty()) {
+            return;
+        }
+        try {
+            jobTransactionalExecutor.releaseClaims(owner, new ArrayList<>(jobIds));
+        } catch (Exception e) {
+            log.error("Unable to release claim of jobs " + jobIds, e);
+        }
+    }
 }
@@ -1,5 +1,7 @@
 package ru.runa.wfe.job.impl;
 
+import com.querydsl.core.Tuple;
+import java.util.Date;
 import java.util.List;
 import lombok.extern.apachecommons.CommonsLog;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,19 +23,37 @@ public class JobTransactionalExecutor {
     @Autowired
     private ProcessDefinitionLoader processDefinitionLoader;
 
-    public List<Long> getExpiredJobIds() {
-        Long batchSize = SystemProperties.getJobExecutorBatchSize();
-        Long expiredJobsCount = jobDao.getExpiredJobsCount();
-        List<Long> jobIds = jobDao.getExpiredJobIds(batchSize);
-        log.debug("Expired jobs: " + expiredJobsCount);
-        if (expiredJobsCount > batchSize) {
-            log.debug("Too many expired jobs. Processing first " + batchSize);
-        }
-        return jobIds;
+    /**
+     * Claims expired jobs of batch of processes for execution by specified owner. Claim is committed with this transaction, so other job
+     * executors will not execute jobs of claimed processes until claim expiration.
+     * 
+     * @return claimed jobs (id, process id, due date) ordered by due date
+     */
+    public List<Tuple> claimExpiredJobs(String owner) {
+        Date lockExpirationDate = new Date(System.currentTimeMillis() + SystemProperties.getJobExecutorLockTimeoutSeconds() * 1000L);
+        return jobDao.claimExpiredJobs(owner, lockExpirationDate, SystemProperties.getJobExecutorBatchSize());
+    }
+
+    /**
+     * Releases claim of jobs, which are not executed due to previous job of process failure.
+     */
+    public void releaseClaims(String owner, List<Long> jobIds) {
+        jobDao.releaseClaims(owner, jobIds);
+    }
+
+    public Long getExpiredJobsCount() {
+        return jobDao.getExpiredJobsCount();
     }
 
     public void execute(Long jobId) {
         Job job = jobDao.get(jobId);
+        if (job == null) {
+            log.debug("Job " + jobId + " is already removed");
+            return;
+        }
+        // job may be rescheduled during execution
+        job.setLockOwner(null);
+        job.setLockExpirationDate(null);
         ProcessDefinition processDefinition = processDefinitionLoader.getDefinition(job.getProcess().getDeployment().getId());
         ExecutionContext executionContext = new ExecutionContext(processDefinition, job.getToken());
         job.execute(executionContext);
@@ -41,6 +61,12 @@ public class JobTransactionalExecutor {
 
     public void onExecutionFailed(Long jobId, Exception e) {
         Job job = jobDao.get(jobId);
+        if (job == null) {
+            return;
+        }
         job.getToken().fail(e);
+        // Claim is released, but job and other jobs of process will not be claimed until retry date
+        job.setLockOwner(null);
+        job.setLockExpirationDate(new Date(System.currentTimeMillis() + SystemProperties.getJobExecutorRetryDelaySeconds() * 1000L));
     }
 }
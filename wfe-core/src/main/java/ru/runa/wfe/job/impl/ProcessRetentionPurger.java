@@ -0,0 +1,335 @@
+package ru.runa.wfe.job.impl;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Resource;
+import lombok.extern.apachecommons.CommonsLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+import ru.runa.wfe.audit.ProcessDeleteLog;
+import ru.runa.wfe.audit.ProcessLogsCleanLog;
+import ru.runa.wfe.audit.dao.ProcessLogDao;
+import ru.runa.wfe.audit.dao.SystemLogDao;
+import ru.runa.wfe.chat.dao.ChatMessageDao;
+import ru.runa.wfe.chat.logic.ChatComponentFacade;
+import ru.runa.wfe.commons.SystemProperties;
+import ru.runa.wfe.commons.dao.SettingDao;
+import ru.runa.wfe.execution.dao.NodeProcessDao;
+import ru.runa.wfe.execution.dao.ProcessDao;
+import ru.runa.wfe.execution.dao.SwimlaneDao;
+import ru.runa.wfe.job.dao.JobDao;
+import ru.runa.wfe.security.SecuredObjectType;
+import ru.runa.wfe.security.dao.PermissionDao;
+import ru.runa.wfe.task.dao.TaskDao;
+import ru.runa.wfe.user.dao.ExecutorDao;
+import ru.runa.wfe.var.dao.VariableDao;
+
+/**
+ * Deletes ended processes older than retention period with their subprocesses and all process objects, and optionally old process logs.
+ *
+ * Root processes are deleted in chunks by bulk statements, each chunk in own transaction; process trees with not ended subprocess are skipped.
+ * Last processed root process id is saved in chunk transaction, so purge interrupted by maximum duration or failure is continued from it. Pause
+ * between chunks limits database load.
+ */
+@CommonsLog
+public class ProcessRetentionPurger {
+    static final String CHECKPOINT_FILE_NAME = "process.retention";
+    static final String CHECKPOINT_NAME = "last.process.id";
+
+    @Autowired
+    private ProcessDao processDao;
+    @Autowired
+    private NodeProcessDao nodeProcessDao;
+    @Autowired
+    private ProcessLogDao processLogDao;
+    @Autowired
+    private JobDao jobDao;
+    @Autowired
+    private VariableDao variableDao;
+    @Autowired
+    private TaskDao taskDao;
+    @Autowired
+    private SwimlaneDao swimlaneDao;
+    @Autowired
+    private PermissionDao permissionDao;
+    @Autowired
+    private ChatMessageDao chatMessageDao;
+    @Autowired
+    private ChatComponentFacade chatComponentFacade;
+    @Autowired
+    private SystemLogDao systemLogDao;
+    @Autowired
+    private ExecutorDao executorDao;
+    @Autowired
+    private SettingDao settingDao;
+    @Resource(name = "processRetentionPurger")
+    private ProcessRetentionPurger self;
+
+    private boolean enabled;
+    private int endedBeforeDays = 365;
+    private List<String> definitionNames = new ArrayList<>();
+    private int chunkSize = 100;
+    private long chunkPauseMillis = 1000;
+    private long maxDurationMillis = 1800000;
+    private int logsOlderThanDays;
+    private int logsChunkSize = 10000;
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setEndedBeforeDays(int endedBeforeDays) {
+        this.endedBeforeDays = endedBeforeDays;
+    }
+
+    /**
+     * @param definitionNames
+     *            names separated by ';', empty value matches all definitions
+     */
+    public void setDefinitionNames(String definitionNames) {
+        this.definitionNames = Splitter.on(";").omitEmptyStrings().trimResults().splitToList(definitionNames);
+    }
+
+    /**
+     * Root processes count, deleted in one transaction.
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public void setChunkPauseMillis(long chunkPauseMillis) {
+        this.chunkPauseMillis = chunkPauseMillis;
+    }
+
+    /**
+     * Execution time after which purge is stopped and continued on next execution.
+     */
+    public void setMaxDurationMillis(long maxDurationMillis) {
+        this.maxDurationMillis = maxDurationMillis;
+    }
+
+    /**
+     * Process logs older than this days are deleted regardless of process state; 0 disables logs deletion.
+     */
+    public void setLogsOlderThanDays(int logsOlderThanDays) {
+        this.logsOlderThanDays = logsOlderThanDays;
+    }
+
+    public void setLogsChunkSize(int logsChunkSize) {
+        this.logsChunkSize = logsChunkSize;
+    }
+
+    public void execute() {
+        if (!enabled) {
+            return;
+        }
+        log.debug("Job started");
+        long startTime = System.currentTimeMillis();
+        long deadline = startTime + maxDurationMillis;
+        Date endedBefore = new Date(startTime - endedBeforeDays * 86400000L);
+        long lastProcessId = self.getCheckpoint();
+        int processCount = 0;
+        long rowCount = 0;
+        boolean completed = false;
+        while (System.currentTimeMillis() < deadline) {
+            List<Long> rootProcessIds = self.getRootProcessIds(endedBefore, lastProcessId);
+            if (rootProcessIds.isEmpty()) {
+                completed = true;
+                break;
+            }
+            long chunkStartTime = System.currentTimeMillis();
+            PurgedChunk chunk = self.purgeChunk(rootProcessIds);
+            long chunkDuration = System.currentTimeMillis() - chunkStartTime;
+            lastProcessId = rootProcessIds.get(rootProcessIds.size() - 1);
+            processCount += chunk.getProcessCount();
+            rowCount += chunk.getRowCount();
+            log.info("Deleted " + chunk.getProcessCount() + " processes, " + chunk.getRowCount() + " rows in " + chunkDuration + " ms ("
+                    + getRowsPerSecond(chunk.getRowCount(), chunkDuration) + " rows/s), skipped " + chunk.getSkippedCount()
+                    + " processes with not ended subprocesses, checkpoint " + lastProcessId);
+            if (!pause()) {
+                break;
+            }
+        }
+        if (completed) {
+            // skipped process trees are checked again in next pass
+            self.setCheckpoint(null);
+        }
+        if (processCount > 0) {
+            long duration = System.currentTimeMillis() - startTime;
+            log.info((completed ? "Completed" : "Interrupted") + " processes purge: " + processCount + " processes, " + rowCount + " rows in "
+                    + duration + " ms (" + getRowsPerSecond(rowCount, duration) + " rows/s)");
+        }
+        if (logsOlderThanDays > 0) {
+            purgeProcessLogs(new Date(startTime - logsOlderThanDays * 86400000L), deadline);
+        }
+        log.debug("Job ended");
+    }
+
+    private void purgeProcessLogs(Date createdBefore, long deadline) {
+        long startTime = System.currentTimeMillis();
+        long rowCount = 0;
+        while (System.currentTimeMillis() < deadline) {
+            long count = self.purgeProcessLogsChunk(createdBefore, rowCount == 0);
+            rowCount += count;
+            if (count < logsChunkSize || !pause()) {
+                break;
+            }
+        }
+        if (rowCount > 0) {
+            long duration = System.currentTimeMillis() - startTime;
+            log.info("Deleted " + rowCount + " process logs created before " + createdBefore + " in " + duration + " ms ("
+                    + getRowsPerSecond(rowCount, duration) + " rows/s)");
+        }
+    }
+
+    private boolean pause() {
+        if (chunkPauseMillis > 0) {
+            try {
+                Thread.sleep(chunkPauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long getRowsPerSecond(long rowCount, long durationMillis) {
+        return rowCount * 1000 / Math.max(durationMillis, 1);
+    }
+
+    @Transactional(readOnly = true)
+    public long getCheckpoint() {
+        String value = settingDao.getValue(CHECKPOINT_FILE_NAME, CHECKPOINT_NAME);
+        return value != null ? Long.parseLong(value) : 0;
+    }
+
+    @Transactional
+    public void setCheckpoint(Long lastProcessId) {
+        settingDao.setValue(CHECKPOINT_FILE_NAME, CHECKPOINT_NAME, lastProcessId != null ? lastProcessId.toString() : null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> getRootProcessIds(Date endedBefore, long afterProcessId) {
+        return processDao.getEndedRootProcessIds(endedBefore, definitionNames, afterProcessId, chunkSize);
+    }
+
+    /**
+     * Deletes process trees of root processes and saves last root process id as checkpoint.
+     */
+    @Transactional
+    public PurgedChunk purgeChunk(List<Long> rootProcessIds) {
+        Map<Long, Long> rootProcessIdsByProcessId = new LinkedHashMap<>();
+        for (Long rootProcessId : rootProcessIds) {
+            rootProcessIdsByProcessId.put(rootProcessId, rootProcessId);
+        }
+        int parametersCount = SystemProperties.getDatabaseParametersCount();
+        List<Long> parentProcessIds = rootProcessIds;
+        while (!parentProcessIds.isEmpty()) {
+            List<Long> subprocessIds = new ArrayList<>();
+            for (List<Long> part : Lists.partition(parentProcessIds, parametersCount)) {
+                for (Map.Entry<Long, Long> entry : nodeProcessDao.getSubprocessIds(part).entrySet()) {
+                    if (!rootProcessIdsByProcessId.containsKey(entry.getKey())) {
+                        rootProcessIdsByProcessId.put(entry.getKey(), rootProcessIdsByProcessId.get(entry.getValue()));
+                        subprocessIds.add(entry.getKey());
+                    }
+                }
+            }
+            parentProcessIds = subprocessIds;
+        }
+        Set<Long> skippedRootProcessIds = new HashSet<>();
+        for (List<Long> part : Lists.partition(new ArrayList<>(rootProcessIdsByProcessId.keySet()), parametersCount)) {
+            for (Long processId : processDao.getNotEndedProcessIds(part)) {
+                skippedRootProcessIds.add(rootProcessIdsByProcessId.get(processId));
+            }
+        }
+        List<Long> processIds = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : rootProcessIdsByProcessId.entrySet()) {
+            if (!skippedRootProcessIds.contains(entry.getValue())) {
+                processIds.add(entry.getKey());
+            }
+        }
+        long rowCount = deleteProcesses(processIds);
+        setCheckpoint(rootProcessIds.get(rootProcessIds.size() - 1));
+        return new PurgedChunk(processIds.size(), rootProcessIdsByProcessId.size() - processIds.size(), rowCount);
+    }
+
+    private long deleteProcesses(List<Long> processIds) {
+        List<List<Long>> parts = Lists.partition(processIds, SystemProperties.getDatabaseParametersCount());
+        long rowCount = 0;
+        // subprocess nodes reference processes and tokens of other parts
+        for (List<Long> part : parts) {
+            rowCount += nodeProcessDao.deleteByProcessIds(part);
+        }
+        Long actorId = executorDao.getActor(SystemProperties.getAdministratorName()).getId();
+        for (List<Long> part : parts) {
+            Map<Long, String> definitionNames = processDao.getDefinitionNames(part);
+            rowCount += permissionDao.deleteAllPermissions(SecuredObjectType.PROCESS, part);
+            rowCount += processLogDao.deleteByProcessIds(part);
+            rowCount += jobDao.deleteByProcessIds(part);
+            rowCount += variableDao.deleteByProcessIds(part);
+            rowCount += taskDao.deleteByProcessIds(part);
+            rowCount += swimlaneDao.deleteByProcessIds(part);
+            for (Long processId : chatMessageDao.getProcessIdsWithMessages(part)) {
+                chatComponentFacade.deleteByProcessId(processId);
+            }
+            rowCount += processDao.deleteByIds(part);
+            for (Long processId : part) {
+                systemLogDao.create(new ProcessDeleteLog(actorId, definitionNames.get(processId), processId));
+            }
+        }
+        return rowCount;
+    }
+
+    /**
+     * @param first
+     *            whether it is first chunk of purge, which is recorded in system log
+     * @return deleted logs count
+     */
+    @Transactional
+    public long purgeProcessLogsChunk(Date createdBefore, boolean first) {
+        long count = processLogDao.deleteBeforeDate(createdBefore, logsChunkSize);
+        if (first && count > 0) {
+            Long actorId = executorDao.getActor(SystemProperties.getAdministratorName()).getId();
+            systemLogDao.create(new ProcessLogsCleanLog(actorId, createdBefore));
+        }
+        return count;
+    }
+
+    public static class PurgedChunk {
+        private final int processCount;
+        private final int skippedCount;
+        private final long rowCount;
+
+        public PurgedChunk(int processCount, int skippedCount, long rowCount) {
+            this.processCount = processCount;
+            this.skippedCount = skippedCount;
+            this.rowCount = rowCount;
+        }
+
+        /**
+         * @return deleted processes count, including subprocesses
+         */
+        public int getProcessCount() {
+            return processCount;
+        }
+
+        /**
+         * @return processes count in skipped process trees
+         */
+        public int getSkippedCount() {
+            return skippedCount;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package ru.runa.wfe.job.impl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.annotation.Resource;
+import lombok.extern.apachecommons.CommonsLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+import ru.runa.wfe.commons.SystemProperties;
+import ru.runa.wfe.execution.dao.ProcessDao;
+import ru.runa.wfe.var.file.LocalFileSystemStorage;
+
+/**
+ * Removes references of deleted processes from local file storage blobs and deletes blobs without references.
+ *
+ * References and temporary files younger than configured delay are skipped: they can belong to not yet committed transaction. Files in
+ * uploads directory have own delay, as they can wait for form submission. Directories of deleted processes in process/variable/version layout of
+ * previous versions are deleted as well.
+ */
+@CommonsLog
+public class UnusedFileBlobsCleaner {
+    @Value("${file.variable.local.storage.blobs.cleaner.older.than.millis}")
+    private long olderThanMillis;
+    @Value("${file.variable.local.storage.uploads.cleaner.older.than.millis}")
+    private long uploadsOlderThanMillis;
+    private static final Pattern PROCESS_DIRECTORY_PATTERN = Pattern.compile("\\d+");
+    @Autowired
+    private ProcessDao processDao;
+    @Resource(name = "unusedFileBlobsCleaner")
+    private UnusedFileBlobsCleaner self;
+
+    public void execute() {
+        deleteExpiredUploads();
+        deleteOldLayoutFiles();
+        File blobsDirectory = LocalFileSystemStorage.getBlobsDirectory();
+        if (!SystemProperties.isLocalFileStorageEnabled() || !blobsDirectory.isDirectory()) {
+            return;
+        }
+        log.debug("Job started");
+        long olderThan = System.currentTimeMillis() - olderThanMillis;
+        List<File> blobFiles = new ArrayList<>();
+        Map<Long, List<File>> references = new HashMap<>();
+        for (File file : listFiles(listFiles(listFiles(blobsDirectory)))) {
+            if (file.getName().endsWith(LocalFileSystemStorage.REFERENCES_SUFFIX)) {
+                for (File referenceFile : listFiles(file)) {
+                    if (referenceFile.lastModified() < olderThan) {
+                        addReference(references, referenceFile);
+                    }
+                }
+            } else if (file.lastModified() < olderThan) {
+                blobFiles.add(file);
+            }
+        }
+        for (File file : listFiles(blobsDirectory)) {
+            if (file.isFile() && file.getName().endsWith(LocalFileSystemStorage.TEMP_SUFFIX) && file.lastModified() < olderThan) {
+                log.info("Deleting abandoned temporary file " + file);
+                file.delete();
+            }
+        }
+        if (!references.isEmpty()) {
+            Set<Long> existingProcessIds = self.getExistingProcessIds(references.keySet());
+            for (Map.Entry<Long, List<File>> entry : references.entrySet()) {
+                if (!existingProcessIds.contains(entry.getKey())) {
+                    for (File referenceFile : entry.getValue()) {
+                        referenceFile.delete();
+                    }
+                }
+            }
+        }
+        for (File blobFile : blobFiles) {
+            if (LocalFileSystemStorage.deleteBlobIfUnreferenced(blobFile)) {
+                log.info("Deleted unused file blob " + blobFile.getName());
+            }
+        }
+        log.debug("Job ended");
+    }
+
+    private void deleteExpiredUploads() {
+        if (!SystemProperties.isLocalFileStorageEnabled()) {
+            return;
+        }
+        long olderThan = System.currentTimeMillis() - uploadsOlderThanMillis;
+        for (File file : listFiles(LocalFileSystemStorage.getUploadsDirectory())) {
+            if (file.isFile() && file.lastModified() < olderThan) {
+                log.info("Deleting expired uploaded file " + file);
+                file.delete();
+            }
+        }
+    }
+
+    private void deleteOldLayoutFiles() {
+        if (!SystemProperties.isLocalFileStorageEnabled()) {
+            return;
+        }
+        Map<Long, File> processDirectories = new HashMap<>();
+        for (File file : listFiles(LocalFileSystemStorage.getLocalFileStorage())) {
+            if (file.isDirectory() && PROCESS_DIRECTORY_PATTERN.matcher(file.getName()).matches()) {
+                processDirectories.put(Long.valueOf(file.getName()), file);
+            }
+        }
+        if (processDirectories.isEmpty()) {
+            return;
+        }
+        Set<Long> existingProcessIds = self.getExistingProcessIds(processDirectories.keySet());
+        for (Map.Entry<Long, File> entry : processDirectories.entrySet()) {
+            if (!existingProcessIds.contains(entry.getKey())) {
+                log.info("Deleting files of deleted process " + entry.getKey());
+                delete(entry.getValue());
+            }
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Set<Long> getExistingProcessIds(Collection<Long> processIds) {
+        return processDao.getExistingProcessIds(processIds);
+    }
+
+    private static void addReference(Map<Long, List<File>> references, File referenceFile) {
+        Long processId;
+        try {
+            processId = LocalFileSystemStorage.getReferenceProcessId(referenceFile.getName());
+        } catch (NumberFormatException e) {
+            log.warn("Unexpected file in blob references " + referenceFile);
+            return;
+        }
+        List<File> files = references.get(processId);
+        if (files == null) {
+            files = new ArrayList<>();
+            references.put(processId, files);
+        }
+        files.add(referenceFile);
+    }
+
+    private static void delete(File file) {
+        for (File child : listFiles(file)) {
+            delete(child);
+        }
+        file.delete();
+    }
+
+    private static List<File> listFiles(File directory) {
+        List<File> result = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    private static List<File> listFiles(List<File> directories) {
+        List<File> result = new ArrayList<>();
+        for (File directory : directories) {
+            if (directory.isDirectory()) {
+                result.addAll(listFiles(directory));
+            }
+        }
+        return result;
+    }
+}
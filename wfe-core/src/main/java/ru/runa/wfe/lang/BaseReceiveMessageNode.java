@@ -4,9 +4,15 @@ import com.google.common.collect.Lists;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import ru.runa.wfe.commons.SystemProperties;
 import ru.runa.wfe.commons.Utils;
 import ru.runa.wfe.execution.ExecutionContext;
+import ru.runa.wfe.execution.Token;
+import ru.runa.wfe.lang.bpmn2.MessageEventType;
+import ru.runa.wfe.var.UserType;
 import ru.runa.wfe.var.VariableMapping;
+import ru.runa.wfe.var.VariableProvider;
+import ru.runa.wfe.var.format.VariableFormatContainer;
 
 public class BaseReceiveMessageNode extends BaseMessageNode implements BoundaryEventContainer {
     private static final long serialVersionUID = 1L;
@@ -19,7 +25,48 @@ public class BaseReceiveMessageNode extends BaseMessageNode implements BoundaryE
 
     @Override
     protected void execute(ExecutionContext executionContext) throws Exception {
-        executionContext.getToken().setMessageSelector(Utils.getReceiveMessageNodeSelector(executionContext.getVariableProvider(), this));
+        updateMessageSelector(executionContext.getToken(), executionContext.getVariableProvider());
+    }
+
+    /**
+     * Evaluates token message selector. Without predefined selectors it is used as correlation index only, so terms with null expected value are
+     * omitted: message without such property must be found by the rest terms.
+     */
+    public void updateMessageSelector(Token token, VariableProvider variableProvider) {
+        boolean withNullValues = SystemProperties.isProcessExecutionMessagePredefinedSelectorEnabled();
+        token.setMessageSelector(Utils.getReceiveMessageNodeSelector(variableProvider, this, withNullValues));
+    }
+
+    /**
+     * @return whether message selector may be changed by the variable value change: selector value is the variable, its attribute or
+     *         component, or contains the variable (for attribute or component change).
+     */
+    public boolean isMessageSelectorDependsOn(String variableName) {
+        if (getEventType() == MessageEventType.error && getParentElement() instanceof Node) {
+            return false;
+        }
+        for (VariableMapping mapping : getVariableMappings()) {
+            if (!mapping.isPropertySelector()) {
+                continue;
+            }
+            String mappedName = mapping.getMappedName();
+            if (!mappedName.startsWith("${") || !mappedName.endsWith("}")) {
+                continue;
+            }
+            String selectorVariableName = mappedName.substring(2, mappedName.length() - 1);
+            if (isSameOrNested(selectorVariableName, variableName) || isSameOrNested(variableName, selectorVariableName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSameOrNested(String name, String variableName) {
+        if (!name.startsWith(variableName)) {
+            return false;
+        }
+        String rest = name.substring(variableName.length());
+        return rest.isEmpty() || rest.startsWith(UserType.DELIM) || rest.startsWith(VariableFormatContainer.COMPONENT_QUALIFIER_START);
     }
 
     public void leave(ExecutionContext executionContext, Map<String, Object> map) {
@@ -61,6 +61,7 @@ public class ProcessDefinition extends GraphElement implements FileDataProvider
     protected ProcessDefinitionAccessType accessType = ProcessDefinitionAccessType.Process;
     protected Map<String, SubprocessDefinition> embeddedSubprocesses = Maps.newHashMap();
     private Boolean nodeAsyncExecution;
+    private Boolean variablesPrefetch;
     private boolean graphActionsEnabled;
     private final List<ProcessDefinitionChange> changes = Lists.newArrayList();
 
@@ -119,6 +120,13 @@ public class ProcessDefinition extends GraphElement implements FileDataProvider
         processFiles.put(name, bytes);
     }
 
+    /**
+     * set files of this definition (replacing added ones).
+     */
+    public void setProcessFiles(Map<String, byte[]> processFiles) {
+        this.processFiles = processFiles;
+    }
+
     public void addInteraction(String name, Interaction interaction) {
         interactions.put(name, interaction);
     }
@@ -410,6 +418,17 @@ public class ProcessDefinition extends GraphElement implements FileDataProvider
         this.nodeAsyncExecution = nodeAsyncExecution;
     }
 
+    /**
+     * @return whether all process variables are loaded by one query on first access in transaction, <code>null</code> means default setting
+     */
+    public Boolean getVariablesPrefetch() {
+        return variablesPrefetch;
+    }
+
+    public void setVariablesPrefetch(Boolean variablesPrefetch) {
+        this.variablesPrefetch = variablesPrefetch;
+    }
+
     public boolean isGraphActionsEnabled() {
         return graphActionsEnabled;
     }
@@ -128,6 +128,11 @@ public class SubprocessDefinition extends ProcessDefinition {
         return parentProcessDefinition.getVariables();
     }
 
+    @Override
+    public Boolean getVariablesPrefetch() {
+        return parentProcessDefinition.getVariablesPrefetch();
+    }
+
     @Override
     public Interaction getInteractionNotNull(String nodeId) {
         return parentProcessDefinition.getInteractionNotNull(nodeId);
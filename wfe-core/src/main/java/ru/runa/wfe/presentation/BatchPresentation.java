@@ -64,6 +64,7 @@ public class BatchPresentation implements Cloneable, Serializable {
     private boolean active;
     private int rangeSize;
     private int pageNumber = 1;
+    private Long pageAfterId;
     // TODO: only this field or 'BatchPresentationFields fields' must stay.
     // One of field must be removed.
     private byte[] fieldsData;
@@ -256,6 +257,25 @@ public class BatchPresentation implements Cloneable, Serializable {
         this.pageNumber = pageNumber;
     }
 
+    /**
+     * Keyset paging for paged {@link BatchPresentation}: if set, page contains objects following object with this id (0 for first page) in order
+     * of sorted fields and id; page number is ignored. Keyset paging is possible only if sorted fields are properties of presented class, otherwise
+     * this value is ignored and page is loaded by number.
+     */
+    @Transient
+    public Long getPageAfterId() {
+        return pageAfterId;
+    }
+
+    /**
+     * Keyset paging for paged {@link BatchPresentation}: if set, page contains objects following object with this id (0 for first page) in order
+     * of sorted fields and id; page number is ignored. Keyset paging is possible only if sorted fields are properties of presented class, otherwise
+     * this value is ignored and page is loaded by number.
+     */
+    public void setPageAfterId(Long pageAfterId) {
+        this.pageAfterId = pageAfterId;
+    }
+
     @Transient
     public int[] getFieldsToDisplayIds() {
         return getFields().displayIds;
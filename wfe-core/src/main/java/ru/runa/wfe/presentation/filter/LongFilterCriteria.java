@@ -18,6 +18,8 @@
 package ru.runa.wfe.presentation.filter;
 
 import com.google.common.base.Strings;
+import java.util.ArrayList;
+import java.util.List;
 import ru.runa.wfe.presentation.hibernate.QueryParametersMap;
 
 /**
@@ -54,9 +56,9 @@ public class LongFilterCriteria extends FilterCriteria {
     public String buildWhereCondition(String aliasedFieldName, QueryParametersMap placeholders) {
         final String template = getFilterTemplate(0);
         if (template.contains(",")) {
-            return buildInOperator(aliasedFieldName);
+            return buildInOperator(aliasedFieldName, placeholders);
         } else if (template.contains("-")) {
-            return buildBetweenOperator(aliasedFieldName);
+            return buildBetweenOperator(aliasedFieldName, placeholders);
         }
         final String placeHolderName = makePlaceHolderName(aliasedFieldName);
         final StringBuilder sb = new StringBuilder(aliasedFieldName);
@@ -66,30 +68,30 @@ public class LongFilterCriteria extends FilterCriteria {
         return sb.toString();
     }
 
-    private String buildInOperator(String aliasedFieldName) {
-        String where = "";
-        String[] values = getFilterTemplate(0).split(",");
-        if (values.length > 0) {
-            for (String value : values) {
-                if (Strings.isNullOrEmpty(where)) {
-                    where = aliasedFieldName + " IN (";
-                } else {
-                    where += ",";
-                }
-                where += "'" + value.trim() + "'";
+    private String buildInOperator(String aliasedFieldName, QueryParametersMap placeholders) {
+        List<Long> values = new ArrayList<>();
+        for (String value : getFilterTemplate(0).split(",")) {
+            if (!Strings.isNullOrEmpty(value.trim())) {
+                values.add(Long.valueOf(value.trim()));
             }
-            where += ")";
         }
-        return where;
+        if (values.isEmpty()) {
+            return "";
+        }
+        String placeHolderName = makePlaceHolderName(aliasedFieldName);
+        placeholders.add(placeHolderName, values);
+        return aliasedFieldName + " IN (:" + placeHolderName + ")";
     }
 
-    private String buildBetweenOperator(String aliasedFieldName) {
-        String where = "";
+    private String buildBetweenOperator(String aliasedFieldName, QueryParametersMap placeholders) {
         String[] values = getFilterTemplate(0).split("-");
-        if (values.length == 2) {
-            where = aliasedFieldName + " BETWEEN '" + values[0].trim() + "' AND '" + values[1].trim() + "'";
+        if (values.length != 2) {
+            return "";
         }
-        return where;
+        String placeHolderName = makePlaceHolderName(aliasedFieldName);
+        placeholders.add(placeHolderName + "Min", Long.valueOf(values[0].trim()));
+        placeholders.add(placeHolderName + "Max", Long.valueOf(values[1].trim()));
+        return aliasedFieldName + " BETWEEN :" + placeHolderName + "Min AND :" + placeHolderName + "Max";
     }
 
 }
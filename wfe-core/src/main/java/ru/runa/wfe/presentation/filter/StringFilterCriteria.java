@@ -17,7 +17,9 @@
  */
 package ru.runa.wfe.presentation.filter;
 
-import com.google.common.base.Strings;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.Hibernate;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
@@ -51,9 +53,9 @@ public class StringFilterCriteria extends FilterCriteria {
         try {
             Object object = new JSONParser().parse(template);
             if (object instanceof JSONArray) {
-                return buildInOperator(aliasedFieldName, (JSONArray) object);
+                return buildInOperator(aliasedFieldName, (JSONArray) object, placeholders);
             } else if (object instanceof JSONObject) {
-                return buildBetweenOperator(aliasedFieldName, (JSONObject) object);
+                return buildBetweenOperator(aliasedFieldName, (JSONObject) object, placeholders);
             }
         } catch (ParseException e) {
             // do nothing
@@ -76,36 +78,37 @@ public class StringFilterCriteria extends FilterCriteria {
         return where;
     }
 
-    private String buildInOperator(String aliasedFieldName, JSONArray array) {
-        String where = "";
-        if (array.size() > 0) {
-            for (int i = 0; i < array.size(); i++) {
-                if (Strings.isNullOrEmpty(where)) {
-                    where = aliasedFieldName + " IN (";
-                } else {
-                    where += ",";
-                }
-                where += "'" + array.get(i).toString().trim() + "'";
-            }
-            where += ")";
+    private String buildInOperator(String aliasedFieldName, JSONArray array, QueryParametersMap placeholders) {
+        if (array.isEmpty()) {
+            return "";
         }
-        return where;
+        List<String> values = new ArrayList<>(array.size());
+        for (Object value : array) {
+            values.add(value.toString().trim());
+        }
+        String alias = makePlaceHolderName(aliasedFieldName);
+        placeholders.add(alias, values, Hibernate.STRING);
+        return aliasedFieldName + " IN (:" + alias + ")";
     }
 
-    private String buildBetweenOperator(String aliasedFieldName, JSONObject object) {
-        String where = "";
+    private String buildBetweenOperator(String aliasedFieldName, JSONObject object, QueryParametersMap placeholders) {
+        String alias = makePlaceHolderName(aliasedFieldName);
         String min = (String) object.get("min");
         String max = (String) object.get("max");
+        if (min != null) {
+            placeholders.add(alias + "Min", min.trim());
+        }
+        if (max != null) {
+            placeholders.add(alias + "Max", max.trim());
+        }
         if (object.size() == 1) {
             if (min == null) {
-                where = aliasedFieldName + " <= '" + max.trim() + "'";
+                return aliasedFieldName + " <= :" + alias + "Max";
             } else {
-                where = aliasedFieldName + " >= '" + min.trim() + "'";
+                return aliasedFieldName + " >= :" + alias + "Min";
             }
-        } else {
-            where = aliasedFieldName + " BETWEEN '" + min.trim() + "' AND '" + max.toString().trim() + "'";
         }
-        return where;
+        return aliasedFieldName + " BETWEEN :" + alias + "Min AND :" + alias + "Max";
     }
 
 }
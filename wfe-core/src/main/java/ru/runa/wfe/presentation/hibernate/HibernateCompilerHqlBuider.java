@@ -19,12 +19,16 @@ package ru.runa.wfe.presentation.hibernate;
 
 import com.google.common.base.Strings;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import org.hibernate.Hibernate;
+import org.hibernate.Query;
+import org.hibernate.type.Type;
 import org.springframework.util.Assert;
+import ru.runa.wfe.InternalApplicationException;
 import ru.runa.wfe.commons.ApplicationContextFactory;
 import ru.runa.wfe.commons.querydsl.HibernateQueryFactory;
 import ru.runa.wfe.presentation.BatchPresentation;
@@ -202,6 +206,7 @@ public class HibernateCompilerHqlBuider {
         conditions.addAll(addFilters());
         conditions.addAll(addSecureCheck());
         conditions.addAll(addIdRestrictions());
+        conditions.addAll(addKeysetRestriction());
         query.append(" where (1=1)");
         for (String condition : conditions) {
             query.append(" and (").append(condition).append(")");
@@ -412,6 +417,115 @@ public class HibernateCompilerHqlBuider {
         return result;
     }
 
+    /**
+     * Checks if page is loaded by keyset (see {@link BatchPresentation#getPageAfterId()}): it is possible if all sorted fields are properties of
+     * presentation class. Otherwise page is loaded by number.
+     * 
+     * @return true, if query is restricted and ordered by keyset.
+     */
+    public boolean isKeysetPaging() {
+        if (parameters.isCountQuery() || !parameters.isPagingEnabled() || batchPresentation.getPageAfterId() == null) {
+            return false;
+        }
+        for (FieldDescriptor field : getKeysetFields()) {
+            if (field.dbSources.length > 1 || !ClassPresentation.classNameSQL.equals(aliasMapping.getAlias(field))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return sorted fields, affecting query order.
+     */
+    private List<FieldDescriptor> getKeysetFields() {
+        List<FieldDescriptor> result = new ArrayList<>();
+        for (FieldDescriptor field : batchPresentation.getSortedFields()) {
+            if (field.sortable && field.fieldState != FieldState.DISABLED) {
+                result.add(field);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Generates expression for keyset paging: objects after {@link BatchPresentation#getPageAfterId()} object in order of sorted fields and id.
+     * Null values of sorted fields are ordered last (see {@link #buildKeysetOrderClause()}).
+     * 
+     * @return List of string, represents expressions.
+     */
+    private List<String> addKeysetRestriction() {
+        List<String> result = new LinkedList<>();
+        if (!isKeysetPaging()) {
+            return result;
+        }
+        List<FieldDescriptor> fields = getKeysetFields();
+        boolean[] sortModes = getKeysetSortModes(fields);
+        Object[] values = null;
+        List<Type> types = new ArrayList<>();
+        if (!fields.isEmpty() && batchPresentation.getPageAfterId() > 0) {
+            values = loadKeysetValues(fields, types);
+            if (values == null) {
+                throw new InternalApplicationException("Object " + batchPresentation.getPageAfterId() + " to continue paging is not found");
+            }
+        }
+        if (!fields.isEmpty() && values == null) {
+            // first page
+            return result;
+        }
+        StringBuilder restriction = new StringBuilder();
+        StringBuilder equalPrefix = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            String path = fields.get(i).dbSources[0].getValueDBPath(AccessType.ORDER, ClassPresentation.classNameSQL);
+            String paramName = "keysetValue" + i;
+            if (values[i] != null) {
+                placeholders.add(paramName, values[i], types.get(i));
+                restriction.append(restriction.length() > 0 ? " or " : "").append("(").append(equalPrefix).append("(").append(path)
+                        .append(sortModes[i] ? " > :" : " < :").append(paramName).append(" or ").append(path).append(" is null))");
+                equalPrefix.append(path).append(" = :").append(paramName).append(" and ");
+            } else {
+                equalPrefix.append(path).append(" is null and ");
+            }
+        }
+        restriction.append(restriction.length() > 0 ? " or " : "").append("(").append(equalPrefix).append(ClassPresentation.classNameSQL)
+                .append(".id > :pageAfterId)");
+        placeholders.add("pageAfterId", batchPresentation.getPageAfterId());
+        result.add(restriction.toString());
+        return result;
+    }
+
+    private boolean[] getKeysetSortModes(List<FieldDescriptor> fields) {
+        List<FieldDescriptor> sortedFields = Arrays.asList(batchPresentation.getSortedFields());
+        boolean[] fieldsToSortModes = batchPresentation.getFieldsToSortModes();
+        boolean[] result = new boolean[fields.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = fieldsToSortModes[sortedFields.indexOf(fields.get(i))];
+        }
+        return result;
+    }
+
+    /**
+     * Loads values of sorted fields for object {@link BatchPresentation#getPageAfterId()}. Hibernate types of values are added to types to bind
+     * values as query parameters.
+     * 
+     * @return values or <code>null</code> if object is not found.
+     */
+    Object[] loadKeysetValues(List<FieldDescriptor> fields, List<Type> types) {
+        StringBuilder hql = new StringBuilder("select ");
+        for (int i = 0; i < fields.size(); i++) {
+            hql.append(i > 0 ? ", " : "").append(fields.get(i).dbSources[0].getValueDBPath(AccessType.ORDER, "keyset"));
+        }
+        hql.append(" from ").append(batchPresentation.getType().getPresentationClass().getName()).append(" as keyset where keyset.id = :id");
+        Query query = ApplicationContextFactory.getCurrentSession().createQuery(hql.toString());
+        query.setParameter("id", batchPresentation.getPageAfterId());
+        types.addAll(Arrays.asList(query.getReturnTypes()));
+        Object result = query.uniqueResult();
+        if (result == null) {
+            return null;
+        }
+        return fields.size() == 1 ? new Object[] { result } : (Object[]) result;
+    }
+
     /**
      * Builds 'order by' clause of HQL query. This function doesn't build sorting for fields with inheritance. It must be handled in SQL translation
      * stage.
@@ -420,6 +534,10 @@ public class HibernateCompilerHqlBuider {
         if (parameters.isCountQuery()) {
             return;
         }
+        if (isKeysetPaging()) {
+            buildKeysetOrderClause();
+            return;
+        }
         FieldDescriptor[] sortedFields = batchPresentation.getSortedFields();
         boolean[] fieldsToSortModes = batchPresentation.getFieldsToSortModes();
         if (sortedFields.length == 0) {
@@ -441,4 +559,19 @@ public class HibernateCompilerHqlBuider {
             needComma = true;
         }
     }
+
+    /**
+     * Builds 'order by' clause for keyset paging: by sorted fields with null values last (regardless of database default) and by id.
+     */
+    private void buildKeysetOrderClause() {
+        List<FieldDescriptor> fields = getKeysetFields();
+        boolean[] sortModes = getKeysetSortModes(fields);
+        query.append(" order by ");
+        for (int i = 0; i < fields.size(); i++) {
+            String path = fields.get(i).dbSources[0].getValueDBPath(AccessType.ORDER, ClassPresentation.classNameSQL);
+            query.append("case when ").append(path).append(" is null then 1 else 0 end asc, ");
+            query.append(path).append(sortModes[i] ? " asc, " : " desc, ");
+        }
+        query.append(ClassPresentation.classNameSQL).append(".id asc");
+    }
 }
@@ -17,12 +17,16 @@
  */
 package ru.runa.wfe.presentation.hibernate;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Arrays;
 import java.util.List;
 import org.hibernate.Query;
 import org.hibernate.SQLQuery;
 import org.hibernate.Session;
 import org.hibernate.transform.ResultTransformer;
 import ru.runa.wfe.commons.ApplicationContextFactory;
+import ru.runa.wfe.commons.SystemProperties;
 import ru.runa.wfe.presentation.BatchPresentation;
 
 /**
@@ -30,6 +34,13 @@ import ru.runa.wfe.presentation.BatchPresentation;
  */
 public class HibernateCompilerQueryBuilder {
 
+    /**
+     * SQL query templates, keyed by query shape (see {@link #getTemplateKey(HibernateCompilerHqlBuider, BatchPresentation, CompilerParameters)}).
+     * Filter values are bound as query parameters, so presentations, which differs only in values and paging, share template.
+     */
+    private static final Cache<String, String> sqlTemplatesCache = CacheBuilder.newBuilder()
+            .maximumSize(SystemProperties.getBatchPresentationCompiledQueriesCacheSize()).build();
+
     /**
      * {@link BatchPresentation}, used to build SQL query.
      */
@@ -90,12 +101,27 @@ public class HibernateCompilerQueryBuilder {
         return hqlBuilder.getPlaceholders();
     }
 
+    /**
+     * @return true, if page is loaded by keyset, not by number (see {@link HibernateCompilerHqlBuider#isKeysetPaging()}).
+     */
+    public boolean isKeysetPaging() {
+        return hqlBuilder.isKeysetPaging();
+    }
+
     /**
      * Translates HQL from hqlBuilder to SQL and makes ordering and filtering inheritance tuning.
      *
      * @return SQL query string.
      */
     private String translateToSQL() {
+        // filters by fields with inheritance add parameter values while SQL is built
+        String templateKey = hqlBuilder.isFilterByInheritance() ? null : getTemplateKey(hqlBuilder, batchPresentation, parameters);
+        if (templateKey != null) {
+            String sqlTemplate = sqlTemplatesCache.getIfPresent(templateKey);
+            if (sqlTemplate != null) {
+                return sqlTemplate;
+            }
+        }
         HibernateCompilerTranslator queryTranslator = new HibernateCompilerTranslator(hqlBuilder.getQuery(), parameters.isCountQuery());
         List<String> phSeq = HibernateCompilerPlaceholdersHelper.getPlaceholdersFromHQL(hqlBuilder.getQuery(), hqlBuilder.getPlaceholders());
         StringBuilder sqlRequest = new StringBuilder(queryTranslator.translate());
@@ -104,9 +130,27 @@ public class HibernateCompilerQueryBuilder {
         new HibernateCompilerInheritanceFiltersBuilder(batchPresentation, hqlBuilder, queryTranslator).injectFiltersStatements(sqlRequest);
         new HibernateCompilerInheritanceOrderBuilder(batchPresentation, hqlBuilder, queryTranslator).injectOrderStatements(sqlRequest);
         new HibernateCompilerLeftJoinBuilder(batchPresentation).injectLeftJoin(sqlRequest);
+        if (templateKey != null) {
+            sqlTemplatesCache.put(templateKey, sqlRequest.toString());
+        }
         return sqlRequest.toString();
     }
 
+    /**
+     * Creates key of SQL query template. HQL query contains presentation class, affecting fields, filters and sorting, but not filter values;
+     * sorting by fields with inheritance is not in HQL and is added to key.
+     *
+     * @return key of SQL query, built by HQL builder.
+     */
+    static String getTemplateKey(HibernateCompilerHqlBuider hqlBuilder, BatchPresentation batchPresentation, CompilerParameters parameters) {
+        StringBuilder key = new StringBuilder();
+        key.append(parameters.isCountQuery() ? "count" : parameters.isOnlyIdentityLoad() ? "id" : "list");
+        if (hqlBuilder.isOrderByInheritance()) {
+            key.append(Arrays.toString(batchPresentation.getFieldsToSortIds())).append(Arrays.toString(batchPresentation.getFieldsToSortModes()));
+        }
+        return key.append(':').append(hqlBuilder.getQuery()).toString();
+    }
+
     /**
      * Removes from SQL select clause all column names and 'as' statements. So it's converts SQL like 'select TABLE.ID as T_ID, TABLE.NAME as T_N' to
      * 'select TABLE.*'. Actually only 'as' statements removing is required, but removing all columns is much simple and resulting request is much
@@ -17,18 +17,28 @@
  */
 package ru.runa.wfe.presentation.hibernate;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.util.HashMap;
 
 import org.hibernate.engine.SessionFactoryImplementor;
 import org.hibernate.hql.classic.QueryTranslatorImpl;
 
 import ru.runa.wfe.commons.ApplicationContextFactory;
+import ru.runa.wfe.commons.SystemProperties;
 
 /**
  * Contains functions to work with {@link QueryTranslatorImpl}, used to convert HQL query to SQL query.
  */
 public class HibernateCompilerTranslator {
 
+    /**
+     * Compiled translators, keyed by query type and HQL query. Filter values, passed as query parameters, is not included into HQL, so
+     * presentations, which differs only in parameter values and paging, shares compiled translator. Compiled translator is used only for read.
+     */
+    private static final Cache<String, QueryTranslatorImpl> translatorsCache = CacheBuilder.newBuilder()
+            .maximumSize(SystemProperties.getBatchPresentationCompiledQueriesCacheSize()).build();
+
     /**
      * Translated HQL query.
      */
@@ -66,9 +76,14 @@ public class HibernateCompilerTranslator {
         if (translator != null) {
             return translator.getSQLString();
         }
-        translator = new QueryTranslatorImpl(hqlQuery, new HashMap<String, Object>(),
-                (SessionFactoryImplementor) ApplicationContextFactory.getSessionFactory());
-        translator.compile(new HashMap<String, Object>(), isCountQuery);
+        String cacheKey = (isCountQuery ? "count:" : "list:") + hqlQuery;
+        translator = translatorsCache.getIfPresent(cacheKey);
+        if (translator == null) {
+            translator = new QueryTranslatorImpl(hqlQuery, new HashMap<String, Object>(),
+                    (SessionFactoryImplementor) ApplicationContextFactory.getSessionFactory());
+            translator.compile(new HashMap<String, Object>(), isCountQuery);
+            translatorsCache.put(cacheKey, translator);
+        }
         return translator.getSQLString();
     }
 
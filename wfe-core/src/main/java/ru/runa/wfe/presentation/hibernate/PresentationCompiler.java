@@ -64,10 +64,19 @@ public class PresentationCompiler<T> implements BatchPresentationCompiler<T> {
         HibernateCompilerQueryBuilder builder = new HibernateCompilerQueryBuilder(batchPresentation, compilerParams);
         Query query = builder.build();
         builder.getPlaceholders().apply(query);
+        applyPaging(query, batchPresentation, compilerParams, builder.isKeysetPaging());
+        return query;
+    }
+
+    /**
+     * Restricts query results to batch presentation page. Page start is not skipped in keyset paging: it is restricted by keyset in query.
+     */
+    static void applyPaging(Query query, BatchPresentation batchPresentation, CompilerParameters compilerParams, boolean keysetPaging) {
         if (compilerParams.isPagingEnabled() && batchPresentation.getRangeSize() != BatchPresentationConsts.RANGE_SIZE_UNLIMITED) {
-            query.setFirstResult((batchPresentation.getPageNumber() - 1) * batchPresentation.getRangeSize());
+            if (!keysetPaging) {
+                query.setFirstResult((batchPresentation.getPageNumber() - 1) * batchPresentation.getRangeSize());
+            }
             query.setMaxResults(batchPresentation.getRangeSize());
         }
-        return query;
     }
 }
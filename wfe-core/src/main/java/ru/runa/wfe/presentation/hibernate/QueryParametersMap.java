@@ -45,6 +45,10 @@ public class QueryParametersMap {
         map.put(name, new QueryParameterValue(value, Hibernate.TIMESTAMP, false));
     }
 
+    public void add(String name, Object value, Type type) {
+        map.put(name, new QueryParameterValue(value, type, false));
+    }
+
     public void add(String name, Collection<?> value) {
         map.put(name, new QueryParameterValue(value, null, true));
     }
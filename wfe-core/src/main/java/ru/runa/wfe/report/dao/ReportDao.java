@@ -57,6 +57,7 @@ public class ReportDao extends GenericDao<ReportDefinition> {
             session.delete(p);
         }
         def.updateFrom(reportDefinition);
+        def.setVersion(def.getVersion() + 1);
         this.update(def);
     }
 
@@ -16,6 +16,7 @@ public class WfReport extends SecuredObject implements Comparable<WfReport>, Ent
     private static final long serialVersionUID = 1L;
 
     private Long id;
+    private Long version;
     private String name;
     private String description;
     private String category;
@@ -38,6 +39,7 @@ public class WfReport extends SecuredObject implements Comparable<WfReport>, Ent
     public WfReport(ReportDefinition definition) {
         super();
         id = definition.getId();
+        version = definition.getVersion();
         name = definition.getName();
         description = definition.getDescription();
         category = definition.getCategory();
@@ -61,6 +63,17 @@ public class WfReport extends SecuredObject implements Comparable<WfReport>, Ent
         this.id = id;
     }
 
+    /**
+     * @return version of compiled report, changed on each redeployment
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
@@ -0,0 +1,141 @@
+package ru.runa.wfe.report.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRParameter;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.util.JRSwapFile;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import ru.runa.wfe.commons.SystemProperties;
+import ru.runa.wfe.report.dto.WfReport;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Fills reports. Loaded compiled reports are cached by report id and version, filled pages exceeding
+ * {@link SystemProperties#getReportVirtualizerMaxPages()} are swapped to file until {@link #close()}, so filled report should be exported before
+ * it.
+ */
+public class ReportFiller implements Closeable {
+    private static final Log log = LogFactory.getLog(ReportFiller.class);
+    private static final int SWAP_FILE_BLOCK_SIZE = 4096;
+    private static final int SWAP_FILE_MIN_GROW_COUNT = 100;
+
+    private static final Cache<ReportKey, JasperReport> reports = CacheBuilder.newBuilder().maximumSize(SystemProperties.getReportCacheSize())
+            .build();
+    private static final AtomicLong hitCount = new AtomicLong();
+    private static final AtomicLong missCount = new AtomicLong();
+
+    private JRSwapFileVirtualizer virtualizer;
+
+    public JasperPrint fill(WfReport report, Map<String, Object> parameters, Connection connection) throws JRException {
+        int maxPages = SystemProperties.getReportVirtualizerMaxPages();
+        if (maxPages > 0 && virtualizer == null) {
+            JRSwapFile swapFile = new JRSwapFile(SystemProperties.getReportVirtualizerDirectory(), SWAP_FILE_BLOCK_SIZE, SWAP_FILE_MIN_GROW_COUNT);
+            virtualizer = new JRSwapFileVirtualizer(maxPages, swapFile, true);
+        }
+        if (virtualizer != null) {
+            parameters.put(JRParameter.REPORT_VIRTUALIZER, virtualizer);
+        }
+        JasperPrint print = JasperFillManager.fillReport(getJasperReport(report), parameters, connection);
+        if (virtualizer != null) {
+            // swapped pages are only read during export
+            virtualizer.setReadOnly(true);
+        }
+        return print;
+    }
+
+    /**
+     * Deletes swap file of filled report.
+     */
+    @Override
+    public void close() {
+        if (virtualizer != null) {
+            virtualizer.cleanup();
+            virtualizer = null;
+        }
+    }
+
+    /**
+     * Drops cached compiled report.
+     */
+    public static void invalidate(Long reportId) {
+        Iterator<ReportKey> iterator = reports.asMap().keySet().iterator();
+        while (iterator.hasNext()) {
+            if (Objects.equal(reportId, iterator.next().id)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public static long getCacheHitCount() {
+        return hitCount.get();
+    }
+
+    public static long getCacheMissCount() {
+        return missCount.get();
+    }
+
+    private static JasperReport getJasperReport(WfReport report) throws JRException {
+        ReportKey key = new ReportKey(report.getId(), report.getVersion());
+        JasperReport jasperReport = key.id != null ? reports.getIfPresent(key) : null;
+        if (jasperReport != null) {
+            hitCount.incrementAndGet();
+            return jasperReport;
+        }
+        missCount.incrementAndGet();
+        jasperReport = (JasperReport) JRLoader.loadObject(new ByteArrayInputStream(report.getCompiledReport()));
+        if (key.id != null) {
+            if (log.isDebugEnabled()) {
+                log.debug("Report " + key + " loaded, cache hits: " + getCacheHitCount() + ", misses: " + getCacheMissCount());
+            }
+            reports.put(key, jasperReport);
+        }
+        return jasperReport;
+    }
+
+    private static class ReportKey {
+        private final Long id;
+        private final Long version;
+
+        private ReportKey(Long id, Long version) {
+            this.id = id;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ReportKey)) {
+                return false;
+            }
+            ReportKey key = (ReportKey) obj;
+            return Objects.equal(id, key.id) && Objects.equal(version, key.version);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(id, version);
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this).add("id", id).add("version", version).toString();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
@@ -36,12 +37,10 @@ import com.google.common.collect.Maps;
 
 public enum ReportGenerationType {
 
-    HTML_EMBEDDED {
+    HTML_EMBEDDED(".html") {
         @Override
-        public ReportBuildResult exportReport(String reportName, HttpServletRequest request, HttpServletResponse response, JasperPrint report)
-                throws JRException {
+        public void exportReport(HttpServletRequest request, JasperPrint report, OutputStream outputStream) throws JRException {
             String uid = UUID.randomUUID().toString();
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             SimpleHtmlExporterOutput exporterOutput = new SimpleHtmlExporterOutput(outputStream);
             Map<String, byte[]> resourceMap = Maps.newHashMap();
             String pathPattern = request.getRequestURL().toString().substring(0, request.getRequestURL().toString().indexOf("/buildReport"))
@@ -61,7 +60,6 @@ public enum ReportGenerationType {
             exporter.setConfiguration(configuration);
             exporter.exportReport();
             saveResources(uid, resourceMap);
-            return new ReportBuildResult(reportName + ".html", outputStream.toByteArray());
         }
 
         private void saveResources(String uid, Map<String, byte[]> resourceMap) {
@@ -108,20 +106,17 @@ public enum ReportGenerationType {
         }
     },
 
-    DOCX {
+    DOCX(".docx") {
         @Override
-        public ReportBuildResult exportReport(String reportName, HttpServletRequest request, HttpServletResponse response, JasperPrint report)
-                throws JRException {
+        public void exportReport(HttpServletRequest request, JasperPrint report, OutputStream outputStream) throws JRException {
             JRDocxExporter exporter = new JRDocxExporter();
             SimpleDocxReportConfiguration configuration = new SimpleDocxReportConfiguration();
             configuration.setFramesAsNestedTables(false);
             exporter.setConfiguration(configuration);
             exporter.setReportContext(WebReportContext.getInstance(request));
             exporter.setExporterInput(new SimpleExporterInput(report));
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(outputStream));
             exporter.exportReport();
-            return new ReportBuildResult(reportName + ".docx", outputStream.toByteArray());
         }
 
         @Override
@@ -134,17 +129,14 @@ public enum ReportGenerationType {
         }
     },
 
-    PDF {
+    PDF(".pdf") {
         @Override
-        public ReportBuildResult exportReport(String reportName, HttpServletRequest request, HttpServletResponse response, JasperPrint report)
-                throws JRException {
+        public void exportReport(HttpServletRequest request, JasperPrint report, OutputStream outputStream) throws JRException {
             JRPdfExporter exporter = new JRPdfExporter();
             exporter.setReportContext(WebReportContext.getInstance(request));
             exporter.setExporterInput(new SimpleExporterInput(report));
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(outputStream));
             exporter.exportReport();
-            return new ReportBuildResult(reportName + ".pdf", outputStream.toByteArray());
         }
 
         @Override
@@ -157,17 +149,14 @@ public enum ReportGenerationType {
         }
     },
 
-    RTF {
+    RTF(".rtf") {
         @Override
-        public ReportBuildResult exportReport(String reportName, HttpServletRequest request, HttpServletResponse response, JasperPrint report)
-                throws JRException {
+        public void exportReport(HttpServletRequest request, JasperPrint report, OutputStream outputStream) throws JRException {
             JRRtfExporter exporter = new JRRtfExporter();
             exporter.setReportContext(WebReportContext.getInstance(request));
             exporter.setExporterInput(new SimpleExporterInput(report));
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             exporter.setExporterOutput(new SimpleWriterExporterOutput(outputStream));
             exporter.exportReport();
-            return new ReportBuildResult(reportName + ".rtf", outputStream.toByteArray());
         }
 
         @Override
@@ -180,17 +169,14 @@ public enum ReportGenerationType {
         }
     },
 
-    EXCEL {
+    EXCEL(".xlsx") {
         @Override
-        public ReportBuildResult exportReport(String reportName, HttpServletRequest request, HttpServletResponse response, JasperPrint report)
-                throws JRException {
+        public void exportReport(HttpServletRequest request, JasperPrint report, OutputStream outputStream) throws JRException {
             JRXlsxExporter exporter = new JRXlsxExporter();
             exporter.setReportContext(WebReportContext.getInstance(request));
             exporter.setExporterInput(new SimpleExporterInput(report));
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(outputStream));
             exporter.exportReport();
-            return new ReportBuildResult(reportName + ".xlsx", outputStream.toByteArray());
         }
 
         @Override
@@ -203,6 +189,16 @@ public enum ReportGenerationType {
         }
     };
 
+    private final String fileSuffix;
+
+    private ReportGenerationType(String fileSuffix) {
+        this.fileSuffix = fileSuffix;
+    }
+
+    public String getFileName(String reportName) {
+        return reportName + fileSuffix;
+    }
+
     /**
      * Sets parameters that are specific for report export.
      * 
@@ -212,7 +208,7 @@ public enum ReportGenerationType {
     public abstract void setParameters(Map<String, Object> parameters);
 
     /**
-     * Exports report in the specified format.
+     * Exports report in the specified format to memory.
      * 
      * @param reportName
      *            Report name.
@@ -225,8 +221,25 @@ public enum ReportGenerationType {
      * @return result of report export.
      * @throws JRException
      */
-    public abstract ReportBuildResult exportReport(String reportName, HttpServletRequest request, HttpServletResponse response, JasperPrint report)
-            throws JRException;
+    public ReportBuildResult exportReport(String reportName, HttpServletRequest request, HttpServletResponse response, JasperPrint report)
+            throws JRException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportReport(request, report, outputStream);
+        return new ReportBuildResult(getFileName(reportName), outputStream.toByteArray());
+    }
+
+    /**
+     * Exports report in the specified format.
+     * 
+     * @param request
+     *            HTTP request, it's necessary to build report in order to process this request.
+     * @param report
+     *            Report document that should be exported.
+     * @param outputStream
+     *            Stream, report is written to.
+     * @throws JRException
+     */
+    public abstract void exportReport(HttpServletRequest request, JasperPrint report, OutputStream outputStream) throws JRException;
 
     /**
      * Applies operation that is chosen on the basis of created report type.
@@ -18,6 +18,7 @@ import ru.runa.wfe.report.dao.ReportDao;
 import ru.runa.wfe.report.dto.WfReport;
 import ru.runa.wfe.report.dto.WfReportParameter;
 import ru.runa.wfe.report.impl.GetCompiledReportParametersDescription;
+import ru.runa.wfe.report.impl.ReportFiller;
 import ru.runa.wfe.security.Permission;
 import ru.runa.wfe.security.SecuredObject;
 import ru.runa.wfe.security.SecuredObjectType;
@@ -84,11 +85,13 @@ public class ReportLogic extends WfCommonLogic {
         }
         ReportDefinition reportDefinition = createReportDefinition(report, file);
         reportDao.redeployReport(reportDefinition);
+        ReportFiller.invalidate(report.getId());
     }
 
     public void undeployReport(User user, Long reportId) {
         permissionDao.checkAllowed(user, Permission.UPDATE, SecuredObjectType.REPORT, reportId);
         reportDao.undeploy(reportId);
+        ReportFiller.invalidate(reportId);
     }
 
     private ReportDefinition createReportDefinition(WfReport report, byte[] file) {
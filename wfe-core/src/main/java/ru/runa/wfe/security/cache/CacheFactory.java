@@ -0,0 +1,12 @@
+package ru.runa.wfe.security.cache;
+
+/**
+ * Factory for create cache instance. It used in system.context.xml - do not remove.
+ */
+final class CacheFactory {
+    private static final PermissionCache PERMISSION_CACHE = new PermissionCacheStateCtrl();
+
+    public static PermissionCache getInstance() {
+        return PERMISSION_CACHE;
+    }
+}
@@ -0,0 +1,93 @@
+package ru.runa.wfe.security.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import ru.runa.wfe.security.Permission;
+import ru.runa.wfe.security.SecuredObjectType;
+
+/**
+ * Effective permissions of executor (including permissions of it groups) on objects of one {@link SecuredObjectType}.
+ */
+public class ExecutorPermissions implements Serializable {
+    private static final long serialVersionUID = 1L;
+    /**
+     * Flag, equals false, if executor has too many object permissions to hold them in memory and permissions must be checked by database.
+     */
+    private final boolean complete;
+    /**
+     * Permissions, granted on list type of secured object type.
+     */
+    private final Set<Permission> listPermissions = new HashSet<>();
+    /**
+     * Objects identities with granted permissions.
+     */
+    private final Map<Permission, Set<Long>> objectPermissions = new HashMap<>();
+
+    public ExecutorPermissions(boolean complete) {
+        this.complete = complete;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void addListPermission(Permission permission) {
+        listPermissions.add(permission);
+    }
+
+    public void addObjectPermission(Long objectId, Permission permission) {
+        Set<Long> ids = objectPermissions.get(permission);
+        if (ids == null) {
+            ids = new HashSet<>();
+            objectPermissions.put(permission, ids);
+        }
+        ids.add(objectId);
+    }
+
+    /**
+     * @return true, if any of permissions is granted on list type.
+     */
+    public boolean hasAnyListPermission(Collection<Permission> permissions) {
+        for (Permission permission : permissions) {
+            if (listPermissions.contains(permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true, if any of permissions is granted on any object.
+     */
+    public boolean hasAnyObjectPermission(Collection<Permission> permissions) {
+        for (Permission permission : permissions) {
+            if (objectPermissions.containsKey(permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Objects identities from ids, on which any of permissions is granted.
+     */
+    public Set<Long> filterObjectIds(Collection<Permission> permissions, Collection<Long> ids) {
+        Set<Long> result = new HashSet<>();
+        for (Permission permission : permissions) {
+            Set<Long> permissionIds = objectPermissions.get(permission);
+            if (permissionIds == null) {
+                continue;
+            }
+            for (Long id : ids) {
+                if (permissionIds.contains(id)) {
+                    result.add(id);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,6 @@
+package ru.runa.wfe.security.cache;
+
+import ru.runa.wfe.commons.cache.CacheImplementation;
+
+interface ManageablePermissionCache extends PermissionCache, CacheImplementation {
+}
@@ -0,0 +1,35 @@
+package ru.runa.wfe.security.cache;
+
+import ru.runa.wfe.commons.cache.VersionedCacheData;
+import ru.runa.wfe.security.SecuredObjectType;
+import ru.runa.wfe.user.Executor;
+
+public interface PermissionCache {
+    /**
+     * Returns effective permissions of {@link Executor} with specified id (including permissions of executor groups) on objects of specified type.
+     * May return null, if permissions wasn't set by {@link #setPermissions(VersionedCacheData, Long, SecuredObjectType, ExecutorPermissions)}
+     * call or cache is locked by changing transaction.
+     * 
+     * @param executorId
+     *            {@link Executor} identity.
+     * @param type
+     *            Secured objects type.
+     * @return Effective permissions or null.
+     */
+    public VersionedCacheData<ExecutorPermissions> getPermissions(Long executorId, SecuredObjectType type);
+
+    /**
+     * Set effective permissions of {@link Executor} with specified id on objects of specified type.
+     * 
+     * @param oldCacheData
+     *            Old cached state for data.
+     * @param executorId
+     *            {@link Executor} identity.
+     * @param type
+     *            Secured objects type.
+     * @param permissions
+     *            Effective permissions.
+     */
+    public void setPermissions(VersionedCacheData<ExecutorPermissions> oldCacheData, Long executorId, SecuredObjectType type,
+            ExecutorPermissions permissions);
+}
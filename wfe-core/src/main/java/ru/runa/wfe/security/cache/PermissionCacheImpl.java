@@ -0,0 +1,62 @@
+package ru.runa.wfe.security.cache;
+
+import java.io.Serializable;
+import java.util.Objects;
+import ru.runa.wfe.commons.cache.BaseCacheImpl;
+import ru.runa.wfe.commons.cache.Cache;
+import ru.runa.wfe.commons.cache.ChangedObjectParameter;
+import ru.runa.wfe.commons.cache.VersionedCacheData;
+import ru.runa.wfe.security.SecuredObjectType;
+
+class PermissionCacheImpl extends BaseCacheImpl implements ManageablePermissionCache {
+    public static final String permissionsName = "ru.runa.wfe.security.cache.executorPermissions";
+    private final Cache<ExecutorTypeKey, ExecutorPermissions> permissionsCache;
+
+    public PermissionCacheImpl() {
+        permissionsCache = createCache(permissionsName);
+    }
+
+    @Override
+    public VersionedCacheData<ExecutorPermissions> getPermissions(Long executorId, SecuredObjectType type) {
+        return getVersionnedData(permissionsCache.get(new ExecutorTypeKey(executorId, type)));
+    }
+
+    @Override
+    public void setPermissions(VersionedCacheData<ExecutorPermissions> oldCacheData, Long executorId, SecuredObjectType type,
+            ExecutorPermissions permissions) {
+        if (!mayUpdateVersionnedData(oldCacheData)) {
+            return;
+        }
+        permissionsCache.put(new ExecutorTypeKey(executorId, type), permissions);
+    }
+
+    @Override
+    public boolean onChange(ChangedObjectParameter changedObject) {
+        return false;
+    }
+
+    private static class ExecutorTypeKey implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final Long executorId;
+        private final SecuredObjectType type;
+
+        public ExecutorTypeKey(Long executorId, SecuredObjectType type) {
+            this.executorId = executorId;
+            this.type = type;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(executorId, type);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ExecutorTypeKey)) {
+                return false;
+            }
+            ExecutorTypeKey other = (ExecutorTypeKey) obj;
+            return Objects.equals(executorId, other.executorId) && Objects.equals(type, other.type);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ru.runa.wfe.security.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import ru.runa.wfe.commons.cache.VersionedCacheData;
+import ru.runa.wfe.commons.cache.sm.BaseCacheCtrl;
+import ru.runa.wfe.commons.cache.sm.CachingLogic;
+import ru.runa.wfe.commons.cache.sm.factories.StaticCacheFactory;
+import ru.runa.wfe.commons.cache.states.DefaultStateContext;
+import ru.runa.wfe.security.SecuredObjectType;
+import ru.runa.wfe.security.dao.PermissionMapping;
+import ru.runa.wfe.user.Executor;
+import ru.runa.wfe.user.ExecutorGroupMembership;
+
+class PermissionCacheStateCtrl extends BaseCacheCtrl<ManageablePermissionCache, DefaultStateContext> implements PermissionCache {
+
+    PermissionCacheStateCtrl() {
+        super(new PermissionCacheFactory(), createListenObjectTypes());
+        CachingLogic.registerChangeListener(this);
+    }
+
+    @Override
+    public VersionedCacheData<ExecutorPermissions> getPermissions(Long executorId, SecuredObjectType type) {
+        ManageablePermissionCache cache = CachingLogic.getCacheImplIfNotLocked(stateMachine);
+        if (cache != null) {
+            return cache.getPermissions(executorId, type);
+        }
+        return null;
+    }
+
+    @Override
+    public void setPermissions(VersionedCacheData<ExecutorPermissions> oldCacheData, Long executorId, SecuredObjectType type,
+            ExecutorPermissions permissions) {
+        ManageablePermissionCache cache = CachingLogic.getCacheImplIfNotLocked(stateMachine);
+        if (cache != null) {
+            cache.setPermissions(oldCacheData, executorId, type, permissions);
+        }
+    }
+
+    private static final List<ListenObjectDefinition> createListenObjectTypes() {
+        ArrayList<ListenObjectDefinition> result = new ArrayList<ListenObjectDefinition>();
+        result.add(new ListenObjectDefinition(PermissionMapping.class));
+        result.add(new ListenObjectDefinition(ExecutorGroupMembership.class));
+        result.add(new ListenObjectDefinition(Executor.class));
+        return result;
+    }
+
+    private static class PermissionCacheFactory implements StaticCacheFactory<ManageablePermissionCache> {
+
+        @Override
+        public ManageablePermissionCache buildCache() {
+            return new PermissionCacheImpl();
+        }
+    }
+}
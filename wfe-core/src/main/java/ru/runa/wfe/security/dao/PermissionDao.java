@@ -20,6 +20,7 @@ package ru.runa.wfe.security.dao;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
 import com.querydsl.jpa.JPQLQuery;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -33,6 +34,7 @@ import java.util.Set;
 import lombok.val;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.type.Type;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
@@ -40,6 +42,9 @@ import ru.runa.wfe.InternalApplicationException;
 import ru.runa.wfe.commons.CollectionUtil;
 import ru.runa.wfe.commons.SystemProperties;
 import ru.runa.wfe.commons.TimeMeasurer;
+import ru.runa.wfe.commons.cache.Change;
+import ru.runa.wfe.commons.cache.VersionedCacheData;
+import ru.runa.wfe.commons.cache.sm.CachingLogic;
 import ru.runa.wfe.commons.dao.CommonDao;
 import ru.runa.wfe.presentation.BatchPresentation;
 import ru.runa.wfe.presentation.hibernate.CompilerParameters;
@@ -52,6 +57,8 @@ import ru.runa.wfe.security.PermissionSubstitutions;
 import ru.runa.wfe.security.SecuredObject;
 import ru.runa.wfe.security.SecuredObjectType;
 import ru.runa.wfe.security.SecurityCheckProperties;
+import ru.runa.wfe.security.cache.ExecutorPermissions;
+import ru.runa.wfe.security.cache.PermissionCache;
 import ru.runa.wfe.user.Actor;
 import ru.runa.wfe.user.Executor;
 import ru.runa.wfe.user.User;
@@ -74,6 +81,8 @@ public class PermissionDao extends CommonDao {
     private ExecutorDao executorDao;
     @Autowired
     private SessionFactory sessionFactory;
+    @Autowired
+    private PermissionCache permissionCache;
 
     private final Map<SecuredObjectType, Set<Executor>> privelegedExecutors = new HashMap<>();
     private final Set<Long> privelegedExecutorIds = new HashSet<>();
@@ -215,6 +224,7 @@ public class PermissionDao extends CommonDao {
                             .and(pm.executor.eq(executor))
                             .and(pm.permission.in(toDelete)))
                     .execute();
+            onPermissionMappingsChanged(executor, object.getSecuredObjectType());
         }
     }
 
@@ -414,12 +424,24 @@ public class PermissionDao extends CommonDao {
         }
 
         PermissionSubstitutions.ForCheck subst = PermissionSubstitutions.getForCheck(type, permission);
+        ExecutorPermissions executorPermissions = getExecutorPermissions(executor, type, executorWithGroups);
+        if (executorPermissions != null) {
+            if (executorPermissions.hasAnyListPermission(subst.listPermissions)) {
+                return haveIds ? new HashSet<>(idsOrNull) : nonEmptySet;
+            }
+            if (executorPermissions.isComplete()) {
+                if (!haveIds) {
+                    return executorPermissions.hasAnyObjectPermission(subst.selfPermissions) ? nonEmptySet : new HashSet<Long>();
+                }
+                return checkImplicitRules(executor, permission, type, executorPermissions.filterObjectIds(subst.selfPermissions, idsOrNull));
+            }
+        }
         QPermissionMapping pm = QPermissionMapping.permissionMapping;
 
         // Same type for all objects, thus same listType. I believe it would be faster to perform separate query here.
         // ATTENTION!!! Also, HQL query with two conditions (on both type and listType) always returns empty rowset. :(
         //              (Both here with QueryDSL and in HibernateCompilerHQLBuilder.addSecureCheck() with raw HQL.)
-        if (!subst.listPermissions.isEmpty() && queryFactory.select(pm.id).from(pm)
+        if (executorPermissions == null && !subst.listPermissions.isEmpty() && queryFactory.select(pm.id).from(pm)
                 .where(pm.executor.in(executorWithGroups)
                         .and(pm.objectType.eq(type.getListType()))
                         .and(pm.objectId.eq(0L))
@@ -522,6 +544,54 @@ public class PermissionDao extends CommonDao {
         return result;
     }
 
+    /**
+     * Returns effective permissions of executor on objects of given type from cache, loading them if necessary.
+     *
+     * @return Effective permissions or null, if cache can't be used now.
+     */
+    private ExecutorPermissions getExecutorPermissions(Executor executor, SecuredObjectType type, Set<Executor> executorWithGroups) {
+        if (executor.getId() == null) {
+            return null;
+        }
+        VersionedCacheData<ExecutorPermissions> cached = permissionCache.getPermissions(executor.getId(), type);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.getData() != null) {
+            return cached.getData();
+        }
+        QPermissionMapping pm = QPermissionMapping.permissionMapping;
+        int maxObjects = SystemProperties.getPermissionCacheMaxObjectsPerType();
+        List<Tuple> objectPermissions = queryFactory.select(pm.objectId, pm.permission).from(pm)
+                .where(pm.executor.in(executorWithGroups).and(pm.objectType.eq(type)))
+                .limit(maxObjects + 1)
+                .fetch();
+        ExecutorPermissions result = new ExecutorPermissions(objectPermissions.size() <= maxObjects);
+        if (result.isComplete()) {
+            for (Tuple tuple : objectPermissions) {
+                result.addObjectPermission(tuple.get(pm.objectId), tuple.get(pm.permission));
+            }
+        }
+        if (type.getListType() != null) {
+            List<Permission> listPermissions = queryFactory.select(pm.permission).from(pm)
+                    .where(pm.executor.in(executorWithGroups).and(pm.objectType.eq(type.getListType())).and(pm.objectId.eq(0L)))
+                    .fetch();
+            for (Permission listPermission : listPermissions) {
+                result.addListPermission(listPermission);
+            }
+        }
+        permissionCache.setPermissions(cached, executor.getId(), type, result);
+        return result;
+    }
+
+    /**
+     * Notifies caches about permission mappings change, made by bulk statements, which is not tracked by hibernate.
+     */
+    public void onPermissionMappingsChanged(Executor executor, SecuredObjectType type) {
+        CachingLogic.onChange(new PermissionMapping(executor, type, null, null), Change.DELETE, new Object[] {}, new Object[] {},
+                new String[] {}, new Type[] {});
+    }
+
     private Set<Executor> getExecutorWithAllHisGroups(Executor executor) {
         Set<Executor> set = new HashSet<>(executorDao.getExecutorParentsAll(executor));
         set.add(executor);
@@ -534,6 +604,7 @@ public class PermissionDao extends CommonDao {
     public void deleteOwnPermissions(Executor executor) {
         QPermissionMapping pm = QPermissionMapping.permissionMapping;
         queryFactory.delete(pm).where(pm.executor.eq(executor)).execute();
+        onPermissionMappingsChanged(executor, null);
     }
 
     /**
@@ -542,6 +613,17 @@ public class PermissionDao extends CommonDao {
     public void deleteAllPermissions(SecuredObject obj) {
         QPermissionMapping pm = QPermissionMapping.permissionMapping;
         queryFactory.delete(pm).where(pm.objectType.eq(obj.getSecuredObjectType()).and(pm.objectId.eq(obj.getIdentifiableId()))).execute();
+        onPermissionMappingsChanged(null, obj.getSecuredObjectType());
+    }
+
+    /**
+     * @return deleted permission mappings count
+     */
+    public long deleteAllPermissions(SecuredObjectType type, Collection<Long> ids) {
+        QPermissionMapping pm = QPermissionMapping.permissionMapping;
+        long result = queryFactory.delete(pm).where(pm.objectType.eq(type).and(pm.objectId.in(ids))).execute();
+        onPermissionMappingsChanged(null, type);
+        return result;
     }
 
     /**
@@ -694,4 +776,42 @@ public class PermissionDao extends CommonDao {
                         .and(pm.permission.eq(permission)))
                 .fetchFirst() != null;
     }
+
+    /**
+     * Checks whether permission is granted directly to executor (without groups) on objects. Objects are checked in one query per secured object
+     * type and database parameters window.
+     *
+     * @return Array of: true if executor has permission on object; false otherwise. Same order as objects.
+     */
+    public boolean[] permissionExists(Executor executor, Permission permission, List<? extends SecuredObject> objects) {
+        Map<SecuredObjectType, Set<Long>> typeIds = new HashMap<>();
+        for (SecuredObject object : objects) {
+            Set<Long> ids = typeIds.get(object.getSecuredObjectType());
+            if (ids == null) {
+                ids = new HashSet<>();
+                typeIds.put(object.getSecuredObjectType(), ids);
+            }
+            ids.add(object.getIdentifiableId());
+        }
+        QPermissionMapping pm = QPermissionMapping.permissionMapping;
+        Map<SecuredObjectType, Set<Long>> allowedTypeIds = new HashMap<>();
+        for (Map.Entry<SecuredObjectType, Set<Long>> entry : typeIds.entrySet()) {
+            Set<Long> allowedIds = new HashSet<>();
+            for (List<Long> idsPart : Lists.partition(new ArrayList<>(entry.getValue()), SystemProperties.getDatabaseParametersCount())) {
+                allowedIds.addAll(queryFactory.selectDistinct(pm.objectId).from(pm)
+                        .where(pm.executor.eq(executor)
+                                .and(pm.objectType.eq(entry.getKey()))
+                                .and(pm.objectId.in(idsPart))
+                                .and(pm.permission.eq(permission)))
+                        .fetch());
+            }
+            allowedTypeIds.put(entry.getKey(), allowedIds);
+        }
+        boolean[] result = new boolean[objects.size()];
+        for (int i = 0; i < result.length; i++) {
+            SecuredObject object = objects.get(i);
+            result[i] = allowedTypeIds.get(object.getSecuredObjectType()).contains(object.getIdentifiableId());
+        }
+        return result;
+    }
 }
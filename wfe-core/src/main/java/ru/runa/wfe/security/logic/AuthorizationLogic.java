@@ -381,6 +381,7 @@ public class AuthorizationLogic extends CommonLogic {
                     }
                     if (cond != null) {
                         queryFactory.delete(pm).where(pm.executor.eq(executor).and(pm.objectType.eq(type)).and(cond)).execute();
+                        permissionDao.onPermissionMappingsChanged(executor, type);
                     }
                 }
             }
@@ -417,6 +418,7 @@ public class AuthorizationLogic extends CommonLogic {
                 q.where(pm.permission.in(permissions));
             }
             q.execute();
+            permissionDao.onPermissionMappingsChanged(executor, securedObject.getSecuredObjectType());
         }
     }
 
@@ -456,6 +458,7 @@ public class AuthorizationLogic extends CommonLogic {
                     q.where(pm.permission.in(permissions));
                 }
                 q.execute();
+                permissionDao.onPermissionMappingsChanged(executor, type);
             }
         }
     }
@@ -24,16 +24,18 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.naming.Context;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
 import javax.naming.ldap.Control;
 import javax.naming.ldap.InitialLdapContext;
 import javax.naming.ldap.LdapContext;
@@ -46,19 +48,23 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import ru.runa.wfe.InternalApplicationException;
 import ru.runa.wfe.commons.Utils;
+import ru.runa.wfe.commons.dao.SettingDao;
 import ru.runa.wfe.presentation.BatchPresentationFactory;
 import ru.runa.wfe.security.Permission;
 import ru.runa.wfe.security.SecuredSingleton;
 import ru.runa.wfe.security.dao.PermissionDao;
 import ru.runa.wfe.user.Actor;
 import ru.runa.wfe.user.Executor;
-import ru.runa.wfe.user.ExecutorDoesNotExistException;
 import ru.runa.wfe.user.Group;
 import ru.runa.wfe.user.dao.ExecutorDao;
 
 /**
  * Imports users and group from LDAP directory.
  * 
+ * Incremental synchronization reads only entries with {@link LdapProperties#getSynchronizationIncrementalAttribute()} not less than high-water
+ * mark stored in settings by previous synchronization. Membership of changed groups and groups containing them is recalculated then, executors
+ * deleted from directory are detected by full synchronization only.
+ * 
  * @since 4.0.4
  */
 @SuppressWarnings("unchecked")
@@ -72,21 +78,62 @@ public class LdapLogic {
     private static final String ATTR_ACCOUNT_NAME = LdapProperties.getSynchronizationAccountNameAttribute();
     private static final String ATTR_GROUP_NAME = LdapProperties.getSynchronizationGroupNameAttribute();
     private static final String ATTR_GROUP_MEMBER = LdapProperties.getSynchronizationGroupMemberAttribute();
+    private static final String ATTR_OBJECT_CLASS = "objectClass";
+    private static final String ATTR_DISTINGUISHED_NAME = "distinguishedName";
+    private static final String ATTR_INCREMENTAL = LdapProperties.isSynchronizationIncrementalEnabled()
+            ? LdapProperties.getSynchronizationIncrementalAttribute()
+            : null;
+    private static final String[] USER_ATTRIBUTES = getAttributeNames(ATTR_ACCOUNT_NAME, LdapProperties.getSynchronizationUserDescriptionAttribute(),
+            LdapProperties.getSynchronizationUserFullNameAttribute(), LdapProperties.getSynchronizationUserEmailAttribute(),
+            LdapProperties.getSynchronizationUserPhoneAttribute(), LdapProperties.getSynchronizationUserTitleAttribute(),
+            LdapProperties.getSynchronizationUserDepartmentAttribute(), ATTR_INCREMENTAL);
+    private static final String[] GROUP_ATTRIBUTES = getAttributeNames(ATTR_GROUP_NAME, LdapProperties.getSynchronizationGroupDescriptionAttribute(),
+            ATTR_GROUP_MEMBER, ATTR_INCREMENTAL);
+    private static final String[] MEMBER_ATTRIBUTES = getAttributeNames(ATTR_ACCOUNT_NAME, ATTR_OBJECT_CLASS, ATTR_GROUP_MEMBER);
+    private static final String SETTINGS_FILE_NAME = "ldap.properties";
+    private static final String SETTING_HIGH_WATER_MARK = "synchronization.incremental.high.water.mark";
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("\\d+");
+    private static final int MEMBERS_SEARCH_BATCH_SIZE = 100;
     private static int pageSize = LdapProperties.getLdapPageSize();
     @Autowired
     protected ExecutorDao executorDao;
     @Autowired
     private PermissionDao permissionDao;
+    @Autowired
+    private SettingDao settingDao;
     private Pattern patternForMissedPeople;
     private Group importGroup = null;
     private Group wasteGroup = null;
+    private String highWaterMark = null;
+    private String newHighWaterMark = null;
+
+    /**
+     * Synchronizes executors incrementally if it is enabled.
+     */
+    public int synchronizeExecutors() {
+        return synchronizeExecutors(false);
+    }
 
-    public synchronized int synchronizeExecutors() {
+    /**
+     * @param full
+     *            whether all entries should be read from directory; otherwise only entries changed since previous synchronization are read if
+     *            incremental synchronization is enabled
+     */
+    public synchronized int synchronizeExecutors(boolean full) {
         if (!LdapProperties.isSynchronizationEnabled()) {
             log.debug("Synchronization is disabled");
             return -1;
         }
-        log.info("Synchronizing executors");
+        highWaterMark = null;
+        if (ATTR_INCREMENTAL != null && !full) {
+            highWaterMark = settingDao.getValue(SETTINGS_FILE_NAME, SETTING_HIGH_WATER_MARK);
+        }
+        newHighWaterMark = highWaterMark;
+        if (highWaterMark != null) {
+            log.info("Synchronizing executors changed since " + ATTR_INCREMENTAL + " " + highWaterMark);
+        } else {
+            log.info("Synchronizing executors");
+        }
         try {
             importGroup = loadGroup(
                     new Group(LdapProperties.getSynchronizationImportGroupName(), LdapProperties.getSynchronizationImportGroupDescription()));
@@ -97,6 +144,10 @@ public class LdapLogic {
             int changesCount = synchronizeActors(ldapContext, actorsByDistinguishedName);
             changesCount += synchronizeGroups(ldapContext, actorsByDistinguishedName);
             ldapContext.close();
+            if (newHighWaterMark != null && !newHighWaterMark.equals(highWaterMark)) {
+                settingDao.setValue(SETTINGS_FILE_NAME, SETTING_HIGH_WATER_MARK, newHighWaterMark);
+                log.debug("High-water mark " + ATTR_INCREMENTAL + " " + newHighWaterMark);
+            }
             return changesCount;
         } catch (Exception e) {
             log.error("", e);
@@ -107,41 +158,24 @@ public class LdapLogic {
 
     private int synchronizeActors(LdapContext ldapContext, Map<String, Actor> actorsByDistinguishedName) throws Exception {
         int changesCount = 0;
-        List<Actor> existingActorsList = executorDao.getAllActors(BatchPresentationFactory.ACTORS.createNonPaged());
-        Map<String, Actor> existingActorsMap = Maps.newHashMap();
-        for (Actor actor : existingActorsList) {
-            existingActorsMap.put(actor.getName().toLowerCase(), actor);
-        }
         Set<Actor> ldapActorsToDelete = Sets.newHashSet();
-        if (LdapProperties.isSynchronizationDeleteExecutors()) {
+        if (LdapProperties.isSynchronizationDeleteExecutors() && highWaterMark == null) {
             ldapActorsToDelete.addAll(executorDao.getGroupActors(importGroup));
         }
-        SearchControls searchControls = new SearchControls();
-        searchControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+        Map<String, Actor> existingActorsMap = Maps.newHashMap();
+        if (highWaterMark == null) {
+            addExistingActors(existingActorsMap, executorDao.getAllActors(BatchPresentationFactory.ACTORS.createNonPaged()));
+        }
+        List<Actor> createdActors = Lists.newArrayList();
         for (String ou : LdapProperties.getSynchronizationOrganizationUnits()) {
-            List<SearchResult> resultList = Lists.newArrayList();
-            byte[] cookie = null;
-            ldapContext.setRequestControls(new Control[] { new PagedResultsControl(pageSize, Control.NONCRITICAL) });
-            do {
-                NamingEnumeration<SearchResult> results = ldapContext.search(ou, OBJECT_CLASS_USER_FILTER, searchControls);
-                while (results.hasMoreElements()) {
-                    SearchResult result = results.nextElement();
-                    resultList.add(result);
+            List<SearchResult> resultList = searchChanged(ldapContext, ou, OBJECT_CLASS_USER_FILTER, USER_ATTRIBUTES);
+            if (highWaterMark != null) {
+                Set<String> names = Sets.newHashSet();
+                for (SearchResult searchResult : resultList) {
+                    names.add(getStringAttribute(searchResult, ATTR_ACCOUNT_NAME).toLowerCase());
                 }
-                results.close();
-                Control[] controls = ldapContext.getResponseControls();
-                if (controls != null) {
-                    for (Control control : controls) {
-                        if (control instanceof PagedResultsResponseControl) {
-                            PagedResultsResponseControl response = (PagedResultsResponseControl) control;
-                            cookie = response.getCookie();
-                        }
-                    }
-                } else {
-                    log.warn("Ldap server did not send controls for paging");
-                }
-                ldapContext.setRequestControls(new Control[] { new PagedResultsControl(pageSize, cookie, Control.CRITICAL) });
-            } while (cookie != null);
+                addExistingActors(existingActorsMap, executorDao.getActorsByLowerCaseNames(names));
+            }
             for (SearchResult searchResult : resultList) {
                 String name = getStringAttribute(searchResult, ATTR_ACCOUNT_NAME);
                 String description = getStringAttribute(searchResult, LdapProperties.getSynchronizationUserDescriptionAttribute());
@@ -162,7 +196,7 @@ public class LdapLogic {
                     actor = new Actor(name, description, fullName, null, email, phone, title, department);
                     log.info("Creating " + actor);
                     executorDao.create(actor);
-                    executorDao.addExecutorsToGroup(Lists.newArrayList(actor), importGroup);
+                    createdActors.add(actor);
                     permissionDao.setPermissions(importGroup, Lists.newArrayList(Permission.READ), actor);
                     changesCount++;
                 } else {
@@ -215,6 +249,7 @@ public class LdapLogic {
                 actorsByDistinguishedName.put(searchResult.getNameInNamespace(), actor);
             }
         }
+        executorDao.addExecutorsToGroup(createdActors, importGroup);
         if (LdapProperties.isSynchronizationDeleteExecutors() && ldapActorsToDelete.size() > 0) {
             if (LdapProperties.isSynchronizationUserStatusEnabled()) {
                 for (Actor actor : ldapActorsToDelete) {
@@ -241,7 +276,7 @@ public class LdapLogic {
             }
         }
         Set<Group> ldapGroupsToDelete = Sets.newHashSet();
-        if (LdapProperties.isSynchronizationDeleteExecutors()) {
+        if (LdapProperties.isSynchronizationDeleteExecutors() && highWaterMark == null) {
             Set<Executor> ldapExecutors = executorDao.getGroupChildren(importGroup);
             for (Executor executor : ldapExecutors) {
                 if (executor instanceof Group) {
@@ -249,37 +284,22 @@ public class LdapLogic {
                 }
             }
         }
-        SearchControls searchControls = new SearchControls();
-        searchControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
         Map<String, SearchResult> groupResultsByDistinguishedName = Maps.newHashMap();
         for (String ou : LdapProperties.getSynchronizationOrganizationUnits()) {
-            byte[] cookie = null;
-            ldapContext.setRequestControls(new Control[] { new PagedResultsControl(pageSize, Control.NONCRITICAL) });
-            do {
-                NamingEnumeration<SearchResult> results = ldapContext.search(ou, OBJECT_CLASS_GROUP_FILTER, searchControls);
-                while (results.hasMoreElements()) {
-                    SearchResult searchResult = results.nextElement();
-                    if (searchResult.getAttributes().get(ATTR_GROUP_MEMBER) == null) {
-                        continue;
-                    }
-                    groupResultsByDistinguishedName.put(searchResult.getNameInNamespace(), searchResult);
-                }
-                results.close();
-                Control[] controls = ldapContext.getResponseControls();
-                if (controls != null) {
-                    for (Control control : controls) {
-                        if (control instanceof PagedResultsResponseControl) {
-                            PagedResultsResponseControl response = (PagedResultsResponseControl) control;
-                            cookie = response.getCookie();
-                        }
-                    }
-                } else {
-                    log.warn("Ldap server did not send controls for paging");
+            for (SearchResult searchResult : searchChanged(ldapContext, ou, OBJECT_CLASS_GROUP_FILTER, GROUP_ATTRIBUTES)) {
+                if (searchResult.getAttributes().get(ATTR_GROUP_MEMBER) == null) {
+                    continue;
                 }
-                ldapContext.setRequestControls(new Control[] { new PagedResultsControl(pageSize, cookie, Control.CRITICAL) });
-            } while (cookie != null);
+                groupResultsByDistinguishedName.put(searchResult.getNameInNamespace(), searchResult);
+            }
         }
-        for (SearchResult searchResult : groupResultsByDistinguishedName.values()) {
+        if (highWaterMark != null) {
+            addParentGroups(ldapContext, groupResultsByDistinguishedName);
+        }
+        // nested groups fetched during membership calculation are added to map
+        List<SearchResult> groupResults = Lists.newArrayList(groupResultsByDistinguishedName.values());
+        resolveMembers(ldapContext, groupResultsByDistinguishedName, actorsByDistinguishedName);
+        for (SearchResult searchResult : groupResults) {
             String name = getStringAttribute(searchResult, ATTR_GROUP_NAME);
             String description = getStringAttribute(searchResult, LdapProperties.getSynchronizationGroupDescriptionAttribute());
             ToStringHelper toStringHelper = MoreObjects.toStringHelper("group info");
@@ -322,7 +342,8 @@ public class LdapLogic {
             Set<Actor> actorsToDelete = Sets.newHashSet(executorDao.getGroupActors(group));
             Set<Actor> actorsToAdd = Sets.newHashSet();
             Set<Actor> groupTargetActors = Sets.newHashSet();
-            fillTargetActorsRecursively(ldapContext, groupTargetActors, searchResult, groupResultsByDistinguishedName, actorsByDistinguishedName);
+            fillTargetActorsRecursively(groupTargetActors, searchResult, groupResultsByDistinguishedName, actorsByDistinguishedName,
+                    Sets.<String> newHashSet());
             for (Actor targetActor : groupTargetActors) {
                 if (!actorsToDelete.remove(targetActor)) {
                     actorsToAdd.add(targetActor);
@@ -347,6 +368,106 @@ public class LdapLogic {
         return changesCount;
     }
 
+    /**
+     * Adds groups containing given ones recursively as their membership depends on nested groups.
+     */
+    private void addParentGroups(LdapContext ldapContext, Map<String, SearchResult> groupResultsByDistinguishedName) throws NamingException {
+        String filter = "(&" + OBJECT_CLASS_GROUP_FILTER + "(" + ATTR_GROUP_MEMBER + "={0}))";
+        Deque<String> distinguishedNames = new ArrayDeque<>(groupResultsByDistinguishedName.keySet());
+        while (!distinguishedNames.isEmpty()) {
+            String distinguishedName = distinguishedNames.poll();
+            for (String ou : LdapProperties.getSynchronizationOrganizationUnits()) {
+                for (SearchResult searchResult : search(ldapContext, ou, filter, new Object[] { distinguishedName }, GROUP_ATTRIBUTES)) {
+                    if (!groupResultsByDistinguishedName.containsKey(searchResult.getNameInNamespace())) {
+                        log.debug("Recalculating " + searchResult.getNameInNamespace() + " containing " + distinguishedName);
+                        groupResultsByDistinguishedName.put(searchResult.getNameInNamespace(), searchResult);
+                        distinguishedNames.add(searchResult.getNameInNamespace());
+                    }
+                }
+            }
+        }
+    }
+
+    private void addExistingActors(Map<String, Actor> existingActorsMap, List<Actor> actors) {
+        for (Actor actor : actors) {
+            existingActorsMap.put(actor.getName().toLowerCase(), actor);
+        }
+    }
+
+    /**
+     * Searches entries changed since high-water mark if it is set, all entries otherwise.
+     */
+    private List<SearchResult> searchChanged(LdapContext ldapContext, String ou, String objectClassFilter, String[] attributes)
+            throws NamingException {
+        if (highWaterMark == null) {
+            return search(ldapContext, ou, objectClassFilter, new Object[0], attributes);
+        }
+        String filter = "(&" + objectClassFilter + "(" + ATTR_INCREMENTAL + ">={0}))";
+        return search(ldapContext, ou, filter, new Object[] { highWaterMark }, attributes);
+    }
+
+    private List<SearchResult> search(LdapContext ldapContext, String ou, String filter, Object[] filterArgs, String[] attributes)
+            throws NamingException {
+        SearchControls searchControls = new SearchControls();
+        searchControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+        searchControls.setReturningAttributes(attributes);
+        List<SearchResult> resultList = Lists.newArrayList();
+        byte[] cookie = null;
+        ldapContext.setRequestControls(new Control[] { new PagedResultsControl(pageSize, Control.NONCRITICAL) });
+        do {
+            NamingEnumeration<SearchResult> results = ldapContext.search(ou, filter, filterArgs, searchControls);
+            while (results.hasMoreElements()) {
+                SearchResult result = results.nextElement();
+                updateHighWaterMark(result);
+                resultList.add(result);
+            }
+            results.close();
+            Control[] controls = ldapContext.getResponseControls();
+            if (controls != null) {
+                for (Control control : controls) {
+                    if (control instanceof PagedResultsResponseControl) {
+                        PagedResultsResponseControl response = (PagedResultsResponseControl) control;
+                        cookie = response.getCookie();
+                    }
+                }
+            } else {
+                log.warn("Ldap server did not send controls for paging");
+            }
+            ldapContext.setRequestControls(new Control[] { new PagedResultsControl(pageSize, cookie, Control.CRITICAL) });
+        } while (cookie != null);
+        return resultList;
+    }
+
+    private void updateHighWaterMark(SearchResult searchResult) throws NamingException {
+        if (ATTR_INCREMENTAL == null) {
+            return;
+        }
+        String value = getStringAttribute(searchResult, ATTR_INCREMENTAL);
+        if (value != null && (newHighWaterMark == null || compareHighWaterMarks(value, newHighWaterMark) > 0)) {
+            newHighWaterMark = value;
+        }
+    }
+
+    /**
+     * Compares uSNChanged as numbers, generalized time strings of modifyTimestamp are ordered lexicographically.
+     */
+    private static int compareHighWaterMarks(String mark1, String mark2) {
+        if (NUMBER_PATTERN.matcher(mark1).matches() && NUMBER_PATTERN.matcher(mark2).matches()) {
+            return Long.compare(Long.parseLong(mark1), Long.parseLong(mark2));
+        }
+        return mark1.compareTo(mark2);
+    }
+
+    private static String[] getAttributeNames(String... names) {
+        Set<String> result = Sets.newLinkedHashSet();
+        for (String name : names) {
+            if (!Strings.isNullOrEmpty(name)) {
+                result.add(name);
+            }
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
     private boolean isAttributeNeedsChange(String oldValue, String newValue) {
         if (LdapProperties.isSynchronizationEmptyAttributeEnabled() || !Strings.isNullOrEmpty(oldValue)) {
             return !Utils.stringsEqual(oldValue, newValue);
@@ -363,7 +484,7 @@ public class LdapLogic {
         return patternForMissedPeople;
     }
 
-    private LdapContext getContext() throws NamingException {
+    protected LdapContext getContext() throws NamingException {
         Hashtable<String, String> env = new Hashtable<>(LdapProperties.getAllProperties());
         return new InitialLdapContext(env, null);
     }
@@ -389,42 +510,133 @@ public class LdapLogic {
         return null;
     }
 
-    private void fillTargetActorsRecursively(LdapContext ldapContext, Set<Actor> recursiveActors, SearchResult searchResult,
-            Map<String, SearchResult> groupResultsByDistinguishedName, Map<String, Actor> actorsByDistinguishedName) throws NamingException {
-        NamingEnumeration<String> namingEnum = (NamingEnumeration<String>) searchResult.getAttributes().get(ATTR_GROUP_MEMBER).getAll();
+    /**
+     * Resolves group members which are neither read actors nor groups (unchanged entries in incremental synchronization, entries outside of
+     * organization units): they are read from directory by batched searches and actors are loaded from database at once. Nested groups found
+     * are added to groups map and their members are resolved the same way.
+     */
+    private void resolveMembers(LdapContext ldapContext, Map<String, SearchResult> groupResultsByDistinguishedName,
+            Map<String, Actor> actorsByDistinguishedName) throws NamingException {
+        Set<String> resolvedDistinguishedNames = Sets.newHashSet();
+        List<SearchResult> groupResults = Lists.newArrayList(groupResultsByDistinguishedName.values());
+        while (!groupResults.isEmpty()) {
+            Set<String> distinguishedNames = Sets.newLinkedHashSet();
+            for (SearchResult groupResult : groupResults) {
+                Attribute memberAttribute = groupResult.getAttributes().get(ATTR_GROUP_MEMBER);
+                if (memberAttribute == null) {
+                    continue;
+                }
+                NamingEnumeration<String> namingEnum = (NamingEnumeration<String>) memberAttribute.getAll();
+                while (namingEnum.hasMore()) {
+                    String distinguishedName = namingEnum.next();
+                    if (!groupResultsByDistinguishedName.containsKey(distinguishedName) && !actorsByDistinguishedName.containsKey(distinguishedName)
+                            && resolvedDistinguishedNames.add(distinguishedName)) {
+                        distinguishedNames.add(distinguishedName);
+                    }
+                }
+            }
+            groupResults.clear();
+            if (distinguishedNames.isEmpty()) {
+                break;
+            }
+            Map<String, Attributes> attributesByDistinguishedName = searchMembers(ldapContext, distinguishedNames);
+            Map<String, String> actorNamesByDistinguishedName = Maps.newHashMap();
+            for (String distinguishedName : distinguishedNames) {
+                Attributes attributes = attributesByDistinguishedName.get(distinguishedName);
+                String executorPath = getPatternForMissedPeople().matcher(distinguishedName).replaceAll("");
+                if (attributes == null) {
+                    log.debug("Executor " + distinguishedName + " fetched by invocation");
+                    attributes = ldapContext.getAttributes(executorPath, MEMBER_ATTRIBUTES);
+                }
+                if (isGroup(attributes)) {
+                    // nested group is not read by incremental synchronization if it is not changed
+                    SearchResult groupResult = new SearchResult(executorPath, null, attributes);
+                    groupResult.setNameInNamespace(distinguishedName);
+                    groupResultsByDistinguishedName.put(distinguishedName, groupResult);
+                    groupResults.add(groupResult);
+                    continue;
+                }
+                Attribute samAttribute = attributes.get(ATTR_ACCOUNT_NAME);
+                if (samAttribute != null) {
+                    actorNamesByDistinguishedName.put(distinguishedName, samAttribute.get().toString().toLowerCase());
+                } else {
+                    log.warn("Not found '" + distinguishedName + "' neither in group or actor maps or by invocation");
+                }
+            }
+            if (actorNamesByDistinguishedName.isEmpty()) {
+                continue;
+            }
+            Map<String, Actor> actorsByName = Maps.newHashMap();
+            addExistingActors(actorsByName, executorDao.getActorsByLowerCaseNames(Sets.newHashSet(actorNamesByDistinguishedName.values())));
+            for (Map.Entry<String, String> entry : actorNamesByDistinguishedName.entrySet()) {
+                Actor actor = actorsByName.get(entry.getValue());
+                if (actor != null) {
+                    actorsByDistinguishedName.put(entry.getKey(), actor);
+                } else {
+                    log.warn("Actor '" + entry.getValue() + "' does not exist for '" + entry.getKey() + "'");
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads entries by distinguished names with one search per batch; entries which are not found (outside of organization units or by
+     * directory without distinguishedName attribute) are missed in result.
+     */
+    private Map<String, Attributes> searchMembers(LdapContext ldapContext, Set<String> distinguishedNames) throws NamingException {
+        Map<String, Attributes> result = Maps.newHashMap();
+        for (List<String> batch : Lists.partition(Lists.newArrayList(distinguishedNames), MEMBERS_SEARCH_BATCH_SIZE)) {
+            StringBuilder filter = new StringBuilder("(|");
+            for (int i = 0; i < batch.size(); i++) {
+                filter.append("(").append(ATTR_DISTINGUISHED_NAME).append("={").append(i).append("})");
+            }
+            filter.append(")");
+            for (String ou : LdapProperties.getSynchronizationOrganizationUnits()) {
+                for (SearchResult searchResult : search(ldapContext, ou, filter.toString(), batch.toArray(), MEMBER_ATTRIBUTES)) {
+                    result.put(searchResult.getNameInNamespace(), searchResult.getAttributes());
+                }
+            }
+        }
+        return result;
+    }
+
+    private void fillTargetActorsRecursively(Set<Actor> recursiveActors, SearchResult searchResult,
+            Map<String, SearchResult> groupResultsByDistinguishedName, Map<String, Actor> actorsByDistinguishedName, Set<String> visitedGroups)
+            throws NamingException {
+        Attribute memberAttribute = searchResult.getAttributes().get(ATTR_GROUP_MEMBER);
+        if (memberAttribute == null || !visitedGroups.add(searchResult.getNameInNamespace())) {
+            return;
+        }
+        NamingEnumeration<String> namingEnum = (NamingEnumeration<String>) memberAttribute.getAll();
         while (namingEnum.hasMore()) {
             String executorDistinguishedName = namingEnum.next();
             SearchResult groupSearchResult = groupResultsByDistinguishedName.get(executorDistinguishedName);
             if (groupSearchResult != null) {
-                fillTargetActorsRecursively(ldapContext, recursiveActors, groupSearchResult, groupResultsByDistinguishedName,
-                        actorsByDistinguishedName);
+                fillTargetActorsRecursively(recursiveActors, groupSearchResult, groupResultsByDistinguishedName, actorsByDistinguishedName,
+                        visitedGroups);
             } else {
                 Actor actor = actorsByDistinguishedName.get(executorDistinguishedName);
                 if (actor != null) {
                     recursiveActors.add(actor);
-                } else {
-                    Matcher m = getPatternForMissedPeople().matcher(executorDistinguishedName);
-                    String executorPath = m.replaceAll("");
-                    Attribute samAttribute = ldapContext.getAttributes(executorPath).get(ATTR_ACCOUNT_NAME);
-                    if (samAttribute != null) {
-                        String executorName = samAttribute.get().toString();
-                        log.debug("Executor name " + executorDistinguishedName + " fetched by invocation: " + executorName);
-                        try {
-                            Executor executor = executorDao.getExecutor(executorName);
-                            if (executor instanceof Actor) {
-                                recursiveActors.add((Actor) executor);
-                            }
-                        } catch (ExecutorDoesNotExistException e) {
-                            log.warn(e.getMessage() + " for '" + executorDistinguishedName + "'");
-                        }
-                    } else {
-                        log.warn("Not found '" + executorDistinguishedName + "' neither in group or actor maps or by invocation");
-                    }
                 }
             }
         }
     }
 
+    private boolean isGroup(Attributes attributes) throws NamingException {
+        Attribute objectClassAttribute = attributes.get(ATTR_OBJECT_CLASS);
+        if (objectClassAttribute == null) {
+            return false;
+        }
+        NamingEnumeration<?> objectClasses = objectClassAttribute.getAll();
+        while (objectClasses.hasMore()) {
+            if (LdapProperties.getSynchronizationGroupObjectClass().equalsIgnoreCase(objectClasses.next().toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private interface IChange {
 
     }
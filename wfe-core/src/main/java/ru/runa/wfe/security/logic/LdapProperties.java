@@ -116,4 +116,18 @@ public class LdapProperties {
         return RESOURCES.getBooleanProperty("synchronization.user.status.enabled", false);
     }
 
+    /**
+     * Whether scheduled synchronization reads only entries changed since previous synchronization.
+     */
+    public static boolean isSynchronizationIncrementalEnabled() {
+        return RESOURCES.getBooleanProperty("synchronization.incremental.enabled", false);
+    }
+
+    /**
+     * Entry attribute growing on each change (modifyTimestamp, uSNChanged), its greatest read value is stored as synchronization high-water mark.
+     */
+    public static String getSynchronizationIncrementalAttribute() {
+        return RESOURCES.getStringProperty("synchronization.incremental.attribute", "modifyTimestamp");
+    }
+
 }
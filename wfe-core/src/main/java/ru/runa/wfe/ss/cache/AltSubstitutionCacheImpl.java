@@ -29,6 +29,7 @@ import ru.runa.wfe.commons.cache.BaseCacheImpl;
 import ru.runa.wfe.commons.cache.Cache;
 import ru.runa.wfe.commons.cache.Change;
 import ru.runa.wfe.commons.cache.ChangedObjectParameter;
+import ru.runa.wfe.commons.cache.sm.CacheInitializationProcessContextStub;
 import ru.runa.wfe.execution.logic.SwimlaneInitializerHelper;
 import ru.runa.wfe.presentation.BatchPresentationFactory;
 import ru.runa.wfe.ss.Substitution;
@@ -50,11 +51,15 @@ class AltSubstitutionCacheImpl extends BaseCacheImpl implements SubstitutionCach
     public AltSubstitutionCacheImpl() {
         actorToSubstitutorsCache = createCache(substitutorsName, true);
         actorToSubstitutedCache = createCache(substitutedName, true);
+        Map<Long, TreeMap<Substitution, HashSet<Long>>> actorToSubstitutors = SubstitutionCacheBuilder.createForAllActors().getActorToSubstitutors(
+                substitutionDao.getEnabledOfInactiveActors(), new CacheInitializationProcessContextStub());
         for (Actor actor : executorDao.getAllActors(BatchPresentationFactory.ACTORS.createNonPaged())) {
-            if (!actor.isActive()) {
-                loadCacheFor(actor.getId());
+            if (!actor.isActive() && !actorToSubstitutors.containsKey(actor.getId())) {
+                actorToSubstitutors.put(actor.getId(), new TreeMap<Substitution, HashSet<Long>>());
             }
         }
+        actorToSubstitutorsCache.putAll(actorToSubstitutors);
+        actorToSubstitutedCache.putAll(SubstitutionCacheBuilder.getActorToSubstituted(actorToSubstitutors));
     }
 
     private HashSet<Long> loadCacheFor(Long actorId, Substitution substitution) {
@@ -6,4 +6,13 @@ import ru.runa.wfe.commons.cache.CacheImplementation;
  * Internal interface for substitution cache implementations.
  */
 interface ManageableSubstitutionCache extends CacheImplementation, SubstitutionCache {
+
+    /**
+     * Reloads substitution rules of actors, changed after cache initialization or last call.
+     *
+     * @param changes
+     *            Committed substitution changes.
+     * @return Returns false, if some changes is not kept anymore and cache must be rebuilt, and true otherwise.
+     */
+    boolean applyChanges(SubstitutionChanges changes);
 }
@@ -0,0 +1,247 @@
+package ru.runa.wfe.ss.cache;
+
+import com.google.common.base.Function;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import ru.runa.wfe.commons.ApplicationContextFactory;
+import ru.runa.wfe.commons.cache.sm.CacheInitializationProcessContext;
+import ru.runa.wfe.execution.logic.SwimlaneInitializerHelper;
+import ru.runa.wfe.ss.Substitution;
+import ru.runa.wfe.ss.TerminatorSubstitution;
+import ru.runa.wfe.user.Actor;
+import ru.runa.wfe.user.Executor;
+import ru.runa.wfe.user.Group;
+import ru.runa.wfe.user.dao.ExecutorDao;
+
+/**
+ * Builds substitution cache maps from loaded substitutions.
+ *
+ * Group actors are resolved from group membership, loaded by two bulk queries, instead of query per group; resolved groups are kept as sorted
+ * arrays of actor ids. Substitution organization function is evaluated once for all substitutions with same function, such substitutions share
+ * substitutors set, so substitutors sets must not be modified.
+ */
+class SubstitutionCacheBuilder {
+    private static final Log log = LogFactory.getLog(SubstitutionCacheBuilder.class);
+
+    private static final Function<String, List<? extends Executor>> ORG_FUNCTION_EVALUATOR = new Function<String, List<? extends Executor>>() {
+
+        @Override
+        public List<? extends Executor> apply(String orgFunction) {
+            return SwimlaneInitializerHelper.evaluate(orgFunction, null);
+        }
+    };
+
+    private final Function<String, List<? extends Executor>> orgFunctionEvaluator;
+
+    /**
+     * Direct actor members by group id.
+     */
+    private final Map<Long, long[]> groupActorIds;
+
+    /**
+     * Direct group members by group id.
+     */
+    private final Map<Long, long[]> groupGroupIds;
+
+    /**
+     * All (recursive) actor members by group id, sorted.
+     */
+    private final Map<Long, long[]> groupActorIdsAll = new HashMap<>();
+
+    private final Map<String, HashSet<Long>> orgFunctionSubstitutors = new HashMap<>();
+
+    /**
+     * @param orgFunctionEvaluator
+     *            Evaluates substitution organization function to actors and groups.
+     * @param groupActorIds
+     *            Direct actor members by group id.
+     * @param groupGroupIds
+     *            Direct group members by group id.
+     */
+    SubstitutionCacheBuilder(Function<String, List<? extends Executor>> orgFunctionEvaluator, Map<Long, long[]> groupActorIds,
+            Map<Long, long[]> groupGroupIds) {
+        this.orgFunctionEvaluator = orgFunctionEvaluator;
+        this.groupActorIds = groupActorIds;
+        this.groupGroupIds = groupGroupIds;
+    }
+
+    /**
+     * Creates builder for all actors substitutions: loads membership of all groups.
+     */
+    static SubstitutionCacheBuilder createForAllActors() {
+        ExecutorDao executorDao = ApplicationContextFactory.getExecutorDAO();
+        return new SubstitutionCacheBuilder(ORG_FUNCTION_EVALUATOR, executorDao.getGroupsActorMemberIds(), executorDao.getGroupsGroupMemberIds());
+    }
+
+    /**
+     * Creates builder for few actors substitutions: group actors are loaded through {@link ExecutorDao} (and it cache) for used groups only.
+     */
+    static SubstitutionCacheBuilder createForActors() {
+        final ExecutorDao executorDao = ApplicationContextFactory.getExecutorDAO();
+        return new SubstitutionCacheBuilder(ORG_FUNCTION_EVALUATOR, null, null) {
+
+            @Override
+            protected long[] getGroupActorIds(Group group) {
+                Set<Actor> actors = executorDao.getGroupActors(group);
+                long[] result = new long[actors.size()];
+                int index = 0;
+                for (Actor actor : actors) {
+                    result[index++] = actor.getId();
+                }
+                Arrays.sort(result);
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Builds map from actor id to it enabled substitution rules and actors, which may substitute key actor by rule (null for terminator rule).
+     *
+     * @param substitutions
+     *            Substitution rules of inactive actors.
+     * @param initializationContext
+     *            Cache initialization context; building is stopped, if initialization is not required anymore.
+     */
+    Map<Long, TreeMap<Substitution, HashSet<Long>>> getActorToSubstitutors(Collection<Substitution> substitutions,
+            CacheInitializationProcessContext initializationContext) {
+        Map<Long, TreeMap<Substitution, HashSet<Long>>> result = new HashMap<>();
+        for (Substitution substitution : substitutions) {
+            if (!initializationContext.isInitializationStillRequired()) {
+                return result;
+            }
+            if (!substitution.isEnabled()) {
+                continue;
+            }
+            TreeMap<Substitution, HashSet<Long>> subDescr = result.get(substitution.getActorId());
+            if (subDescr == null) {
+                subDescr = new TreeMap<Substitution, HashSet<Long>>();
+                result.put(substitution.getActorId(), subDescr);
+            }
+            if (substitution instanceof TerminatorSubstitution) {
+                subDescr.put(substitution, null);
+                continue;
+            }
+            try {
+                subDescr.put(substitution, getSubstitutors(substitution.getOrgFunction()));
+            } catch (Exception e) {
+                log.error("Error in " + substitution, e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Builds map from actor id to all actors, which may be substituted by key actor.
+     *
+     * @param actorToSubstitutors
+     *            Substitution rules of inactive actors, built by {@link #getActorToSubstitutors(Collection, CacheInitializationProcessContext)}.
+     */
+    static Map<Long, HashSet<Long>> getActorToSubstituted(Map<Long, TreeMap<Substitution, HashSet<Long>>> actorToSubstitutors) {
+        Map<Long, HashSet<Long>> result = new HashMap<>();
+        for (Map.Entry<Long, TreeMap<Substitution, HashSet<Long>>> entry : actorToSubstitutors.entrySet()) {
+            for (HashSet<Long> substitutors : entry.getValue().values()) {
+                if (substitutors == null) {
+                    continue;
+                }
+                for (Long substitutor : substitutors) {
+                    HashSet<Long> set = result.get(substitutor);
+                    if (set == null) {
+                        set = new HashSet<>();
+                        result.put(substitutor, set);
+                    }
+                    set.add(entry.getKey());
+                }
+            }
+        }
+        return result;
+    }
+
+    private HashSet<Long> getSubstitutors(String orgFunction) {
+        HashSet<Long> result = orgFunctionSubstitutors.get(orgFunction);
+        if (result != null) {
+            return result;
+        }
+        result = new HashSet<>();
+        for (Executor executor : orgFunctionEvaluator.apply(orgFunction)) {
+            if (executor instanceof Actor) {
+                result.add(executor.getId());
+            } else {
+                for (long actorId : getGroupActorIds((Group) executor)) {
+                    result.add(actorId);
+                }
+            }
+        }
+        orgFunctionSubstitutors.put(orgFunction, result);
+        return result;
+    }
+
+    /**
+     * Returns all (recursive) group actors.
+     *
+     * @return Sorted actor ids.
+     */
+    protected long[] getGroupActorIds(Group group) {
+        return getGroupActorIds(group.getId());
+    }
+
+    long[] getGroupActorIds(Long groupId) {
+        long[] result = groupActorIdsAll.get(groupId);
+        if (result != null) {
+            return result;
+        }
+        long[] actorIds = new long[16];
+        int size = 0;
+        Set<Long> visitedGroupIds = new HashSet<>();
+        Deque<Long> groupIds = new ArrayDeque<>();
+        visitedGroupIds.add(groupId);
+        groupIds.add(groupId);
+        while (!groupIds.isEmpty()) {
+            Long id = groupIds.poll();
+            // Resolved subgroup already contains actors of it subgroups
+            long[] resolvedActorIds = groupActorIdsAll.get(id);
+            long[] memberIds = resolvedActorIds != null ? resolvedActorIds : groupActorIds.get(id);
+            if (memberIds != null) {
+                if (size + memberIds.length > actorIds.length) {
+                    actorIds = Arrays.copyOf(actorIds, Math.max(actorIds.length * 2, size + memberIds.length));
+                }
+                System.arraycopy(memberIds, 0, actorIds, size, memberIds.length);
+                size += memberIds.length;
+            }
+            if (resolvedActorIds != null) {
+                continue;
+            }
+            long[] subgroupIds = groupGroupIds.get(id);
+            if (subgroupIds != null) {
+                for (long subgroupId : subgroupIds) {
+                    if (visitedGroupIds.add(subgroupId)) {
+                        groupIds.add(subgroupId);
+                    }
+                }
+            }
+        }
+        result = distinct(actorIds, size);
+        groupActorIdsAll.put(groupId, result);
+        return result;
+    }
+
+    private static long[] distinct(long[] ids, int size) {
+        Arrays.sort(ids, 0, size);
+        int distinctSize = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinctSize == 0 || ids[distinctSize - 1] != ids[i]) {
+                ids[distinctSize++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, distinctSize);
+    }
+}
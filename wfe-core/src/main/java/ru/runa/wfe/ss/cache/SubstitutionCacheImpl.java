@@ -20,7 +20,6 @@ package ru.runa.wfe.ss.cache;
 import com.google.common.collect.Maps;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -31,15 +30,12 @@ import ru.runa.wfe.commons.cache.BaseCacheImpl;
 import ru.runa.wfe.commons.cache.Cache;
 import ru.runa.wfe.commons.cache.Change;
 import ru.runa.wfe.commons.cache.ChangedObjectParameter;
-import ru.runa.wfe.execution.logic.SwimlaneInitializerHelper;
+import ru.runa.wfe.commons.cache.sm.CacheInitializationProcessContextStub;
 import ru.runa.wfe.presentation.BatchPresentationFactory;
 import ru.runa.wfe.ss.Substitution;
-import ru.runa.wfe.ss.TerminatorSubstitution;
 import ru.runa.wfe.ss.dao.SubstitutionDao;
 import ru.runa.wfe.user.Actor;
-import ru.runa.wfe.user.Executor;
 import ru.runa.wfe.user.ExecutorDoesNotExistException;
-import ru.runa.wfe.user.Group;
 import ru.runa.wfe.user.dao.ExecutorDao;
 
 class SubstitutionCacheImpl extends BaseCacheImpl implements ManageableSubstitutionCache {
@@ -55,7 +51,7 @@ class SubstitutionCacheImpl extends BaseCacheImpl implements ManageableSubstitut
         actorToSubstitutorsCache = createCache(substitutorsName, true);
         actorToSubstitutedCache = createCache(substitutedName, true);
         Map<Long, TreeMap<Substitution, HashSet<Long>>> actorToSubstitutors = getMapActorToSubstitutors();
-        Map<Long, HashSet<Long>> actorToSubstituted = getMapActorToSubstituted(actorToSubstitutors);
+        Map<Long, HashSet<Long>> actorToSubstituted = SubstitutionCacheBuilder.getActorToSubstituted(actorToSubstitutors);
         for (Actor actor : executorDao.getAllActors(BatchPresentationFactory.ACTORS.createNonPaged())) {
             if (actorToSubstituted.get(actor.getId()) == null) {
                 actorToSubstituted.put(actor.getId(), new HashSet<Long>());
@@ -117,49 +113,13 @@ class SubstitutionCacheImpl extends BaseCacheImpl implements ManageableSubstitut
     }
 
     private Map<Long, TreeMap<Substitution, HashSet<Long>>> getMapActorToSubstitutors() {
-        Map<Long, TreeMap<Substitution, HashSet<Long>>> result = Maps.newHashMap();
         try {
-            for (Substitution substitution : substitutionDao.getAll()) {
-                try {
-                    Long actorId;
-                    try {
-                        actorId = executorDao.getActor(substitution.getActorId()).getId();
-                    } catch (ExecutorDoesNotExistException e) {
-                        log.error("in " + substitution + ": " + e);
-                        continue;
-                    }
-                    if (!substitution.isEnabled()) {
-                        continue;
-                    }
-                    TreeMap<Substitution, HashSet<Long>> subDescr = result.get(actorId);
-                    if (subDescr == null) {
-                        subDescr = new TreeMap<Substitution, HashSet<Long>>();
-                        result.put(actorId, subDescr);
-                    }
-                    if (substitution instanceof TerminatorSubstitution) {
-                        subDescr.put(substitution, null);
-                        continue;
-                    }
-                    List<? extends Executor> executors = SwimlaneInitializerHelper.evaluate(substitution.getOrgFunction(), null);
-                    HashSet<Long> substitutors = new HashSet<Long>();
-                    for (Executor sub : executors) {
-                        if (sub instanceof Actor) {
-                            substitutors.add(sub.getId());
-                        } else {
-                            for (Actor groupActor : executorDao.getGroupActors((Group) sub)) {
-                                substitutors.add(groupActor.getId());
-                            }
-                        }
-                    }
-                    subDescr.put(substitution, substitutors);
-                } catch (Exception e) {
-                    log.error("Error in " + substitution, e);
-                }
-            }
+            return SubstitutionCacheBuilder.createForAllActors().getActorToSubstitutors(substitutionDao.getEnabledOfInactiveActors(),
+                    new CacheInitializationProcessContextStub());
         } catch (Throwable th) {
             log.error("in substitution", th);
+            return Maps.newHashMap();
         }
-        return result;
     }
 
     private Map<Long, HashSet<Long>> getMapActorToSubstituted(Cache<Long, TreeMap<Substitution, HashSet<Long>>> mapActorToSubstitutors) {
@@ -189,32 +149,9 @@ class SubstitutionCacheImpl extends BaseCacheImpl implements ManageableSubstitut
         return result;
     }
 
-    private Map<Long, HashSet<Long>> getMapActorToSubstituted(Map<Long, TreeMap<Substitution, HashSet<Long>>> mapActorToSubstitutors) {
-        Map<Long, HashSet<Long>> result = new HashMap<Long, HashSet<Long>>();
-        for (Map.Entry<Long, TreeMap<Substitution, HashSet<Long>>> entry1 : mapActorToSubstitutors.entrySet()) {
-            final Long substitutedId = entry1.getKey();
-            try {
-                Actor substitutedActor = executorDao.getActor(substitutedId);
-                if (substitutedActor.isActive()) {
-                    continue;
-                }
-                for (HashSet<Long> substitutors : entry1.getValue().values()) {
-                    if (substitutors == null) {
-                        continue;
-                    }
-                    for (Long substitutor : substitutors) {
-                        HashSet<Long> set = result.get(substitutor);
-                        if (set == null) {
-                            set = new HashSet<>();
-                            result.put(substitutor, set);
-                        }
-                        set.add(substitutedActor.getId());
-                    }
-                }
-            } catch (ExecutorDoesNotExistException e) {
-            }
-        }
-        return result;
+    @Override
+    public boolean applyChanges(SubstitutionChanges changes) {
+        return true;
     }
 
     @Override
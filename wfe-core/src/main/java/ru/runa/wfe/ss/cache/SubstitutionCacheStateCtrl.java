@@ -1,10 +1,18 @@
 package ru.runa.wfe.ss.cache;
 
+import com.google.common.base.Objects;
+import com.google.common.collect.Maps;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.transaction.Transaction;
+import ru.runa.wfe.commons.Utils;
+import ru.runa.wfe.commons.cache.Change;
 import ru.runa.wfe.commons.cache.ChangedObjectParameter;
 import ru.runa.wfe.commons.cache.sm.BaseCacheCtrl;
 import ru.runa.wfe.commons.cache.sm.CacheInitializationContext;
@@ -24,19 +32,48 @@ import ru.runa.wfe.user.TemporaryGroup;
  */
 class SubstitutionCacheStateCtrl extends BaseCacheCtrl<ManageableSubstitutionCache, DefaultStateContext> implements SubstitutionCache {
 
+    /**
+     * Committed changes, which is applied to cache without rebuild.
+     */
+    private final SubstitutionChanges changes;
+
+    /**
+     * Changes, made by transactions, which is tracked without cache state machine notification.
+     */
+    private final ConcurrentMap<Transaction, TrackedChanges> trackedTransactions = Maps.newConcurrentMap();
+
     public SubstitutionCacheStateCtrl() {
-        super(new NonRuntimeSubstitutionCacheFactory(), createListenObjectTypes());
-        CachingLogic.registerChangeListener(this);
+        this(new NonRuntimeSubstitutionCacheFactory(new SubstitutionChanges()));
     }
 
     public SubstitutionCacheStateCtrl(boolean fakeBooleanUseStaticCache) {
-        super(new SubstitutionCacheFactory(), createListenObjectTypes());
+        this(new SubstitutionCacheFactory(new SubstitutionChanges()));
+    }
+
+    private SubstitutionCacheStateCtrl(NonRuntimeSubstitutionCacheFactory factory) {
+        super(factory, createListenObjectTypes());
+        this.changes = factory.changes;
+        CachingLogic.registerChangeListener(this);
+    }
+
+    private SubstitutionCacheStateCtrl(SubstitutionCacheFactory factory) {
+        super(factory, createListenObjectTypes());
+        this.changes = factory.changes;
         CachingLogic.registerChangeListener(this);
     }
 
     @Override
     public TreeMap<Substitution, Set<Long>> getSubstitutors(Actor actor, boolean loadIfRequired) {
-        SubstitutionCache cache = CachingLogic.getCacheImpl(stateMachine);
+        ManageableSubstitutionCache cache = CachingLogic.getCacheImpl(stateMachine);
+        if (loadIfRequired) {
+            applyChanges(cache);
+            Set<Long> transactionActorIds = getTransactionActorIds();
+            if (transactionActorIds != null && transactionActorIds.contains(actor.getId())) {
+                TreeMap<Substitution, HashSet<Long>> result = SubstitutionCacheStateImpl.loadSubstitutors(Collections.singleton(actor.getId())).get(
+                        actor.getId());
+                return result != null ? new TreeMap<Substitution, Set<Long>>(result) : new TreeMap<Substitution, Set<Long>>();
+            }
+        }
         return cache.getSubstitutors(actor, loadIfRequired);
     }
 
@@ -48,8 +85,25 @@ class SubstitutionCacheStateCtrl extends BaseCacheCtrl<ManageableSubstitutionCac
 
     @Override
     public Set<Long> getSubstituted(Actor actor) {
-        SubstitutionCache cache = CachingLogic.getCacheImpl(stateMachine);
-        return cache.getSubstituted(actor);
+        ManageableSubstitutionCache cache = CachingLogic.getCacheImpl(stateMachine);
+        applyChanges(cache);
+        Set<Long> result = cache.getSubstituted(actor);
+        Set<Long> transactionActorIds = getTransactionActorIds();
+        if (transactionActorIds == null) {
+            return result;
+        }
+        // Substitution rules of actors, changed by current transaction, is not in cache yet.
+        result = new HashSet<Long>(result);
+        result.removeAll(transactionActorIds);
+        for (Map.Entry<Long, TreeMap<Substitution, HashSet<Long>>> entry : SubstitutionCacheStateImpl.loadSubstitutors(transactionActorIds)
+                .entrySet()) {
+            for (HashSet<Long> substitutors : entry.getValue().values()) {
+                if (substitutors != null && substitutors.contains(actor.getId())) {
+                    result.add(entry.getKey());
+                }
+            }
+        }
+        return result;
     }
 
     @Override
@@ -61,7 +115,106 @@ class SubstitutionCacheStateCtrl extends BaseCacheCtrl<ManageableSubstitutionCac
                 && ((ExecutorGroupMembership) changedObject.object).getGroup() instanceof TemporaryGroup) {
             return false;
         }
-        return super.onChange(transaction, changedObject);
+        TrackedChanges trackedChanges = trackedTransactions.get(transaction);
+        if (trackedChanges != null && trackedChanges.delegatedToStateMachine) {
+            return super.onChange(transaction, changedObject);
+        }
+        Set<Long> affectedActors = getAffectedActors(changedObject);
+        if (trackedChanges == null) {
+            trackedChanges = new TrackedChanges();
+            trackedTransactions.put(transaction, trackedChanges);
+        }
+        if (affectedActors == null) {
+            trackedChanges.delegatedToStateMachine = true;
+            return super.onChange(transaction, changedObject);
+        }
+        trackedChanges.affectedActors.addAll(affectedActors);
+        return true;
+    }
+
+    @Override
+    public void beforeTransactionComplete(Transaction transaction) {
+        TrackedChanges trackedChanges = trackedTransactions.get(transaction);
+        if (trackedChanges == null || trackedChanges.delegatedToStateMachine) {
+            super.beforeTransactionComplete(transaction);
+        }
+    }
+
+    @Override
+    public void onTransactionCompleted(Transaction transaction) {
+        TrackedChanges trackedChanges = trackedTransactions.remove(transaction);
+        if (trackedChanges == null || trackedChanges.delegatedToStateMachine) {
+            super.onTransactionCompleted(transaction);
+            return;
+        }
+        // Rolled back changes is registered too: actors reloading is not changes cache state in this case.
+        changes.add(trackedChanges.affectedActors);
+        // Dependent caches may be filled with substitutions before changes is applied.
+        CachingLogic.resetCaches(SubstitutionCacheStateImpl.class);
+    }
+
+    private void applyChanges(ManageableSubstitutionCache cache) {
+        if (!cache.applyChanges(changes)) {
+            log.warn("Substitution changes are lost, cache is rebuilt");
+            stateMachine.dropCache();
+        }
+    }
+
+    /**
+     * Returns actors, which substitution rules is changed by current transaction, or null, if transaction is not tracked.
+     */
+    private Set<Long> getTransactionActorIds() {
+        if (trackedTransactions.isEmpty()) {
+            return null;
+        }
+        Transaction transaction = Utils.getTransaction();
+        if (transaction == null) {
+            return null;
+        }
+        TrackedChanges trackedChanges = trackedTransactions.get(transaction);
+        if (trackedChanges == null || trackedChanges.delegatedToStateMachine) {
+            return null;
+        }
+        return trackedChanges.affectedActors;
+    }
+
+    /**
+     * Computes actors, which substitution rules is affected by change.
+     *
+     * @return Actors identities or null, if affected actors can't be computed and whole cache must be rebuilt.
+     */
+    private static Set<Long> getAffectedActors(ChangedObjectParameter changedObject) {
+        Object object = changedObject.object;
+        if (object instanceof Substitution) {
+            Set<Long> result = new HashSet<Long>();
+            result.add(((Substitution) object).getActorId());
+            if (changedObject.previousState != null) {
+                result.add((Long) changedObject.previousState[changedObject.getPropertyIndex("actorId")]);
+            }
+            return result;
+        }
+        if (object instanceof Actor && changedObject.changeType == Change.UPDATE && isActiveFlagChangeOnly(changedObject)) {
+            return Collections.singleton(((Actor) object).getId());
+        }
+        // Group membership or actor properties may be used by organization functions.
+        return null;
+    }
+
+    private static boolean isActiveFlagChangeOnly(ChangedObjectParameter changedObject) {
+        if (changedObject.previousState == null || changedObject.currentState == null) {
+            return false;
+        }
+        int activeIndex = changedObject.getPropertyIndex("active");
+        int versionIndex = changedObject.getPropertyIndex("version");
+        for (int index = 0; index < changedObject.currentState.length; index++) {
+            if (index == activeIndex || index == versionIndex) {
+                continue;
+            }
+            if (!Objects.equal(changedObject.currentState[index], changedObject.previousState[index])) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private static final List<ListenObjectDefinition> createListenObjectTypes() {
@@ -74,15 +227,34 @@ class SubstitutionCacheStateCtrl extends BaseCacheCtrl<ManageableSubstitutionCac
         return result;
     }
 
+    /**
+     * Changes, made by transaction in change tracking mode.
+     */
+    private static class TrackedChanges {
+        /**
+         * Actors, which substitution rules is affected by transaction.
+         */
+        private final Set<Long> affectedActors = new HashSet<Long>();
+        /**
+         * Flag, equals true, if affected actors can't be computed for some change and cache state machine is notified about transaction.
+         */
+        private boolean delegatedToStateMachine;
+    }
+
     /**
      * Static factory. It creates on the fly by demand and it state is always equals to database state. May leads to high delay if many executors and
      * substitutions is used. It's recommend to use {@link NonRuntimeSubstitutionCacheFactory}.
      */
     private static class SubstitutionCacheFactory implements StaticCacheFactory<ManageableSubstitutionCache> {
+        private final SubstitutionChanges changes;
+
+        SubstitutionCacheFactory(SubstitutionChanges changes) {
+            this.changes = changes;
+        }
 
         @Override
         public ManageableSubstitutionCache buildCache() {
-            return new SubstitutionCacheStateImpl(true, false, null);
+            return new SubstitutionCacheStateImpl(true, false, null, changes);
         }
     }
 
@@ -90,15 +262,20 @@ class SubstitutionCacheStateCtrl extends BaseCacheCtrl<ManageableSubstitutionCac
      * Non runtime factory. It creates on background and cache state may differs from database state for some time.
      */
     private static class NonRuntimeSubstitutionCacheFactory implements NonRuntimeCacheFactory<ManageableSubstitutionCache> {
+        private final SubstitutionChanges changes;
+
+        NonRuntimeSubstitutionCacheFactory(SubstitutionChanges changes) {
+            this.changes = changes;
+        }
 
         @Override
         public ManageableSubstitutionCache createProxy() {
-            return new SubstitutionCacheStateImpl(false, true, null);
+            return new SubstitutionCacheStateImpl(false, true, null, changes);
         }
 
         @Override
         public ManageableSubstitutionCache buildCache(CacheInitializationContext<ManageableSubstitutionCache> context) {
-            return new SubstitutionCacheStateImpl(true, true, context);
+            return new SubstitutionCacheStateImpl(true, true, context, changes);
         }
     }
 }
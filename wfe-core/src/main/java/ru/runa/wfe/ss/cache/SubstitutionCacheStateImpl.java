@@ -17,10 +17,9 @@
  */
 package ru.runa.wfe.ss.cache;
 
-import com.google.common.collect.Maps;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -32,14 +31,9 @@ import ru.runa.wfe.commons.cache.Cache;
 import ru.runa.wfe.commons.cache.ChangedObjectParameter;
 import ru.runa.wfe.commons.cache.sm.CacheInitializationProcessContext;
 import ru.runa.wfe.commons.cache.sm.CacheInitializationProcessContextStub;
-import ru.runa.wfe.execution.logic.SwimlaneInitializerHelper;
 import ru.runa.wfe.ss.Substitution;
-import ru.runa.wfe.ss.TerminatorSubstitution;
-import ru.runa.wfe.ss.dao.SubstitutionDao;
 import ru.runa.wfe.user.Actor;
-import ru.runa.wfe.user.Executor;
 import ru.runa.wfe.user.ExecutorDoesNotExistException;
-import ru.runa.wfe.user.Group;
 import ru.runa.wfe.user.dao.ExecutorDao;
 
 /**
@@ -74,6 +68,16 @@ public class SubstitutionCacheStateImpl extends BaseCacheImpl implements Managea
      */
     private final boolean isNonRuntime;
 
+    /**
+     * Flag, equals true, if cache contains substitutions of all actors and false, if cache is empty.
+     */
+    private boolean fullyInitialized;
+
+    /**
+     * Sequence number of last substitution change, applied to cache.
+     */
+    private long appliedChangesSequence;
+
     /**
      * Creates cache implementation for substitutions.
      *
@@ -83,8 +87,11 @@ public class SubstitutionCacheStateImpl extends BaseCacheImpl implements Managea
      *            Flag, equals true, if cache is not runtime and it state may different from database state and false otherwise.
      * @param initializationContext
      *            Cache initialization context.
+     * @param changes
+     *            Substitution changes, which is applied to cache without rebuild.
      */
-    public SubstitutionCacheStateImpl(boolean fullInitialization, boolean isNonRuntime, CacheInitializationProcessContext initializationContext) {
+    public SubstitutionCacheStateImpl(boolean fullInitialization, boolean isNonRuntime, CacheInitializationProcessContext initializationContext,
+            SubstitutionChanges changes) {
         if (initializationContext == null) {
             initializationContext = new CacheInitializationProcessContextStub();
         }
@@ -94,13 +101,20 @@ public class SubstitutionCacheStateImpl extends BaseCacheImpl implements Managea
         if (!fullInitialization) {
             return;
         }
+        // Changes, committed while cache is building, is applied to built cache.
+        appliedChangesSequence = changes.getSequence();
+        long start = System.currentTimeMillis();
         Map<Long, TreeMap<Substitution, HashSet<Long>>> actorToSubstitutors = getMapActorToSubstitutors(initializationContext);
-        Map<Long, HashSet<Long>> actorToSubstituted = getMapActorToSubstituted(actorToSubstitutors, initializationContext);
+        Map<Long, HashSet<Long>> actorToSubstituted = SubstitutionCacheBuilder.getActorToSubstituted(actorToSubstitutors);
         if (!initializationContext.isInitializationStillRequired()) {
             return;
         }
         actorToSubstitutorsCache.putAll(actorToSubstitutors);
         actorToSubstitutedCache.putAll(actorToSubstituted);
+        fullyInitialized = true;
+        if (log.isDebugEnabled()) {
+            log.debug("Substitutions of " + actorToSubstitutors.size() + " actors are loaded in " + (System.currentTimeMillis() - start) + " ms");
+        }
     }
 
     @Override
@@ -129,90 +143,92 @@ public class SubstitutionCacheStateImpl extends BaseCacheImpl implements Managea
         return new HashSet<Long>();
     }
 
-    private static Map<Long, TreeMap<Substitution, HashSet<Long>>> getMapActorToSubstitutors(
-            CacheInitializationProcessContext initializationContext) {
-        Map<Long, TreeMap<Substitution, HashSet<Long>>> result = Maps.newHashMap();
-        final ExecutorDao executorDao = ApplicationContextFactory.getExecutorDAO();
-        try {
-            final SubstitutionDao substitutionDao = ApplicationContextFactory.getSubstitutionDAO();
-            for (Substitution substitution : substitutionDao.getAll()) {
-                if (!initializationContext.isInitializationStillRequired()) {
-                    return result;
-                }
-                try {
-                    Long actorId;
-                    try {
-                        actorId = executorDao.getActor(substitution.getActorId()).getId();
-                    } catch (ExecutorDoesNotExistException e) {
-                        log.error("in " + substitution + ": " + e);
-                        continue;
-                    }
-                    if (!substitution.isEnabled()) {
-                        continue;
-                    }
-                    TreeMap<Substitution, HashSet<Long>> subDescr = result.get(actorId);
-                    if (subDescr == null) {
-                        subDescr = new TreeMap<Substitution, HashSet<Long>>();
-                        result.put(actorId, subDescr);
-                    }
-                    if (substitution instanceof TerminatorSubstitution) {
-                        subDescr.put(substitution, null);
-                        continue;
-                    }
-                    List<? extends Executor> executors = SwimlaneInitializerHelper.evaluate(substitution.getOrgFunction(), null);
-                    HashSet<Long> substitutors = new HashSet<Long>();
-                    for (Executor sub : executors) {
-                        if (sub instanceof Actor) {
-                            substitutors.add(sub.getId());
-                        } else {
-                            for (Actor groupActor : executorDao.getGroupActors((Group) sub)) {
-                                substitutors.add(groupActor.getId());
-                            }
-                        }
-                    }
-                    subDescr.put(substitution, substitutors);
-                } catch (Exception e) {
-                    log.error("Error in " + substitution, e);
+    @Override
+    public synchronized boolean applyChanges(SubstitutionChanges changes) {
+        if (!fullyInitialized) {
+            return true;
+        }
+        long sequence = changes.getSequence();
+        if (sequence == appliedChangesSequence) {
+            return true;
+        }
+        Set<Long> actorIds = changes.getActorIds(appliedChangesSequence);
+        if (actorIds == null) {
+            return false;
+        }
+        Map<Long, TreeMap<Substitution, HashSet<Long>>> actorToSubstitutors = loadSubstitutors(actorIds);
+        for (Long actorId : actorIds) {
+            TreeMap<Substitution, HashSet<Long>> substitutors = actorToSubstitutorsCache.get(actorId);
+            if (substitutors != null) {
+                updateSubstituted(actorId, substitutors, false);
+                actorToSubstitutorsCache.remove(actorId);
+            }
+        }
+        for (Map.Entry<Long, TreeMap<Substitution, HashSet<Long>>> entry : actorToSubstitutors.entrySet()) {
+            actorToSubstitutorsCache.put(entry.getKey(), entry.getValue());
+            updateSubstituted(entry.getKey(), entry.getValue(), true);
+        }
+        appliedChangesSequence = sequence;
+        log.debug("Substitutions of " + actorIds.size() + " actors are reloaded");
+        return true;
+    }
+
+    /**
+     * Loads enabled substitution rules of given actors from database. Only inactive actors with substitution rules is included in result.
+     */
+    static Map<Long, TreeMap<Substitution, HashSet<Long>>> loadSubstitutors(Collection<Long> actorIds) {
+        ExecutorDao executorDao = ApplicationContextFactory.getExecutorDAO();
+        Set<Long> inactiveActorIds = new HashSet<>();
+        for (Long actorId : actorIds) {
+            try {
+                if (!executorDao.getActor(actorId).isActive()) {
+                    inactiveActorIds.add(actorId);
                 }
+            } catch (ExecutorDoesNotExistException e) {
+                // Substitutions of deleted actor are deleted with it
             }
-        } catch (Throwable th) {
-            log.error("in substitution", th);
         }
-        return result;
+        if (inactiveActorIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return SubstitutionCacheBuilder.createForActors().getActorToSubstitutors(
+                ApplicationContextFactory.getSubstitutionDAO().getEnabledByActorIds(inactiveActorIds), new CacheInitializationProcessContextStub());
     }
 
-    private static Map<Long, HashSet<Long>> getMapActorToSubstituted(Map<Long, TreeMap<Substitution, HashSet<Long>>> mapActorToSubstitutors,
-            CacheInitializationProcessContext initializationContext) {
-        Map<Long, HashSet<Long>> result = new HashMap<Long, HashSet<Long>>();
-        final ExecutorDao executorDao = ApplicationContextFactory.getExecutorDAO();
-        for (Map.Entry<Long, TreeMap<Substitution, HashSet<Long>>> entry1 : mapActorToSubstitutors.entrySet()) {
-            final Long substitutedId = entry1.getKey();
-            // TODO why is it here?
-            if (!initializationContext.isInitializationStillRequired()) {
-                return result;
+    /**
+     * Adds or removes substituted actor to substitutors. Substituted sets is replaced, not modified, as it may be used by readers.
+     */
+    private void updateSubstituted(Long substitutedId, TreeMap<Substitution, HashSet<Long>> substitutors, boolean add) {
+        for (HashSet<Long> substitutorIds : substitutors.values()) {
+            if (substitutorIds == null) {
+                continue;
             }
-            try {
-                Actor substitutedActor = executorDao.getActor(substitutedId);
-                if (substitutedActor.isActive()) {
-                    continue;
+            for (Long substitutorId : substitutorIds) {
+                HashSet<Long> substituted = actorToSubstitutedCache.get(substitutorId);
+                HashSet<Long> updated = substituted != null ? new HashSet<>(substituted) : new HashSet<Long>();
+                if (add) {
+                    updated.add(substitutedId);
+                } else {
+                    updated.remove(substitutedId);
                 }
-                for (HashSet<Long> substitutors : entry1.getValue().values()) {
-                    if (substitutors == null) {
-                        continue;
-                    }
-                    for (Long substitutor : substitutors) {
-                        HashSet<Long> set = result.get(substitutor);
-                        if (set == null) {
-                            set = new HashSet<>();
-                            result.put(substitutor, set);
-                        }
-                        set.add(substitutedActor.getId());
-                    }
+                if (updated.isEmpty()) {
+                    actorToSubstitutedCache.remove(substitutorId);
+                } else {
+                    actorToSubstitutedCache.put(substitutorId, updated);
                 }
-            } catch (ExecutorDoesNotExistException e) {
             }
         }
-        return result;
+    }
+
+    private static Map<Long, TreeMap<Substitution, HashSet<Long>>> getMapActorToSubstitutors(
+            CacheInitializationProcessContext initializationContext) {
+        try {
+            SubstitutionCacheBuilder builder = SubstitutionCacheBuilder.createForAllActors();
+            return builder.getActorToSubstitutors(ApplicationContextFactory.getSubstitutionDAO().getEnabledOfInactiveActors(), initializationContext);
+        } catch (Throwable th) {
+            log.error("in substitution", th);
+            return new HashMap<>();
+        }
     }
 
     @Override
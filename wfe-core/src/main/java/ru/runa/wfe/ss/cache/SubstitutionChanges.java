@@ -0,0 +1,64 @@
+package ru.runa.wfe.ss.cache;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Committed substitution changes, which is applied to caches without rebuild. Every change is actors, which substitution rules must be reloaded.
+ *
+ * Cache remembers changes sequence before it initialization and applies all changes, made after it. Only last changes is kept; cache, which is
+ * not applied older changes, must be rebuilt.
+ */
+class SubstitutionChanges {
+    /**
+     * Max kept changes count.
+     */
+    private static final int MAX_CHANGES = 1000;
+
+    private long sequence;
+
+    /**
+     * Changed actors by change sequence number.
+     */
+    private final TreeMap<Long, Set<Long>> changes = new TreeMap<>();
+
+    /**
+     * Returns sequence number of last change.
+     */
+    synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Registers committed change.
+     *
+     * @param actorIds
+     *            Actors, which substitution rules is changed.
+     */
+    synchronized void add(Set<Long> actorIds) {
+        if (actorIds.isEmpty()) {
+            return;
+        }
+        changes.put(++sequence, new HashSet<>(actorIds));
+        if (changes.size() > MAX_CHANGES) {
+            changes.pollFirstEntry();
+        }
+    }
+
+    /**
+     * Returns actors, changed after given sequence number up to last change.
+     *
+     * @return Actors identities or null, if some changes after given sequence number is not kept.
+     */
+    synchronized Set<Long> getActorIds(long afterSequence) {
+        if (afterSequence < sequence - changes.size()) {
+            return null;
+        }
+        Set<Long> result = new HashSet<>();
+        for (Set<Long> actorIds : changes.tailMap(afterSequence, false).values()) {
+            result.addAll(actorIds);
+        }
+        return result;
+    }
+}
@@ -18,6 +18,8 @@
 package ru.runa.wfe.ss.dao;
 
 import com.google.common.collect.Lists;
+import com.querydsl.jpa.JPAExpressions;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import org.springframework.stereotype.Component;
@@ -26,6 +28,7 @@ import ru.runa.wfe.ss.QSubstitution;
 import ru.runa.wfe.ss.Substitution;
 import ru.runa.wfe.ss.SubstitutionDoesNotExistException;
 import ru.runa.wfe.user.Actor;
+import ru.runa.wfe.user.QActor;
 
 /**
  * DAO level interface for managing {@linkplain Substitution}'s.
@@ -80,6 +83,27 @@ public class SubstitutionDao extends GenericDao<Substitution> {
                 .fetch();
     }
 
+    /**
+     * Loads enabled {@linkplain Substitution}'s of inactive
+     * {@linkplain Actor}'s with their criteria by one query.
+     */
+    public List<Substitution> getEnabledOfInactiveActors() {
+        QSubstitution s = QSubstitution.substitution;
+        QActor a = QActor.actor;
+        return queryFactory.selectFrom(s).leftJoin(s.criteria).fetchJoin()
+                .where(s.enabled.isTrue().and(JPAExpressions.selectFrom(a).where(a.id.eq(s.actorId).and(a.active.isFalse())).exists()))
+                .fetch();
+    }
+
+    /**
+     * Loads enabled {@linkplain Substitution}'s of {@linkplain Actor}'s with
+     * their criteria by one query.
+     */
+    public List<Substitution> getEnabledByActorIds(Collection<Long> actorIds) {
+        QSubstitution s = QSubstitution.substitution;
+        return queryFactory.selectFrom(s).leftJoin(s.criteria).fetchJoin().where(s.enabled.isTrue().and(s.actorId.in(actorIds))).fetch();
+    }
+
     public void deleteAllActorSubstitutions(Long actorId) {
         List<Substitution> substitutions = getByActorId(actorId, true);
         for (Substitution substitution : substitutions) {
@@ -1,10 +1,12 @@
 package ru.runa.wfe.task.cache;
 
+import ru.runa.wfe.commons.SystemProperties;
+
 /**
  * Factory for create cache instance. It used in system.context.xml - do not remove.
  */
 final class CacheFactory {
-    private static final TaskCache TASK_CACHE = new TaskCacheStateCtrl();
+    private static final TaskCache TASK_CACHE = new TaskCacheStateCtrl(SystemProperties.useChangeTrackingTaskCache());
 
     public static TaskCache getInstance() {
         return TASK_CACHE;
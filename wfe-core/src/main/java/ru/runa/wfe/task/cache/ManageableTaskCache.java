@@ -1,7 +1,25 @@
 package ru.runa.wfe.task.cache;
 
+import java.util.Set;
 import ru.runa.wfe.commons.cache.CacheImplementation;
 
 interface ManageableTaskCache extends TaskCache, CacheImplementation {
 
+    /**
+     * Drops cached task lists for specified actors. Cache version is changed, so task lists, loaded before this call, will not be cached.
+     * 
+     * @param actorIds
+     *            Actors identities, which task lists must be dropped.
+     */
+    public void clearActorsTasks(Set<Long> actorIds);
+
+    /**
+     * Returns actors, which cached task lists is built with {@link ru.runa.wfe.presentation.BatchPresentation} dynamic field, affected by
+     * variable with specified name.
+     * 
+     * @param variableName
+     *            Variable name.
+     * @return Actors identities. Always not null.
+     */
+    public Set<Long> getActorsDependsOnVariable(String variableName);
 }
@@ -17,36 +17,59 @@
  */
 package ru.runa.wfe.task.cache;
 
+import com.google.common.collect.Sets;
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import ru.runa.wfe.commons.cache.BaseCacheImpl;
 import ru.runa.wfe.commons.cache.Cache;
+import ru.runa.wfe.commons.cache.CacheStatistic;
 import ru.runa.wfe.commons.cache.ChangedObjectParameter;
+import ru.runa.wfe.commons.cache.StatisticCounter;
 import ru.runa.wfe.commons.cache.VersionedCacheData;
 import ru.runa.wfe.presentation.BatchPresentation;
+import ru.runa.wfe.presentation.DynamicField;
 import ru.runa.wfe.task.dto.WfTask;
+import ru.runa.wfe.var.UserType;
+import ru.runa.wfe.var.format.VariableFormatContainer;
 
 class TaskCacheImpl extends BaseCacheImpl implements ManageableTaskCache {
     public static final String taskCacheName = "ru.runa.wfe.task.cache.taskLists";
+    /**
+     * Statistic counter name for task lists hits/misses (on actor and {@link BatchPresentation} level).
+     */
+    public static final String taskListsStatisticName = "ru.runa.wfe.task.cache.taskLists.presentations";
     private final Cache<Long, ConcurrentHashMap<TaskCacheImpl.BatchPresentationFieldEquals, List<WfTask>>> actorToTasksCache;
+    /**
+     * Map from {@link BatchPresentation} dynamic field (variable name) to actors, which cached task lists contains this field. Actors are removed
+     * with their task lists; actors with task lists, evicted by cache itself, are removed on lookup.
+     */
+    private final ConcurrentHashMap<String, Set<Long>> dynamicFieldToActors = new ConcurrentHashMap<String, Set<Long>>();
+    private final StatisticCounter taskListsStatistic;
 
     public TaskCacheImpl() {
         actorToTasksCache = createCache(taskCacheName);
+        taskListsStatistic = CacheStatistic.registerCacheCounter(taskListsStatisticName);
     }
 
     @Override
     public VersionedCacheData<List<WfTask>> getTasks(Long actorId, BatchPresentation batchPresentation) {
         Map<TaskCacheImpl.BatchPresentationFieldEquals, List<WfTask>> lists = actorToTasksCache.get(actorId);
         if (lists == null) {
+            taskListsStatistic.registerCacheGetMiss();
             return getVersionnedData(null);
         }
-        return getVersionnedData(lists.get(new BatchPresentationFieldEquals(batchPresentation)));
+        return getVersionnedData(taskListsStatistic.registerCacheGet(lists.get(new BatchPresentationFieldEquals(batchPresentation))));
     }
 
     @Override
-    public void setTasks(VersionedCacheData<List<WfTask>> oldCachedData, Long actorId, BatchPresentation batchPresentation, List<WfTask> tasks) {
+    public synchronized void setTasks(VersionedCacheData<List<WfTask>> oldCachedData, Long actorId, BatchPresentation batchPresentation,
+            List<WfTask> tasks) {
         if (!mayUpdateVersionnedData(oldCachedData)) {
             return;
         }
@@ -55,14 +78,59 @@ class TaskCacheImpl extends BaseCacheImpl implements ManageableTaskCache {
             lists = new ConcurrentHashMap<TaskCacheImpl.BatchPresentationFieldEquals, List<WfTask>>();
             actorToTasksCache.put(actorId, lists);
         }
+        for (DynamicField dynamicField : batchPresentation.getDynamicFields()) {
+            Set<Long> actors = dynamicFieldToActors.get(dynamicField.getDynamicValue());
+            if (actors == null) {
+                Set<Long> newActors = Sets.newConcurrentHashSet();
+                actors = dynamicFieldToActors.putIfAbsent(dynamicField.getDynamicValue(), newActors);
+                if (actors == null) {
+                    actors = newActors;
+                }
+            }
+            actors.add(actorId);
+        }
         lists.put(new BatchPresentationFieldEquals(batchPresentation), tasks);
     }
 
     public void clearActorTasks(Long actorId) {
-        actorToTasksCache.remove(actorId);
+        clearActorsTasks(Collections.singleton(actorId));
+    }
+
+    /**
+     * Task lists are dropped and version is changed under lock, so task lists, loaded before this call, are not cached with dropped dynamic fields
+     * registration.
+     */
+    @Override
+    public synchronized void clearActorsTasks(Set<Long> actorIds) {
+        for (Long actorId : actorIds) {
+            actorToTasksCache.remove(actorId);
+        }
+        for (Set<Long> actors : dynamicFieldToActors.values()) {
+            actors.removeAll(actorIds);
+        }
         commitCache();
     }
 
+    @Override
+    public synchronized Set<Long> getActorsDependsOnVariable(String variableName) {
+        Set<Long> result = new HashSet<Long>();
+        for (Map.Entry<String, Set<Long>> entry : dynamicFieldToActors.entrySet()) {
+            String fieldName = entry.getKey();
+            if (variableName.equals(fieldName) || variableName.startsWith(fieldName + UserType.DELIM)
+                    || variableName.startsWith(fieldName + VariableFormatContainer.COMPONENT_QUALIFIER_START)) {
+                for (Iterator<Long> iterator = entry.getValue().iterator(); iterator.hasNext();) {
+                    Long actorId = iterator.next();
+                    if (actorToTasksCache.get(actorId) == null) {
+                        iterator.remove();
+                    } else {
+                        result.add(actorId);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Class need to compare BatchPresentation with strongEquals, instead of equals criteria. It necessary in task list cache which using
      * BatchPresentation as key.
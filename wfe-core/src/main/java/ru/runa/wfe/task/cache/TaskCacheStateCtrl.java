@@ -1,7 +1,17 @@
 package ru.runa.wfe.task.cache;
 
+import com.google.common.collect.Maps;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import javax.transaction.Transaction;
+import ru.runa.wfe.commons.ApplicationContextFactory;
+import ru.runa.wfe.commons.SystemProperties;
+import ru.runa.wfe.commons.Utils;
+import ru.runa.wfe.commons.cache.Change;
+import ru.runa.wfe.commons.cache.ChangedObjectParameter;
 import ru.runa.wfe.commons.cache.VersionedCacheData;
 import ru.runa.wfe.commons.cache.sm.BaseCacheCtrl;
 import ru.runa.wfe.commons.cache.sm.CachingLogic;
@@ -12,22 +22,41 @@ import ru.runa.wfe.execution.Swimlane;
 import ru.runa.wfe.presentation.BatchPresentation;
 import ru.runa.wfe.ss.Substitution;
 import ru.runa.wfe.ss.SubstitutionCriteria;
+import ru.runa.wfe.ss.cache.SubstitutionCache;
 import ru.runa.wfe.ss.cache.SubstitutionCacheStateImpl;
 import ru.runa.wfe.task.Task;
 import ru.runa.wfe.task.dto.WfTask;
+import ru.runa.wfe.user.Actor;
 import ru.runa.wfe.user.Executor;
 import ru.runa.wfe.user.ExecutorGroupMembership;
+import ru.runa.wfe.user.Group;
+import ru.runa.wfe.user.TemporaryGroup;
+import ru.runa.wfe.user.cache.ExecutorCache;
 import ru.runa.wfe.var.Variable;
 
 class TaskCacheStateCtrl extends BaseCacheCtrl<ManageableTaskCache, DefaultStateContext> implements TaskCache {
 
-    TaskCacheStateCtrl() {
+    /**
+     * Flag, equals true, if cache must drop only task lists of actors, affected by change and false, if whole cache must be dropped on any change.
+     */
+    private final boolean changeTracking;
+
+    /**
+     * Changes, made by transactions, which is tracked without cache state machine notification.
+     */
+    private final ConcurrentMap<Transaction, TrackedChanges> trackedTransactions = Maps.newConcurrentMap();
+
+    TaskCacheStateCtrl(boolean changeTracking) {
         super(new TaskCacheFactory(), createListenObjectTypes());
+        this.changeTracking = changeTracking;
         CachingLogic.registerChangeListener(this);
     }
 
     @Override
     public VersionedCacheData<List<WfTask>> getTasks(Long actorId, BatchPresentation batchPresentation) {
+        if (isTrackedTransaction()) {
+            return null;
+        }
         ManageableTaskCache cache = CachingLogic.getCacheImplIfNotLocked(stateMachine);
         if (cache != null) {
             return cache.getTasks(actorId, batchPresentation);
@@ -37,12 +66,201 @@ class TaskCacheStateCtrl extends BaseCacheCtrl<ManageableTaskCache, DefaultState
 
     @Override
     public void setTasks(VersionedCacheData<List<WfTask>> oldCacheData, Long actorId, BatchPresentation batchPresentation, List<WfTask> tasks) {
+        if (isTrackedTransaction()) {
+            return;
+        }
         ManageableTaskCache cache = CachingLogic.getCacheImplIfNotLocked(stateMachine);
         if (cache != null) {
             cache.setTasks(oldCacheData, actorId, batchPresentation, tasks);
         }
     }
 
+    @Override
+    public boolean onChange(Transaction transaction, ChangedObjectParameter changedObject) {
+        if (!changeTracking) {
+            return super.onChange(transaction, changedObject);
+        }
+        TrackedChanges changes = trackedTransactions.get(transaction);
+        if (changes != null && changes.delegatedToStateMachine) {
+            return super.onChange(transaction, changedObject);
+        }
+        Set<Long> affectedActors = getAffectedActors(transaction, changedObject);
+        if (affectedActors != null && affectedActors.isEmpty()) {
+            return changes != null;
+        }
+        if (changes == null) {
+            changes = new TrackedChanges();
+            trackedTransactions.put(transaction, changes);
+        }
+        if (affectedActors == null) {
+            changes.delegatedToStateMachine = true;
+            return super.onChange(transaction, changedObject);
+        }
+        changes.affectedActors.addAll(affectedActors);
+        clearActorsTasks(transaction, affectedActors);
+        return true;
+    }
+
+    @Override
+    public void beforeTransactionComplete(Transaction transaction) {
+        TrackedChanges changes = trackedTransactions.get(transaction);
+        if (changes == null || changes.delegatedToStateMachine) {
+            super.beforeTransactionComplete(transaction);
+        }
+    }
+
+    @Override
+    public void onTransactionCompleted(Transaction transaction) {
+        TrackedChanges changes = trackedTransactions.remove(transaction);
+        if (changes == null || changes.delegatedToStateMachine) {
+            super.onTransactionCompleted(transaction);
+            return;
+        }
+        // Task lists may be loaded by other transactions before commit; drop it again to see committed state.
+        clearActorsTasks(transaction, changes.affectedActors);
+    }
+
+    private boolean isTrackedTransaction() {
+        if (!changeTracking || trackedTransactions.isEmpty()) {
+            return false;
+        }
+        Transaction transaction = Utils.getTransaction();
+        return transaction != null && trackedTransactions.containsKey(transaction);
+    }
+
+    private void clearActorsTasks(Transaction transaction, Set<Long> actorIds) {
+        ManageableTaskCache cache = stateMachine.getCacheQuick(transaction);
+        if (cache != null) {
+            cache.clearActorsTasks(actorIds);
+        }
+    }
+
+    /**
+     * Computes actors, which task lists may be affected by change.
+     *
+     * @param transaction
+     *            Transaction, which change object.
+     * @param changedObject
+     *            Changed object.
+     * @return Actors identities or null, if affected actors can't be computed and whole cache must be dropped.
+     */
+    private Set<Long> getAffectedActors(Transaction transaction, ChangedObjectParameter changedObject) {
+        Object object = changedObject.object;
+        if (object instanceof Variable) {
+            ManageableTaskCache cache = stateMachine.getCacheQuick(transaction);
+            if (cache == null) {
+                return new HashSet<Long>();
+            }
+            return cache.getActorsDependsOnVariable(((Variable<?>) object).getName());
+        }
+        if (object instanceof Executor) {
+            // New executor has no tasks; membership is tracked by ExecutorGroupMembership
+            return changedObject.changeType == Change.CREATE ? new HashSet<Long>() : null;
+        }
+        // Changes are tracked on hibernate flush, where executor cache building must not be initiated.
+        ExecutorCache executorCache = ApplicationContextFactory.getExecutorCache().getCacheIfBuilt();
+        if (executorCache == null) {
+            return null;
+        }
+        SubstitutionCache substitutionCache = ApplicationContextFactory.getSubstitutionCache();
+        Set<Long> result = new HashSet<Long>();
+        if (object instanceof Task) {
+            if (!addExecutorActors(executorCache, substitutionCache, changedObject, "executor", result)) {
+                return null;
+            }
+            if (!addProcessAdministrators(executorCache, result)) {
+                return null;
+            }
+            return result;
+        }
+        if (object instanceof Swimlane || object instanceof ExecutorGroupMembership) {
+            if (!addExecutorActors(executorCache, substitutionCache, changedObject, "executor", result)) {
+                return null;
+            }
+            return result;
+        }
+        return null;
+    }
+
+    /**
+     * Adds actors, affected by executor property change (current and previous executor, it actors if it is group, and it substitutors).
+     *
+     * @return Returns true, if affected actors is computed and false, if affected actors can't be computed.
+     */
+    private boolean addExecutorActors(ExecutorCache executorCache, SubstitutionCache substitutionCache, ChangedObjectParameter changedObject,
+            String propertyName, Set<Long> result) {
+        int index = changedObject.getPropertyIndex(propertyName);
+        Set<Object> executors = new HashSet<Object>();
+        if (changedObject.currentState != null) {
+            executors.add(changedObject.currentState[index]);
+        }
+        if (changedObject.previousState != null) {
+            executors.add(changedObject.previousState[index]);
+        }
+        for (Object executorObject : executors) {
+            if (executorObject == null) {
+                continue;
+            }
+            // Property value may be hibernate proxy, so executor is loaded from cache by id.
+            Executor executor = executorCache.getExecutor(((Executor) executorObject).getId());
+            // Temporary groups membership is not tracked by executor cache.
+            if (executor == null || executor instanceof TemporaryGroup) {
+                return false;
+            }
+            Set<Actor> actors = new HashSet<Actor>();
+            if (executor instanceof Actor) {
+                actors.add((Actor) executor);
+            } else {
+                Set<Actor> groupActors = executorCache.getGroupActorsAll((Group) executor);
+                if (groupActors == null) {
+                    return false;
+                }
+                actors.addAll(groupActors);
+            }
+            for (Actor actor : actors) {
+                result.add(actor.getId());
+                if (actor.isActive()) {
+                    continue;
+                }
+                if (!SystemProperties.useNonRuntimeSubstitutionCache()) {
+                    // Static substitution cache may be built from database, which is not allowed on flush.
+                    return false;
+                }
+                for (Set<Long> substitutors : substitutionCache.getSubstitutors(actor, false).values()) {
+                    if (substitutors != null) {
+                        result.addAll(substitutors);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds actors, which see all tasks as process administrators.
+     *
+     * @return Returns true, if affected actors is computed and false, if affected actors can't be computed.
+     */
+    private boolean addProcessAdministrators(ExecutorCache executorCache, Set<Long> result) {
+        for (String groupName : SystemProperties.getProcessAdminGroupNames()) {
+            Executor group = executorCache.getExecutor(groupName);
+            if (group == null) {
+                return false;
+            }
+            if (!(group instanceof Group)) {
+                continue;
+            }
+            Set<Actor> actors = executorCache.getGroupActorsAll((Group) group);
+            if (actors == null) {
+                return false;
+            }
+            for (Actor actor : actors) {
+                result.add(actor.getId());
+            }
+        }
+        return true;
+    }
+
     private static final List<ListenObjectDefinition> createListenObjectTypes() {
         ArrayList<ListenObjectDefinition> result = new ArrayList<ListenObjectDefinition>();
         result.add(new ListenObjectDefinition(Task.class));
@@ -58,6 +276,20 @@ class TaskCacheStateCtrl extends BaseCacheCtrl<ManageableTaskCache, DefaultState
         return result;
     }
 
+    /**
+     * Changes, made by transaction in change tracking mode.
+     */
+    private static class TrackedChanges {
+        /**
+         * Actors, which task lists is affected by transaction.
+         */
+        private final Set<Long> affectedActors = new HashSet<Long>();
+        /**
+         * Flag, equals true, if affected actors can't be computed for some change and cache state machine is notified about transaction.
+         */
+        private boolean delegatedToStateMachine;
+    }
+
     private static class TaskCacheFactory implements StaticCacheFactory<ManageableTaskCache> {
 
         @Override
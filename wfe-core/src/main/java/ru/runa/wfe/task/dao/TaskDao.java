@@ -22,6 +22,7 @@
 package ru.runa.wfe.task.dao;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import org.springframework.stereotype.Component;
@@ -120,6 +121,19 @@ public class TaskDao extends GenericDao<Task> {
         flushPendingChanges();
     }
 
+    /**
+     * @return deleted tasks count
+     */
+    public int deleteByProcessIds(Collection<Long> processIds) {
+        QTask t = QTask.task;
+        List<Task> tasks = queryFactory.selectFrom(t).where(t.process.id.in(processIds)).fetch();
+        for (Task task : tasks) {
+            task.delete();
+        }
+        flushPendingChanges();
+        return tasks.size();
+    }
+
     /**
      * @return return all async tasks with ended parent process
      */
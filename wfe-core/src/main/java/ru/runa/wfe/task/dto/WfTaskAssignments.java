@@ -0,0 +1,72 @@
+/*
+ * This file is part of the RUNA WFE project.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; version 2.1
+ * of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA.
+ */
+package ru.runa.wfe.task.dto;
+
+import com.google.common.base.MoreObjects;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+/**
+ * Tasks, assigned to executor since cursor.
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+public class WfTaskAssignments implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private Long cursor;
+    private boolean complete;
+    private List<Long> taskIds = new ArrayList<>();
+
+    public WfTaskAssignments() {
+    }
+
+    public WfTaskAssignments(Long cursor, boolean complete, List<Long> taskIds) {
+        this.cursor = cursor;
+        this.complete = complete;
+        this.taskIds = taskIds;
+    }
+
+    /**
+     * @return Cursor for next request.
+     */
+    public Long getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @return false, if assignments since requested cursor are unknown (no cursor given, server restarted or assignments journal overflowed) and
+     *         task list must be fully reloaded.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return Identities of tasks, assigned since requested cursor and still assigned to executor.
+     */
+    public List<Long> getTaskIds() {
+        return taskIds;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("cursor", cursor).add("complete", complete).add("taskIds", taskIds).toString();
+    }
+}
@@ -22,7 +22,7 @@ import com.google.common.base.Objects;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import ru.runa.wfe.definition.dao.ProcessDefinitionLoader;
-import ru.runa.wfe.execution.ExecutionContext;
+import ru.runa.wfe.execution.ExecutionContextFactory;
 import ru.runa.wfe.execution.Process;
 import ru.runa.wfe.execution.ProcessHierarchyUtils;
 import ru.runa.wfe.execution.dao.ProcessDao;
@@ -33,6 +33,7 @@ import ru.runa.wfe.user.EscalationGroup;
 import ru.runa.wfe.user.Executor;
 import ru.runa.wfe.user.Group;
 import ru.runa.wfe.user.dao.ExecutorDao;
+import ru.runa.wfe.var.VariableProvider;
 
 /**
  * {@link WfTask} factory.
@@ -47,6 +48,8 @@ public class WfTaskFactory {
     private ExecutorDao executorDao;
     @Autowired
     private ProcessDao processDao;
+    @Autowired
+    private ExecutionContextFactory executionContextFactory;
 
     public WfTask create(Task task, Actor targetActor, boolean acquiredBySubstitution, List<String> variableNamesToInclude) {
         return create(task, targetActor, acquiredBySubstitution, variableNamesToInclude, !task.getOpenedByExecutorIds().contains(targetActor.getId()));
@@ -71,9 +74,9 @@ public class WfTaskFactory {
         WfTask wfTask = new WfTask(task, rootProcessId, rootProcessDefinition.getId(), rootProcessDefinition.getName(),
                 processDefinition.getId(), processDefinition.getName(), targetActor, escalated, acquiredBySubstitution, firstOpen);
         if (variableNamesToInclude != null && !variableNamesToInclude.isEmpty()) {
-            ExecutionContext executionContext = new ExecutionContext(processDefinition, process);
+            VariableProvider variableProvider = executionContextFactory.createVariableProvider(processDefinition, process, null, false);
             for (String variableName : variableNamesToInclude) {
-                wfTask.addVariable(executionContext.getVariableProvider().getVariable(variableName));
+                wfTask.addVariable(variableProvider.getVariable(variableName));
             }
         }
         return wfTask;
@@ -0,0 +1,140 @@
+package ru.runa.wfe.task.logic;
+
+import com.google.common.collect.Lists;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.Transaction;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import ru.runa.wfe.commons.SystemProperties;
+import ru.runa.wfe.commons.Utils;
+import ru.runa.wfe.lang.ProcessDefinition;
+import ru.runa.wfe.task.Task;
+import ru.runa.wfe.task.dto.WfTaskAssignments;
+import ru.runa.wfe.user.Executor;
+import ru.runa.wfe.var.VariableProvider;
+
+/**
+ * Holds recent committed task assignments in memory. Used by bot stations to load new tasks since cursor instead of full task list loading.
+ *
+ * Journal is not persistent: on server restart or journal overflow callers are requested to reload full task list.
+ *
+ * Journal is local to server node and does not see assignments, committed on other nodes; so it is disabled in cluster (when cluster cache
+ * invalidation is enabled) and callers always reload full task list.
+ */
+public class TaskAssignmentJournal implements TaskNotifier {
+    private static final Log log = LogFactory.getLog(TaskAssignmentJournal.class);
+    /**
+     * Sequence starts from current time shifted to make cursors, issued before server restart, not valid for new journal.
+     */
+    private final long initialSequence = System.currentTimeMillis() << 20;
+    private final ArrayDeque<Assignment> assignments = new ArrayDeque<>();
+    private final int capacity;
+    private long sequence = initialSequence;
+    private long evictedSequence = initialSequence;
+    private boolean clustered;
+
+    public TaskAssignmentJournal() {
+        this(SystemProperties.getTaskAssignmentJournalCapacity());
+    }
+
+    TaskAssignmentJournal(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Disables journal on cluster node.
+     */
+    public void setClustered(boolean clustered) {
+        this.clustered = clustered;
+        if (clustered) {
+            log.warn("Task assignment journal is disabled in cluster mode, bot stations will reload full task lists on every check");
+        }
+    }
+
+    @Override
+    public void onTaskAssigned(ProcessDefinition processDefinition, VariableProvider variableProvider, Task task, Executor previousExecutor) {
+        Executor executor = task.getExecutor();
+        if (clustered || executor == null || task.getId() == null) {
+            return;
+        }
+        final Assignment assignment = new Assignment(executor.getId(), task.getId());
+        Transaction transaction = Utils.getTransaction();
+        if (transaction == null) {
+            add(assignment);
+            return;
+        }
+        try {
+            transaction.registerSynchronization(new Synchronization() {
+
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        add(assignment);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Unable to register " + assignment + " for transaction completion", e);
+        }
+    }
+
+    /**
+     * Loads tasks, assigned to executors since cursor.
+     *
+     * @param executorIds
+     *            Executors, which assignments are requested.
+     * @param cursor
+     *            Cursor from previous request or null to obtain initial cursor.
+     * @return Assignments since cursor, not <code>null</code>.
+     */
+    public synchronized WfTaskAssignments getAssignments(Collection<Long> executorIds, Long cursor) {
+        if (clustered || cursor == null || cursor < evictedSequence || cursor > sequence) {
+            return new WfTaskAssignments(sequence, false, Lists.<Long> newArrayList());
+        }
+        Set<Long> taskIds = new LinkedHashSet<>();
+        for (Iterator<Assignment> iterator = assignments.descendingIterator(); iterator.hasNext();) {
+            Assignment assignment = iterator.next();
+            if (assignment.sequence <= cursor) {
+                break;
+            }
+            if (executorIds.contains(assignment.executorId)) {
+                taskIds.add(assignment.taskId);
+            }
+        }
+        return new WfTaskAssignments(sequence, true, Lists.newArrayList(taskIds));
+    }
+
+    synchronized void add(Assignment assignment) {
+        assignment.sequence = ++sequence;
+        assignments.addLast(assignment);
+        while (assignments.size() > capacity) {
+            evictedSequence = assignments.removeFirst().sequence;
+        }
+    }
+
+    static class Assignment {
+        private final Long executorId;
+        private final Long taskId;
+        private long sequence;
+
+        Assignment(Long executorId, Long taskId) {
+            this.executorId = executorId;
+            this.taskId = taskId;
+        }
+
+        @Override
+        public String toString() {
+            return "task " + taskId + " assignment to " + executorId;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -59,6 +60,7 @@ import ru.runa.wfe.user.Group;
 import ru.runa.wfe.user.TemporaryGroup;
 import ru.runa.wfe.user.dao.ExecutorDao;
 import ru.runa.wfe.var.Variable;
+import ru.runa.wfe.var.VariableProvider;
 import ru.runa.wfe.var.dao.VariableDao;
 
 /**
@@ -118,17 +120,16 @@ public class TaskListBuilderImpl implements TaskListBuilder, ObservableTaskListB
         List<String> variableNames = batchPresentation.getDynamicFieldsToDisplay(true);
         Map<Process, Map<String, Variable<?>>> variables = variableDao.getVariables(getTasksProcesses(tasksState), variableNames);
         HashSet<Long> openedTasks = new HashSet<>(taskDao.getOpenedTasks(actor.getId(), getTasksIds(tasksState)));
+        Map<Process, VariableProvider> variableProviders = new HashMap<>();
 
         List<WfTask> result = new ArrayList<>();
         for (TaskInListState state : tasksState) {
             WfTask wfTask = wfTaskFactory.create(state.getTask(), state.getActor(), state.isAcquiredBySubstitution(), null,
                     !openedTasks.contains(state.getTask().getId()));
             if (!Utils.isNullOrEmpty(variableNames)) {
-                Process process = state.getTask().getProcess();
-                ProcessDefinition processDefinition = processDefinitionLoader.getDefinition(process.getDeployment().getId());
-                ExecutionContext executionContext = new ExecutionContext(processDefinition, process, variables, false);
+                VariableProvider variableProvider = getVariableProvider(variableProviders, state.getTask().getProcess(), variables);
                 for (String variableName : variableNames) {
-                    wfTask.addVariable(executionContext.getVariableProvider().getVariable(variableName));
+                    wfTask.addVariable(variableProvider.getVariable(variableName));
                 }
             }
             result.add(wfTask);
@@ -148,27 +149,27 @@ public class TaskListBuilderImpl implements TaskListBuilder, ObservableTaskListB
         for (List<Long> partitionedTasksIds : Lists.partition(getTasksIds(tasksState), SystemProperties.getDatabaseParametersCount())) {
             openedTasks.addAll(taskDao.getOpenedTasks(actor.getId(), partitionedTasksIds));
         }
+        Map<Process, VariableProvider> variableProviders = new HashMap<>();
         List<WfTask> result = new ArrayList<>();
         boolean administrator = executorDao.isAdministrator(actor);
+        Set<Long> readableExecutorIds = administrator ? null : getReadableTaskExecutorIds(actor, tasksState);
         for (TaskInListState state : tasksState) {
             WfTask wfTask = wfTaskFactory.create(state.getTask(), state.getActor(), state.isAcquiredBySubstitution(), null,
                     !openedTasks.contains(state.getTask().getId()));
             if (!Utils.isNullOrEmpty(variableNames)) {
-                Process process = state.getTask().getProcess();
-                ProcessDefinition processDefinition = processDefinitionLoader.getDefinition(process.getDeployment().getId());
-                ExecutionContext executionContext = new ExecutionContext(processDefinition, process, variables, false);
+                VariableProvider variableProvider = getVariableProvider(variableProviders, state.getTask().getProcess(), variables);
                 for (String variableName : variableNames) {
-                    wfTask.addVariable(executionContext.getVariableProvider().getVariable(variableName));
+                    wfTask.addVariable(variableProvider.getVariable(variableName));
                 }
             }
             if (!administrator) {
                 Executor executor = state.getTask().getExecutor();
                 if (executor instanceof Actor) {
-                    if (!permissionDao.permissionExists(actor, Permission.READ, executor)) {
+                    if (!readableExecutorIds.contains(executor.getId())) {
                         wfTask.setOwner(Actor.UNAUTHORIZED_ACTOR);
                     }
                 } else {
-                    if (!(executor instanceof TemporaryGroup) && !permissionDao.permissionExists(actor, Permission.READ, executor)) {
+                    if (!(executor instanceof TemporaryGroup) && !readableExecutorIds.contains(executor.getId())) {
                         wfTask.setOwner(Group.UNAUTHORIZED_GROUP);
                     }
                 }
@@ -178,6 +179,42 @@ public class TaskListBuilderImpl implements TaskListBuilder, ObservableTaskListB
         return result;
     }
 
+    /**
+     * @return variable provider for process, shared by all its tasks in list
+     */
+    private VariableProvider getVariableProvider(Map<Process, VariableProvider> variableProviders, Process process,
+            Map<Process, Map<String, Variable<?>>> variables) {
+        VariableProvider variableProvider = variableProviders.get(process);
+        if (variableProvider == null) {
+            ProcessDefinition processDefinition = processDefinitionLoader.getDefinition(process.getDeployment().getId());
+            variableProvider = executionContextFactory.createVariableProvider(processDefinition, process, variables, false);
+            variableProviders.put(process, variableProvider);
+        }
+        return variableProvider;
+    }
+
+    /**
+     * Loads task executors, which actor has {@link Permission#READ} permission on. Permissions are checked by one bulk request.
+     */
+    private Set<Long> getReadableTaskExecutorIds(Actor actor, List<TaskInListState> tasksState) {
+        Map<Long, Executor> executors = new HashMap<>();
+        for (TaskInListState state : tasksState) {
+            Executor executor = state.getTask().getExecutor();
+            if (executor != null && !(executor instanceof TemporaryGroup)) {
+                executors.put(executor.getId(), executor);
+            }
+        }
+        List<Executor> executorsList = new ArrayList<>(executors.values());
+        boolean[] allowed = permissionDao.permissionExists(actor, Permission.READ, executorsList);
+        Set<Long> result = new HashSet<>();
+        for (int i = 0; i < allowed.length; i++) {
+            if (allowed[i]) {
+                result.add(executorsList.get(i).getId());
+            }
+        }
+        return result;
+    }
+
     public Set<Executor> getObservableExecutors(Actor actor, String observableExecutorNameTemplate) {
         if (Utils.isNullOrEmpty(observableExecutorNameTemplate)) {
             observableExecutorNameTemplate = "%";
@@ -194,16 +231,20 @@ public class TaskListBuilderImpl implements TaskListBuilder, ObservableTaskListB
             executorsToGetTasks.addAll(executorDao.getExecutorsTemporaryGroups(observableExecutors));
         } else {
             Set<Executor> executorsToLoadTemporaryGroups = new HashSet<>();
+            List<Executor> taskOwners = new ArrayList<>(observableExecutors);
             for (Executor executor : getExecutorsToGetTasks(actor, false)) {
-                for (Executor taskOwner : observableExecutors) {
+                boolean[] viewTasksAllowed = permissionDao.permissionExists(executor, Permission.VIEW_TASKS, taskOwners);
+                boolean[] readAllowed = permissionDao.permissionExists(executor, Permission.READ, taskOwners);
+                for (int i = 0; i < taskOwners.size(); i++) {
+                    Executor taskOwner = taskOwners.get(i);
                     boolean taskOwnerIsActor = taskOwner instanceof Actor;
-                    if (permissionDao.permissionExists(executor, Permission.VIEW_TASKS, taskOwner)) {
+                    if (viewTasksAllowed[i]) {
                         executorsToGetTasks.add(taskOwner);
                         executorsToLoadTemporaryGroups.add(taskOwner);
-                    } else if (!taskOwnerIsActor && permissionDao.permissionExists(executor, Permission.READ, taskOwner)) {
-                        Set<Actor> children = executorDao.getGroupActors((Group) taskOwner);
-                        for (Actor child : children) {
-                            if (permissionDao.permissionExists(executor, Permission.VIEW_TASKS, child)) {
+                    } else if (!taskOwnerIsActor && readAllowed[i]) {
+                        List<Actor> children = new ArrayList<>(executorDao.getGroupActors((Group) taskOwner));
+                        for (boolean childAllowed : permissionDao.permissionExists(executor, Permission.VIEW_TASKS, children)) {
+                            if (childAllowed) {
                                 executorsToGetTasks.add(taskOwner);
                                 executorsToLoadTemporaryGroups.add(taskOwner);
                                 break;
@@ -125,4 +125,11 @@ public interface ExecutorCache {
      *            with specified class and presentation.
      */
     public <T extends Executor> void addAllExecutor(VersionedCacheData<List<T>> oldCached, Class<?> clazz, BatchPresentation batch, List<T> executors);
+
+    /**
+     * Return already built cache without initiating cache building. Used on hibernate flush, where cache must not be built.
+     * 
+     * @return Built cache or null, if cache is not built.
+     */
+    public ExecutorCache getCacheIfBuilt();
 }
@@ -280,6 +280,11 @@ class ExecutorCacheImpl extends BaseCacheImpl implements ManageableExecutorCache
         }
     }
 
+    @Override
+    public ExecutorCache getCacheIfBuilt() {
+        return this;
+    }
+
     @Override
     public boolean onChange(ChangedObjectParameter changedObject) {
         return false;
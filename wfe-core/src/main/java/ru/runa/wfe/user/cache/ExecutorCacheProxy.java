@@ -55,6 +55,11 @@ class ExecutorCacheProxy implements ManageableExecutorCache {
     public <T extends Executor> void addAllExecutor(VersionedCacheData<List<T>> oldCached, Class<?> clazz, BatchPresentation batch, List<T> executors) {
     }
 
+    @Override
+    public ExecutorCache getCacheIfBuilt() {
+        return null;
+    }
+
     @Override
     public void commitCache() {
     }
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import javax.transaction.Transaction;
+import ru.runa.wfe.commons.Utils;
 import ru.runa.wfe.commons.cache.ChangedObjectParameter;
 import ru.runa.wfe.commons.cache.VersionedCacheData;
 import ru.runa.wfe.commons.cache.sm.BaseCacheCtrl;
@@ -107,6 +108,15 @@ class ExecutorCacheStateCtrl extends BaseCacheCtrl<ManageableExecutorCache, Defa
         cache.addAllExecutor(oldCachedData, clazz, batch, executors);
     }
 
+    @Override
+    public ExecutorCache getCacheIfBuilt() {
+        ManageableExecutorCache cache = stateMachine.getCacheQuick(Utils.getTransaction());
+        if (cache == null) {
+            return null;
+        }
+        return cache.getCacheIfBuilt();
+    }
+
     @Override
     public boolean onChange(Transaction transaction, ChangedObjectParameter changedObject) {
         if (changedObject.object instanceof TemporaryGroup) {
@@ -22,11 +22,13 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.querydsl.core.Tuple;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.hibernate.SQLQuery;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -50,6 +52,7 @@ import ru.runa.wfe.user.Group;
 import ru.runa.wfe.user.QActor;
 import ru.runa.wfe.user.QExecutor;
 import ru.runa.wfe.user.QExecutorGroupMembership;
+import ru.runa.wfe.user.QGroup;
 import ru.runa.wfe.user.QTemporaryGroup;
 import ru.runa.wfe.user.TemporaryGroup;
 import ru.runa.wfe.user.cache.ExecutorCache;
@@ -121,6 +124,22 @@ public class ExecutorDao extends CommonDao implements ExecutorLoader {
         return checkExecutorNotNull(actor, name, Actor.class);
     }
 
+    /**
+     * Load {@linkplain Actor}s by names without case check, see {@link #getActorCaseInsensitive(String)}.
+     * 
+     * @param names
+     *            Loaded actor names in lower case.
+     * @return Found actors; not existing names are skipped.
+     */
+    public List<Actor> getActorsByLowerCaseNames(Collection<String> names) {
+        List<Actor> result = new ArrayList<>();
+        QActor a = QActor.actor;
+        for (List<String> part : Lists.partition(Lists.newArrayList(names), SystemProperties.getDatabaseParametersCount())) {
+            result.addAll(queryFactory.selectFrom(a).where(a.name.lower().in(part)).fetch());
+        }
+        return result;
+    }
+
     public Actor getActor(Long id) {
         return getExecutor(Actor.class, id);
     }
@@ -392,8 +411,20 @@ public class ExecutorDao extends CommonDao implements ExecutorLoader {
      *            {@linkplain Group}, to add executors in.
      */
     public void addExecutorsToGroup(Collection<? extends Executor> executors, Group group) {
+        if (executors.isEmpty()) {
+            return;
+        }
+        Set<Executor> children = new HashSet<>();
+        for (ExecutorGroupMembership membership : getGroupMemberships(group)) {
+            children.add(membership.getExecutor());
+        }
         for (Executor executor : executors) {
-            addExecutorToGroup(executor, group);
+            if (children.add(executor)) {
+                if (executor instanceof TemporaryGroup) {
+                    throw new InternalApplicationException("TemporaryGroup cannot be nested");
+                }
+                sessionFactory.getCurrentSession().save(new ExecutorGroupMembership(group, executor));
+            }
         }
     }
 
@@ -434,8 +465,14 @@ public class ExecutorDao extends CommonDao implements ExecutorLoader {
      *            {@linkplain Group}, to remove executors from.
      */
     public void removeExecutorsFromGroup(Collection<? extends Executor> executors, Group group) {
-        for (Executor executor : executors) {
-            removeExecutorFromGroup(executor, group);
+        if (executors.isEmpty()) {
+            return;
+        }
+        Set<Executor> executorsToRemove = new HashSet<>(executors);
+        for (ExecutorGroupMembership membership : getGroupMemberships(group)) {
+            if (executorsToRemove.contains(membership.getExecutor())) {
+                sessionFactory.getCurrentSession().delete(membership);
+            }
         }
     }
 
@@ -517,6 +554,48 @@ public class ExecutorDao extends CommonDao implements ExecutorLoader {
         return getGroupActors(group, new HashSet<>());
     }
 
+    /**
+     * Loads direct actor members of all groups by one query.
+     *
+     * @return actor ids by group id, only groups with actor members are included.
+     */
+    public Map<Long, long[]> getGroupsActorMemberIds() {
+        QExecutorGroupMembership egm = QExecutorGroupMembership.executorGroupMembership;
+        QActor a = QActor.actor;
+        return getMemberIdsByGroupId(queryFactory.select(egm.group.id, a.id).from(egm, a).where(egm.executor.id.eq(a.id)).orderBy(egm.group.id.asc())
+                .fetch());
+    }
+
+    /**
+     * Loads direct group members of all groups by one query.
+     *
+     * @return group ids by group id, only groups with group members are included.
+     */
+    public Map<Long, long[]> getGroupsGroupMemberIds() {
+        QExecutorGroupMembership egm = QExecutorGroupMembership.executorGroupMembership;
+        QGroup g = QGroup.group;
+        return getMemberIdsByGroupId(queryFactory.select(egm.group.id, g.id).from(egm, g).where(egm.executor.id.eq(g.id)).orderBy(egm.group.id.asc())
+                .fetch());
+    }
+
+    private static Map<Long, long[]> getMemberIdsByGroupId(List<Tuple> memberships) {
+        Map<Long, long[]> result = new HashMap<>();
+        int groupStart = 0;
+        for (int i = 1; i <= memberships.size(); i++) {
+            Long groupId = memberships.get(groupStart).get(0, Long.class);
+            if (i < memberships.size() && groupId.equals(memberships.get(i).get(0, Long.class))) {
+                continue;
+            }
+            long[] memberIds = new long[i - groupStart];
+            for (int j = groupStart; j < i; j++) {
+                memberIds[j - groupStart] = memberships.get(j).get(1, Long.class);
+            }
+            result.put(groupId, memberIds);
+            groupStart = i;
+        }
+        return result;
+    }
+
     public Set<Group> getExecutorParentsAll(Executor executor) {
         return getExecutorGroupsAll(executor, new HashSet<>());
     }
@@ -0,0 +1,327 @@
+package ru.runa.wfe.var.converter;
+
+import com.google.common.base.Charsets;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import ru.runa.wfe.var.UserType;
+import ru.runa.wfe.var.UserTypeMap;
+import ru.runa.wfe.var.VariableDefinition;
+import ru.runa.wfe.var.converter.SerializableToByteArrayConverter.BackCompatibleObjectInputStream;
+import ru.runa.wfe.var.file.FileVariableImpl;
+import ru.runa.wfe.var.file.LocalFileSystemVariable;
+
+/**
+ * Compact binary representation of complex variable values (lists, maps, user type values, file descriptors and primitives).
+ *
+ * Layout: magic, version, user types schema, tagged value. Each user type is written once per value in schema section and referenced by index
+ * from user type values. Magic differs from java serialization stream magic, so both formats can be read from the same column.
+ *
+ * Only exact classes known to codec are supported in value graph; for other values {@link #encode(Object)} returns <code>null</code> and java
+ * serialization should be used.
+ */
+public final class BinaryVariableCodec {
+    private static final byte MAGIC_0 = 'R';
+    private static final byte MAGIC_1 = 'W';
+    private static final byte VERSION = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_INTEGER = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_BOOLEAN = 5;
+    private static final byte TAG_DATE = 6;
+    private static final byte TAG_BIG_DECIMAL = 7;
+    private static final byte TAG_LIST = 8;
+    private static final byte TAG_HASH_MAP = 9;
+    private static final byte TAG_LINKED_HASH_MAP = 10;
+    private static final byte TAG_USER_TYPE_MAP = 11;
+    private static final byte TAG_FILE = 12;
+    private static final byte TAG_LOCAL_FILE = 13;
+
+    private BinaryVariableCodec() {
+    }
+
+    /**
+     * @return true if bytes are written by this codec.
+     */
+    public static boolean isEncoded(byte[] bytes) {
+        return bytes != null && bytes.length > 2 && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+    }
+
+    /**
+     * Encodes value.
+     *
+     * @return encoded value or <code>null</code> if value graph contains objects, unsupported by codec.
+     */
+    public static byte[] encode(Object value) throws IOException {
+        Encoder encoder = new Encoder();
+        if (!encoder.writeValue(value)) {
+            return null;
+        }
+        encoder.out.flush();
+        ByteArrayOutputStream result = new ByteArrayOutputStream(encoder.buffer.size() + 16);
+        DataOutputStream out = new DataOutputStream(result);
+        out.writeByte(MAGIC_0);
+        out.writeByte(MAGIC_1);
+        out.writeByte(VERSION);
+        if (encoder.userTypes.isEmpty()) {
+            writeVarInt(out, 0);
+        } else {
+            ByteArrayOutputStream schema = new ByteArrayOutputStream();
+            ObjectOutputStream schemaStream = new ObjectOutputStream(schema);
+            // shared nested user types are written once by single stream
+            schemaStream.writeObject(encoder.userTypes.toArray(new UserType[encoder.userTypes.size()]));
+            schemaStream.flush();
+            writeVarInt(out, schema.size());
+            schema.writeTo(out);
+        }
+        encoder.buffer.writeTo(out);
+        out.flush();
+        return result.toByteArray();
+    }
+
+    /**
+     * Decodes value written by {@link #encode(Object)}.
+     */
+    public static Object decode(byte[] bytes) throws IOException, ClassNotFoundException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readByte() != MAGIC_0 || in.readByte() != MAGIC_1) {
+            throw new IOException("Invalid binary variable header");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary variable version " + version);
+        }
+        UserType[] userTypes = null;
+        int schemaLength = readVarInt(in);
+        if (schemaLength > 0) {
+            byte[] schema = new byte[schemaLength];
+            in.readFully(schema);
+            userTypes = (UserType[]) new BackCompatibleObjectInputStream(new ByteArrayInputStream(schema)).readObject();
+        }
+        return readValue(in, userTypes);
+    }
+
+    private static Object readValue(DataInputStream in, UserType[] userTypes) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+        case TAG_NULL:
+            return null;
+        case TAG_STRING:
+            return readString(in);
+        case TAG_LONG:
+            return in.readLong();
+        case TAG_INTEGER:
+            return in.readInt();
+        case TAG_DOUBLE:
+            return in.readDouble();
+        case TAG_BOOLEAN:
+            return in.readBoolean();
+        case TAG_DATE:
+            return new Date(in.readLong());
+        case TAG_BIG_DECIMAL:
+            return new BigDecimal(readString(in));
+        case TAG_LIST: {
+            int size = readVarInt(in);
+            List<Object> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(readValue(in, userTypes));
+            }
+            return list;
+        }
+        case TAG_HASH_MAP:
+        case TAG_LINKED_HASH_MAP: {
+            int size = readVarInt(in);
+            Map<Object, Object> map = tag == TAG_HASH_MAP ? new HashMap<>() : new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                Object key = readValue(in, userTypes);
+                map.put(key, readValue(in, userTypes));
+            }
+            return map;
+        }
+        case TAG_USER_TYPE_MAP: {
+            int index = readVarInt(in);
+            if (userTypes == null || index >= userTypes.length) {
+                throw new IOException("Unknown user type index " + index);
+            }
+            UserTypeMap userTypeMap = new UserTypeMap(userTypes[index]);
+            int size = readVarInt(in);
+            for (int i = 0; i < size; i++) {
+                String name = readString(in);
+                userTypeMap.put(name, readValue(in, userTypes));
+            }
+            return userTypeMap;
+        }
+        case TAG_FILE:
+            return new FileVariableImpl(readString(in), readBytes(in), readString(in));
+        case TAG_LOCAL_FILE:
+            return new LocalFileSystemVariable(readString(in), readString(in), readString(in));
+        default:
+            throw new IOException("Unknown binary variable tag " + tag);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes != null ? new String(bytes, Charsets.UTF_8) : null;
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed binary variable length");
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static class Encoder {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        private final DataOutputStream out = new DataOutputStream(buffer);
+        private final List<UserType> userTypes = new ArrayList<>();
+        private final Map<UserType, Integer> userTypeIndexes = new IdentityHashMap<>();
+
+        /**
+         * @return false if value can not be written by codec
+         */
+        private boolean writeValue(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(TAG_NULL);
+                return true;
+            }
+            Class<?> valueClass = value.getClass();
+            if (valueClass == String.class) {
+                out.writeByte(TAG_STRING);
+                writeString((String) value);
+            } else if (valueClass == Long.class) {
+                out.writeByte(TAG_LONG);
+                out.writeLong((Long) value);
+            } else if (valueClass == Integer.class) {
+                out.writeByte(TAG_INTEGER);
+                out.writeInt((Integer) value);
+            } else if (valueClass == Double.class) {
+                out.writeByte(TAG_DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (valueClass == Boolean.class) {
+                out.writeByte(TAG_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else if (valueClass == Date.class) {
+                out.writeByte(TAG_DATE);
+                out.writeLong(((Date) value).getTime());
+            } else if (valueClass == BigDecimal.class) {
+                out.writeByte(TAG_BIG_DECIMAL);
+                writeString(value.toString());
+            } else if (valueClass == ArrayList.class) {
+                List<?> list = (List<?>) value;
+                out.writeByte(TAG_LIST);
+                writeVarInt(out, list.size());
+                for (Object object : list) {
+                    if (!writeValue(object)) {
+                        return false;
+                    }
+                }
+            } else if (valueClass == HashMap.class || valueClass == LinkedHashMap.class) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                out.writeByte(valueClass == HashMap.class ? TAG_HASH_MAP : TAG_LINKED_HASH_MAP);
+                writeVarInt(out, map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    if (!writeValue(entry.getKey()) || !writeValue(entry.getValue())) {
+                        return false;
+                    }
+                }
+            } else if (valueClass == UserTypeMap.class) {
+                return writeUserTypeMap((UserTypeMap) value);
+            } else if (valueClass == FileVariableImpl.class) {
+                FileVariableImpl fileVariable = (FileVariableImpl) value;
+                out.writeByte(TAG_FILE);
+                writeString(fileVariable.getName());
+                writeBytes(fileVariable.getData());
+                writeString(fileVariable.getContentType());
+            } else if (valueClass == LocalFileSystemVariable.class) {
+                LocalFileSystemVariable fileVariable = (LocalFileSystemVariable) value;
+                out.writeByte(TAG_LOCAL_FILE);
+                writeString(fileVariable.getName());
+                writeString(fileVariable.getContentType());
+                writeString(fileVariable.getVariablePath());
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        private boolean writeUserTypeMap(UserTypeMap userTypeMap) throws IOException {
+            UserType userType = userTypeMap.getUserType();
+            if (userType == null) {
+                return false;
+            }
+            Integer index = userTypeIndexes.get(userType);
+            if (index == null) {
+                index = userTypes.size();
+                userTypes.add(userType);
+                userTypeIndexes.put(userType, index);
+            }
+            out.writeByte(TAG_USER_TYPE_MAP);
+            writeVarInt(out, index);
+            writeVarInt(out, userTypeMap.size());
+            for (Map.Entry<String, Object> entry : userTypeMap.entrySet()) {
+                // values are restored through UserTypeMap.put, so only plain attribute names are accepted
+                VariableDefinition attributeDefinition = userType.getAttribute(entry.getKey());
+                if (attributeDefinition == null || !attributeDefinition.getName().equals(entry.getKey())) {
+                    return false;
+                }
+                writeString(entry.getKey());
+                if (!writeValue(entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void writeString(String string) throws IOException {
+            writeBytes(string != null ? string.getBytes(Charsets.UTF_8) : null);
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            if (bytes == null) {
+                writeVarInt(out, 0);
+                return;
+            }
+            writeVarInt(out, bytes.length + 1);
+            out.write(bytes);
+        }
+    }
+}
@@ -32,12 +32,18 @@ import java.io.Serializable;
 import ru.runa.wfe.InternalApplicationException;
 import ru.runa.wfe.commons.BackCompatibilityClassNames;
 import ru.runa.wfe.commons.ClassLoaderUtil;
+import ru.runa.wfe.commons.SystemProperties;
 import ru.runa.wfe.execution.ExecutionContext;
 import ru.runa.wfe.var.Converter;
 import ru.runa.wfe.var.Variable;
 import ru.runa.wfe.var.file.FileVariable;
 import ru.runa.wfe.var.file.FileVariableImpl;
 
+/**
+ * Stores serializable values as bytes. If binary codec is enabled (see {@link SystemProperties#isBinaryVariableCodecEnabled()}), values,
+ * supported by {@link BinaryVariableCodec}, are stored in compact binary format, others by java serialization. Both formats are always read, so
+ * after codec is enabled values in java serialization format are rewritten on next change.
+ */
 public class SerializableToByteArrayConverter implements Converter {
     private static final long serialVersionUID = 1L;
 
@@ -49,6 +55,12 @@ public class SerializableToByteArrayConverter implements Converter {
     @Override
     public Object convert(ExecutionContext executionContext, Variable<?> variable, Object o) {
         try {
+            if (SystemProperties.isBinaryVariableCodecEnabled()) {
+                byte[] bytes = BinaryVariableCodec.encode(o);
+                if (bytes != null) {
+                    return bytes;
+                }
+            }
             ByteArrayOutputStream memoryStream = new ByteArrayOutputStream();
             ObjectOutputStream objectStream = new ObjectOutputStream(memoryStream);
             objectStream.writeObject(o);
@@ -64,6 +76,9 @@ public class SerializableToByteArrayConverter implements Converter {
     public Object revert(Object o) {
         try {
             byte[] bytes = (byte[]) o;
+            if (BinaryVariableCodec.isEncoded(bytes)) {
+                return BinaryVariableCodec.decode(bytes);
+            }
             InputStream memoryStream = new ByteArrayInputStream(bytes);
             return new BackCompatibleObjectInputStream(memoryStream).readObject();
         } catch (IOException ex) {
@@ -49,6 +49,20 @@ public class BaseProcessVariableLoader {
         this.subprocessSyncCache = new SubprocessSyncCache(this);
     }
 
+    /**
+     * Creates loader with already resolved collaborators (without autowiring).
+     */
+    public BaseProcessVariableLoader(VariableLoader variableLoader, ProcessDefinition processDefinition, Process process,
+            NodeProcessDao nodeProcessDao, ProcessDefinitionLoader processDefinitionLoader, ProcessDao processDao) {
+        this.variableLoader = variableLoader;
+        this.process = process;
+        this.processDefinition = processDefinition;
+        this.nodeProcessDao = nodeProcessDao;
+        this.processDefinitionLoader = processDefinitionLoader;
+        this.processDao = processDao;
+        this.subprocessSyncCache = new SubprocessSyncCache(this);
+    }
+
     public WfVariable get(String name) {
         WfVariable variable = variableLoader.getVariable(processDefinition, process, name);
         if (variable != null) {
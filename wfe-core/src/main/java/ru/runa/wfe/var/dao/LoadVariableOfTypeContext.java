@@ -52,6 +52,7 @@ public class LoadVariableOfTypeContext {
         this.processDefinition = processDefinition;
         this.process = process;
         this.variableLoader = variableLoader;
+        this.preloadedVariables = preloadedVariables;
         this.variableDefinition = variableDefinition;
     }
 
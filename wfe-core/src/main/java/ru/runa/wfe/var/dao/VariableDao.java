@@ -4,10 +4,15 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.transaction.Synchronization;
+import javax.transaction.Transaction;
 import org.springframework.stereotype.Component;
+import ru.runa.wfe.InternalApplicationException;
 import ru.runa.wfe.commons.SqlCommons;
 import ru.runa.wfe.commons.SqlCommons.StringEqualsExpression;
 import ru.runa.wfe.commons.SystemProperties;
@@ -20,8 +25,17 @@ import ru.runa.wfe.var.Variable;
 @Component
 @SuppressWarnings({ "unchecked", "rawtypes" })
 public class VariableDao extends GenericDao<Variable> {
+    /**
+     * Variables, loaded by {@link #prefetch(Process)}: transaction -> process id -> variable name -> variable. Process id is mapped to
+     * <code>null</code> if process has too many variables.
+     */
+    private final Map<Transaction, Map<Long, Map<String, Variable<?>>>> prefetchedVariables = new ConcurrentHashMap<>();
 
     public Variable<?> get(Process process, String name) {
+        Map<String, Variable<?>> variables = getPrefetchedVariables(process);
+        if (variables != null) {
+            return variables.get(name);
+        }
         QVariable v = QVariable.variable;
         return queryFactory.selectFrom(v).where(v.process.eq(process).and(v.name.eq(name))).fetchFirst();
     }
@@ -108,14 +122,138 @@ public class VariableDao extends GenericDao<Variable> {
         return result;
     }
 
+    /**
+     * Loads all variables of process by one query, so that subsequent reads in current transaction do not query database. Does nothing outside
+     * transaction, for already prefetched process and for process with more than {@link SystemProperties#getVariablesPrefetchMaxCount()}
+     * variables.
+     */
+    public void prefetch(Process process) {
+        if (process.getId() == null) {
+            return;
+        }
+        Transaction transaction = Utils.getTransaction();
+        if (transaction == null) {
+            return;
+        }
+        Map<Long, Map<String, Variable<?>>> processesVariables = prefetchedVariables.get(transaction);
+        if (processesVariables == null) {
+            processesVariables = new HashMap<>();
+            prefetchedVariables.put(transaction, processesVariables);
+            PrefetchedVariablesSynchronization.register(transaction, prefetchedVariables);
+        } else if (processesVariables.containsKey(process.getId())) {
+            return;
+        }
+        int maxCount = SystemProperties.getVariablesPrefetchMaxCount();
+        QVariable v = QVariable.variable;
+        List<Variable<?>> list = queryFactory.selectFrom(v).where(v.process.eq(process)).limit(maxCount + 1).fetch();
+        Map<String, Variable<?>> variables = null;
+        if (list.size() <= maxCount) {
+            variables = new HashMap<>(list.size());
+            for (Variable<?> variable : list) {
+                variables.put(variable.getName(), variable);
+            }
+        } else {
+            log.debug("Not prefetching variables of " + process + ": more than " + maxCount + " variables");
+        }
+        processesVariables.put(process.getId(), variables);
+    }
+
+    @Override
+    public Variable create(Variable entity) {
+        super.create(entity);
+        Map<String, Variable<?>> variables = getPrefetchedVariables(entity.getProcess());
+        if (variables != null) {
+            variables.put(entity.getName(), entity);
+        }
+        return entity;
+    }
+
+    @Override
+    public void delete(Variable entity) {
+        super.delete(entity);
+        Map<String, Variable<?>> variables = getPrefetchedVariables(entity.getProcess());
+        if (variables != null) {
+            variables.remove(entity.getName());
+        }
+    }
+
     public void deleteAll(Process process) {
+        Map<String, Variable<?>> variables = getPrefetchedVariables(process);
+        if (variables != null) {
+            variables.clear();
+        }
         log.debug("deleting variables for process " + process.getId());
         QVariable v = QVariable.variable;
         queryFactory.delete(v).where(v.process.eq(process)).execute();
     }
 
+    /**
+     * Deletes variables of processes, not used in current transaction.
+     *
+     * @return deleted variables count
+     */
+    public long deleteByProcessIds(Collection<Long> processIds) {
+        QVariable v = QVariable.variable;
+        return queryFactory.delete(v).where(v.process.id.in(processIds)).execute();
+    }
+
     public List<Variable<?>> getVariablesByNameStartsWith(Process process, String namePrefix) {
+        Map<String, Variable<?>> variables = getPrefetchedVariables(process);
+        if (variables != null) {
+            List<Variable<?>> result = new ArrayList<>();
+            for (Variable<?> variable : variables.values()) {
+                if (variable.getName().startsWith(namePrefix)) {
+                    result.add(variable);
+                }
+            }
+            return result;
+        }
         final QVariable variable = QVariable.variable;
         return queryFactory.selectFrom(variable).where(variable.process.eq(process).and(variable.name.startsWith(namePrefix))).fetch();
     }
+
+    /**
+     * @return variables of process, prefetched in current transaction, or <code>null</code>
+     */
+    private Map<String, Variable<?>> getPrefetchedVariables(Process process) {
+        if (prefetchedVariables.isEmpty() || process == null || process.getId() == null) {
+            return null;
+        }
+        Transaction transaction = Utils.getTransaction();
+        if (transaction == null) {
+            return null;
+        }
+        Map<Long, Map<String, Variable<?>>> processesVariables = prefetchedVariables.get(transaction);
+        return processesVariables != null ? processesVariables.get(process.getId()) : null;
+    }
+
+    /**
+     * Drops prefetched variables on transaction completion.
+     */
+    static class PrefetchedVariablesSynchronization implements Synchronization {
+        private final Transaction transaction;
+        private final Map<Transaction, Map<Long, Map<String, Variable<?>>>> prefetchedVariables;
+
+        PrefetchedVariablesSynchronization(Transaction transaction, Map<Transaction, Map<Long, Map<String, Variable<?>>>> prefetchedVariables) {
+            this.transaction = transaction;
+            this.prefetchedVariables = prefetchedVariables;
+        }
+
+        @Override
+        public void beforeCompletion() {
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            prefetchedVariables.remove(transaction);
+        }
+
+        public static void register(Transaction transaction, Map<Transaction, Map<Long, Map<String, Variable<?>>>> prefetchedVariables) {
+            try {
+                transaction.registerSynchronization(new PrefetchedVariablesSynchronization(transaction, prefetchedVariables));
+            } catch (Exception e) {
+                throw new InternalApplicationException("Unexpected error on prefetched variables synchronization registration", e);
+            }
+        }
+    }
 }
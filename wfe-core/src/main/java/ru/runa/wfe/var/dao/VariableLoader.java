@@ -1,5 +1,6 @@
 package ru.runa.wfe.var.dao;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,12 +25,18 @@ public class VariableLoader {
     private static final Log log = LogFactory.getLog(VariableLoader.class);
 
     private final VariableDao dao;
-    private final Map<Process, Map<String, Variable<?>>> preloadedOutsideVariables = new HashMap<>();
+    private final Map<Process, Map<String, Variable<?>>> preloadedOutsideVariables;
 
+    /**
+     * @param preloadedVariables
+     *            not copied (it is usually loaded for whole list and shared by all loaders), so should not be changed after
+     */
     public VariableLoader(VariableDao dao, Map<Process, Map<String, Variable<?>>> preloadedVariables) {
         this.dao = dao;
         if (preloadedVariables != null) {
-            this.preloadedOutsideVariables.putAll(preloadedVariables);
+            this.preloadedOutsideVariables = preloadedVariables;
+        } else {
+            this.preloadedOutsideVariables = Collections.emptyMap();
         }
     }
 
@@ -81,8 +88,13 @@ public class VariableLoader {
     public Object getVariableValue(ProcessDefinition processDefinition, Process process, VariableDefinition variableDefinition) {
         VariableFormat format = variableDefinition.getFormatNotNull();
         boolean preloadBatchVariables = dao != null && format.canBePersistedAsComplexVariable();
-        Map<String, Variable<?>> preloadedBatchVariables = new HashMap<>();
+        if (dao != null && !preloadedOutsideVariables.containsKey(process)) {
+            // lists preload needed variables themselves
+            prefetch(processDefinition, process);
+        }
+        Map<String, Variable<?>> preloadedBatchVariables = null;
         if (preloadBatchVariables) {
+            preloadedBatchVariables = new HashMap<>();
             final List<Variable<?>> variables = dao.getVariablesByNameStartsWith(process, variableDefinition.getName());
             for (Variable<?> variable : variables) {
                 preloadedBatchVariables.put(variable.getName(), variable);
@@ -97,4 +109,14 @@ public class VariableLoader {
             return format.processBy(new LoadVariableOfType(), context);
         }
     }
+
+    /**
+     * Loads all process variables at once instead of querying them one by one (if enabled for process definition).
+     */
+    private void prefetch(ProcessDefinition processDefinition, Process process) {
+        Boolean enabled = processDefinition.getVariablesPrefetch();
+        if (enabled != null ? enabled : SystemProperties.isVariablesPrefetchEnabled()) {
+            dao.prefetch(process);
+        }
+    }
 }
@@ -1,21 +1,63 @@
 package ru.runa.wfe.var.file;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.Transaction;
 
 import ru.runa.wfe.InternalApplicationException;
 import ru.runa.wfe.commons.SystemProperties;
+import ru.runa.wfe.commons.Utils;
 import ru.runa.wfe.execution.ExecutionContext;
 import ru.runa.wfe.var.Variable;
 
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 
+/**
+ * Stores large file variables in local file system.
+ *
+ * Content is stored in blobs named by content hash ({@value #BLOBS_DIRECTORY}/ab/cd/abcd...), so identical files (e.g. copied to subprocesses or
+ * multi-instance tasks) are stored once. Each blob has references directory with empty marker file per process variable, referencing it (named
+ * by process id and variable name hash, or by process id only for files stored without variable); blobs without references are deleted by
+ * {@link ru.runa.wfe.job.impl.UnusedFileBlobsCleaner}. Variable reference is removed after commit of transaction, replacing variable value, so
+ * previous values are not available in process history after that.
+ *
+ * Files, saved by previous versions in process/variable/version layout, are still readable and are copied to blobs on next save; they are
+ * deleted with their process directory by {@link ru.runa.wfe.job.impl.UnusedFileBlobsCleaner} after process deletion.
+ */
 public class LocalFileSystemStorage implements FileVariableStorage {
+    public static final String BLOBS_DIRECTORY = "blobs";
+    public static final String UPLOADS_DIRECTORY = "uploads";
+    public static final String REFERENCES_SUFFIX = ".refs";
+    public static final String TEMP_SUFFIX = ".tmp";
+    public static final char REFERENCE_VARIABLE_DELIMITER = '-';
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int VARIABLE_NAME_HASH_LENGTH = 8;
+    /**
+     * Guards blob creation, references addition and blob deletion.
+     */
+    private static final Object BLOBS_LOCK = new Object();
 
     static File storageDir;
 
-    static synchronized File getLocalFileStorage() {
+    public static synchronized File getLocalFileStorage() {
         if (storageDir != null) {
             return storageDir;
         }
@@ -28,6 +70,9 @@ public class LocalFileSystemStorage implements FileVariableStorage {
 
     public static File getContentFile(String path, boolean create) {
         File file = new File(getLocalFileStorage(), path);
+        if (!isInsideStorage(file)) {
+            throw new InternalApplicationException("Path '" + path + "' points outside of local file storage");
+        }
         if (create) {
             try {
                 file.getParentFile().mkdirs();
@@ -42,34 +87,298 @@ public class LocalFileSystemStorage implements FileVariableStorage {
         return file;
     }
 
+    /**
+     * @return true if file content is accessible in local file system of this node.
+     */
+    public static boolean hasContentFile(String path) {
+        return new File(getLocalFileStorage(), path).isFile();
+    }
+
+    public static File getBlobsDirectory() {
+        return new File(getLocalFileStorage(), BLOBS_DIRECTORY);
+    }
+
+    /**
+     * @return directory for uploaded but not yet submitted files; they are moved to blobs on save as any other {@link LocalFileSystemVariable}.
+     */
+    public static File getUploadsDirectory() {
+        return new File(getLocalFileStorage(), UPLOADS_DIRECTORY);
+    }
+
+    /**
+     * @return true if path points to content addressed blob.
+     */
+    public static boolean isBlobPath(String path) {
+        return path != null && path.startsWith(BLOBS_DIRECTORY + "/");
+    }
+
+    /**
+     * Writes file content to stream without loading it to memory.
+     */
+    public static void transferContent(String path, OutputStream outputStream) throws IOException {
+        File file = getContentFile(path, false);
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long position = 0;
+            long size = channel.size();
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+    }
+
+    /**
+     * Deletes blob if it is not referenced by any process.
+     *
+     * @return true if blob has been deleted
+     */
+    public static boolean deleteBlobIfUnreferenced(File blobFile) {
+        synchronized (BLOBS_LOCK) {
+            File referencesDirectory = new File(blobFile.getPath() + REFERENCES_SUFFIX);
+            String[] references = referencesDirectory.list();
+            if (references != null && references.length > 0) {
+                return false;
+            }
+            referencesDirectory.delete();
+            return blobFile.delete();
+        }
+    }
+
     @Override
     public Object save(ExecutionContext executionContext, Variable<?> variable, Object object) {
+        Set<String> previousBlobPaths = SystemProperties.isLocalFileStorageEnabled() ? getBlobPaths(variable.getValue()) : new HashSet<String>();
         if (object instanceof FileVariable) {
             FileVariable fileVariable = (FileVariable) object;
-            object = save(variable, fileVariable, null);
+            object = save(variable, fileVariable);
         } else {
             List<FileVariable> list = (List<FileVariable>) object;
             for (int i = 0; i < list.size(); i++) {
                 FileVariable fileVariable = list.get(i);
-                fileVariable = save(variable, fileVariable, i);
+                fileVariable = save(variable, fileVariable);
                 list.set(i, fileVariable);
             }
         }
+        previousBlobPaths.removeAll(getBlobPaths(object));
+        if (!previousBlobPaths.isEmpty()) {
+            removeReferences(previousBlobPaths, getReferenceName(variable.getProcess().getId(), variable.getName()));
+        }
         return object;
     }
 
-    private FileVariable save(Variable<?> variable, FileVariable fileVariable, Integer index) {
-        if (SystemProperties.isLocalFileStorageEnabled() && fileVariable != null
-                && fileVariable.getData().length > SystemProperties.getLocalFileStorageFileLimit()) {
-            try {
-                String variableName = index != null ? variable.getName() + index : variable.getName();
-                LocalFileSystemVariable fileSystemVariable = new LocalFileSystemVariable(variable, variableName, fileVariable);
-                Files.write(fileVariable.getData(), getContentFile(fileSystemVariable.getVariablePath(), true));
-                return fileSystemVariable;
-            } catch (IOException e) {
-                throw new InternalApplicationException("Unable to save file variable to local drive", e);
+    private FileVariable save(Variable<?> variable, FileVariable fileVariable) {
+        if (!SystemProperties.isLocalFileStorageEnabled() || fileVariable == null) {
+            return fileVariable;
+        }
+        String referenceName = getReferenceName(variable.getProcess().getId(), variable.getName());
+        try {
+            if (fileVariable instanceof LocalFileSystemVariable) {
+                LocalFileSystemVariable fileSystemVariable = (LocalFileSystemVariable) fileVariable;
+                if (isBlobPath(fileSystemVariable.getVariablePath())) {
+                    // value copied from another variable or process, content is not read at all
+                    addReference(fileSystemVariable.getVariablePath(), referenceName);
+                    return fileSystemVariable;
+                }
+                String path;
+                try (InputStream inputStream = new FileInputStream(getContentFile(fileSystemVariable.getVariablePath(), false))) {
+                    path = saveBlob(inputStream, referenceName);
+                }
+                return new LocalFileSystemVariable(fileVariable.getName(), fileVariable.getContentType(), path);
+            }
+            byte[] data = fileVariable.getData();
+            if (data != null && data.length > SystemProperties.getLocalFileStorageFileLimit()) {
+                String path = saveBlob(data, referenceName);
+                return new LocalFileSystemVariable(fileVariable.getName(), fileVariable.getContentType(), path);
             }
+        } catch (IOException e) {
+            throw new InternalApplicationException("Unable to save file variable to local drive", e);
         }
         return fileVariable;
     }
+
+    /**
+     * Removes references after transaction commit: rolled back variable still points to blob.
+     */
+    private void removeReferences(final Set<String> paths, final String referenceName) {
+        Transaction transaction = getTransaction();
+        if (transaction == null) {
+            removeReferencesNow(paths, referenceName);
+            return;
+        }
+        try {
+            transaction.registerSynchronization(new Synchronization() {
+
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        removeReferencesNow(paths, referenceName);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            throw new InternalApplicationException("Unable to register blob references removal", e);
+        }
+    }
+
+    private static void removeReferencesNow(Set<String> paths, String referenceName) {
+        synchronized (BLOBS_LOCK) {
+            for (String path : paths) {
+                File referencesDirectory = new File(getLocalFileStorage(), path + REFERENCES_SUFFIX);
+                new File(referencesDirectory, referenceName).delete();
+            }
+        }
+    }
+
+    Transaction getTransaction() {
+        return Utils.getTransaction();
+    }
+
+    private static Set<String> getBlobPaths(Object value) {
+        Set<String> paths = new HashSet<>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                addBlobPath(paths, item);
+            }
+        } else {
+            addBlobPath(paths, value);
+        }
+        return paths;
+    }
+
+    private static void addBlobPath(Set<String> paths, Object value) {
+        if (value instanceof LocalFileSystemVariable && isBlobPath(((LocalFileSystemVariable) value).getVariablePath())) {
+            paths.add(((LocalFileSystemVariable) value).getVariablePath());
+        }
+    }
+
+    /**
+     * @return reference marker name of process variable
+     */
+    static String getReferenceName(Long processId, String variableName) {
+        byte[] hash = createDigest().digest(variableName.getBytes(Charsets.UTF_8));
+        return processId + String.valueOf(REFERENCE_VARIABLE_DELIMITER) + toHex(hash).substring(0, VARIABLE_NAME_HASH_LENGTH * 2);
+    }
+
+    /**
+     * @return process id of reference marker
+     */
+    public static Long getReferenceProcessId(String referenceName) {
+        int delimiterIndex = referenceName.indexOf(REFERENCE_VARIABLE_DELIMITER);
+        return Long.valueOf(delimiterIndex < 0 ? referenceName : referenceName.substring(0, delimiterIndex));
+    }
+
+    private static String saveBlob(byte[] data, String referenceName) throws IOException {
+        String path = getBlobPath(createDigest().digest(data));
+        synchronized (BLOBS_LOCK) {
+            if (new File(getLocalFileStorage(), path).exists()) {
+                addReference(path, referenceName);
+                return path;
+            }
+        }
+        File tempFile = createTempFile();
+        try {
+            Files.write(data, tempFile);
+            storeBlob(tempFile, path, referenceName);
+        } finally {
+            tempFile.delete();
+        }
+        return path;
+    }
+
+    private static String saveBlob(InputStream inputStream, String referenceName) throws IOException {
+        MessageDigest digest = createDigest();
+        File tempFile = createTempFile();
+        try {
+            try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+                ByteStreams.copy(new DigestInputStream(inputStream, digest), outputStream);
+            }
+            String path = getBlobPath(digest.digest());
+            storeBlob(tempFile, path, referenceName);
+            return path;
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Stores file content as blob, referenced by process. File is moved to blob if possible, so caller must delete it after that.
+     *
+     * @return blob path
+     */
+    public static String saveBlob(File file, Long processId) throws IOException {
+        MessageDigest digest = createDigest();
+        try (InputStream inputStream = new DigestInputStream(new FileInputStream(file), digest)) {
+            ByteStreams.exhaust(inputStream);
+        }
+        String path = getBlobPath(digest.digest());
+        storeBlob(file, path, String.valueOf(processId));
+        return path;
+    }
+
+    private static File createTempFile() throws IOException {
+        // temp files are created near blobs for atomic rename
+        File blobsDirectory = getBlobsDirectory();
+        blobsDirectory.mkdirs();
+        return File.createTempFile("upload", TEMP_SUFFIX, blobsDirectory);
+    }
+
+    private static void storeBlob(File tempFile, String path, String referenceName) throws IOException {
+        synchronized (BLOBS_LOCK) {
+            File blobFile = new File(getLocalFileStorage(), path);
+            if (!blobFile.exists()) {
+                blobFile.getParentFile().mkdirs();
+                if (!tempFile.renameTo(blobFile)) {
+                    Files.copy(tempFile, blobFile);
+                }
+            }
+            addReference(path, referenceName);
+        }
+    }
+
+    private static void addReference(String path, String referenceName) throws IOException {
+        synchronized (BLOBS_LOCK) {
+            File blobFile = getContentFile(path, false);
+            File referencesDirectory = new File(blobFile.getPath() + REFERENCES_SUFFIX);
+            referencesDirectory.mkdirs();
+            File referenceFile = new File(referencesDirectory, referenceName);
+            if (!referenceFile.createNewFile()) {
+                // renews reference age for unused blobs cleaner
+                referenceFile.setLastModified(System.currentTimeMillis());
+            }
+        }
+    }
+
+    private static boolean isInsideStorage(File file) {
+        try {
+            String storagePath = getLocalFileStorage().getCanonicalPath() + File.separator;
+            return file.getCanonicalPath().startsWith(storagePath);
+        } catch (IOException e) {
+            throw new InternalApplicationException("Unable to resolve path of '" + file + "'", e);
+        }
+    }
+
+    private static String toHex(byte[] hash) {
+        char[] chars = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0x0F];
+            chars[i * 2 + 1] = HEX_DIGITS[hash[i] & 0x0F];
+        }
+        return new String(chars);
+    }
+
+    private static String getBlobPath(byte[] hash) {
+        String hex = toHex(hash);
+        return BLOBS_DIRECTORY + "/" + hex.substring(0, 2) + "/" + hex.substring(2, 4) + "/" + hex;
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new InternalApplicationException(e);
+        }
+    }
 }
@@ -4,7 +4,6 @@ import java.io.File;
 import java.io.IOException;
 
 import ru.runa.wfe.InternalApplicationException;
-import ru.runa.wfe.var.Variable;
 
 import com.google.common.base.Objects;
 import com.google.common.io.Files;
@@ -24,19 +23,10 @@ public class LocalFileSystemVariable implements FileVariable {
     public LocalFileSystemVariable() {
     }
 
-    public LocalFileSystemVariable(Variable<?> variable, String variableName, FileVariable fileVariable) {
-        name = fileVariable.getName();
-        contentType = fileVariable.getContentType();
-        long version = variable.getVersion() != null ? variable.getVersion() + 1 : 0;
-        StringBuffer b = new StringBuffer();
-        for (char ch : variableName.toCharArray()) {
-            if (Character.isLetterOrDigit(ch)) {
-                b.append(ch);
-            } else {
-                b.append('_');
-            }
-        }
-        variablePath = variable.getProcess().getId() + "/" + b + "/" + version;
+    public LocalFileSystemVariable(String name, String contentType, String variablePath) {
+        this.name = name;
+        this.contentType = contentType;
+        this.variablePath = variablePath;
     }
 
     public String getVariablePath() {
@@ -70,14 +60,14 @@ public class LocalFileSystemVariable implements FileVariable {
 
     @Override
     public int hashCode() {
-        return variablePath.hashCode();
+        return Objects.hashCode(variablePath, name, contentType);
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof LocalFileSystemVariable) {
             LocalFileSystemVariable f = (LocalFileSystemVariable) obj;
-            return Objects.equal(variablePath, f.variablePath);
+            return Objects.equal(variablePath, f.variablePath) && Objects.equal(name, f.name) && Objects.equal(contentType, f.contentType);
         }
         return false;
     }
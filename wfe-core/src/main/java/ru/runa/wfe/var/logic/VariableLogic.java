@@ -51,9 +51,10 @@ import ru.runa.wfe.execution.ConvertToSimpleVariablesContext;
 import ru.runa.wfe.execution.ConvertToSimpleVariablesResult;
 import ru.runa.wfe.execution.ConvertToSimpleVariablesUnrollContext;
 import ru.runa.wfe.execution.ExecutionContext;
-import ru.runa.wfe.execution.ExecutionVariableProvider;
+import ru.runa.wfe.execution.ExecutionContextFactory;
 import ru.runa.wfe.execution.Process;
 import ru.runa.wfe.execution.ProcessDoesNotExistException;
+import ru.runa.wfe.execution.ProcessVariableProvider;
 import ru.runa.wfe.lang.MultiTaskNode;
 import ru.runa.wfe.lang.ProcessDefinition;
 import ru.runa.wfe.security.Permission;
@@ -82,6 +83,8 @@ public class VariableLogic extends WfCommonLogic {
     private AuditLogic auditLogic;
     @Autowired
     private VariableCreator variableCreator;
+    @Autowired
+    private ExecutionContextFactory executionContextFactory;
 
     public List<WfVariable> getVariables(User user, Long processId) throws ProcessDoesNotExistException {
         List<WfVariable> result = Lists.newArrayList();
@@ -89,9 +92,9 @@ public class VariableLogic extends WfCommonLogic {
         ProcessDefinition processDefinition = getDefinition(process);
         permissionDao.checkAllowed(user, Permission.READ, process);
         Map<Process, Map<String, Variable<?>>> variables = variableDao.getVariables(Sets.newHashSet(process));
-        ExecutionContext executionContext = new ExecutionContext(processDefinition, process, variables, true);
+        ProcessVariableProvider variableProvider = executionContextFactory.createVariableProvider(processDefinition, process, variables, true);
         for (VariableDefinition variableDefinition : processDefinition.getVariables()) {
-            WfVariable variable = executionContext.getVariable(variableDefinition.getName(), false);
+            WfVariable variable = variableProvider.getVariable(variableDefinition.getName(), false);
             if (variable != null && !Utils.isNullOrEmpty(variable.getValue())) {
                 result.add(variable);
             }
@@ -107,9 +110,9 @@ public class VariableLogic extends WfCommonLogic {
         for (Process process : processes) {
             List<WfVariable> list = Lists.newArrayList();
             ProcessDefinition processDefinition = getDefinition(process);
-            ExecutionContext executionContext = new ExecutionContext(processDefinition, process, variables, true);
+            ProcessVariableProvider variableProvider = executionContextFactory.createVariableProvider(processDefinition, process, variables, true);
             for (VariableDefinition variableDefinition : processDefinition.getVariables()) {
-                WfVariable variable = executionContext.getVariable(variableDefinition.getName(), false);
+                WfVariable variable = variableProvider.getVariable(variableDefinition.getName(), false);
                 if (variable != null && !Utils.isNullOrEmpty(variable.getValue())) {
                     list.add(variable);
                 }
@@ -398,7 +401,7 @@ public class VariableLogic extends WfCommonLogic {
         if (Strings.isNullOrEmpty(SystemProperties.getBaseProcessIdVariableName())) {
             return null;
         }
-        VariableProvider processVariableProvider = new ExecutionVariableProvider(new ExecutionContext(getDefinition(process), process));
+        VariableProvider processVariableProvider = executionContextFactory.createVariableProvider(getDefinition(process), process, null, false);
         final Long baseProcessId = (Long) processVariableProvider.getValue(SystemProperties.getBaseProcessIdVariableName());
         if (baseProcessId == null) {
             return null;
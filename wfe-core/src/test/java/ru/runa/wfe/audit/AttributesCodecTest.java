@@ -0,0 +1,37 @@
+package ru.runa.wfe.audit;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.runa.wfe.commons.xml.XmlUtils;
+
+public class AttributesCodecTest extends Assert {
+
+    @Test
+    public void encodeDecode() {
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("name", "transition: 1");
+        attributes.put("empty", "");
+        attributes.put("text", "<r>12:34 #&amp; значение</r>");
+        String encoded = AttributesCodec.encode(attributes);
+        assertEquals(AttributesCodec.decode(encoded), attributes);
+        assertTrue(encoded.length() < XmlUtils.serialize(attributes).length());
+        assertEquals(AttributesCodec.decode(AttributesCodec.encode(new HashMap<String, String>())), new HashMap<String, String>());
+    }
+
+    @Test
+    public void nullValue() {
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("actor", null);
+        assertEquals(AttributesCodec.decode(AttributesCodec.encode(attributes)).get("actor"), "null");
+    }
+
+    @Test
+    public void decodeLegacyXml() {
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("transition", "tr1");
+        attributes.put("message", "a < b");
+        assertEquals(AttributesCodec.decode(XmlUtils.serialize(attributes)), attributes);
+    }
+}
@@ -0,0 +1,142 @@
+package ru.runa.wfe.audit.dao;
+
+import java.util.List;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.Transaction;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.event.AutoFlushEvent;
+import org.hibernate.event.AutoFlushEventListener;
+import org.hibernate.event.FlushEvent;
+import org.hibernate.event.FlushEventListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import ru.runa.wfe.audit.ProcessLog;
+import ru.runa.wfe.execution.Process;
+import ru.runa.wfe.execution.Token;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ProcessLogDaoTest {
+    @Mock
+    private SessionFactory sessionFactory;
+    @Mock
+    private Session session;
+    @Mock
+    private ProcessLogAwareDao customizationDao;
+    @Mock
+    private Transaction transaction;
+    @Mock
+    private Process process;
+    @Mock
+    private Token token;
+    @Mock
+    private FlushEventListener flushEventListener;
+    @Mock
+    private AutoFlushEventListener autoFlushEventListener;
+    @Spy
+    @InjectMocks
+    private ProcessLogDao processLogDao;
+    private ProcessLogFlushEventListener listener;
+
+    @Before
+    public void init() {
+        when(sessionFactory.getCurrentSession()).thenReturn(session);
+        when(process.getId()).thenReturn(1L);
+        when(token.getId()).thenReturn(2L);
+        when(token.getNodeId()).thenReturn("tn1");
+        doReturn(true).when(processLogDao).isBufferingEnabled();
+        doReturn(transaction).when(processLogDao).getTransaction();
+        listener = new ProcessLogFlushEventListener(processLogDao, flushEventListener, autoFlushEventListener);
+    }
+
+    @Test
+    public void givenBufferedLogs_whenAutoFlush_thenLogsSavedBeforeQuery() {
+        ProcessLog log1 = mock(ProcessLog.class);
+        ProcessLog log2 = mock(ProcessLog.class);
+        processLogDao.addLog(log1, process, token);
+        processLogDao.addLog(log2, process, token);
+        verify(session, never()).save(any());
+
+        AutoFlushEvent event = mock(AutoFlushEvent.class);
+        listener.onAutoFlush(event);
+
+        InOrder inOrder = inOrder(session, customizationDao, autoFlushEventListener);
+        inOrder.verify(session).save(log1);
+        inOrder.verify(session).save(log2);
+        inOrder.verify(customizationDao).addLogs(anyList());
+        inOrder.verify(autoFlushEventListener).onAutoFlush(event);
+    }
+
+    @Test
+    public void givenBufferedLogs_whenFlushedTwice_thenLogsSavedOnce() throws Exception {
+        ProcessLog processLog = mock(ProcessLog.class);
+        processLogDao.addLog(processLog, process, token);
+
+        listener.onAutoFlush(mock(AutoFlushEvent.class));
+        listener.onFlush(mock(FlushEvent.class));
+
+        verify(session, times(1)).save(processLog);
+        verify(transaction, times(1)).registerSynchronization(any(Synchronization.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void givenBufferedLogs_whenFlushed_thenAggregatedLogsUpdatedInOneCall() {
+        processLogDao.addLog(mock(ProcessLog.class), process, token);
+        processLogDao.addLog(mock(ProcessLog.class), process, token);
+        processLogDao.addLog(mock(ProcessLog.class), process, token);
+
+        listener.onFlush(mock(FlushEvent.class));
+
+        ArgumentCaptor<List<PendingProcessLog>> captor = ArgumentCaptor.forClass(List.class);
+        verify(customizationDao, times(1)).addLogs(captor.capture());
+        assertEquals(3, captor.getValue().size());
+    }
+
+    @Test
+    public void givenBufferedLogs_whenRolledBack_thenBufferDropped() throws Exception {
+        ProcessLog processLog = mock(ProcessLog.class);
+        processLogDao.addLog(processLog, process, token);
+        ArgumentCaptor<Synchronization> captor = ArgumentCaptor.forClass(Synchronization.class);
+        verify(transaction).registerSynchronization(captor.capture());
+
+        captor.getValue().afterCompletion(Status.STATUS_ROLLEDBACK);
+        FlushEvent event = mock(FlushEvent.class);
+        listener.onFlush(event);
+
+        verify(session, never()).save(any());
+        verify(customizationDao, never()).addLogs(anyList());
+        verify(flushEventListener).onFlush(event);
+    }
+
+    @Test
+    public void givenBufferingDisabled_thenLogSavedImmediately() throws Exception {
+        doReturn(false).when(processLogDao).isBufferingEnabled();
+        ProcessLog processLog = mock(ProcessLog.class);
+
+        processLogDao.addLog(processLog, process, token);
+
+        verify(session).save(processLog);
+        verify(customizationDao).addLogs(anyList());
+        verify(transaction, never()).registerSynchronization(any(Synchronization.class));
+    }
+}
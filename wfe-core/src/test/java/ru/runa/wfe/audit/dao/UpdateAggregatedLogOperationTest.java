@@ -0,0 +1,91 @@
+package ru.runa.wfe.audit.dao;
+
+import com.querydsl.jpa.hibernate.HibernateQuery;
+import java.util.Date;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import ru.runa.wfe.audit.TaskCreateLog;
+import ru.runa.wfe.audit.TaskEndLog;
+import ru.runa.wfe.audit.aggregated.QTaskAggregatedLog;
+import ru.runa.wfe.audit.aggregated.TaskAggregatedLog;
+import ru.runa.wfe.audit.aggregated.TaskAggregatedLog.EndReason;
+import ru.runa.wfe.commons.querydsl.HibernateQueryFactory;
+import ru.runa.wfe.definition.dao.ProcessDefinitionLoader;
+import ru.runa.wfe.execution.Process;
+import ru.runa.wfe.execution.Token;
+import ru.runa.wfe.lang.ProcessDefinition;
+import ru.runa.wfe.task.Task;
+import ru.runa.wfe.task.TaskCompletionBy;
+import ru.runa.wfe.task.TaskCompletionInfo;
+import ru.runa.wfe.user.Actor;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Answers.RETURNS_SELF;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class UpdateAggregatedLogOperationTest {
+    @Mock
+    private SessionFactory sessionFactory;
+    @Mock
+    private Session session;
+    @Mock
+    private HibernateQueryFactory queryFactory;
+    @Mock(answer = RETURNS_SELF)
+    private HibernateQuery<TaskAggregatedLog> taskLogQuery;
+    @Mock
+    private ProcessDefinitionLoader processDefinitionLoader;
+    @Mock
+    private Process process;
+    @Mock
+    private Token token;
+    @Mock
+    private Task task;
+    @Mock
+    private Actor actor;
+
+    @Before
+    public void init() {
+        when(sessionFactory.getCurrentSession()).thenReturn(session);
+        when(queryFactory.selectFrom(QTaskAggregatedLog.taskAggregatedLog)).thenReturn(taskLogQuery);
+        when(taskLogQuery.fetchFirst()).thenReturn(null);
+        when(processDefinitionLoader.getDefinition(process)).thenReturn(mock(ProcessDefinition.class));
+        when(task.getId()).thenReturn(10L);
+        when(task.getName()).thenReturn("task");
+        when(task.getNodeId()).thenReturn("tn1");
+        when(actor.getName()).thenReturn("actor");
+    }
+
+    @Test
+    public void givenTaskCreatedAndCompletedInOneTransaction_thenOneAggregatedLogInserted() {
+        TaskCreateLog createLog = new TaskCreateLog(task);
+        createLog.setCreateDate(new Date(1000));
+        TaskEndLog endLog = new TaskEndLog(task, TaskCompletionInfo.createForUser(TaskCompletionBy.ASSIGNED_EXECUTOR, actor, "tr1"));
+        endLog.setCreateDate(new Date(2000));
+        UpdateAggregatedLogOperation op = new UpdateAggregatedLogOperation(sessionFactory, queryFactory, processDefinitionLoader);
+
+        op.apply(new PendingProcessLog(createLog, process, token));
+        op.apply(new PendingProcessLog(endLog, process, token));
+        op.saveCreatedLogs();
+
+        verify(taskLogQuery, times(1)).fetchFirst();
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(session, times(1)).save(captor.capture());
+        TaskAggregatedLog logEntry = (TaskAggregatedLog) captor.getValue();
+        assertEquals(Long.valueOf(10L), logEntry.getTaskId());
+        assertEquals(EndReason.COMPLETED.getDbValue(), logEntry.getEndReason());
+        assertEquals("actor", logEntry.getCompleteActorName());
+        assertEquals(new Date(2000), logEntry.getEndDate());
+        verify(session, times(0)).merge(any());
+    }
+}
@@ -0,0 +1,302 @@
+package ru.runa.wfe.commons.cache.cluster;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.transaction.Transaction;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import ru.runa.wfe.commons.cache.Change;
+import ru.runa.wfe.commons.cache.ChangedObjectParameter;
+import ru.runa.wfe.commons.cache.common.TestCacheIface;
+import ru.runa.wfe.commons.cache.common.TestTransaction;
+import ru.runa.wfe.commons.cache.sm.CacheStateMachine;
+import ru.runa.wfe.commons.cache.sm.CachingLogic;
+import ru.runa.wfe.commons.cache.sm.ChangeListener;
+import ru.runa.wfe.commons.cache.sm.factories.StaticCacheFactory;
+import ru.runa.wfe.commons.cache.states.DefaultStateContext;
+import ru.runa.wfe.commons.cache.states.IsolatedCacheStateFactory;
+
+/**
+ * Several cluster nodes in one JVM: every node has own cache state machine over shared database and own invalidation bus.
+ */
+public class CacheInvalidationBusTest extends Assert {
+    private final Map<Long, Long> database = new ConcurrentHashMap<>();
+    private final List<CacheInvalidationMessage> channel = new ArrayList<>();
+    private Node node1;
+    private Node node2;
+    private Node node3;
+
+    @BeforeMethod
+    public void init() {
+        database.clear();
+        channel.clear();
+        node1 = new Node();
+        node2 = new Node();
+        node3 = new Node();
+    }
+
+    @Test
+    public void committedChangeIsAppliedOnOtherNodes() {
+        database.put(1L, 10L);
+        assertEquals(node2.cachedValue(1L), Long.valueOf(10L));
+        assertEquals(node3.cachedValue(1L), Long.valueOf(10L));
+        TestTransaction transaction = new TestTransaction();
+        database.put(1L, 11L);
+        node1.bus.onChange(transaction, new TestEntity(), 1L, Change.UPDATE);
+        node1.bus.onTransactionComplete(transaction, true);
+        assertEquals(node2.cachedValue(1L), Long.valueOf(10L));
+        executeAll();
+        assertEquals(node2.cachedValue(1L), Long.valueOf(11L));
+        assertEquals(node3.cachedValue(1L), Long.valueOf(11L));
+        assertTrue(node1.invalidations.isEmpty());
+        assertEquals(node2.invalidations.size(), 1);
+        assertEquals(node2.invalidations.get(0), new CacheInvalidationEvent(TestEntity.class.getName(), "1", Change.UPDATE));
+        // Messages, returned again by transport, are not applied
+        executeAll();
+        assertEquals(node2.invalidations.size(), 1);
+    }
+
+    @Test
+    public void transactionEventsAreCoalesced() {
+        TestTransaction transaction = new TestTransaction();
+        node1.bus.onChange(transaction, new TestEntity(), 1L, Change.CREATE);
+        node1.bus.onChange(transaction, new TestEntity(), 1L, Change.UPDATE);
+        node1.bus.onChange(transaction, new TestEntity(), 2L, Change.UPDATE);
+        node1.bus.onChange(transaction, new TestEntity(), 2L, Change.DELETE);
+        node1.bus.onTransactionComplete(transaction, true);
+        executeAll();
+        assertEquals(channel.size(), 1);
+        assertEquals(node2.invalidations.size(), 2);
+        assertEquals(node2.invalidations.get(0).getChange(), Change.CREATE);
+        assertEquals(node2.invalidations.get(1).getChange(), Change.DELETE);
+    }
+
+    @Test
+    public void largeTransactionIsSentAsTypeChanges() {
+        node1.bus.setMaxEventsPerTransaction(2);
+        TestTransaction transaction = new TestTransaction();
+        for (long id = 0; id < 5; id++) {
+            node1.bus.onChange(transaction, new TestEntity(), id, Change.UPDATE);
+        }
+        node1.bus.onTransactionComplete(transaction, true);
+        executeAll();
+        assertEquals(node2.invalidations.size(), 1);
+        assertNull(node2.invalidations.get(0).getEntityId());
+    }
+
+    @Test
+    public void rolledBackChangeIsNotPublished() {
+        TestTransaction transaction = new TestTransaction();
+        node1.bus.onChange(transaction, new TestEntity(), 1L, Change.UPDATE);
+        node1.bus.onTransactionComplete(transaction, false);
+        executeAll();
+        assertTrue(channel.isEmpty());
+        assertTrue(node2.invalidations.isEmpty());
+    }
+
+    @Test
+    public void missedMessageResetsAllCaches() {
+        commitChange(node1, 1L);
+        executeAll();
+        node1.transport.publishedLost = true;
+        commitChange(node1, 2L);
+        node1.bus.execute();
+        node1.transport.publishedLost = false;
+        commitChange(node1, 3L);
+        executeAll();
+        assertEquals(node2.resetCount, 1);
+        assertEquals(node3.resetCount, 1);
+        assertEquals(node2.invalidations.size(), 1);
+    }
+
+    @Test
+    public void failedPublicationIsRepeated() {
+        node1.transport.publishFails = true;
+        commitChange(node1, 1L);
+        executeAll();
+        assertTrue(node2.invalidations.isEmpty());
+        node1.transport.publishFails = false;
+        commitChange(node1, 2L);
+        executeAll();
+        assertEquals(node2.invalidations.size(), 2);
+        assertEquals(node2.resetCount, 0);
+    }
+
+    @Test
+    public void queueOverflowIsDetectedAsMissedMessages() {
+        node1.bus.setMaxQueueSize(2);
+        commitChange(node1, 1L);
+        executeAll();
+        node1.transport.publishFails = true;
+        for (long id = 2; id < 5; id++) {
+            commitChange(node1, id);
+        }
+        executeAll();
+        assertEquals(node2.resetCount, 0);
+        node1.transport.publishFails = false;
+        executeAll();
+        assertEquals(node2.resetCount, 1);
+        assertEquals(channel.size(), 3);
+    }
+
+    @Test
+    public void silentNodeIsForgotten() {
+        node2.bus.setNodeExpirationMillis(1000);
+        commitChange(node1, 1L);
+        commitChange(node3, 2L);
+        executeAll();
+        executeAll();
+        assertEquals(node2.bus.getReceivedNodeIds(), Sets.newHashSet(node1.bus.getNodeId(), node3.bus.getNodeId()));
+        node2.time += 600;
+        commitChange(node3, 3L);
+        executeAll();
+        node2.time += 600;
+        node2.bus.execute();
+        assertEquals(node2.bus.getReceivedNodeIds(), Sets.newHashSet(node3.bus.getNodeId()));
+        assertEquals(node2.invalidations.size(), 3);
+        assertEquals(node2.resetCount, 0);
+    }
+
+    @Test
+    public void listenersReceiveChangedObjectIds() {
+        TestListener listener = new TestListener();
+        CachingLogic.registerChangeListener(listener);
+        List<CacheInvalidationEvent> events = new ArrayList<>();
+        events.add(new CacheInvalidationEvent(TestListenedEntity.class.getName(), "1", Change.UPDATE));
+        events.add(new CacheInvalidationEvent(TestListenedEntity.class.getName(), null, Change.DELETE));
+        new CachingLogicInvalidationTarget().invalidate(events);
+        assertEquals(listener.remoteChanges, Lists.newArrayList("1 UPDATE", "null DELETE"));
+    }
+
+    @Test
+    public void eventsTextIsParsed() {
+        List<CacheInvalidationEvent> events = new ArrayList<>();
+        events.add(new CacheInvalidationEvent(TestEntity.class.getName(), "1", Change.CREATE));
+        events.add(new CacheInvalidationEvent(TestEntity.class.getName(), null, Change.DELETE));
+        CacheInvalidationMessage message = new CacheInvalidationMessage("node", 7, events);
+        CacheInvalidationMessage parsed = CacheInvalidationMessage.parse("node", 7, message.getEventsAsText());
+        assertEquals(parsed.getEvents(), events);
+    }
+
+    private void commitChange(Node node, long id) {
+        TestTransaction transaction = new TestTransaction();
+        node.bus.onChange(transaction, new TestEntity(), id, Change.UPDATE);
+        node.bus.onTransactionComplete(transaction, true);
+    }
+
+    private void executeAll() {
+        node1.bus.execute();
+        node2.bus.execute();
+        node3.bus.execute();
+    }
+
+    private static class TestEntity {
+    }
+
+    private static class TestListenedEntity {
+    }
+
+    private static class TestListener implements ChangeListener {
+        private final List<String> remoteChanges = new ArrayList<>();
+
+        @Override
+        public boolean onChange(Transaction transaction, ChangedObjectParameter changedObject) {
+            return false;
+        }
+
+        @Override
+        public void beforeTransactionComplete(Transaction transaction) {
+        }
+
+        @Override
+        public void onTransactionCompleted(Transaction transaction) {
+        }
+
+        @Override
+        public void onRemoteChange(Class<?> objectType, String objectId, Change change) {
+            remoteChanges.add(objectId + " " + change);
+        }
+
+        @Override
+        public void uninitialize(Object object, Change change) {
+        }
+
+        @Override
+        public List<Class<?>> getListenObjectTypes() {
+            return Lists.<Class<?>>newArrayList(TestListenedEntity.class);
+        }
+    }
+
+    private class Node implements CacheInvalidationTarget {
+        private final InMemoryCacheInvalidationTransport transport = new InMemoryCacheInvalidationTransport(channel);
+        private final CacheInvalidationBus bus = new CacheInvalidationBus() {
+
+            @Override
+            long currentTimeMillis() {
+                return time;
+            }
+        };
+        private final CacheStateMachine<TestCacheIface, DefaultStateContext> stateMachine = CacheStateMachine.createStateMachine(
+                new StaticCacheFactory<TestCacheIface>() {
+
+                    @Override
+                    public TestCacheIface buildCache() {
+                        return new TestStaticCache(new HashMap<>(database));
+                    }
+                }, new IsolatedCacheStateFactory<TestCacheIface>(), this);
+        private final List<CacheInvalidationEvent> invalidations = new ArrayList<>();
+        private int resetCount;
+        private long time;
+
+        Node() {
+            bus.setEnabled(true);
+            bus.setTransport(transport);
+            bus.setTarget(this);
+        }
+
+        Long cachedValue(long key) {
+            return stateMachine.getCacheIfNotLocked(new TestTransaction(), false).cachedValue(key);
+        }
+
+        @Override
+        public void invalidate(Collection<CacheInvalidationEvent> events) {
+            invalidations.addAll(events);
+            stateMachine.dropCache();
+        }
+
+        @Override
+        public void invalidateAll() {
+            resetCount++;
+            stateMachine.dropCache();
+        }
+    }
+
+    private static class TestStaticCache implements TestCacheIface {
+        private final Map<Long, Long> cachedData;
+
+        TestStaticCache(Map<Long, Long> cachedData) {
+            this.cachedData = cachedData;
+        }
+
+        @Override
+        public void commitCache() {
+        }
+
+        @Override
+        public boolean onChange(ChangedObjectParameter changedObject) {
+            return false;
+        }
+
+        @Override
+        public Long cachedValue(long key) {
+            return cachedData.get(key);
+        }
+    }
+}
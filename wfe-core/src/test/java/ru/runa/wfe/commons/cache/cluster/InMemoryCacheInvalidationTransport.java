@@ -0,0 +1,46 @@
+package ru.runa.wfe.commons.cache.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transport for nodes in one JVM. Like JDBC transport, returns already received messages again: every message is returned by two receive calls.
+ */
+public class InMemoryCacheInvalidationTransport implements CacheInvalidationTransport {
+    private final List<CacheInvalidationMessage> channel;
+    private int settledIndex;
+    private int receivedIndex;
+    boolean publishFails;
+    boolean publishedLost;
+
+    /**
+     * @param channel
+     *            messages list, shared by nodes
+     */
+    public InMemoryCacheInvalidationTransport(List<CacheInvalidationMessage> channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void publish(List<CacheInvalidationMessage> messages) throws Exception {
+        if (publishFails) {
+            throw new Exception("Channel is not available");
+        }
+        if (publishedLost) {
+            return;
+        }
+        synchronized (channel) {
+            channel.addAll(messages);
+        }
+    }
+
+    @Override
+    public List<CacheInvalidationMessage> receive() {
+        synchronized (channel) {
+            List<CacheInvalidationMessage> result = new ArrayList<>(channel.subList(settledIndex, channel.size()));
+            settledIndex = receivedIndex;
+            receivedIndex = channel.size();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package ru.runa.wfe.commons.cache.snapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.transaction.Status;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import ru.runa.wfe.commons.cache.Change;
+import ru.runa.wfe.commons.cache.ChangedObjectParameter;
+import ru.runa.wfe.commons.cache.common.TestCacheIface;
+import ru.runa.wfe.commons.cache.common.TestTransaction;
+import ru.runa.wfe.commons.cache.sm.CacheStateMachine;
+import ru.runa.wfe.commons.cache.sm.factories.StaticCacheFactory;
+import ru.runa.wfe.commons.cache.states.CacheStateFactory;
+import ru.runa.wfe.commons.cache.states.DefaultStateContext;
+import ru.runa.wfe.commons.cache.states.IsolatedCacheStateFactory;
+import ru.runa.wfe.commons.cache.states.SnapshotCacheStateFactory;
+
+/**
+ * Uses in-memory database: committed values and values, changed by current thread transaction.
+ */
+public class SnapshotCacheTest extends Assert {
+    private static final Log log = LogFactory.getLog(SnapshotCacheTest.class);
+    private static final ChangedObjectParameter CHANGE = new ChangedObjectParameter(1L, Change.UPDATE, null, null, null, null);
+    private static final int READERS = 4;
+    private static final int WRITERS = 2;
+    private static final long DURATION = 500;
+
+    private final TestDatabase database = new TestDatabase();
+
+    @BeforeMethod
+    public void init() {
+        database.clear();
+    }
+
+    @Test
+    public void readersUseCommittedGenerationWhileWriting() {
+        CacheStateMachine<TestCacheIface, DefaultStateContext> stateMachine = createStateMachine(new SnapshotCacheStateFactory<TestCacheIface>());
+        TestCacheIface committed = stateMachine.getCacheIfNotLocked(new TestTransaction(), false);
+        assertNotNull(committed);
+        StatusTransaction writer = new StatusTransaction();
+        database.write(1L, 10L);
+        stateMachine.onChange(writer, CHANGE);
+        assertSame(stateMachine.getCacheIfNotLocked(new TestTransaction(), false), committed);
+        TestCacheIface overlay = stateMachine.getCacheIfNotLocked(writer, true);
+        assertNotSame(overlay, committed);
+        assertEquals(overlay.cachedValue(1L), Long.valueOf(10L));
+        assertNull(committed.cachedValue(1L));
+        commit(stateMachine, writer);
+        assertSame(stateMachine.getCacheIfNotLocked(new TestTransaction(), false), overlay);
+    }
+
+    @Test
+    public void overlayIsNotPublishedAfterOtherCommit() {
+        CacheStateMachine<TestCacheIface, DefaultStateContext> stateMachine = createStateMachine(new SnapshotCacheStateFactory<TestCacheIface>());
+        StatusTransaction first = new StatusTransaction();
+        StatusTransaction second = new StatusTransaction();
+        stateMachine.onChange(first, CHANGE);
+        stateMachine.onChange(second, CHANGE);
+        TestCacheIface overlay = stateMachine.getCacheIfNotLocked(first, true);
+        database.write(2L, 20L);
+        commit(stateMachine, second);
+        commit(stateMachine, first);
+        TestCacheIface committed = stateMachine.getCacheIfNotLocked(new TestTransaction(), false);
+        assertNotSame(committed, overlay);
+        assertEquals(committed.cachedValue(2L), Long.valueOf(20L));
+    }
+
+    @Test
+    public void overlayIsNotPublishedAfterRollback() {
+        CacheStateMachine<TestCacheIface, DefaultStateContext> stateMachine = createStateMachine(new SnapshotCacheStateFactory<TestCacheIface>());
+        StatusTransaction writer = new StatusTransaction();
+        stateMachine.onChange(writer, CHANGE);
+        database.write(1L, 10L);
+        TestCacheIface overlay = stateMachine.getCacheIfNotLocked(writer, true);
+        stateMachine.beforeTransactionComplete(writer);
+        database.rollback();
+        writer.status = Status.STATUS_ROLLEDBACK;
+        stateMachine.onTransactionCompleted(writer);
+        TestCacheIface committed = stateMachine.getCacheIfNotLocked(new TestTransaction(), false);
+        assertNotSame(committed, overlay);
+        assertNull(committed.cachedValue(1L));
+    }
+
+    @Test
+    public void hitRatesUnderMixedLoad() throws InterruptedException {
+        double isolatedHitRate = runMixedLoad(new IsolatedCacheStateFactory<TestCacheIface>());
+        database.clear();
+        double snapshotHitRate = runMixedLoad(new SnapshotCacheStateFactory<TestCacheIface>());
+        log.info("Cache hit rate under mixed load: isolated " + isolatedHitRate + ", snapshot " + snapshotHitRate);
+        assertTrue(snapshotHitRate > 0.99, "snapshot hit rate " + snapshotHitRate);
+        assertTrue(snapshotHitRate > isolatedHitRate, "snapshot hit rate " + snapshotHitRate + ", isolated " + isolatedHitRate);
+    }
+
+    /**
+     * Readers check, that committed values of completed transactions are visible in cache.
+     *
+     * @return Returns readers cache hit rate.
+     */
+    private double runMixedLoad(CacheStateFactory<TestCacheIface, DefaultStateContext> stateFactory) throws InterruptedException {
+        final CacheStateMachine<TestCacheIface, DefaultStateContext> stateMachine = createStateMachine(stateFactory);
+        final ConcurrentMap<Long, Long> published = new ConcurrentHashMap<Long, Long>();
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong violations = new AtomicLong();
+        final AtomicLong transactions = new AtomicLong();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < READERS; i++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    while (!stopped.get()) {
+                        long key = ThreadLocalRandom.current().nextLong(WRITERS);
+                        Long expected = published.get(key);
+                        TestCacheIface cache = stateMachine.getCacheIfNotLocked(new TestTransaction(), false);
+                        if (cache == null) {
+                            misses.incrementAndGet();
+                            continue;
+                        }
+                        hits.incrementAndGet();
+                        Long value = cache.cachedValue(key);
+                        if (expected != null && (value == null || value < expected)) {
+                            violations.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        for (int i = 0; i < WRITERS; i++) {
+            final long key = i;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    long value = 0;
+                    while (!stopped.get()) {
+                        StatusTransaction transaction = new StatusTransaction();
+                        database.write(key, ++value);
+                        stateMachine.onChange(transaction, CHANGE);
+                        TestCacheIface overlay = stateMachine.getCacheIfNotLocked(transaction, true);
+                        // Isolated states does not provide cache to dirty transaction
+                        if (overlay != null && !Long.valueOf(value).equals(overlay.cachedValue(key))) {
+                            violations.incrementAndGet();
+                        }
+                        stateMachine.beforeTransactionComplete(transaction);
+                        boolean rollback = value % 5 == 0;
+                        if (rollback) {
+                            database.rollback();
+                            value--;
+                            transaction.status = Status.STATUS_ROLLEDBACK;
+                        } else {
+                            database.commit();
+                            transaction.status = Status.STATUS_COMMITTED;
+                        }
+                        // Commit takes some time, readers must use cache meanwhile
+                        pause();
+                        stateMachine.onTransactionCompleted(transaction);
+                        if (!rollback) {
+                            published.put(key, value);
+                        }
+                        transactions.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(DURATION);
+        stopped.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(violations.get(), 0);
+        assertTrue(transactions.get() > 0);
+        return (double) hits.get() / (hits.get() + misses.get());
+    }
+
+    private void commit(CacheStateMachine<TestCacheIface, DefaultStateContext> stateMachine, StatusTransaction transaction) {
+        stateMachine.beforeTransactionComplete(transaction);
+        database.commit();
+        transaction.status = Status.STATUS_COMMITTED;
+        stateMachine.onTransactionCompleted(transaction);
+    }
+
+    private CacheStateMachine<TestCacheIface, DefaultStateContext> createStateMachine(
+            CacheStateFactory<TestCacheIface, DefaultStateContext> stateFactory) {
+        return CacheStateMachine.createStateMachine(new StaticCacheFactory<TestCacheIface>() {
+
+            @Override
+            public TestCacheIface buildCache() {
+                return new TestStaticCache(database.read());
+            }
+        }, stateFactory, SnapshotCacheTest.class);
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class StatusTransaction extends TestTransaction {
+        private volatile int status = Status.STATUS_ACTIVE;
+
+        @Override
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    private static class TestDatabase {
+        private final ConcurrentMap<Long, Long> committed = new ConcurrentHashMap<Long, Long>();
+        private final ThreadLocal<Map<Long, Long>> changes = new ThreadLocal<Map<Long, Long>>() {
+            @Override
+            protected Map<Long, Long> initialValue() {
+                return new HashMap<Long, Long>();
+            }
+        };
+
+        void clear() {
+            committed.clear();
+            changes.remove();
+        }
+
+        void write(Long key, Long value) {
+            changes.get().put(key, value);
+        }
+
+        Map<Long, Long> read() {
+            Map<Long, Long> result = new HashMap<Long, Long>(committed);
+            result.putAll(changes.get());
+            return result;
+        }
+
+        void commit() {
+            committed.putAll(changes.get());
+            changes.remove();
+        }
+
+        void rollback() {
+            changes.remove();
+        }
+    }
+
+    private static class TestStaticCache implements TestCacheIface {
+        private final Map<Long, Long> cachedData;
+
+        TestStaticCache(Map<Long, Long> cachedData) {
+            this.cachedData = cachedData;
+        }
+
+        @Override
+        public void commitCache() {
+        }
+
+        @Override
+        public boolean onChange(ChangedObjectParameter changedObject) {
+            return false;
+        }
+
+        @Override
+        public Long cachedValue(long key) {
+            return cachedData.get(key);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ru.runa.wfe.commons.hibernate;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashSet;
+import java.util.Set;
+import org.hibernate.Hibernate;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.dialect.Oracle9Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.dialect.SQLServerDialect;
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.IdentifierGeneratorFactory;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.jdbc.Batcher;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class WfeSessionFactoryBeanTest extends Assert {
+
+    @Test
+    public void poolingIsUsedOnlyForSequenceDialects() {
+        assertTrue(WfeSessionFactoryBean.isSequenceNative(new PostgreSQLDialect()));
+        assertTrue(WfeSessionFactoryBean.isSequenceNative(new Oracle9Dialect()));
+        assertFalse(WfeSessionFactoryBean.isSequenceNative(new H2Dialect()));
+        assertFalse(WfeSessionFactoryBean.isSequenceNative(new MySQLDialect()));
+        assertFalse(WfeSessionFactoryBean.isSequenceNative(new SQLServerDialect()));
+    }
+
+    @Test
+    public void sequenceIsCalledOncePerPool() throws Exception {
+        IdentifierGenerator generator = IdentifierGeneratorFactory.create(SequenceStyleGenerator.class.getName(), Hibernate.LONG,
+                WfeSessionFactoryBean.getPooledSequenceProperties(WfeSessionFactoryBean.PROCESS_LOG_SEQUENCE_NAME,
+                        WfeSessionFactoryBean.PROCESS_LOG_ID_POOL_SIZE), new PostgreSQLDialect());
+        SessionImplementor session = mock(SessionImplementor.class);
+        Batcher batcher = mock(Batcher.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(session.getBatcher()).thenReturn(batcher);
+        when(batcher.prepareSelectStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        // sequence incremented by pool size
+        when(resultSet.getLong(1)).thenReturn(1000L, 1050L, 1100L, 1150L, 1200L);
+
+        Set<Object> ids = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(generator.generate(session, null));
+        }
+
+        assertEquals(ids.size(), 100);
+        // one sequence call per log without pooling
+        verify(statement, atMost(3)).executeQuery();
+    }
+}
@@ -0,0 +1,223 @@
+package ru.runa.wfe.datasource;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import org.mockito.InOrder;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Uses mocked connections as stand-in of external database.
+ */
+public class JdbcConnectionPoolTest extends Assert {
+    private final List<Connection> physicalConnections = new ArrayList<>();
+    private final List<PreparedStatement> preparedStatements = new ArrayList<>();
+
+    @BeforeMethod
+    public void clear() {
+        physicalConnections.clear();
+        preparedStatements.clear();
+    }
+
+    @Test
+    public void connectionIsReused() throws SQLException {
+        JdbcConnectionPool pool = createPool(2, 1000);
+        Connection connection = pool.getConnection();
+        assertEquals(pool.getActiveCount(), 1);
+        connection.close();
+        assertTrue(connection.isClosed());
+        assertEquals(pool.getActiveCount(), 0);
+        assertEquals(pool.getIdleCount(), 1);
+        pool.getConnection().close();
+        assertEquals(physicalConnections.size(), 1);
+        assertEquals(pool.getCreatedCount(), 1);
+        assertEquals(pool.getBorrowCount(), 2);
+        verify(physicalConnections.get(0), never()).close();
+    }
+
+    @Test
+    public void preparedStatementIsCached() throws SQLException {
+        JdbcConnectionPool pool = createPool(1, 1000);
+        for (int i = 0; i < 3; i++) {
+            try (Connection connection = pool.getConnection(); PreparedStatement statement = connection.prepareStatement("select 1")) {
+                statement.setLong(1, i);
+                statement.executeQuery();
+                assertSame(statement.getConnection(), connection);
+            }
+        }
+        verify(physicalConnections.get(0), times(1)).prepareStatement("select 1");
+        assertEquals(pool.getStatementCacheMissCount(), 1);
+        assertEquals(pool.getStatementCacheHitCount(), 2);
+    }
+
+    @Test
+    public void preparedStatementWithChangedSettingsIsNotCached() throws SQLException {
+        JdbcConnectionPool pool = createPool(1, 1000);
+        try (Connection connection = pool.getConnection(); PreparedStatement statement = connection.prepareStatement("select 1")) {
+            statement.setMaxRows(10);
+            statement.executeQuery();
+        }
+        try (Connection connection = pool.getConnection(); PreparedStatement statement = connection.prepareStatement("select 1")) {
+            statement.addBatch();
+        }
+        verify(physicalConnections.get(0), times(2)).prepareStatement("select 1");
+        verify(preparedStatements.get(0)).close();
+        verify(preparedStatements.get(1)).clearBatch();
+        verify(preparedStatements.get(1), never()).close();
+        try (Connection connection = pool.getConnection(); PreparedStatement statement = connection.prepareStatement("select 1")) {
+            statement.executeQuery();
+        }
+        verify(physicalConnections.get(0), times(2)).prepareStatement("select 1");
+        assertEquals(pool.getStatementCacheHitCount(), 1);
+    }
+
+    @Test
+    public void resourcesAreReleasedOnClose() throws SQLException {
+        JdbcConnectionPool pool = createPool(1, 1000);
+        Connection connection = pool.getConnection();
+        Connection physicalConnection = physicalConnections.get(0);
+        when(physicalConnection.getAutoCommit()).thenReturn(false);
+        Statement statement = connection.createStatement();
+        PreparedStatement preparedStatement = connection.prepareStatement("update T set A = ?");
+        connection.close();
+        verify(statement).close();
+        assertTrue(preparedStatement.isClosed());
+        verify(physicalConnection).rollback();
+        verify(physicalConnection).setAutoCommit(true);
+        try {
+            connection.createStatement();
+            fail("Closed connection is used");
+        } catch (SQLException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void changedConnectionSettingsAreRestored() throws SQLException {
+        JdbcConnectionPool pool = createPool(1, 1000);
+        Connection connection = pool.getConnection();
+        Connection physicalConnection = physicalConnections.get(0);
+        connection.setReadOnly(true);
+        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        connection.setSchema("other");
+        connection.close();
+        verify(physicalConnection).setReadOnly(false);
+        verify(physicalConnection).setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        verify(physicalConnection).setCatalog("db");
+        verify(physicalConnection).setSchema("public");
+        verify(physicalConnection).setHoldability(ResultSet.HOLD_CURSORS_OVER_COMMIT);
+
+        pool.getConnection().close();
+        verify(physicalConnection, times(1)).setReadOnly(false);
+        assertEquals(physicalConnections.size(), 1);
+    }
+
+    @Test
+    public void resultSetIsClosedBeforeCaching() throws SQLException {
+        JdbcConnectionPool pool = createPool(1, 1000);
+        ResultSet resultSet = mock(ResultSet.class);
+        try (Connection connection = pool.getConnection(); PreparedStatement statement = connection.prepareStatement("select ?")) {
+            when(preparedStatements.get(0).executeQuery()).thenReturn(resultSet);
+            statement.setLong(1, 1);
+            assertSame(statement.executeQuery(), resultSet);
+        }
+        InOrder inOrder = inOrder(resultSet, preparedStatements.get(0));
+        inOrder.verify(resultSet).close();
+        inOrder.verify(preparedStatements.get(0)).clearParameters();
+        verify(preparedStatements.get(0), never()).close();
+    }
+
+    @Test(expectedExceptions = SQLException.class)
+    public void exhaustedPoolTimesOut() throws SQLException {
+        JdbcConnectionPool pool = createPool(1, 50);
+        pool.getConnection();
+        pool.getConnection();
+    }
+
+    @Test
+    public void brokenConnectionIsDiscarded() throws SQLException {
+        JdbcConnectionPool pool = createPool(1, 1000);
+        Connection connection = pool.getConnection();
+        Connection physicalConnection = physicalConnections.get(0);
+        when(physicalConnection.createStatement()).thenThrow(new SQLException("Connection reset", "08006"));
+        try {
+            connection.createStatement();
+            fail("Exception expected");
+        } catch (SQLException e) {
+            assertEquals(e.getSQLState(), "08006");
+        }
+        connection.close();
+        verify(physicalConnection).close();
+        pool.getConnection().close();
+        assertEquals(physicalConnections.size(), 2);
+        assertEquals(pool.getDestroyedCount(), 1);
+    }
+
+    @Test
+    public void closedPoolClosesConnections() throws SQLException {
+        JdbcConnectionPool pool = createPool(2, 1000);
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        first.close();
+        pool.close();
+        verify(physicalConnections.get(0)).close();
+        verify(physicalConnections.get(1), never()).close();
+        second.close();
+        verify(physicalConnections.get(1)).close();
+        assertEquals(pool.getIdleCount(), 0);
+    }
+
+    @Test
+    public void idleConnectionIsEvicted() throws SQLException {
+        JdbcConnectionPool pool = createPool(1, 1000, 50);
+        pool.getConnection().close();
+        verify(physicalConnections.get(0), timeout(2000)).close();
+        assertEquals(pool.getIdleCount(), 0);
+        assertEquals(pool.getDestroyedCount(), 1);
+        pool.close();
+    }
+
+    private JdbcConnectionPool createPool(int maxSize, long borrowTimeoutMillis) {
+        return createPool(maxSize, borrowTimeoutMillis, 60000);
+    }
+
+    private JdbcConnectionPool createPool(int maxSize, long borrowTimeoutMillis, long idleTimeoutMillis) {
+        return new JdbcConnectionPool("test", new JdbcConnectionPool.ConnectionFactory() {
+
+            @Override
+            public Connection create() throws SQLException {
+                Connection connection = mock(Connection.class);
+                when(connection.getAutoCommit()).thenReturn(true);
+                when(connection.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_READ_COMMITTED);
+                when(connection.getCatalog()).thenReturn("db");
+                when(connection.getSchema()).thenReturn("public");
+                when(connection.getHoldability()).thenReturn(ResultSet.HOLD_CURSORS_OVER_COMMIT);
+                when(connection.isValid(anyInt())).thenReturn(true);
+                when(connection.createStatement()).thenAnswer(invocation -> mock(Statement.class));
+                when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+                    PreparedStatement statement = mock(PreparedStatement.class);
+                    preparedStatements.add(statement);
+                    return statement;
+                });
+                physicalConnections.add(connection);
+                return connection;
+            }
+        }, maxSize, borrowTimeoutMillis, idleTimeoutMillis, 1, 10);
+    }
+}
@@ -0,0 +1,64 @@
+package ru.runa.wfe.definition.par;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ArchiveFileDataTest extends Assert {
+
+    @Test
+    public void readOnDemand() throws IOException {
+        Map<String, byte[]> files = createFiles();
+        ArchiveFileData fileData = new ArchiveFileData(zip(files), files);
+        assertEquals(fileData.size(), 2);
+        assertEquals(fileData.keySet(), files.keySet());
+        assertEquals(fileData.getTotalSize(), 13);
+        assertEquals(fileData.getLoadedSize(), 0);
+        assertEquals(fileData.get("form.ftl"), files.get("form.ftl"));
+        assertEquals(fileData.getLoadedSize(), 7);
+        assertNull(fileData.get("missing"));
+        assertFalse(fileData.containsKey("missing"));
+    }
+
+    @Test
+    public void serialization() throws Exception {
+        Map<String, byte[]> files = createFiles();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+            objectOutputStream.writeObject(new ArchiveFileData(zip(files), files));
+        }
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            Map<String, byte[]> result = (Map<String, byte[]>) objectInputStream.readObject();
+            assertEquals(result.getClass(), HashMap.class);
+            assertEquals(result.get("processdefinition.xml"), files.get("processdefinition.xml"));
+        }
+    }
+
+    private static Map<String, byte[]> createFiles() {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("processdefinition.xml", "<xml/>".getBytes());
+        files.put("form.ftl", "${name}".getBytes());
+        return files;
+    }
+
+    private static byte[] zip(Map<String, byte[]> files) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+                zipOutputStream.putNextEntry(new ZipEntry(entry.getKey()));
+                zipOutputStream.write(entry.getValue());
+                zipOutputStream.closeEntry();
+            }
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,64 @@
+package ru.runa.wfe.execution.dao;
+
+import com.querydsl.jpa.hibernate.HibernateDeleteClause;
+import com.querydsl.jpa.hibernate.HibernateQuery;
+import com.querydsl.jpa.hibernate.HibernateUpdateClause;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import ru.runa.wfe.commons.querydsl.HibernateQueryFactory;
+import ru.runa.wfe.execution.QProcess;
+import ru.runa.wfe.execution.QToken;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Answers.RETURNS_SELF;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ProcessDaoTest {
+    @Mock
+    private HibernateQueryFactory queryFactory;
+    @Mock(answer = RETURNS_SELF)
+    private HibernateQuery<Long> tokenIdsQuery;
+    @Mock(answer = RETURNS_SELF)
+    private HibernateUpdateClause tokenUpdate;
+    @Mock(answer = RETURNS_SELF)
+    private HibernateDeleteClause processDelete;
+    @Mock(answer = RETURNS_SELF)
+    private HibernateDeleteClause tokenDelete;
+    @InjectMocks
+    private ProcessDao processDao;
+
+    @Before
+    public void init() {
+        QToken t = QToken.token;
+        when(queryFactory.select(t.id)).thenReturn(tokenIdsQuery);
+        when(tokenIdsQuery.fetch()).thenReturn(Arrays.asList(10L, 11L, 12L));
+        when(queryFactory.update(t)).thenReturn(tokenUpdate);
+        when(queryFactory.delete(QProcess.process)).thenReturn(processDelete);
+        when(queryFactory.delete(t)).thenReturn(tokenDelete);
+        when(tokenUpdate.execute()).thenReturn(3L);
+        when(processDelete.execute()).thenReturn(2L);
+        when(tokenDelete.execute()).thenReturn(3L);
+    }
+
+    @Test
+    public void givenProcessesWithTokens_thenTokenReferencesClearedBeforeBulkDelete() {
+        long count = processDao.deleteByIds(Arrays.asList(1L, 2L));
+
+        assertEquals(5L, count);
+        QToken t = QToken.token;
+        InOrder inOrder = inOrder(tokenUpdate, processDelete, tokenDelete);
+        inOrder.verify(tokenUpdate).setNull(t.parent);
+        inOrder.verify(tokenUpdate).setNull(t.process);
+        inOrder.verify(tokenUpdate).execute();
+        inOrder.verify(processDelete).execute();
+        inOrder.verify(tokenDelete).execute();
+    }
+}
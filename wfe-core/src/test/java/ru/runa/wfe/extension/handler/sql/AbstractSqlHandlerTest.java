@@ -0,0 +1,53 @@
+package ru.runa.wfe.extension.handler.sql;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.rowset.serial.SerialBlob;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.runa.wfe.var.converter.BinaryVariableCodec;
+
+public class AbstractSqlHandlerTest extends Assert {
+
+    @Test
+    public void encodedValueIsRead() throws Exception {
+        Map<String, Object> value = createValue();
+        byte[] bytes = BinaryVariableCodec.encode(value);
+        assertTrue(BinaryVariableCodec.isEncoded(bytes));
+        assertEquals(AbstractSqlHandler.revertBytes(bytes), value);
+        assertEquals(AbstractSqlHandler.revertBytes(new SerialBlob(bytes)), value);
+    }
+
+    @Test
+    public void serializedValueIsRead() throws Exception {
+        Map<String, Object> value = createValue();
+        ByteArrayOutputStream memoryStream = new ByteArrayOutputStream();
+        ObjectOutputStream objectStream = new ObjectOutputStream(memoryStream);
+        objectStream.writeObject(value);
+        objectStream.flush();
+        byte[] bytes = memoryStream.toByteArray();
+        assertEquals(AbstractSqlHandler.revertBytes(bytes), value);
+        assertEquals(AbstractSqlHandler.revertBytes(new SerialBlob(bytes)), value);
+    }
+
+    @Test
+    public void otherValueIsNotChanged() throws Exception {
+        assertEquals(AbstractSqlHandler.revertBytes("text"), "text");
+        assertNull(AbstractSqlHandler.revertBytes(null));
+    }
+
+    private Map<String, Object> createValue() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        List<Object> list = new ArrayList<>();
+        list.add(1L);
+        list.add("text");
+        value.put("list", list);
+        value.put("date", new Date(86400000L));
+        return value;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.runa.wfe.graph.image;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class GraphImageHelperTest extends Assert {
+
+    @Test
+    public void pngBytesAreDecodedToSameImage() throws IOException {
+        BufferedImage image = createImage();
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(GraphImageHelper.toPngBytes(image)));
+        assertEquals(decoded.getWidth(), image.getWidth());
+        assertEquals(decoded.getHeight(), image.getHeight());
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                assertEquals(decoded.getRGB(x, y), image.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void copyDoesNotChangeOriginal() {
+        BufferedImage image = createImage();
+        BufferedImage copy = GraphImageHelper.copy(image);
+        assertEquals(copy.getRGB(10, 10), image.getRGB(10, 10));
+        copy.setRGB(10, 10, Color.RED.getRGB());
+        assertEquals(image.getRGB(10, 10), Color.BLUE.getRGB());
+    }
+
+    private BufferedImage createImage() {
+        BufferedImage image = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 200, 100);
+        graphics.setColor(Color.BLUE);
+        graphics.fillRect(10, 10, 50, 30);
+        graphics.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,182 @@
+package ru.runa.wfe.job.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import ru.runa.wfe.audit.ProcessDeleteLog;
+import ru.runa.wfe.audit.dao.ProcessLogDao;
+import ru.runa.wfe.audit.dao.SystemLogDao;
+import ru.runa.wfe.chat.dao.ChatMessageDao;
+import ru.runa.wfe.chat.logic.ChatComponentFacade;
+import ru.runa.wfe.commons.dao.SettingDao;
+import ru.runa.wfe.execution.dao.NodeProcessDao;
+import ru.runa.wfe.execution.dao.ProcessDao;
+import ru.runa.wfe.execution.dao.SwimlaneDao;
+import ru.runa.wfe.job.dao.JobDao;
+import ru.runa.wfe.job.impl.ProcessRetentionPurger.PurgedChunk;
+import ru.runa.wfe.security.dao.PermissionDao;
+import ru.runa.wfe.task.dao.TaskDao;
+import ru.runa.wfe.user.Actor;
+import ru.runa.wfe.user.dao.ExecutorDao;
+import ru.runa.wfe.var.dao.VariableDao;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ProcessRetentionPurgerTest {
+    @Mock
+    private ProcessDao processDao;
+    @Mock
+    private NodeProcessDao nodeProcessDao;
+    @Mock
+    private ProcessLogDao processLogDao;
+    @Mock
+    private JobDao jobDao;
+    @Mock
+    private VariableDao variableDao;
+    @Mock
+    private TaskDao taskDao;
+    @Mock
+    private SwimlaneDao swimlaneDao;
+    @Mock
+    private PermissionDao permissionDao;
+    @Mock
+    private ChatMessageDao chatMessageDao;
+    @Mock
+    private ChatComponentFacade chatComponentFacade;
+    @Mock
+    private SystemLogDao systemLogDao;
+    @Mock
+    private ExecutorDao executorDao;
+    @Mock
+    private SettingDao settingDao;
+    @Mock
+    private ProcessRetentionPurger self;
+    @InjectMocks
+    private ProcessRetentionPurger purger;
+
+    @Before
+    public void init() {
+        purger.setEnabled(true);
+        purger.setChunkPauseMillis(0);
+        when(self.purgeChunk(anyList())).thenReturn(new PurgedChunk(2, 0, 10));
+        Actor administrator = new Actor("Administrator", null);
+        administrator.setId(1L);
+        when(executorDao.getActor(anyString())).thenReturn(administrator);
+    }
+
+    @Test
+    public void givenDisabled_thenNothingDeleted() {
+        purger.setEnabled(false);
+
+        purger.execute();
+
+        verify(self, never()).getCheckpoint();
+        verify(self, never()).purgeChunk(anyList());
+    }
+
+    @Test
+    public void givenCheckpoint_thenChunksDeletedFromItUntilPassCompleted() {
+        when(self.getCheckpoint()).thenReturn(5L);
+        when(self.getRootProcessIds(any(Date.class), eq(5L))).thenReturn(Arrays.asList(6L, 8L));
+        when(self.getRootProcessIds(any(Date.class), eq(8L))).thenReturn(Arrays.asList(9L));
+        when(self.getRootProcessIds(any(Date.class), eq(9L))).thenReturn(Collections.<Long> emptyList());
+
+        purger.execute();
+
+        InOrder inOrder = inOrder(self);
+        inOrder.verify(self).purgeChunk(Arrays.asList(6L, 8L));
+        inOrder.verify(self).purgeChunk(Arrays.asList(9L));
+        inOrder.verify(self).setCheckpoint(null);
+    }
+
+    @Test
+    public void givenMaxDurationExceeded_thenCheckpointIsKept() {
+        purger.setMaxDurationMillis(0);
+
+        purger.execute();
+
+        verify(self, never()).purgeChunk(anyList());
+        verify(self, never()).setCheckpoint(any());
+    }
+
+    @Test
+    public void givenLogsRetention_thenLogsDeletedUntilNotFullChunk() {
+        when(self.getRootProcessIds(any(Date.class), anyLong())).thenReturn(Collections.<Long> emptyList());
+        purger.setLogsOlderThanDays(30);
+        purger.setLogsChunkSize(100);
+        when(self.purgeProcessLogsChunk(any(Date.class), anyBoolean())).thenReturn(100L, 100L, 20L);
+
+        purger.execute();
+
+        verify(self).purgeProcessLogsChunk(any(Date.class), eq(true));
+        verify(self, times(2)).purgeProcessLogsChunk(any(Date.class), eq(false));
+    }
+
+    @Test
+    public void givenSubprocesses_thenProcessTreesDeleted() {
+        when(nodeProcessDao.getSubprocessIds(Arrays.asList(1L, 2L))).thenReturn(ImmutableMap.of(3L, 1L, 4L, 2L));
+        when(nodeProcessDao.getSubprocessIds(Arrays.asList(3L, 4L))).thenReturn(ImmutableMap.of(5L, 3L));
+        when(processDao.deleteByIds(anyList())).thenReturn(10L);
+
+        PurgedChunk chunk = purger.purgeChunk(Arrays.asList(1L, 2L));
+
+        assertEquals(5, chunk.getProcessCount());
+        assertEquals(0, chunk.getSkippedCount());
+        InOrder inOrder = inOrder(nodeProcessDao, processDao, settingDao);
+        inOrder.verify(nodeProcessDao).deleteByProcessIds(Arrays.asList(1L, 2L, 3L, 4L, 5L));
+        inOrder.verify(processDao).deleteByIds(Arrays.asList(1L, 2L, 3L, 4L, 5L));
+        inOrder.verify(settingDao).setValue(ProcessRetentionPurger.CHECKPOINT_FILE_NAME, ProcessRetentionPurger.CHECKPOINT_NAME, "2");
+        verify(taskDao).deleteByProcessIds(Arrays.asList(1L, 2L, 3L, 4L, 5L));
+        verify(variableDao).deleteByProcessIds(Arrays.asList(1L, 2L, 3L, 4L, 5L));
+        verify(systemLogDao, times(5)).create(any(ProcessDeleteLog.class));
+    }
+
+    @Test
+    public void givenNotEndedSubprocess_thenProcessTreeSkipped() {
+        when(nodeProcessDao.getSubprocessIds(Arrays.asList(1L, 2L))).thenReturn(ImmutableMap.of(3L, 1L));
+        when(processDao.getNotEndedProcessIds(Arrays.asList(1L, 2L, 3L))).thenReturn(Sets.newHashSet(3L));
+
+        PurgedChunk chunk = purger.purgeChunk(Arrays.asList(1L, 2L));
+
+        assertEquals(1, chunk.getProcessCount());
+        assertEquals(2, chunk.getSkippedCount());
+        verify(processDao).deleteByIds(Arrays.asList(2L));
+        verify(processDao, never()).deleteByIds(Arrays.asList(1L, 2L));
+        verify(systemLogDao, times(1)).create(any(ProcessDeleteLog.class));
+        verify(settingDao).setValue(ProcessRetentionPurger.CHECKPOINT_FILE_NAME, ProcessRetentionPurger.CHECKPOINT_NAME, "2");
+    }
+
+    @Test
+    public void givenAllProcessTreesSkipped_thenNothingDeletedAndCheckpointMoved() {
+        when(processDao.getNotEndedProcessIds(Arrays.asList(1L, 2L))).thenReturn(Sets.newHashSet(1L, 2L));
+
+        PurgedChunk chunk = purger.purgeChunk(Arrays.asList(1L, 2L));
+
+        assertEquals(0, chunk.getProcessCount());
+        assertEquals(2, chunk.getSkippedCount());
+        verify(processDao, never()).deleteByIds(anyList());
+        verify(nodeProcessDao, never()).deleteByProcessIds(anyList());
+        verify(settingDao).setValue(ProcessRetentionPurger.CHECKPOINT_FILE_NAME, ProcessRetentionPurger.CHECKPOINT_NAME, "2");
+    }
+}
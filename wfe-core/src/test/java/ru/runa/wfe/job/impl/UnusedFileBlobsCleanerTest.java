@@ -0,0 +1,82 @@
+package ru.runa.wfe.job.impl;
+
+import com.google.common.collect.Sets;
+import java.io.File;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import ru.runa.wfe.execution.dao.ProcessDao;
+import ru.runa.wfe.var.file.LocalFileSystemStorage;
+import ru.runa.wfe.var.file.TemporaryLocalFileStorage;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class UnusedFileBlobsCleanerTest {
+    @Mock
+    private ProcessDao processDao;
+    @Mock
+    private UnusedFileBlobsCleaner self;
+    @InjectMocks
+    private UnusedFileBlobsCleaner cleaner;
+    private TemporaryLocalFileStorage temporaryStorage;
+
+    @Before
+    public void init() {
+        temporaryStorage = new TemporaryLocalFileStorage();
+        when(self.getExistingProcessIds(any())).thenReturn(Sets.newHashSet(2L));
+    }
+
+    @After
+    public void cleanup() {
+        temporaryStorage.close();
+    }
+
+    @Test
+    public void oldLayoutFilesOfDeletedProcessesAreDeleted() throws IOException {
+        File deletedProcessFile = createFile("1/file/0");
+        File existingProcessFile = createFile("2/file/0");
+        File blobFile = createFile(LocalFileSystemStorage.BLOBS_DIRECTORY + "/ab/cd/abcd");
+        createFile(LocalFileSystemStorage.BLOBS_DIRECTORY + "/ab/cd/abcd" + LocalFileSystemStorage.REFERENCES_SUFFIX + "/2");
+
+        cleaner.execute();
+
+        assertFalse(deletedProcessFile.getParentFile().getParentFile().exists());
+        assertTrue(existingProcessFile.exists());
+        assertTrue(blobFile.exists());
+    }
+
+    @Test
+    public void blobsReferencedByDeletedProcessVariablesAreDeleted() throws IOException {
+        File unusedBlobFile = createFile(LocalFileSystemStorage.BLOBS_DIRECTORY + "/ab/cd/abcd");
+        File deletedReferenceFile = createFile(LocalFileSystemStorage.BLOBS_DIRECTORY + "/ab/cd/abcd" + LocalFileSystemStorage.REFERENCES_SUFFIX
+                + "/1-0123456789abcdef");
+        File usedBlobFile = createFile(LocalFileSystemStorage.BLOBS_DIRECTORY + "/ab/ef/abef");
+        File existingReferenceFile = createFile(LocalFileSystemStorage.BLOBS_DIRECTORY + "/ab/ef/abef" + LocalFileSystemStorage.REFERENCES_SUFFIX
+                + "/2-0123456789abcdef");
+
+        cleaner.execute();
+
+        assertFalse(deletedReferenceFile.exists());
+        assertFalse(unusedBlobFile.exists());
+        assertTrue(existingReferenceFile.exists());
+        assertTrue(usedBlobFile.exists());
+    }
+
+    private File createFile(String path) throws IOException {
+        File file = new File(temporaryStorage.getDirectory(), path);
+        file.getParentFile().mkdirs();
+        file.createNewFile();
+        // older than cleaner delay
+        file.setLastModified(System.currentTimeMillis() - 60000);
+        return file;
+    }
+}
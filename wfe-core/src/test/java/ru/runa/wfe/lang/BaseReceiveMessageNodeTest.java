@@ -0,0 +1,87 @@
+package ru.runa.wfe.lang;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.runa.wfe.commons.Utils;
+import ru.runa.wfe.execution.Token;
+import ru.runa.wfe.var.MapVariableProvider;
+import ru.runa.wfe.var.VariableMapping;
+
+public class BaseReceiveMessageNodeTest extends Assert {
+
+    @Test
+    public void nullValueIsNotIndexed() {
+        BaseReceiveMessageNode node = createNode(new VariableMapping("orderId", "${orderId}", VariableMapping.USAGE_SELECTOR),
+                new VariableMapping("status", "${status}", VariableMapping.USAGE_SELECTOR));
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("orderId", "1");
+        MapVariableProvider variableProvider = new MapVariableProvider(variables);
+        Set<String> messageSelectors = Utils.getObjectMessageCombinationSelectors(ImmutableMap.of("orderId", "1"));
+
+        String selector = Utils.getReceiveMessageNodeSelector(variableProvider, node, true);
+        assertEquals(selector, "orderId=1,status=null");
+        assertFalse(messageSelectors.contains(selector));
+
+        String correlationSelector = Utils.getReceiveMessageNodeSelector(variableProvider, node, false);
+        assertEquals(correlationSelector, "orderId=1");
+        assertTrue(messageSelectors.contains(correlationSelector));
+        // Message with unexpected property is found by index and rejected by variable mappings evaluation
+        assertTrue(Utils.getObjectMessageCombinationSelectors(ImmutableMap.of("orderId", "1", "status", "new")).contains(correlationSelector));
+    }
+
+    @Test
+    public void selectorIsUpdatedOnVariableChange() {
+        BaseReceiveMessageNode node = createNode(new VariableMapping("orderId", "${orderId}", VariableMapping.USAGE_SELECTOR),
+                new VariableMapping("result", "result", VariableMapping.USAGE_READ));
+        assertTrue(node.isMessageSelectorDependsOn("orderId"));
+        assertFalse(node.isMessageSelectorDependsOn("result"));
+
+        Token token = new Token();
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("orderId", "1");
+        node.updateMessageSelector(token, new MapVariableProvider(variables));
+        assertEquals(token.getMessageSelector(), "orderId=1");
+
+        variables.put("orderId", "2");
+        node.updateMessageSelector(token, new MapVariableProvider(variables));
+        assertTrue(Utils.getObjectMessageCombinationSelectors(ImmutableMap.of("orderId", "2")).contains(token.getMessageSelector()));
+        assertFalse(Utils.getObjectMessageCombinationSelectors(ImmutableMap.of("orderId", "1")).contains(token.getMessageSelector()));
+    }
+
+    @Test
+    public void selectorDependsOnWholeVariableNames() {
+        BaseReceiveMessageNode node = createNode(new VariableMapping("orderId", "${orderId}", VariableMapping.USAGE_SELECTOR),
+                new VariableMapping("customer", "${order.customer}", VariableMapping.USAGE_SELECTOR),
+                new VariableMapping("item", "${items[0]}", VariableMapping.USAGE_SELECTOR),
+                new VariableMapping("type", "orderIdType", VariableMapping.USAGE_SELECTOR));
+        assertTrue(node.isMessageSelectorDependsOn("orderId"));
+        assertFalse(node.isMessageSelectorDependsOn("orderId2"));
+        assertFalse(node.isMessageSelectorDependsOn("Id"));
+        assertFalse(node.isMessageSelectorDependsOn("orderIdType"));
+        assertTrue(node.isMessageSelectorDependsOn("order"));
+        assertTrue(node.isMessageSelectorDependsOn("order.customer"));
+        assertTrue(node.isMessageSelectorDependsOn("order.customer.name"));
+        assertFalse(node.isMessageSelectorDependsOn("order.cust"));
+        assertTrue(node.isMessageSelectorDependsOn("items"));
+        assertFalse(node.isMessageSelectorDependsOn("item"));
+    }
+
+    @Test
+    public void nullTermsAreRemovedFromLegacySelector() {
+        assertEquals(Utils.removeNullMessageSelectorTerms("orderId=1,status=null"), "orderId=1");
+        assertEquals(Utils.removeNullMessageSelectorTerms("a=null,orderId=1,status=null"), "orderId=1");
+        assertEquals(Utils.removeNullMessageSelectorTerms("status=null"), "");
+        assertEquals(Utils.removeNullMessageSelectorTerms("orderId=1,status=nullable"), "orderId=1,status=nullable");
+    }
+
+    private static BaseReceiveMessageNode createNode(VariableMapping... mappings) {
+        BaseReceiveMessageNode node = new BaseReceiveMessageNode();
+        node.setVariableMappings(Lists.newArrayList(mappings));
+        return node;
+    }
+}
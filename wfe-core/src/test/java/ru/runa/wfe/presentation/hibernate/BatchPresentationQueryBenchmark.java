@@ -0,0 +1,92 @@
+package ru.runa.wfe.presentation.hibernate;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.cfg.Environment;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.hql.classic.QueryTranslatorImpl;
+import org.springframework.orm.hibernate3.annotation.AnnotationSessionFactoryBean;
+import org.testng.annotations.Test;
+import ru.runa.wfe.presentation.BatchPresentation;
+import ru.runa.wfe.presentation.BatchPresentationFactory;
+import ru.runa.wfe.presentation.filter.FilterCriteria;
+import ru.runa.wfe.presentation.filter.LongFilterCriteria;
+import ru.runa.wfe.presentation.filter.StringFilterCriteria;
+
+/**
+ * Compares query compilation for each request with SQL template cache for requests with different filter values. It is not run with unit
+ * tests, run it by -Dtest=BatchPresentationQueryBenchmark.
+ */
+public class BatchPresentationQueryBenchmark {
+    private static final Log log = LogFactory.getLog(BatchPresentationQueryBenchmark.class);
+    private static final int ITERATIONS = 1000;
+    private static final int ID_FIELD_INDEX = 0;
+    private static final int DEFINITION_NAME_FIELD_INDEX = 1;
+
+    @Test
+    public void compareTemplateCacheWithCompilation() throws Exception {
+        SessionFactoryImplementor sessionFactory = createSessionFactory();
+        CompilerParameters parameters = CompilerParameters.createPaged();
+        long compileTime = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            HibernateCompilerHqlBuider builder = build(createPresentation(i), parameters);
+            compile(builder.getQuery(), sessionFactory);
+        }
+        compileTime = System.nanoTime() - compileTime;
+        Cache<String, String> templates = CacheBuilder.newBuilder().maximumSize(ITERATIONS).build();
+        long cachedTime = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            BatchPresentation batchPresentation = createPresentation(i);
+            HibernateCompilerHqlBuider builder = build(batchPresentation, parameters);
+            String key = HibernateCompilerQueryBuilder.getTemplateKey(builder, batchPresentation, parameters);
+            if (templates.getIfPresent(key) == null) {
+                templates.put(key, compile(builder.getQuery(), sessionFactory));
+            }
+        }
+        cachedTime = System.nanoTime() - cachedTime;
+        log.info("compilation: " + compileTime / ITERATIONS / 1000 + " us per query");
+        log.info("template cache: " + cachedTime / ITERATIONS / 1000 + " us per query, " + templates.size() + " templates for " + ITERATIONS
+                + " filter values");
+    }
+
+    private static SessionFactoryImplementor createSessionFactory() throws Exception {
+        AnnotationSessionFactoryBean factoryBean = new AnnotationSessionFactoryBean();
+        factoryBean.setPackagesToScan(new String[] { "ru.runa.wfe" });
+        Properties properties = new Properties();
+        properties.setProperty(Environment.DIALECT, H2Dialect.class.getName());
+        factoryBean.setHibernateProperties(properties);
+        factoryBean.afterPropertiesSet();
+        return (SessionFactoryImplementor) factoryBean.getObject();
+    }
+
+    private static String compile(String hql, SessionFactoryImplementor sessionFactory) {
+        QueryTranslatorImpl translator = new QueryTranslatorImpl(hql, new HashMap<String, Object>(), sessionFactory);
+        translator.compile(new HashMap<String, Object>(), false);
+        return translator.getSQLString();
+    }
+
+    private static HibernateCompilerHqlBuider build(BatchPresentation batchPresentation, CompilerParameters parameters) {
+        HibernateCompilerHqlBuider builder = new HibernateCompilerHqlBuider(batchPresentation, parameters);
+        builder.build();
+        return builder;
+    }
+
+    private static BatchPresentation createPresentation(int index) throws Exception {
+        BatchPresentation batchPresentation = BatchPresentationFactory.PROCESSES.createDefault();
+        FilterCriteria idCriteria = new LongFilterCriteria();
+        idCriteria.applyFilterTemplates(new String[] { index + "," + (index + 1) });
+        FilterCriteria nameCriteria = new StringFilterCriteria();
+        nameCriteria.applyFilterTemplates(new String[] { "definition" + index });
+        Map<Integer, FilterCriteria> filters = new HashMap<>();
+        filters.put(ID_FIELD_INDEX, idCriteria);
+        filters.put(DEFINITION_NAME_FIELD_INDEX, nameCriteria);
+        batchPresentation.setFilteredFields(filters);
+        return batchPresentation;
+    }
+}
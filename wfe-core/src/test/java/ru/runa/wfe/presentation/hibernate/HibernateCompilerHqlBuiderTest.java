@@ -0,0 +1,142 @@
+package ru.runa.wfe.presentation.hibernate;
+
+import java.util.Date;
+import java.util.List;
+import org.hibernate.Hibernate;
+import org.hibernate.type.Type;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.runa.wfe.presentation.BatchPresentation;
+import ru.runa.wfe.presentation.BatchPresentationFactory;
+import ru.runa.wfe.presentation.FieldDescriptor;
+
+public class HibernateCompilerHqlBuiderTest extends Assert {
+    private static final int VARIABLE_FIELD_INDEX = 6;
+    private static final String START_DATE_ORDER = "case when instance.startDate is null then 1 else 0 end asc, instance.startDate desc, ";
+
+    @Test
+    public void keysetPageIsRestrictedById() {
+        BatchPresentation batchPresentation = createUnsortedPresentation(100L);
+        HibernateCompilerHqlBuider builder = createBuilder(batchPresentation, CompilerParameters.createPaged());
+        builder.build();
+        assertTrue(builder.isKeysetPaging());
+        assertTrue(builder.getQuery().contains("(instance.id > :pageAfterId)"), builder.getQuery());
+        assertTrue(builder.getQuery().endsWith(" order by instance.id asc"), builder.getQuery());
+        assertTrue(builder.getPlaceholders().getNames().contains("pageAfterId"));
+    }
+
+    @Test
+    public void sortedKeysetPageIsRestrictedBySortedFieldsAndId() {
+        BatchPresentation batchPresentation = createPresentation(100L);
+        HibernateCompilerHqlBuider builder = createBuilder(batchPresentation, CompilerParameters.createPaged(), new Date());
+        builder.build();
+        assertTrue(builder.isKeysetPaging());
+        assertTrue(builder.getQuery().contains("((instance.startDate < :keysetValue0 or instance.startDate is null)) or "
+                + "(instance.startDate = :keysetValue0 and instance.id > :pageAfterId)"), builder.getQuery());
+        assertTrue(builder.getQuery().endsWith(" order by " + START_DATE_ORDER + "instance.id asc"), builder.getQuery());
+        assertTrue(builder.getPlaceholders().getNames().contains("keysetValue0"));
+        assertTrue(builder.getPlaceholders().getNames().contains("pageAfterId"));
+    }
+
+    @Test
+    public void sortedKeysetPageAfterNullValueIsRestrictedByNullsAndId() {
+        BatchPresentation batchPresentation = createPresentation(100L);
+        HibernateCompilerHqlBuider builder = createBuilder(batchPresentation, CompilerParameters.createPaged(), (Object) null);
+        builder.build();
+        assertTrue(builder.getQuery().contains("((instance.startDate is null and instance.id > :pageAfterId))"), builder.getQuery());
+        assertFalse(builder.getPlaceholders().getNames().contains("keysetValue0"));
+    }
+
+    @Test
+    public void sortedKeysetFirstPageIsNotRestricted() {
+        BatchPresentation batchPresentation = createPresentation(0L);
+        HibernateCompilerHqlBuider builder = createBuilder(batchPresentation, CompilerParameters.createPaged());
+        builder.build();
+        assertTrue(builder.isKeysetPaging());
+        assertFalse(builder.getQuery().contains(":pageAfterId"), builder.getQuery());
+        assertTrue(builder.getQuery().endsWith(" order by " + START_DATE_ORDER + "instance.id asc"), builder.getQuery());
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void sortedKeysetPageAfterMissingObjectFails() {
+        BatchPresentation batchPresentation = createPresentation(100L);
+        HibernateCompilerHqlBuider builder = createBuilder(batchPresentation, CompilerParameters.createPaged(), (Object[]) null);
+        builder.build();
+    }
+
+    @Test
+    public void pageSortedByJoinedFieldIsLoadedByNumber() {
+        BatchPresentation batchPresentation = createPresentation(100L);
+        batchPresentation.addDynamicField(VARIABLE_FIELD_INDEX, "var");
+        batchPresentation.setFieldsToSort(new int[] { 0 }, new boolean[] { true });
+        HibernateCompilerHqlBuider builder = createBuilder(batchPresentation, CompilerParameters.createPaged());
+        builder.build();
+        assertFalse(builder.isKeysetPaging());
+        assertFalse(builder.getQuery().contains(":pageAfterId"), builder.getQuery());
+        assertFalse(builder.getQuery().contains("instance.id asc"), builder.getQuery());
+    }
+
+    @Test
+    public void nonPagedQueryIsNotRestrictedById() {
+        BatchPresentation batchPresentation = createUnsortedPresentation(100L);
+        HibernateCompilerHqlBuider builder = createBuilder(batchPresentation, CompilerParameters.createNonPaged());
+        builder.build();
+        assertFalse(builder.isKeysetPaging());
+        assertFalse(builder.getQuery().contains(":pageAfterId"), builder.getQuery());
+        assertFalse(builder.getPlaceholders().getNames().contains("pageAfterId"));
+    }
+
+    @Test
+    public void countQueryIsNotRestrictedById() {
+        BatchPresentation batchPresentation = createUnsortedPresentation(100L);
+        HibernateCompilerHqlBuider builder = createBuilder(batchPresentation, new CompilerParameters(CompilerParameters.createPaged(), true));
+        builder.build();
+        assertFalse(builder.isKeysetPaging());
+        assertFalse(builder.getQuery().contains(":pageAfterId"), builder.getQuery());
+        assertFalse(builder.getQuery().contains(" order by "), builder.getQuery());
+        assertFalse(builder.getPlaceholders().getNames().contains("pageAfterId"));
+    }
+
+    @Test
+    public void pageByNumberIsNotRestrictedById() {
+        BatchPresentation batchPresentation = createPresentation(null);
+        HibernateCompilerHqlBuider builder = createBuilder(batchPresentation, CompilerParameters.createPaged());
+        builder.build();
+        assertFalse(builder.isKeysetPaging());
+        assertFalse(builder.getQuery().contains(":pageAfterId"), builder.getQuery());
+        assertFalse(builder.getPlaceholders().getNames().contains("pageAfterId"));
+    }
+
+    private static BatchPresentation createPresentation(Long pageAfterId) {
+        BatchPresentation batchPresentation = BatchPresentationFactory.PROCESSES.createDefault();
+        batchPresentation.setPageAfterId(pageAfterId);
+        return batchPresentation;
+    }
+
+    private static BatchPresentation createUnsortedPresentation(Long pageAfterId) {
+        BatchPresentation batchPresentation = createPresentation(pageAfterId);
+        batchPresentation.setFieldsToSort(new int[0], new boolean[0]);
+        return batchPresentation;
+    }
+
+    /**
+     * @param keysetValues
+     *            values of sorted fields of object page starts after, <code>null</code> if object is not found
+     */
+    private static HibernateCompilerHqlBuider createBuilder(BatchPresentation batchPresentation, CompilerParameters parameters,
+            final Object... keysetValues) {
+        return new HibernateCompilerHqlBuider(batchPresentation, parameters) {
+
+            @Override
+            Object[] loadKeysetValues(List<FieldDescriptor> fields, List<Type> types) {
+                if (keysetValues == null) {
+                    return null;
+                }
+                for (int i = 0; i < fields.size(); i++) {
+                    types.add(Hibernate.TIMESTAMP);
+                }
+                return keysetValues;
+            }
+        };
+    }
+}
@@ -0,0 +1,80 @@
+package ru.runa.wfe.presentation.hibernate;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.runa.wfe.presentation.BatchPresentation;
+import ru.runa.wfe.presentation.BatchPresentationFactory;
+import ru.runa.wfe.presentation.filter.FilterCriteria;
+import ru.runa.wfe.presentation.filter.LongFilterCriteria;
+import ru.runa.wfe.presentation.filter.StringFilterCriteria;
+
+public class HibernateCompilerQueryBuilderTest extends Assert {
+    private static final int ID_FIELD_INDEX = 0;
+    private static final int DEFINITION_NAME_FIELD_INDEX = 1;
+
+    @Test
+    public void presentationsWithDifferentFilterValuesShareTemplate() throws Exception {
+        BatchPresentation firstPresentation = createPresentation(new LongFilterCriteria(), "1,2", new StringFilterCriteria(), "[\"a\"]");
+        BatchPresentation secondPresentation = createPresentation(new LongFilterCriteria(), "3, 4, 5", new StringFilterCriteria(), "[\"b\", \"c\"]");
+        HibernateCompilerHqlBuider first = build(firstPresentation);
+        HibernateCompilerHqlBuider second = build(secondPresentation);
+        assertEquals(getTemplateKey(first, firstPresentation), getTemplateKey(second, secondPresentation));
+        assertTrue(first.getQuery().contains("instance.id IN (:instanceid)"), first.getQuery());
+        assertTrue(first.getQuery().contains("instance.deployment.name IN (:instancedeploymentname)"), first.getQuery());
+        assertTrue(second.getPlaceholders().getNames().contains("instanceid"));
+        assertTrue(second.getPlaceholders().getNames().contains("instancedeploymentname"));
+    }
+
+    @Test
+    public void rangeFilterValuesAreBoundAsParameters() throws Exception {
+        HibernateCompilerHqlBuider builder = build(
+                createPresentation(new LongFilterCriteria(), "1-5", new StringFilterCriteria(), "{\"min\": \"a\"}"));
+        assertTrue(builder.getQuery().contains("instance.id BETWEEN :instanceidMin AND :instanceidMax"), builder.getQuery());
+        assertTrue(builder.getQuery().contains("instance.deployment.name >= :instancedeploymentnameMin"), builder.getQuery());
+        assertFalse(builder.getQuery().contains("'"), builder.getQuery());
+    }
+
+    @Test
+    public void presentationsWithDifferentFilterShapesHaveDifferentTemplates() throws Exception {
+        BatchPresentation firstPresentation = createPresentation(new LongFilterCriteria(), "1,2", new StringFilterCriteria(), "[\"a\"]");
+        BatchPresentation secondPresentation = createPresentation(new LongFilterCriteria(), "1-2", new StringFilterCriteria(), "[\"a\"]");
+        HibernateCompilerHqlBuider first = build(firstPresentation);
+        HibernateCompilerHqlBuider second = build(secondPresentation);
+        assertNotEquals(getTemplateKey(first, firstPresentation), getTemplateKey(second, secondPresentation));
+    }
+
+    @Test
+    public void countAndListQueriesHaveDifferentTemplates() throws Exception {
+        BatchPresentation batchPresentation = createPresentation(new LongFilterCriteria(), "1", new StringFilterCriteria(), "a");
+        HibernateCompilerHqlBuider list = build(batchPresentation);
+        CompilerParameters countParameters = new CompilerParameters(CompilerParameters.createPaged(), true);
+        HibernateCompilerHqlBuider count = new HibernateCompilerHqlBuider(batchPresentation, countParameters);
+        count.build();
+        String countKey = HibernateCompilerQueryBuilder.getTemplateKey(count, batchPresentation, countParameters);
+        assertNotEquals(getTemplateKey(list, batchPresentation), countKey);
+    }
+
+    private static BatchPresentation createPresentation(FilterCriteria idCriteria, String idTemplate, FilterCriteria nameCriteria,
+            String nameTemplate) throws Exception {
+        BatchPresentation batchPresentation = BatchPresentationFactory.PROCESSES.createDefault();
+        idCriteria.applyFilterTemplates(new String[] { idTemplate });
+        nameCriteria.applyFilterTemplates(new String[] { nameTemplate });
+        Map<Integer, FilterCriteria> filters = new HashMap<>();
+        filters.put(ID_FIELD_INDEX, idCriteria);
+        filters.put(DEFINITION_NAME_FIELD_INDEX, nameCriteria);
+        batchPresentation.setFilteredFields(filters);
+        return batchPresentation;
+    }
+
+    private static HibernateCompilerHqlBuider build(BatchPresentation batchPresentation) {
+        HibernateCompilerHqlBuider builder = new HibernateCompilerHqlBuider(batchPresentation, CompilerParameters.createPaged());
+        builder.build();
+        return builder;
+    }
+
+    private static String getTemplateKey(HibernateCompilerHqlBuider builder, BatchPresentation batchPresentation) {
+        return HibernateCompilerQueryBuilder.getTemplateKey(builder, batchPresentation, CompilerParameters.createPaged());
+    }
+}
@@ -0,0 +1,52 @@
+package ru.runa.wfe.presentation.hibernate;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import org.hibernate.Query;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.runa.wfe.presentation.BatchPresentation;
+import ru.runa.wfe.presentation.BatchPresentationFactory;
+
+public class PresentationCompilerTest extends Assert {
+
+    @Test
+    public void keysetPageStartIsNotSkipped() {
+        BatchPresentation batchPresentation = createPresentation(3, 50);
+        batchPresentation.setPageAfterId(100L);
+        Query query = mock(Query.class);
+        PresentationCompiler.applyPaging(query, batchPresentation, CompilerParameters.createPaged(), true);
+        verify(query, never()).setFirstResult(anyInt());
+        verify(query).setMaxResults(50);
+    }
+
+    @Test
+    public void pageStartIsSkippedByNumber() {
+        BatchPresentation batchPresentation = createPresentation(3, 50);
+        batchPresentation.setPageAfterId(100L);
+        Query query = mock(Query.class);
+        PresentationCompiler.applyPaging(query, batchPresentation, CompilerParameters.createPaged(), false);
+        verify(query).setFirstResult(100);
+        verify(query).setMaxResults(50);
+    }
+
+    @Test
+    public void nonPagedQueryIsNotRestricted() {
+        BatchPresentation batchPresentation = createPresentation(3, 50);
+        batchPresentation.setPageAfterId(100L);
+        Query query = mock(Query.class);
+        PresentationCompiler.applyPaging(query, batchPresentation, CompilerParameters.createNonPaged(), false);
+        verifyZeroInteractions(query);
+    }
+
+    private static BatchPresentation createPresentation(int pageNumber, int rangeSize) {
+        BatchPresentation batchPresentation = BatchPresentationFactory.PROCESSES.createDefault();
+        batchPresentation.setRangeSize(rangeSize);
+        batchPresentation.setPageNumber(pageNumber);
+        return batchPresentation;
+    }
+}
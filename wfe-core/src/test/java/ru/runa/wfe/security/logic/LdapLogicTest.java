@@ -0,0 +1,313 @@
+package ru.runa.wfe.security.logic;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.LdapContext;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import ru.runa.wfe.commons.dao.SettingDao;
+import ru.runa.wfe.security.dao.PermissionDao;
+import ru.runa.wfe.user.Actor;
+import ru.runa.wfe.user.Group;
+import ru.runa.wfe.user.dao.ExecutorDao;
+
+/**
+ * Uses in-memory directory evaluating filters of synchronization. Settings are in src/test/ldap-resources/wfe.custom.ldap.properties which is
+ * added to classpath of separate surefire execution, so other tests run with synchronization disabled.
+ */
+public class LdapLogicTest extends Assert {
+    private static final String SUFFIX = ",dc=test";
+    private static final String HIGH_WATER_MARK = "synchronization.incremental.high.water.mark";
+
+    private final List<SearchResult> directory = Lists.newArrayList();
+    @Mock
+    private LdapContext ldapContext;
+    @Mock
+    private ExecutorDao executorDao;
+    @Mock
+    private PermissionDao permissionDao;
+    @Mock
+    private SettingDao settingDao;
+    @InjectMocks
+    private TestLdapLogic ldapLogic;
+    private Group importGroup;
+    private Group wasteGroup;
+
+    @BeforeMethod
+    public void init() throws NamingException {
+        MockitoAnnotations.initMocks(this);
+        directory.clear();
+        importGroup = new Group("ldap users", null);
+        wasteGroup = new Group("ldap waste", null);
+        when(executorDao.isExecutorExist(anyString())).thenReturn(true);
+        when(executorDao.getGroup(importGroup.getName())).thenReturn(importGroup);
+        when(executorDao.getGroup(wasteGroup.getName())).thenReturn(wasteGroup);
+        when(ldapContext.search(anyString(), anyString(), any(Object[].class), any(SearchControls.class))).thenAnswer(
+                invocation -> new Results(search(invocation.getArgument(1), invocation.getArgument(2))));
+        when(ldapContext.getAttributes(anyString(), any(String[].class))).thenAnswer(
+                invocation -> find(invocation.getArgument(0) + SUFFIX).getAttributes());
+        when(executorDao.getActorsByLowerCaseNames(any())).thenAnswer(invocation -> getActors(invocation.getArgument(0)));
+    }
+
+    @Test
+    public void fullSynchronizationStoresHighWaterMark() {
+        addEntry("u1", "user", 10);
+        addEntry("u2", "user", 12);
+        addEntry("g1", "group", 11, "u1");
+        addEntry("parent", "group", 5, "g1", "u2");
+
+        ldapLogic.synchronizeExecutors();
+
+        verify(executorDao).getAllActors(any());
+        verify(executorDao).addExecutorsToGroup(Lists.newArrayList(new Actor("u1", null), new Actor("u2", null)), importGroup);
+        verify(executorDao).addExecutorsToGroup(Sets.newHashSet(new Actor("u1", null)), new Group("g1", null));
+        verify(executorDao).addExecutorsToGroup(Sets.newHashSet(new Actor("u1", null), new Actor("u2", null)), new Group("parent", null));
+        verify(settingDao).setValue("ldap.properties", HIGH_WATER_MARK, "12");
+    }
+
+    @Test
+    public void incrementalSynchronizationReadsChangedUsers() {
+        addEntry("u1", "user", 10);
+        addEntry("u2", "user", 15).put("title", "new title");
+        addEntry("g1", "group", 11, "u1");
+        Actor actor = new Actor("U2", null, null, null, null, null, "old title", null);
+        when(settingDao.getValue("ldap.properties", HIGH_WATER_MARK)).thenReturn("12");
+        when(executorDao.getActorsByLowerCaseNames(Sets.newHashSet("u2"))).thenReturn(Lists.newArrayList(actor));
+
+        ldapLogic.synchronizeExecutors();
+
+        verify(executorDao, never()).getAllActors(any());
+        verify(executorDao, never()).getGroupChildren(importGroup);
+        verify(executorDao).update(actor);
+        assertEquals(actor.getTitle(), "new title");
+        verify(executorDao, never()).addExecutorsToGroup(any(), argThat((Group group) -> !group.equals(importGroup)));
+        verify(settingDao).setValue("ldap.properties", HIGH_WATER_MARK, "15");
+    }
+
+    @Test
+    public void incrementalSynchronizationRecalculatesParentGroups() {
+        addEntry("u1", "user", 10);
+        addEntry("u2", "user", 11);
+        addEntry("u3", "user", 9);
+        addEntry("g1", "group", 13, "u1", "u3");
+        addEntry("parent", "group", 5, "g1", "u2");
+        addEntry("other", "group", 6, "u1");
+        Group g1 = createGroup("g1", "u1");
+        Group parent = createGroup("parent", "u1", "u2");
+        Group other = createGroup("other", "u1");
+        when(executorDao.getAllGroups()).thenReturn(Lists.newArrayList(g1, parent, other));
+        when(settingDao.getValue("ldap.properties", HIGH_WATER_MARK)).thenReturn("12");
+
+        ldapLogic.synchronizeExecutors();
+
+        verify(executorDao).addExecutorsToGroup(Sets.newHashSet(new Actor("u3", null)), g1);
+        verify(executorDao).addExecutorsToGroup(Sets.newHashSet(new Actor("u3", null)), parent);
+        verify(executorDao, never()).getGroupActors(other);
+        verify(executorDao, never()).removeExecutorsFromGroup(any(), any());
+        verify(settingDao).setValue("ldap.properties", HIGH_WATER_MARK, "13");
+    }
+
+    @Test
+    public void unchangedMembersAreResolvedInBulk() throws NamingException {
+        for (int i = 0; i < 150; i++) {
+            addEntry("u" + i, "user", 1);
+        }
+        addEntry("nested", "group", 2, "u0", "u149");
+        String[] members = new String[151];
+        for (int i = 0; i < 150; i++) {
+            members[i] = "u" + i;
+        }
+        members[150] = "nested";
+        addEntry("g1", "group", 13, members);
+        when(settingDao.getValue("ldap.properties", HIGH_WATER_MARK)).thenReturn("12");
+
+        ldapLogic.synchronizeExecutors();
+
+        Set<String> names = Sets.newHashSet();
+        Set<Actor> actors = Sets.newHashSet();
+        for (int i = 0; i < 150; i++) {
+            names.add("u" + i);
+            actors.add(new Actor("u" + i, null));
+        }
+        verify(executorDao).getActorsByLowerCaseNames(names);
+        verify(executorDao).addExecutorsToGroup(actors, new Group("g1", null));
+        verify(ldapContext, never()).getAttributes(anyString(), any(String[].class));
+        verify(executorDao, never()).getExecutor(anyString());
+    }
+
+    @Test
+    public void membersNotFoundBySearchAreReadByName() throws NamingException {
+        addEntry("u1", "user", 10);
+        addEntry("g1", "group", 13, "u1");
+        when(settingDao.getValue("ldap.properties", HIGH_WATER_MARK)).thenReturn("12");
+        when(ldapContext.search(anyString(), contains("(distinguishedName="), any(Object[].class), any(SearchControls.class)))
+                .thenAnswer(invocation -> new Results(Lists.<SearchResult> newArrayList()));
+
+        ldapLogic.synchronizeExecutors();
+
+        verify(ldapContext).getAttributes("cn=u1,ou=Users", new String[] { "sAMAccountName", "objectClass", "member" });
+        verify(executorDao).addExecutorsToGroup(Sets.newHashSet(new Actor("u1", null)), new Group("g1", null));
+    }
+
+    @Test
+    public void fullSynchronizationIsForced() {
+        addEntry("u1", "user", 10);
+        when(settingDao.getValue("ldap.properties", HIGH_WATER_MARK)).thenReturn("12");
+
+        ldapLogic.synchronizeExecutors(true);
+
+        verify(settingDao, never()).getValue(anyString(), anyString());
+        verify(executorDao).getAllActors(any());
+        verify(executorDao).getGroupActors(importGroup);
+        verify(settingDao).setValue("ldap.properties", HIGH_WATER_MARK, "10");
+    }
+
+    private Group createGroup(String name, String... actorNames) {
+        Group group = new Group(name, null);
+        group.setLdapGroupName(name);
+        Set<Actor> actors = Sets.newHashSet();
+        for (String actorName : actorNames) {
+            actors.add(new Actor(actorName, null));
+        }
+        when(executorDao.getGroupActors(group)).thenReturn(actors);
+        return group;
+    }
+
+    private BasicAttributes addEntry(String name, String objectClass, long usn, String... members) {
+        BasicAttributes attributes = new BasicAttributes(true);
+        Attribute objectClassAttribute = new BasicAttribute("objectClass");
+        objectClassAttribute.add("top");
+        objectClassAttribute.add(objectClass);
+        attributes.put(objectClassAttribute);
+        attributes.put("sAMAccountName", name);
+        attributes.put("uSNChanged", String.valueOf(usn));
+        if (members.length > 0) {
+            Attribute memberAttribute = new BasicAttribute("member");
+            for (String member : members) {
+                memberAttribute.add(getDistinguishedName(member));
+            }
+            attributes.put(memberAttribute);
+        }
+        SearchResult entry = new SearchResult("cn=" + name, null, attributes);
+        entry.setNameInNamespace(getDistinguishedName(name));
+        directory.add(entry);
+        return attributes;
+    }
+
+    private String getDistinguishedName(String name) {
+        return "cn=" + name + ",ou=Users" + SUFFIX;
+    }
+
+    private SearchResult find(String distinguishedName) {
+        for (SearchResult entry : directory) {
+            if (entry.getNameInNamespace().equals(distinguishedName)) {
+                return entry;
+            }
+        }
+        throw new IllegalArgumentException(distinguishedName);
+    }
+
+    private List<Actor> getActors(Collection<String> names) throws NamingException {
+        List<Actor> actors = Lists.newArrayList();
+        for (SearchResult entry : directory) {
+            String name = (String) entry.getAttributes().get("sAMAccountName").get();
+            if (names.contains(name.toLowerCase()) && entry.getAttributes().get("objectClass").contains("user")) {
+                actors.add(new Actor(name, null));
+            }
+        }
+        return actors;
+    }
+
+    private List<SearchResult> search(String filter, Object[] filterArgs) throws NamingException {
+        List<SearchResult> results = Lists.newArrayList();
+        for (SearchResult entry : directory) {
+            if (filter.contains("(distinguishedName=")) {
+                if (Arrays.asList(filterArgs).contains(entry.getNameInNamespace())) {
+                    results.add(entry);
+                }
+                continue;
+            }
+            Attribute objectClass = entry.getAttributes().get("objectClass");
+            if (!filter.contains("(objectclass=" + objectClass.get(1) + ")")) {
+                continue;
+            }
+            if (filter.contains("(uSNChanged>={0})")
+                    && Long.parseLong((String) entry.getAttributes().get("uSNChanged").get()) < Long.parseLong((String) filterArgs[0])) {
+                continue;
+            }
+            if (filter.contains("(member={0})")) {
+                Attribute member = entry.getAttributes().get("member");
+                if (member == null || !member.contains(filterArgs[0])) {
+                    continue;
+                }
+            }
+            results.add(entry);
+        }
+        return results;
+    }
+
+    private static class Results implements NamingEnumeration<SearchResult> {
+        private final Iterator<SearchResult> iterator;
+
+        Results(List<SearchResult> results) {
+            iterator = results.iterator();
+        }
+
+        @Override
+        public boolean hasMoreElements() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public SearchResult nextElement() {
+            return iterator.next();
+        }
+
+        @Override
+        public boolean hasMore() {
+            return hasMoreElements();
+        }
+
+        @Override
+        public SearchResult next() {
+            return nextElement();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class TestLdapLogic extends LdapLogic {
+        private LdapContext ldapContext;
+
+        @Override
+        protected LdapContext getContext() {
+            return ldapContext;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.runa.wfe.ss.cache;
+
+import com.google.common.base.Function;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.testng.annotations.Test;
+import ru.runa.wfe.commons.cache.sm.CacheInitializationProcessContextStub;
+import ru.runa.wfe.ss.Substitution;
+import ru.runa.wfe.ss.cache.SubstitutionCacheBuilderTest.LargeOrganization;
+import ru.runa.wfe.user.Executor;
+
+/**
+ * Measures substitution cache rebuild time by actors count. It is not run with unit tests, run it by -Dtest=SubstitutionCacheBuilderBenchmark.
+ */
+public class SubstitutionCacheBuilderBenchmark {
+    private static final Log log = LogFactory.getLog(SubstitutionCacheBuilderBenchmark.class);
+
+    @Test
+    public void rebuildTime() {
+        for (int actorsCount : new int[] { 1000, 10000, 40000 }) {
+            LargeOrganization organization = new LargeOrganization(actorsCount);
+            long time = System.nanoTime();
+            Function<String, List<? extends Executor>> evaluator = SubstitutionCacheBuilderTest.createEvaluator(new HashMap<String, Integer>());
+            SubstitutionCacheBuilder builder = new SubstitutionCacheBuilder(evaluator, organization.groupActorIds, organization.groupGroupIds);
+            Map<Long, TreeMap<Substitution, HashSet<Long>>> actorToSubstitutors = builder.getActorToSubstitutors(organization.substitutions,
+                    new CacheInitializationProcessContextStub());
+            SubstitutionCacheBuilder.getActorToSubstituted(actorToSubstitutors);
+            time = System.nanoTime() - time;
+            log.info("substitution cache rebuild: " + actorsCount + " actors, " + organization.substitutions.size() + " rules, " + time / 1000000
+                    + " ms");
+        }
+    }
+}
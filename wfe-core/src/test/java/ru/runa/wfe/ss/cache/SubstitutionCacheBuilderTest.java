@@ -0,0 +1,162 @@
+package ru.runa.wfe.ss.cache;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Sets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.runa.wfe.commons.cache.sm.CacheInitializationProcessContextStub;
+import ru.runa.wfe.ss.Substitution;
+import ru.runa.wfe.ss.TerminatorSubstitution;
+import ru.runa.wfe.user.Actor;
+import ru.runa.wfe.user.Executor;
+import ru.runa.wfe.user.Group;
+
+public class SubstitutionCacheBuilderTest extends Assert {
+    private final Map<String, Integer> evaluations = new HashMap<>();
+
+    private final Function<String, List<? extends Executor>> evaluator = createEvaluator(evaluations);
+
+    @Test
+    public void groupActorsAreResolvedRecursively() {
+        Map<Long, long[]> groupActorIds = new HashMap<>();
+        groupActorIds.put(100L, new long[] { 1, 2 });
+        groupActorIds.put(101L, new long[] { 2, 3 });
+        groupActorIds.put(102L, new long[] { 4 });
+        Map<Long, long[]> groupGroupIds = new HashMap<>();
+        groupGroupIds.put(100L, new long[] { 101 });
+        groupGroupIds.put(101L, new long[] { 102 });
+        // Cycle
+        groupGroupIds.put(102L, new long[] { 100 });
+        SubstitutionCacheBuilder builder = new SubstitutionCacheBuilder(evaluator, groupActorIds, groupGroupIds);
+        assertTrue(Arrays.equals(builder.getGroupActorIds(101L), new long[] { 1, 2, 3, 4 }));
+        assertTrue(Arrays.equals(builder.getGroupActorIds(100L), new long[] { 1, 2, 3, 4 }));
+        assertTrue(Arrays.equals(builder.getGroupActorIds(103L), new long[0]));
+    }
+
+    @Test
+    public void substitutorsAreBuilt() {
+        Map<Long, long[]> groupActorIds = new HashMap<>();
+        groupActorIds.put(100L, new long[] { 1, 2 });
+        SubstitutionCacheBuilder builder = new SubstitutionCacheBuilder(evaluator, groupActorIds, new HashMap<Long, long[]>());
+        List<Substitution> substitutions = new ArrayList<>();
+        substitutions.add(createSubstitution(new Substitution(), 1L, 10L, 0, "group:100"));
+        substitutions.add(createSubstitution(new TerminatorSubstitution(), 2L, 10L, 1, null));
+        Substitution disabled = createSubstitution(new Substitution(), 3L, 10L, 2, "actor:5");
+        disabled.setEnabled(false);
+        substitutions.add(disabled);
+        substitutions.add(createSubstitution(new Substitution(), 4L, 11L, 0, "group:100"));
+        substitutions.add(createSubstitution(new Substitution(), 5L, 11L, 1, "actor:3"));
+
+        Map<Long, TreeMap<Substitution, HashSet<Long>>> actorToSubstitutors = builder.getActorToSubstitutors(substitutions,
+                new CacheInitializationProcessContextStub());
+
+        assertEquals(actorToSubstitutors.size(), 2);
+        TreeMap<Substitution, HashSet<Long>> substitutors = actorToSubstitutors.get(10L);
+        assertEquals(substitutors.size(), 2);
+        assertEquals(substitutors.get(substitutions.get(0)), Sets.newHashSet(1L, 2L));
+        assertTrue(substitutors.containsKey(substitutions.get(1)));
+        assertNull(substitutors.get(substitutions.get(1)));
+        assertEquals(actorToSubstitutors.get(11L).get(substitutions.get(4)), Sets.newHashSet(3L));
+        assertEquals(evaluations.get("group:100"), Integer.valueOf(1));
+
+        Map<Long, HashSet<Long>> actorToSubstituted = SubstitutionCacheBuilder.getActorToSubstituted(actorToSubstitutors);
+        assertEquals(actorToSubstituted.size(), 3);
+        assertEquals(actorToSubstituted.get(1L), Sets.newHashSet(10L, 11L));
+        assertEquals(actorToSubstituted.get(3L), Sets.newHashSet(11L));
+    }
+
+    @Test
+    public void changesAreKeptUntilLimit() {
+        SubstitutionChanges changes = new SubstitutionChanges();
+        long sequence = changes.getSequence();
+        changes.add(Sets.newHashSet(1L));
+        changes.add(new HashSet<Long>());
+        changes.add(Sets.newHashSet(2L, 3L));
+        assertEquals(changes.getActorIds(sequence), Sets.newHashSet(1L, 2L, 3L));
+        assertEquals(changes.getActorIds(sequence + 1), Sets.newHashSet(2L, 3L));
+        assertTrue(changes.getActorIds(changes.getSequence()).isEmpty());
+        for (long id = 0; id < 1000; id++) {
+            changes.add(Sets.newHashSet(id));
+        }
+        assertNull(changes.getActorIds(sequence));
+        assertNotNull(changes.getActorIds(changes.getSequence() - 1000));
+    }
+
+    @Test
+    public void largeOrganizationRebuild() {
+        for (int actorsCount : new int[] { 1000, 10000, 40000 }) {
+            LargeOrganization organization = new LargeOrganization(actorsCount);
+            SubstitutionCacheBuilder builder = new SubstitutionCacheBuilder(evaluator, organization.groupActorIds, organization.groupGroupIds);
+            Map<Long, TreeMap<Substitution, HashSet<Long>>> actorToSubstitutors = builder.getActorToSubstitutors(organization.substitutions,
+                    new CacheInitializationProcessContextStub());
+            Map<Long, HashSet<Long>> actorToSubstituted = SubstitutionCacheBuilder.getActorToSubstituted(actorToSubstitutors);
+            assertEquals(actorToSubstitutors.size(), actorsCount / 10);
+            assertEquals(actorToSubstituted.size(), actorsCount);
+        }
+    }
+
+    /**
+     * Evaluates "actor:id" and "group:id" organization functions, counting evaluations.
+     */
+    static Function<String, List<? extends Executor>> createEvaluator(final Map<String, Integer> evaluations) {
+        return new Function<String, List<? extends Executor>>() {
+
+            @Override
+            public List<? extends Executor> apply(String orgFunction) {
+                Integer count = evaluations.get(orgFunction);
+                evaluations.put(orgFunction, count == null ? 1 : count + 1);
+                String[] parts = orgFunction.split(":");
+                Executor executor = parts[0].equals("actor") ? new Actor(orgFunction, null) : new Group(orgFunction, null);
+                executor.setId(Long.valueOf(parts[1]));
+                return Arrays.asList(executor);
+            }
+        };
+    }
+
+    private static Substitution createSubstitution(Substitution substitution, Long id, Long actorId, int position, String orgFunction) {
+        substitution.setId(id);
+        substitution.setActorId(actorId);
+        substitution.setPosition(position);
+        substitution.setOrgFunction(orgFunction);
+        return substitution;
+    }
+
+    /**
+     * Large organization: 10% actors are inactive with 2 rules, actors are in groups by 50, groups are in departments by 10.
+     */
+    static class LargeOrganization {
+        final Map<Long, long[]> groupActorIds = new HashMap<>();
+        final Map<Long, long[]> groupGroupIds = new HashMap<>();
+        final List<Substitution> substitutions = new ArrayList<>();
+
+        LargeOrganization(int actorsCount) {
+            long groupsCount = actorsCount / 50;
+            for (long groupId = 0; groupId < groupsCount; groupId++) {
+                long[] actorIds = new long[50];
+                for (int i = 0; i < actorIds.length; i++) {
+                    actorIds[i] = groupId * 50 + i;
+                }
+                groupActorIds.put(actorsCount + groupId, actorIds);
+            }
+            for (long departmentId = 0; departmentId < groupsCount / 10; departmentId++) {
+                long[] groupIds = new long[10];
+                for (int i = 0; i < groupIds.length; i++) {
+                    groupIds[i] = actorsCount + departmentId * 10 + i;
+                }
+                groupGroupIds.put(actorsCount + groupsCount + departmentId, groupIds);
+            }
+            for (long actorId = 0; actorId < actorsCount; actorId += 10) {
+                long departmentId = actorsCount + groupsCount + actorId / 500;
+                substitutions.add(createSubstitution(new Substitution(), actorId * 2, actorId, 0, "group:" + departmentId));
+                substitutions.add(createSubstitution(new Substitution(), actorId * 2 + 1, actorId, 1, "actor:" + (actorId + 1)));
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ru.runa.wfe.task.cache;
+
+import com.google.common.collect.Sets;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.runa.wfe.commons.cache.VersionedCacheData;
+import ru.runa.wfe.presentation.BatchPresentation;
+import ru.runa.wfe.presentation.BatchPresentationFactory;
+import ru.runa.wfe.task.dto.WfTask;
+
+/**
+ * Checks task lists dropping by actor, used in change tracking mode.
+ */
+public class TaskCacheImplTest extends Assert {
+    private static final int VARIABLE_FIELD_INDEX = 8;
+
+    @Test
+    public void actorsDependsOnVariableAreTracked() {
+        TaskCacheImpl cache = new TaskCacheImpl();
+        BatchPresentation variablePresentation = createPresentation("amount");
+        BatchPresentation defaultPresentation = BatchPresentationFactory.TASKS.createDefault();
+        setTasks(cache, 1L, variablePresentation);
+        setTasks(cache, 2L, defaultPresentation);
+        setTasks(cache, 3L, variablePresentation);
+
+        assertEquals(cache.getActorsDependsOnVariable("amount"), Sets.newHashSet(1L, 3L));
+        assertEquals(cache.getActorsDependsOnVariable("amount.total"), Sets.newHashSet(1L, 3L));
+        assertEquals(cache.getActorsDependsOnVariable("amount[0]"), Sets.newHashSet(1L, 3L));
+        assertTrue(cache.getActorsDependsOnVariable("amountTotal").isEmpty());
+        assertTrue(cache.getActorsDependsOnVariable("other").isEmpty());
+    }
+
+    @Test
+    public void droppedActorIsNotTracked() {
+        TaskCacheImpl cache = new TaskCacheImpl();
+        BatchPresentation presentation = createPresentation("amount");
+        setTasks(cache, 1L, presentation);
+        setTasks(cache, 2L, presentation);
+
+        cache.clearActorsTasks(Sets.newHashSet(1L));
+        assertNull(cache.getTasks(1L, presentation).getData());
+        assertNotNull(cache.getTasks(2L, presentation).getData());
+        assertEquals(cache.getActorsDependsOnVariable("amount"), Sets.newHashSet(2L));
+
+        cache.clearActorTasks(2L);
+        assertTrue(cache.getActorsDependsOnVariable("amount").isEmpty());
+    }
+
+    @Test
+    public void tasksLoadedBeforeDropAreNotCached() {
+        TaskCacheImpl cache = new TaskCacheImpl();
+        BatchPresentation presentation = createPresentation("amount");
+        VersionedCacheData<List<WfTask>> oldCachedData = cache.getTasks(1L, presentation);
+        cache.clearActorsTasks(Sets.newHashSet(1L));
+        cache.setTasks(oldCachedData, 1L, presentation, new ArrayList<WfTask>());
+        assertNull(cache.getTasks(1L, presentation).getData());
+        assertTrue(cache.getActorsDependsOnVariable("amount").isEmpty());
+    }
+
+    private static BatchPresentation createPresentation(String variableName) {
+        BatchPresentation batchPresentation = BatchPresentationFactory.TASKS.createDefault();
+        batchPresentation.addDynamicField(VARIABLE_FIELD_INDEX, variableName);
+        return batchPresentation;
+    }
+
+    private static void setTasks(TaskCacheImpl cache, Long actorId, BatchPresentation batchPresentation) {
+        cache.setTasks(cache.getTasks(actorId, batchPresentation), actorId, batchPresentation, new ArrayList<WfTask>());
+    }
+}
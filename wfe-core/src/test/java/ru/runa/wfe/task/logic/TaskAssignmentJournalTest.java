@@ -0,0 +1,56 @@
+package ru.runa.wfe.task.logic;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.Set;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.runa.wfe.task.dto.WfTaskAssignments;
+
+public class TaskAssignmentJournalTest extends Assert {
+    private final Set<Long> executorIds = Sets.newHashSet(1L, 2L);
+
+    @Test
+    public void assignmentsSinceCursorAreReturned() {
+        TaskAssignmentJournal journal = new TaskAssignmentJournal(100);
+        WfTaskAssignments initial = journal.getAssignments(executorIds, null);
+        assertFalse(initial.isComplete());
+        assertTrue(initial.getTaskIds().isEmpty());
+
+        journal.add(new TaskAssignmentJournal.Assignment(1L, 10L));
+        journal.add(new TaskAssignmentJournal.Assignment(3L, 11L));
+        journal.add(new TaskAssignmentJournal.Assignment(2L, 12L));
+        journal.add(new TaskAssignmentJournal.Assignment(1L, 10L));
+        WfTaskAssignments assignments = journal.getAssignments(executorIds, initial.getCursor());
+        assertTrue(assignments.isComplete());
+        assertEquals(Sets.newHashSet(assignments.getTaskIds()), Sets.newHashSet(10L, 12L));
+        assertEquals(assignments.getTaskIds().size(), 2);
+
+        journal.add(new TaskAssignmentJournal.Assignment(2L, 13L));
+        WfTaskAssignments next = journal.getAssignments(executorIds, assignments.getCursor());
+        assertTrue(next.isComplete());
+        assertEquals(next.getTaskIds(), Lists.newArrayList(13L));
+        assertTrue(journal.getAssignments(executorIds, next.getCursor()).getTaskIds().isEmpty());
+    }
+
+    @Test
+    public void evictedCursorRequiresFullReload() {
+        TaskAssignmentJournal journal = new TaskAssignmentJournal(2);
+        Long cursor = journal.getAssignments(executorIds, null).getCursor();
+        journal.add(new TaskAssignmentJournal.Assignment(1L, 10L));
+        assertTrue(journal.getAssignments(executorIds, cursor).isComplete());
+        journal.add(new TaskAssignmentJournal.Assignment(1L, 11L));
+        journal.add(new TaskAssignmentJournal.Assignment(1L, 12L));
+        assertFalse(journal.getAssignments(executorIds, cursor).isComplete());
+        assertFalse(journal.getAssignments(executorIds, cursor + 100).isComplete());
+    }
+
+    @Test
+    public void clusteredJournalRequiresFullReload() {
+        TaskAssignmentJournal journal = new TaskAssignmentJournal(100);
+        journal.setClustered(true);
+        Long cursor = journal.getAssignments(executorIds, null).getCursor();
+        journal.add(new TaskAssignmentJournal.Assignment(1L, 10L));
+        assertFalse(journal.getAssignments(executorIds, cursor).isComplete());
+    }
+}
@@ -0,0 +1,46 @@
+package ru.runa.wfe.var.converter;
+
+import java.util.List;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.testng.annotations.Test;
+import ru.runa.wfe.var.UserTypeMap;
+
+/**
+ * Compares binary codec with java serialization speed. It is not run with unit tests, run it by -Dtest=BinaryVariableCodecBenchmark.
+ */
+public class BinaryVariableCodecBenchmark {
+    private static final Log log = LogFactory.getLog(BinaryVariableCodecBenchmark.class);
+    private static final int ITERATIONS = 100;
+
+    @Test
+    public void compareWithSerialization() throws Exception {
+        List<UserTypeMap> list = BinaryVariableCodecTest.createUserTypeList(1000);
+        long encodeTime = System.nanoTime();
+        byte[] binary = null;
+        for (int i = 0; i < ITERATIONS; i++) {
+            binary = BinaryVariableCodec.encode(list);
+        }
+        encodeTime = System.nanoTime() - encodeTime;
+        long decodeTime = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            BinaryVariableCodec.decode(binary);
+        }
+        decodeTime = System.nanoTime() - decodeTime;
+        long serializeTime = System.nanoTime();
+        byte[] serialized = null;
+        for (int i = 0; i < ITERATIONS; i++) {
+            serialized = BinaryVariableCodecTest.serialize(list);
+        }
+        serializeTime = System.nanoTime() - serializeTime;
+        long deserializeTime = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            new SerializableToByteArrayConverter().revert(serialized);
+        }
+        deserializeTime = System.nanoTime() - deserializeTime;
+        log.info("binary: " + binary.length + " bytes, encode " + encodeTime / ITERATIONS / 1000 + " us, decode " + decodeTime / ITERATIONS / 1000
+                + " us");
+        log.info("java serialization: " + serialized.length + " bytes, encode " + serializeTime / ITERATIONS / 1000 + " us, decode "
+                + deserializeTime / ITERATIONS / 1000 + " us");
+    }
+}
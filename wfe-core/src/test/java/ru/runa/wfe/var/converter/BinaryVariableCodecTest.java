@@ -0,0 +1,86 @@
+package ru.runa.wfe.var.converter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.runa.wfe.var.UserType;
+import ru.runa.wfe.var.UserTypeMap;
+import ru.runa.wfe.var.VariableDefinition;
+import ru.runa.wfe.var.file.FileVariableImpl;
+
+public class BinaryVariableCodecTest extends Assert {
+
+    @Test
+    public void encodeDecode() throws Exception {
+        Map<Object, Object> map = new LinkedHashMap<>();
+        map.put("list", createUserTypeList(10));
+        map.put(1L, new FileVariableImpl("file.txt", new byte[] { 1, 2, 3 }, "text/plain"));
+        map.put(true, new BigDecimal("10.25"));
+        map.put(2, null);
+        map.put(3.5, new HashMap<>());
+        Object decoded = BinaryVariableCodec.decode(BinaryVariableCodec.encode(map));
+        assertEquals(decoded, map);
+        assertEquals(decoded.getClass(), LinkedHashMap.class);
+        UserTypeMap userTypeMap = (UserTypeMap) ((List<?>) ((Map<?, ?>) decoded).get("list")).get(0);
+        assertEquals(userTypeMap.getUserType().getName(), "person");
+    }
+
+    @Test
+    public void unsupportedValue() throws Exception {
+        List<Object> list = new ArrayList<>();
+        list.add(new TreeMap<>());
+        assertNull(BinaryVariableCodec.encode(list));
+    }
+
+    @Test
+    public void readLegacyValue() throws Exception {
+        List<UserTypeMap> list = createUserTypeList(2);
+        byte[] bytes = serialize(list);
+        assertFalse(BinaryVariableCodec.isEncoded(bytes));
+        assertEquals(new SerializableToByteArrayConverter().revert(bytes), list);
+    }
+
+    @Test
+    public void smallerThanSerialization() throws Exception {
+        List<UserTypeMap> list = createUserTypeList(1000);
+        byte[] binary = BinaryVariableCodec.encode(list);
+        byte[] serialized = serialize(list);
+        assertEquals(BinaryVariableCodec.decode(binary), list);
+        assertEquals(new SerializableToByteArrayConverter().revert(serialized), list);
+        assertTrue(binary.length < serialized.length);
+    }
+
+    static List<UserTypeMap> createUserTypeList(int size) {
+        UserType userType = new UserType("person");
+        userType.addAttribute(new VariableDefinition("name", "name"));
+        userType.addAttribute(new VariableDefinition("age", "age"));
+        userType.addAttribute(new VariableDefinition("birthDate", "birthDate"));
+        List<UserTypeMap> list = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            UserTypeMap userTypeMap = new UserTypeMap(userType);
+            userTypeMap.put("name", "person " + i);
+            userTypeMap.put("age", (long) i);
+            userTypeMap.put("birthDate", new Date(i * 86400000L));
+            list.add(userTypeMap);
+        }
+        return list;
+    }
+
+    static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream memoryStream = new ByteArrayOutputStream();
+        ObjectOutputStream objectStream = new ObjectOutputStream(memoryStream);
+        objectStream.writeObject(object);
+        objectStream.flush();
+        return memoryStream.toByteArray();
+    }
+}
@@ -0,0 +1,204 @@
+package ru.runa.wfe.var.file;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.Transaction;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import ru.runa.wfe.InternalApplicationException;
+import ru.runa.wfe.execution.Process;
+import ru.runa.wfe.var.Variable;
+
+public class LocalFileSystemStorageTest extends Assert {
+    private static final int LARGE_FILE_SIZE = 100001;
+    private TemporaryLocalFileStorage temporaryStorage;
+    private Transaction transaction;
+    private final LocalFileSystemStorage storage = new LocalFileSystemStorage() {
+
+        @Override
+        Transaction getTransaction() {
+            return transaction;
+        }
+    };
+
+    @BeforeMethod
+    public void setUp() {
+        temporaryStorage = new TemporaryLocalFileStorage();
+        transaction = null;
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        temporaryStorage.close();
+    }
+
+    @Test
+    public void fileIsStoredAsReferencedBlob() throws IOException {
+        File uploadsDirectory = LocalFileSystemStorage.getUploadsDirectory();
+        uploadsDirectory.mkdirs();
+        File first = File.createTempFile("report", null, uploadsDirectory);
+        File second = File.createTempFile("report", null, uploadsDirectory);
+        Files.write("report content", first, Charsets.UTF_8);
+        Files.write("report content", second, Charsets.UTF_8);
+
+        String path = LocalFileSystemStorage.saveBlob(first, 1L);
+        first.delete();
+        assertEquals(LocalFileSystemStorage.saveBlob(second, 2L), path);
+        second.delete();
+
+        assertTrue(LocalFileSystemStorage.isBlobPath(path));
+        File blobFile = LocalFileSystemStorage.getContentFile(path, false);
+        assertEquals(Files.toString(blobFile, Charsets.UTF_8), "report content");
+        assertTrue(new File(blobFile.getPath() + LocalFileSystemStorage.REFERENCES_SUFFIX, "1").exists());
+        assertTrue(new File(blobFile.getPath() + LocalFileSystemStorage.REFERENCES_SUFFIX, "2").exists());
+        assertEquals(uploadsDirectory.list().length, 0);
+    }
+
+    @Test
+    public void smallFileIsNotStored() {
+        FileVariable fileVariable = new FileVariableImpl("small.txt", new byte[10], "text/plain");
+
+        assertSame(storage.save(null, createVariable(1L, "file", null), fileVariable), fileVariable);
+        assertNull(LocalFileSystemStorage.getBlobsDirectory().list());
+    }
+
+    @Test
+    public void identicalFilesAreStoredOnceWithVariableReferences() {
+        byte[] data = createData(1);
+        LocalFileSystemVariable first = (LocalFileSystemVariable) storage.save(null, createVariable(1L, "file", null),
+                new FileVariableImpl("first.bin", data, "application/octet-stream"));
+        LocalFileSystemVariable second = (LocalFileSystemVariable) storage.save(null, createVariable(2L, "file", null),
+                new FileVariableImpl("second.bin", data, "application/octet-stream"));
+
+        assertEquals(second.getVariablePath(), first.getVariablePath());
+        assertEquals(second.getName(), "second.bin");
+        assertEquals(first.getData(), data);
+        assertEquals(getReferences(first.getVariablePath()),
+                Lists.newArrayList(LocalFileSystemStorage.getReferenceName(1L, "file"), LocalFileSystemStorage.getReferenceName(2L, "file")));
+    }
+
+    @Test
+    public void copiedValueAddsReferenceOnly() {
+        LocalFileSystemVariable stored = (LocalFileSystemVariable) storage.save(null, createVariable(1L, "file", null),
+                new FileVariableImpl("file.bin", createData(1), "application/octet-stream"));
+        File blobFile = LocalFileSystemStorage.getContentFile(stored.getVariablePath(), false);
+        blobFile.setLastModified(0);
+
+        Object copy = storage.save(null, createVariable(2L, "copy", null), stored);
+
+        assertSame(copy, stored);
+        assertEquals(blobFile.lastModified(), 0);
+        assertTrue(getReferences(stored.getVariablePath()).contains(LocalFileSystemStorage.getReferenceName(2L, "copy")));
+    }
+
+    @Test
+    public void replacedValueReferenceIsRemoved() {
+        LocalFileSystemVariable previous = (LocalFileSystemVariable) storage.save(null, createVariable(1L, "file", null),
+                new FileVariableImpl("file.bin", createData(1), "application/octet-stream"));
+        storage.save(null, createVariable(1L, "other", null), previous);
+
+        LocalFileSystemVariable current = (LocalFileSystemVariable) storage.save(null, createVariable(1L, "file", previous),
+                new FileVariableImpl("file.bin", createData(2), "application/octet-stream"));
+
+        assertEquals(getReferences(previous.getVariablePath()), Lists.newArrayList(LocalFileSystemStorage.getReferenceName(1L, "other")));
+        assertEquals(getReferences(current.getVariablePath()), Lists.newArrayList(LocalFileSystemStorage.getReferenceName(1L, "file")));
+    }
+
+    @Test
+    public void listItemKeepsReference() {
+        LocalFileSystemVariable kept = (LocalFileSystemVariable) storage.save(null, createVariable(1L, "files", null),
+                new FileVariableImpl("kept.bin", createData(1), "application/octet-stream"));
+        List<FileVariable> list = new ArrayList<>();
+        list.add(kept);
+        list.add(new FileVariableImpl("added.bin", createData(2), "application/octet-stream"));
+
+        storage.save(null, createVariable(1L, "files", Lists.newArrayList(kept)), list);
+
+        assertEquals(getReferences(kept.getVariablePath()), Lists.newArrayList(LocalFileSystemStorage.getReferenceName(1L, "files")));
+        assertTrue(list.get(1) instanceof LocalFileSystemVariable);
+    }
+
+    @Test
+    public void referenceIsRemovedAfterCommit() throws Exception {
+        LocalFileSystemVariable previous = (LocalFileSystemVariable) storage.save(null, createVariable(1L, "file", null),
+                new FileVariableImpl("file.bin", createData(1), "application/octet-stream"));
+        transaction = mock(Transaction.class);
+        final List<Synchronization> synchronizations = new ArrayList<>();
+        doAnswer(invocation -> synchronizations.add(invocation.getArgument(0))).when(transaction).registerSynchronization(any());
+
+        storage.save(null, createVariable(1L, "file", previous), new FileVariableImpl("small.txt", new byte[10], "text/plain"));
+        assertEquals(synchronizations.size(), 1);
+        synchronizations.get(0).afterCompletion(Status.STATUS_ROLLEDBACK);
+        assertEquals(getReferences(previous.getVariablePath()).size(), 1);
+        synchronizations.get(0).afterCompletion(Status.STATUS_COMMITTED);
+        assertTrue(getReferences(previous.getVariablePath()).isEmpty());
+    }
+
+    @Test
+    public void oldLayoutFileIsCopiedToBlob() throws IOException {
+        File oldFile = new File(temporaryStorage.getDirectory(), "1/file/0");
+        oldFile.getParentFile().mkdirs();
+        byte[] data = createData(1);
+        Files.write(data, oldFile);
+
+        LocalFileSystemVariable stored = (LocalFileSystemVariable) storage.save(null, createVariable(1L, "file", null),
+                new LocalFileSystemVariable("file.bin", "application/octet-stream", "1/file/0"));
+
+        assertTrue(LocalFileSystemStorage.isBlobPath(stored.getVariablePath()));
+        assertEquals(stored.getData(), data);
+        // previous variable version may still point to it
+        assertTrue(oldFile.exists());
+    }
+
+    @Test(expectedExceptions = InternalApplicationException.class)
+    public void pathOutsideStorageIsRejected() {
+        LocalFileSystemStorage.getContentFile("../outside", false);
+    }
+
+    @Test
+    public void referenceProcessIdIsParsed() {
+        assertEquals(LocalFileSystemStorage.getReferenceProcessId("12"), Long.valueOf(12));
+        assertEquals(LocalFileSystemStorage.getReferenceProcessId(LocalFileSystemStorage.getReferenceName(12L, "file")), Long.valueOf(12));
+    }
+
+    private static Variable<?> createVariable(Long processId, String name, Object value) {
+        Process process = mock(Process.class);
+        when(process.getId()).thenReturn(processId);
+        Variable<?> variable = mock(Variable.class);
+        when(variable.getProcess()).thenReturn(process);
+        when(variable.getName()).thenReturn(name);
+        when(variable.getValue()).thenReturn(value);
+        return variable;
+    }
+
+    private static byte[] createData(int seed) {
+        byte[] data = new byte[LARGE_FILE_SIZE];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * seed);
+        }
+        return data;
+    }
+
+    private static List<String> getReferences(String path) {
+        File referencesDirectory = new File(LocalFileSystemStorage.getContentFile(path, false).getPath() + LocalFileSystemStorage.REFERENCES_SUFFIX);
+        String[] names = referencesDirectory.list();
+        List<String> result = names != null ? Lists.newArrayList(names) : new ArrayList<String>();
+        Collections.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,37 @@
+package ru.runa.wfe.var.file;
+
+import com.google.common.io.Files;
+import java.io.File;
+
+/**
+ * Replaces local file storage directory by temporary one until {@link #close()}.
+ */
+public class TemporaryLocalFileStorage {
+    private final File previousStorageDir;
+    private final File directory;
+
+    public TemporaryLocalFileStorage() {
+        previousStorageDir = LocalFileSystemStorage.storageDir;
+        directory = Files.createTempDir();
+        LocalFileSystemStorage.storageDir = directory;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public void close() {
+        LocalFileSystemStorage.storageDir = previousStorageDir;
+        delete(directory);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
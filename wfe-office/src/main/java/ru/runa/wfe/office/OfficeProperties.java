@@ -17,4 +17,8 @@ public class OfficeProperties {
         return RESOURCES.getStringProperty("docx.placeholder.vmerge", "-||-");
     }
 
+    public static int getExcelStorageWorkbookCacheSize() {
+        return RESOURCES.getIntegerProperty("excel.storage.workbook.cache.size", 20);
+    }
+
 }
@@ -59,6 +59,13 @@ public class ExcelHelper {
     }
 
     public static Object getCellValue(Cell cell, VariableFormat elementFormat) {
+        return TypeConversionUtil.convertTo(elementFormat.getJavaClass(), getCellValue(cell));
+    }
+
+    /**
+     * @return cell value without conversion
+     */
+    public static Object getCellValue(Cell cell) {
         Object value;
         switch (cell.getCellType()) {
         case Cell.CELL_TYPE_STRING:
@@ -80,7 +87,7 @@ public class ExcelHelper {
         default:
             value = cell.getStringCellValue();
         }
-        return TypeConversionUtil.convertTo(elementFormat.getJavaClass(), value);
+        return value;
     }
 
     public static boolean isCellEmptyOrNull(Cell cell) {
@@ -1,13 +1,22 @@
 package ru.runa.wfe.office.storage;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import ru.runa.wfe.InternalApplicationException;
@@ -37,36 +46,65 @@ public class ConditionProcessor {
 
     private static final Log log = LogFactory.getLog(ConditionProcessor.class);
 
+    private static final String ATTRIBUTE_VARIABLE_PREFIX = "attribute";
+
+    private static final String ATTRIBUTE_IS_DATE_VARIABLE_PREFIX = "attributeIsDate";
+
+    private static final int COMPILED_SCRIPTS_PER_THREAD = 100;
+
     private static Set<String> operators = Sets.newHashSet(">", ">=", "<", "<=", "!=");
 
-    private static Object previousAttributeValue;
-    private static String previousOperator = "";
+    /**
+     * Script engine is not thread safe, so each thread uses own engine with compiled conditions.
+     */
+    private static final ThreadLocal<ScriptEngine> engines = new ThreadLocal<ScriptEngine>() {
+
+        @Override
+        protected ScriptEngine initialValue() {
+            return new ScriptEngineManager().getEngineByName("JavaScript");
+        }
+    };
 
-    private static ScriptEngine engine;
+    private static final ThreadLocal<Map<String, CompiledScript>> compiledScripts = new ThreadLocal<Map<String, CompiledScript>>() {
+
+        @Override
+        protected Map<String, CompiledScript> initialValue() {
+            return new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                    return size() > COMPILED_SCRIPTS_PER_THREAD;
+                }
+            };
+        }
+    };
 
-    static {
-        ScriptEngineManager engineManager = new ScriptEngineManager();
-        engine = engineManager.getEngineByName("JavaScript");
+    public static boolean filter(String condition, Map<String, Object> attributes, VariableProvider variableProvider) {
+        return compile(condition, variableProvider).evaluate(attributes);
     }
 
-    public static synchronized boolean filter(String condition, Map<String, Object> attributes, VariableProvider variableProvider) {
+    /**
+     * Parses condition once. Process variables are substituted on parsing, row attributes are passed to condition on each evaluation.
+     *
+     * @return Thread safe condition.
+     */
+    public static Condition compile(String condition, VariableProvider variableProvider) {
         try {
-            clear();
-            String query = parse(condition, attributes, variableProvider);
-            return (Boolean) engine.eval(query);
+            return parse(condition, variableProvider);
         } catch (Exception e) {
             log.error("error parse condition \"" + condition + "\"", e);
             throw Throwables.propagate(e);
         }
     }
 
-    private static void clear() {
-        previousAttributeValue = null;
-        previousOperator = "";
-    }
-
-    private static String parse(String condition, Map<String, Object> attributes, VariableProvider variableProvider) throws Exception {
+    private static Condition parse(String condition, VariableProvider variableProvider) throws Exception {
+        String sourceCondition = condition;
         condition = hideSpacesInAttributeNames(condition);
+        List<String> attributeNames = Lists.newArrayList();
+        Map<Integer, String> invalidDateLiterals = Maps.newHashMap();
+        int previousAttributeIndex = -1;
+        String previousOperator = "";
         StringBuilder sb = new StringBuilder();
         StringTokenizer st = new StringTokenizer(condition);
         while (st.hasMoreTokens()) {
@@ -80,8 +118,14 @@ public class ConditionProcessor {
                 sb.append(SPACE);
                 sb.append(OR_EXPR);
             } else if (token.startsWith("[") && token.endsWith("]")) {
-                sb.append(SPACE);
-                sb = appendAttribute(sb, attributes, token.replace(UNICODE_CHARACTER_OVERLINE, ' '));
+                String attributeName = token.replace(UNICODE_CHARACTER_OVERLINE, ' ');
+                attributeName = attributeName.substring(1, attributeName.length() - 1);
+                previousAttributeIndex = attributeNames.indexOf(attributeName);
+                if (previousAttributeIndex == -1) {
+                    previousAttributeIndex = attributeNames.size();
+                    attributeNames.add(attributeName);
+                }
+                sb.append(SPACE).append(ATTRIBUTE_VARIABLE_PREFIX).append(previousAttributeIndex);
             } else if (token.equalsIgnoreCase(LIKE_LITERAL)) {
                 previousOperator = LIKE_LITERAL;
                 sb.append(LIKE_EXPR_START).append("/");
@@ -96,9 +140,20 @@ public class ConditionProcessor {
                 sb.append(SPACE).append(extractVariableValue(token, variableProvider, true));
             } else {
                 sb.append(SPACE);
-                if (previousAttributeValue != null && previousAttributeValue instanceof Date && operators.contains(previousOperator)) {
-                    // handle date string value. For example: [startDate] > '16.05.2015'
-                    sb.append(getTime(token));
+                if (previousAttributeIndex != -1 && operators.contains(previousOperator)) {
+                    // handle date string value if attribute value is date. For example: [startDate] > '16.05.2015'
+                    Long time = null;
+                    try {
+                        time = getTime(token);
+                    } catch (Exception e) {
+                        invalidDateLiterals.put(previousAttributeIndex, token);
+                    }
+                    if (time != null) {
+                        sb.append("(").append(ATTRIBUTE_IS_DATE_VARIABLE_PREFIX).append(previousAttributeIndex).append(" ? ").append(time)
+                                .append(" : ").append(token).append(")");
+                    } else {
+                        sb.append(token);
+                    }
                 } else {
                     sb.append(token);
                 }
@@ -107,7 +162,7 @@ public class ConditionProcessor {
                 }
             }
         }
-        return sb.toString();
+        return new Condition(sourceCondition, sb.toString(), attributeNames, invalidDateLiterals);
     }
 
     private static String extractVariableValue(String token, VariableProvider variableProvider, boolean adjustValue) {
@@ -127,23 +182,6 @@ public class ConditionProcessor {
         }
     }
 
-    private static StringBuilder appendAttribute(StringBuilder sb, Map<String, Object> variables, String token) throws Exception {
-        String var = token.substring(1, token.length() - 1);
-        if (variables.keySet().contains(var)) {
-            Object obj = variables.get(var);
-            previousAttributeValue = obj;
-            sb.append(formatParameterValue(obj));
-        }
-        else {
-            throw new Exception("Atttribute " + token + " does not exist.");
-        }
-        return sb;
-    }
-
-    private static String formatParameterValue(Object value) {
-        return formatParameterValue(value, true);
-    }
-
     private static String formatParameterValue(Object value, boolean adjustValue) {
         if (value instanceof Number) {
             return value.toString();
@@ -173,4 +211,66 @@ public class ConditionProcessor {
         return new String(conditionChars);
     }
 
+    /**
+     * Parsed condition, which may be evaluated concurrently.
+     */
+    public static class Condition {
+        private final String condition;
+        private final String script;
+        private final List<String> attributeNames;
+        private final Map<Integer, String> invalidDateLiterals;
+
+        private Condition(String condition, String script, List<String> attributeNames, Map<Integer, String> invalidDateLiterals) {
+            this.condition = condition;
+            this.script = script;
+            this.attributeNames = attributeNames;
+            this.invalidDateLiterals = invalidDateLiterals;
+        }
+
+        public boolean evaluate(Map<String, Object> attributes) {
+            try {
+                ScriptEngine engine = engines.get();
+                Bindings bindings = engine.getBindings(ScriptContext.ENGINE_SCOPE);
+                for (int i = 0; i < attributeNames.size(); i++) {
+                    String attributeName = attributeNames.get(i);
+                    if (!attributes.containsKey(attributeName)) {
+                        throw new Exception("Atttribute [" + attributeName + "] does not exist.");
+                    }
+                    Object value = attributes.get(attributeName);
+                    boolean isDate = value instanceof Date;
+                    if (isDate && invalidDateLiterals.containsKey(i)) {
+                        throw new InternalApplicationException("Unable parse date '" + invalidDateLiterals.get(i) + "'");
+                    }
+                    bindings.put(ATTRIBUTE_VARIABLE_PREFIX + i, toScriptValue(value));
+                    bindings.put(ATTRIBUTE_IS_DATE_VARIABLE_PREFIX + i, isDate);
+                }
+                return (Boolean) getCompiledScript(engine).eval();
+            } catch (Exception e) {
+                log.error("error parse condition \"" + condition + "\"", e);
+                throw Throwables.propagate(e);
+            }
+        }
+
+        private CompiledScript getCompiledScript(ScriptEngine engine) throws ScriptException {
+            Map<String, CompiledScript> scripts = compiledScripts.get();
+            CompiledScript compiledScript = scripts.get(script);
+            if (compiledScript == null) {
+                compiledScript = ((Compilable) engine).compile(script);
+                scripts.put(script, compiledScript);
+            }
+            return compiledScript;
+        }
+
+        private static Object toScriptValue(Object value) {
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            } else if (value instanceof Date) {
+                return (double) ((Date) value).getTime();
+            } else if (value instanceof Executor) {
+                return ((Executor) value).getName();
+            }
+            return String.valueOf(value);
+        }
+    }
+
 }
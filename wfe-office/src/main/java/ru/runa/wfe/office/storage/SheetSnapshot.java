@@ -0,0 +1,72 @@
+package ru.runa.wfe.office.storage;
+
+import java.util.Date;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import ru.runa.wfe.office.excel.utils.ExcelHelper;
+
+/**
+ * Immutable copy of cell values of workbook storage sheet. It is read without locking, because POI workbook is not safe for concurrent
+ * reading.
+ */
+public class SheetSnapshot {
+    private static final Object[] EMPTY_ROW = new Object[0];
+    private final Object[][] values;
+
+    private SheetSnapshot(Object[][] values) {
+        this.values = values;
+    }
+
+    /**
+     * Copies values of storage sheet (first one, see {@link ExcelHelper#getSheet(Workbook, String, int)}). Caller must hold file lock.
+     */
+    public static SheetSnapshot of(Workbook workbook) {
+        if (workbook.getNumberOfSheets() == 0) {
+            return new SheetSnapshot(new Object[0][]);
+        }
+        Sheet sheet = workbook.getSheetAt(0);
+        Object[][] values = new Object[sheet.getLastRowNum() + 1][];
+        for (int rowIndex = 0; rowIndex < values.length; rowIndex++) {
+            Row row = sheet.getRow(rowIndex);
+            if (row == null || row.getLastCellNum() <= 0) {
+                values[rowIndex] = EMPTY_ROW;
+                continue;
+            }
+            values[rowIndex] = new Object[row.getLastCellNum()];
+            for (int columnIndex = 0; columnIndex < values[rowIndex].length; columnIndex++) {
+                Cell cell = row.getCell(columnIndex);
+                if (!ExcelHelper.isCellEmptyOrNull(cell)) {
+                    values[rowIndex][columnIndex] = ExcelHelper.getCellValue(cell);
+                }
+            }
+        }
+        return new SheetSnapshot(values);
+    }
+
+    public boolean isEmpty(int rowIndex, int columnIndex) {
+        return getRawValue(rowIndex, columnIndex) == null;
+    }
+
+    /**
+     * @return cell value without conversion, empty string for empty cell (as it is read from blank cell)
+     */
+    public Object getValue(int rowIndex, int columnIndex) {
+        Object value = getRawValue(rowIndex, columnIndex);
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Date) {
+            return new Date(((Date) value).getTime());
+        }
+        return value;
+    }
+
+    private Object getRawValue(int rowIndex, int columnIndex) {
+        if (rowIndex >= values.length || columnIndex >= values[rowIndex].length) {
+            return null;
+        }
+        return values[rowIndex][columnIndex];
+    }
+}
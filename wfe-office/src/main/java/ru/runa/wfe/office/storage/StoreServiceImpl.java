@@ -4,10 +4,8 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collections;
 import java.util.Comparator;
@@ -15,6 +13,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 import lombok.extern.apachecommons.CommonsLog;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Cell;
@@ -23,6 +23,7 @@ import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import ru.runa.wfe.InternalApplicationException;
+import ru.runa.wfe.commons.TypeConversionUtil;
 import ru.runa.wfe.datasource.DataSource;
 import ru.runa.wfe.datasource.DataSourceStorage;
 import ru.runa.wfe.datasource.ExcelDataSource;
@@ -107,8 +108,16 @@ public class StoreServiceImpl implements StoreService {
             throw new WrongOperatorException(condition);
         }
         initParams(properties);
-        Workbook wb = getWorkbook(fullPath);
-        final List result = find(wb, constraints, format, condition);
+        final List result;
+        SheetSnapshot snapshot;
+        Lock lock = WorkbookCache.getLock(fullPath).readLock();
+        lock.lock();
+        try {
+            snapshot = WorkbookCache.getSnapshot(fullPath);
+        } finally {
+            lock.unlock();
+        }
+        result = find(snapshot, constraints, format, condition);
 
         if (!result.isEmpty() && result.get(0) instanceof UserTypeMap) {
             Comparator<UserTypeMap> comparator = null;
@@ -134,40 +143,19 @@ public class StoreServiceImpl implements StoreService {
     @Override
     public void update(Properties properties, WfVariable variable, String condition) throws Exception {
         initParams(properties);
-        Workbook wb = getWorkbook(fullPath);
-        update(wb, constraints, variable.getValue(), format, condition, false);
-        try (OutputStream os = new FileOutputStream(fullPath)) {
-            wb.write(os);
-        } catch (IOException e) {
-            log.error("", e);
-            throw new BlockedFileException(fullPath);
-        }
+        modifyWorkbook(wb -> update(wb, constraints, variable.getValue(), format, condition, false));
     }
 
     @Override
     public void delete(Properties properties, UserType userType, String condition) throws Exception {
         initParams(properties);
-        Workbook wb = getWorkbook(fullPath);
-        update(wb, constraints, null, format, condition, true);
-        try (OutputStream os = new FileOutputStream(fullPath)) {
-            wb.write(os);
-        } catch (IOException e) {
-            log.error("", e);
-            throw new BlockedFileException(fullPath);
-        }
+        modifyWorkbook(wb -> update(wb, constraints, null, format, condition, true));
     }
 
     @Override
     public void save(Properties properties, WfVariable variable, boolean appendTo) throws Exception {
         initParams(properties);
-        Workbook wb = getWorkbook(fullPath);
-        save(wb, constraints, format, variable, appendTo);
-        try (OutputStream os = new FileOutputStream(fullPath)) {
-            wb.write(os);
-        } catch (IOException e) {
-            log.error("", e);
-            throw new BlockedFileException(fullPath);
-        }
+        modifyWorkbook(wb -> save(wb, constraints, format, variable, appendTo));
     }
 
     private void initParams(Properties properties) throws InternalApplicationException {
@@ -186,7 +174,7 @@ public class StoreServiceImpl implements StoreService {
     @SuppressWarnings("unchecked")
     private void update(Workbook workbook, ExcelConstraints constraints, Object variable, VariableFormat variableFormat, String condition,
             boolean clear) {
-        List<?> list = findAll(workbook, constraints, variableFormat);
+        List<?> list = findAll(SheetSnapshot.of(workbook), constraints, variableFormat);
         boolean changed = false;
         int i = 0;
         if (Strings.isNullOrEmpty(condition)) {
@@ -196,9 +184,10 @@ public class StoreServiceImpl implements StoreService {
             }
             changed = true;
         } else {
+            ConditionProcessor.Condition compiledCondition = ConditionProcessor.compile(condition, variableProvider);
             for (Object object : list) {
                 if (variableFormat instanceof UserTypeFormat) {
-                    if (ConditionProcessor.filter(condition, (Map<String, Object>) object, variableProvider)) {
+                    if (compiledCondition.evaluate((Map<String, Object>) object)) {
                         changeVariable(constraints, variable, clear, list, i, object);
                         changed = true;
                     }
@@ -265,25 +254,37 @@ public class StoreServiceImpl implements StoreService {
         }
     }
 
-    @SuppressWarnings("resource")
-    private Workbook getWorkbook(String fullPath) throws IOException {
-        Workbook wb = null;
-        InputStream is = new FileInputStream(fullPath);
-        if (fullPath.endsWith(".xls")) {
-            wb = new HSSFWorkbook(is);
-        } else if (fullPath.endsWith(".xlsx")) {
-            wb = new XSSFWorkbook(is);
-        } else {
-            throw new IllegalArgumentException("excel file extension is incorrect!");
+    /**
+     * Applies change to workbook and writes it to file. Changes of other files are not blocked.
+     */
+    private void modifyWorkbook(Consumer<Workbook> change) throws IOException {
+        Lock lock = WorkbookCache.getLock(fullPath).writeLock();
+        lock.lock();
+        try {
+            Workbook wb = WorkbookCache.getWorkbook(fullPath);
+            try {
+                change.accept(wb);
+            } catch (RuntimeException e) {
+                WorkbookCache.invalidate(fullPath);
+                throw e;
+            }
+            try (OutputStream os = new FileOutputStream(fullPath)) {
+                wb.write(os);
+            } catch (IOException e) {
+                log.error("", e);
+                WorkbookCache.invalidate(fullPath);
+                throw new BlockedFileException(fullPath);
+            }
+            WorkbookCache.onWorkbookWritten(fullPath, wb);
+        } finally {
+            lock.unlock();
         }
-        is.close();
-        return wb;
     }
 
     @SuppressWarnings("rawtypes")
-    private List find(Workbook workbook, ExcelConstraints constraints, VariableFormat variableFormat, String condition) {
+    private List find(SheetSnapshot snapshot, ExcelConstraints constraints, VariableFormat variableFormat, String condition) {
         boolean all = Strings.isNullOrEmpty(condition);
-        List result = findAll(workbook, constraints, variableFormat);
+        List result = findAll(snapshot, constraints, variableFormat);
         if (!all) {
             return filter(result, condition);
         }
@@ -292,10 +293,11 @@ public class StoreServiceImpl implements StoreService {
 
     private List filter(List records, String condition) {
         List filtered = Lists.newArrayList();
+        ConditionProcessor.Condition compiledCondition = ConditionProcessor.compile(condition, variableProvider);
         for (Object object : records) {
             boolean conditionResult = false;
             if (object instanceof UserTypeMap) {
-                conditionResult = ConditionProcessor.filter(condition, (UserTypeMap) object, variableProvider);
+                conditionResult = compiledCondition.evaluate((UserTypeMap) object);
                 if (!conditionResult) {
                     continue;
                 }
@@ -309,11 +311,11 @@ public class StoreServiceImpl implements StoreService {
         return filtered;
     }
 
-    private List<?> findAll(Workbook workbook, ExcelConstraints constraints, VariableFormat variableFormat) {
+    private List<?> findAll(SheetSnapshot snapshot, ExcelConstraints constraints, VariableFormat variableFormat) {
         List<?> result = Lists.newArrayList();
         VariableFormat format = getVariableFormat(variableFormat);
         if (constraints instanceof AttributeConstraints) {
-            fillResultFromCell(workbook, constraints, format, result);
+            fillResultFromSnapshot(snapshot, format, result);
         }
         return result;
     }
@@ -363,34 +365,46 @@ public class StoreServiceImpl implements StoreService {
         return startRowIndex;
     }
 
-    private void fillResultFromCell(Workbook workbook, ExcelConstraints constraints, VariableFormat variableFormat, List result) {
-        AttributeConstraints attributeConstraints = (AttributeConstraints) constraints;
+    private int getLastRowIndex(SheetSnapshot snapshot, int columnIndex, VariableFormat variableFormat) {
+        int rowIndex = START_ROW_INDEX;
+        while (true) {
+            if (variableFormat instanceof UserTypeFormat) {
+                int attributesCount = ((UserTypeFormat) variableFormat).getUserType().getAttributes().size();
+                int emptyCount = 0;
+                for (int i = 0; i < attributesCount; i++) {
+                    if (snapshot.isEmpty(rowIndex, columnIndex + i)) {
+                        emptyCount++;
+                    }
+                }
+                if (emptyCount == attributesCount) {
+                    break;
+                }
+            } else if (snapshot.isEmpty(rowIndex, columnIndex)) {
+                break;
+            }
+            rowIndex++;
+        }
+        return rowIndex;
+    }
+
+    private void fillResultFromSnapshot(SheetSnapshot snapshot, VariableFormat variableFormat, List result) {
         int columnIndex = 0;// attributeConstraints.getColumnIndex();
-        Sheet sheet = ExcelHelper.getSheet(workbook, attributeConstraints.getSheetName(), attributeConstraints.getSheetIndex());
-        int rowIndex = getLastRowIndex(sheet, columnIndex, variableFormat);
-        int currentRow = START_ROW_INDEX;
-        while (currentRow < rowIndex) {
-            Row row = ExcelHelper.getRow(sheet, currentRow, true);
+        int rowIndex = getLastRowIndex(snapshot, columnIndex, variableFormat);
+        for (int currentRow = START_ROW_INDEX; currentRow < rowIndex; currentRow++) {
             if (variableFormat instanceof UserTypeFormat) {
                 UserType userType = ((UserTypeFormat) variableFormat).getUserType();
-                List<VariableDefinition> attributes = userType.getAttributes();
                 int colIndex = columnIndex;
                 UserTypeMap userTypeMap = new UserTypeMap(userType);
-                for (VariableDefinition variableDefinition : attributes) {
-                    Cell cell = ExcelHelper.getCell(row, colIndex, true);
-                    Object attributeValue = ExcelHelper.getCellValue(cell, variableDefinition.getFormatNotNull());
+                for (VariableDefinition variableDefinition : userType.getAttributes()) {
+                    Object attributeValue = TypeConversionUtil.convertTo(variableDefinition.getFormatNotNull().getJavaClass(),
+                            snapshot.getValue(currentRow, colIndex));
                     userTypeMap.put(variableDefinition.getName(), attributeValue);
                     colIndex++;
                 }
                 result.add(userTypeMap);
             } else {
-                Cell cell = ExcelHelper.getCell(row, columnIndex, true);
-                if (ExcelHelper.isCellEmptyOrNull(cell)) {
-                    break;
-                }
-                result.add(ExcelHelper.getCellValue(cell, format));
+                result.add(TypeConversionUtil.convertTo(format.getJavaClass(), snapshot.getValue(currentRow, columnIndex)));
             }
-            currentRow++;
         }
     }
 
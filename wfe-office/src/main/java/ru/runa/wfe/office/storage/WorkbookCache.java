@@ -0,0 +1,112 @@
+package ru.runa.wfe.office.storage;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import ru.runa.wfe.office.OfficeProperties;
+
+/**
+ * Holds parsed excel workbooks. Workbook is parsed again if file modification time or length is changed.
+ *
+ * Access to workbook must be guarded by file write lock: POI workbook is not safe for concurrent access even on reading. Readers take
+ * immutable sheet snapshot under read lock and read it without locking.
+ */
+public class WorkbookCache {
+    private static final ConcurrentMap<String, ReadWriteLock> locks = Maps.newConcurrentMap();
+    private static final Cache<String, CachedWorkbook> workbooks = CacheBuilder.newBuilder()
+            .maximumSize(OfficeProperties.getExcelStorageWorkbookCacheSize()).build();
+
+    public static ReadWriteLock getLock(String path) {
+        ReadWriteLock lock = locks.get(path);
+        if (lock == null) {
+            lock = new ReentrantReadWriteLock();
+            ReadWriteLock existingLock = locks.putIfAbsent(path, lock);
+            if (existingLock != null) {
+                lock = existingLock;
+            }
+        }
+        return lock;
+    }
+
+    /**
+     * Loads workbook. Caller must hold file write lock.
+     */
+    public static Workbook getWorkbook(String path) throws IOException {
+        return getCachedWorkbook(path).workbook;
+    }
+
+    /**
+     * Loads snapshot of workbook storage sheet. Caller must hold file lock.
+     */
+    public static SheetSnapshot getSnapshot(String path) throws IOException {
+        return getCachedWorkbook(path).snapshot;
+    }
+
+    private static CachedWorkbook getCachedWorkbook(String path) throws IOException {
+        File file = new File(path);
+        CachedWorkbook cachedWorkbook = workbooks.getIfPresent(path);
+        if (cachedWorkbook != null && cachedWorkbook.isActual(file)) {
+            return cachedWorkbook;
+        }
+        // File state is taken before reading, so concurrent external modification leads to reloading on next access
+        long lastModified = file.lastModified();
+        long length = file.length();
+        Workbook workbook;
+        try (InputStream is = new FileInputStream(path)) {
+            if (path.endsWith(".xls")) {
+                workbook = new HSSFWorkbook(is);
+            } else if (path.endsWith(".xlsx")) {
+                workbook = new XSSFWorkbook(is);
+            } else {
+                throw new IllegalArgumentException("excel file extension is incorrect!");
+            }
+        }
+        // Concurrent readers may load workbook simultaneously, last loaded one is cached
+        cachedWorkbook = new CachedWorkbook(workbook, SheetSnapshot.of(workbook), lastModified, length);
+        workbooks.put(path, cachedWorkbook);
+        return cachedWorkbook;
+    }
+
+    /**
+     * Marks workbook as actual after it has been written to file. Caller must hold file write lock.
+     */
+    public static void onWorkbookWritten(String path, Workbook workbook) {
+        File file = new File(path);
+        workbooks.put(path, new CachedWorkbook(workbook, SheetSnapshot.of(workbook), file.lastModified(), file.length()));
+    }
+
+    /**
+     * Drops workbook, which is modified but not written to file. Caller must hold file write lock.
+     */
+    public static void invalidate(String path) {
+        workbooks.invalidate(path);
+    }
+
+    private static class CachedWorkbook {
+        private final Workbook workbook;
+        private final SheetSnapshot snapshot;
+        private final long lastModified;
+        private final long length;
+
+        public CachedWorkbook(Workbook workbook, SheetSnapshot snapshot, long lastModified, long length) {
+            this.workbook = workbook;
+            this.snapshot = snapshot;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        public boolean isActual(File file) {
+            return lastModified == file.lastModified() && length == file.length();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.runa.wfe.office.storage;
+
+import java.io.IOException;
+import java.util.Date;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.runa.wfe.office.excel.utils.ExcelHelper;
+
+public class SheetSnapshotTest extends Assert {
+
+    @Test
+    public void valuesAreCopied() throws IOException {
+        try (Workbook workbook = new XSSFWorkbook()) {
+            Row row = workbook.createSheet("data").createRow(0);
+            row.createCell(0).setCellValue("name");
+            row.createCell(1).setCellValue(2.5);
+            row.createCell(3);
+            workbook.getSheetAt(0).createRow(2).createCell(0).setCellValue(true);
+
+            SheetSnapshot snapshot = SheetSnapshot.of(workbook);
+            row.getCell(0).setCellValue("changed");
+            assertEquals(snapshot.getValue(0, 0), "name");
+            assertEquals(snapshot.getValue(0, 1), 2.5);
+            assertTrue(snapshot.isEmpty(0, 2));
+            assertTrue(snapshot.isEmpty(0, 3));
+            assertEquals(snapshot.getValue(0, 3), "");
+            assertTrue(snapshot.isEmpty(1, 0));
+            assertEquals(snapshot.getValue(2, 0), true);
+            assertTrue(snapshot.isEmpty(10, 10));
+        }
+    }
+
+    @Test
+    public void dateValueIsNotShared() throws IOException {
+        try (Workbook workbook = new XSSFWorkbook()) {
+            ExcelHelper.setCellValue(workbook.createSheet().createRow(0).createCell(0), new Date(86400000L));
+            SheetSnapshot snapshot = SheetSnapshot.of(workbook);
+            ((Date) snapshot.getValue(0, 0)).setTime(0);
+            assertEquals(snapshot.getValue(0, 0), new Date(86400000L));
+        }
+    }
+
+    @Test
+    public void emptyWorkbook() throws IOException {
+        try (Workbook workbook = new XSSFWorkbook()) {
+            assertTrue(SheetSnapshot.of(workbook).isEmpty(0, 0));
+        }
+    }
+}
@@ -10,6 +10,7 @@ import ru.runa.wfe.bot.BotStationDoesNotExistException;
 import ru.runa.wfe.bot.BotTask;
 import ru.runa.wfe.bot.BotTaskAlreadyExistsException;
 import ru.runa.wfe.bot.BotTaskDoesNotExistException;
+import ru.runa.wfe.task.dto.WfTaskAssignments;
 import ru.runa.wfe.user.User;
 
 /**
@@ -156,6 +157,16 @@ public interface BotService {
      */
     public List<BotTask> getBotTasks(User user, Long id);
 
+    /**
+     * Loads identities of tasks, assigned to user (directly or through group) since cursor. Used by bot stations to avoid full task list loading.
+     * 
+     * @param cursor
+     *            cursor from previous invocation or <code>null</code> to obtain initial cursor
+     * @return assignments, not <code>null</code>; if assignments since cursor are unknown then {@link WfTaskAssignments#isComplete()} returns
+     *         <code>false</code> and full task list must be loaded
+     */
+    public WfTaskAssignments getAssignedTaskIds(User user, Long cursor);
+
     /**
      * Loads bot task by id.
      * 
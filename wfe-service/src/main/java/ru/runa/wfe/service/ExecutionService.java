@@ -37,6 +37,7 @@ import ru.runa.wfe.user.User;
 import ru.runa.wfe.validation.ValidationException;
 import ru.runa.wfe.var.dto.WfVariable;
 import ru.runa.wfe.var.dto.WfVariableHistoryState;
+import ru.runa.wfe.var.file.FileVariable;
 import ru.runa.wfe.var.file.FileVariableImpl;
 
 /**
@@ -303,6 +304,21 @@ public interface ExecutionService {
      */
     public FileVariableImpl getFileVariableValue(User user, Long processId, String variableName) throws ProcessDoesNotExistException;
 
+    /**
+     * Gets stored file variable value by name from process. Unlike {@link #getFileVariableValue(User, Long, String)} file data is not loaded for
+     * files in local file storage, so it can be streamed from disk.
+     *
+     * @param user
+     *            authorized user
+     * @param processId
+     *            process id
+     * @param variableName
+     *            variable name
+     * @return FileVariable or <code>null</code>
+     * @throws ProcessDoesNotExistException
+     */
+    public FileVariable getFileVariable(User user, Long processId, String variableName) throws ProcessDoesNotExistException;
+
     /**
      * Updates process variables without any signalling.
      *
@@ -13,7 +13,7 @@ import ru.runa.wfe.user.User;
 public interface SynchronizationService {
 
     /**
-     * Synchronizes executors with LDAP, if configured.
+     * Synchronizes executors with LDAP, if configured. All directory entries are read, scheduled synchronization can be incremental.
      * 
      * @param user
      *            authorized user
@@ -5,6 +5,7 @@ import ru.runa.wfe.bot.Bot;
 import ru.runa.wfe.bot.BotStation;
 import ru.runa.wfe.bot.BotTask;
 import ru.runa.wfe.service.BotService;
+import ru.runa.wfe.task.dto.WfTaskAssignments;
 import ru.runa.wfe.user.User;
 
 public class BotServiceDelegate extends Ejb3Delegate implements BotService {
@@ -125,6 +126,15 @@ public class BotServiceDelegate extends Ejb3Delegate implements BotService {
         }
     }
 
+    @Override
+    public WfTaskAssignments getAssignedTaskIds(User user, Long cursor) {
+        try {
+            return getBotService().getAssignedTaskIds(user, cursor);
+        } catch (Exception e) {
+            throw handleException(e);
+        }
+    }
+
     @Override
     public BotTask createBotTask(User user, BotTask task) {
         try {
@@ -35,6 +35,7 @@ import ru.runa.wfe.user.Executor;
 import ru.runa.wfe.user.User;
 import ru.runa.wfe.var.dto.WfVariable;
 import ru.runa.wfe.var.dto.WfVariableHistoryState;
+import ru.runa.wfe.var.file.FileVariable;
 import ru.runa.wfe.var.file.FileVariableImpl;
 
 /**
@@ -194,6 +195,15 @@ public class ExecutionServiceDelegate extends Ejb3Delegate implements ExecutionS
         }
     }
 
+    @Override
+    public FileVariable getFileVariable(User user, Long processId, String variableName) throws ProcessDoesNotExistException {
+        try {
+            return getExecutionService().getFileVariable(user, processId, variableName);
+        } catch (Exception e) {
+            throw handleException(e);
+        }
+    }
+
     @Override
     public void updateVariables(User user, Long processId, Map<String, Object> variables) {
         try {
@@ -46,6 +46,7 @@ import ru.runa.wfe.service.interceptors.EjbExceptionSupport;
 import ru.runa.wfe.service.interceptors.EjbTransactionSupport;
 import ru.runa.wfe.service.interceptors.PerformanceObserver;
 import ru.runa.wfe.user.User;
+import ru.runa.wfe.var.converter.BinaryVariableCodec;
 import ru.runa.wfe.var.file.FileVariable;
 import ru.runa.wfe.var.file.FileVariableImpl;
 
@@ -87,8 +88,12 @@ public class AuditServiceBean implements AuditServiceLocal, AuditServiceRemote {
     public Object getProcessLogValue(@WebParam(name = "user") @NonNull User user, @WebParam(name = "logId") Long logId) {
         Object value = auditLogic.getProcessLogValue(user, logId);
         if (value instanceof byte[]) {
-            try (ExtensionObjectInputStream objectInputStream = new ExtensionObjectInputStream((byte[]) value)) {
-                value = objectInputStream.readObject();
+            if (BinaryVariableCodec.isEncoded((byte[]) value)) {
+                value = BinaryVariableCodec.decode((byte[]) value);
+            } else {
+                try (ExtensionObjectInputStream objectInputStream = new ExtensionObjectInputStream((byte[]) value)) {
+                    value = objectInputStream.readObject();
+                }
             }
             if (value instanceof FileVariable) {
                 FileVariable fileVariable = (FileVariable) value;
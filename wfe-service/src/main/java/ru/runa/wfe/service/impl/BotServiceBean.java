@@ -41,6 +41,7 @@ import ru.runa.wfe.service.delegate.WfeScriptForBotStations;
 import ru.runa.wfe.service.interceptors.EjbExceptionSupport;
 import ru.runa.wfe.service.interceptors.EjbTransactionSupport;
 import ru.runa.wfe.service.interceptors.PerformanceObserver;
+import ru.runa.wfe.task.dto.WfTaskAssignments;
 import ru.runa.wfe.user.User;
 
 /**
@@ -128,6 +129,12 @@ public class BotServiceBean implements BotServiceLocal, BotServiceRemote {
         return botLogic.getBotTasks(user, id);
     }
 
+    @Override
+    @WebResult(name = "result")
+    public WfTaskAssignments getAssignedTaskIds(@WebParam(name = "user") @NonNull User user, @WebParam(name = "cursor") Long cursor) {
+        return botLogic.getAssignedTaskIds(user, cursor);
+    }
+
     @Override
     @WebResult(name = "result")
     public BotTask createBotTask(@WebParam(name = "user") @NonNull User user, @WebParam(name = "botTask") @NonNull BotTask botTask) {
@@ -23,6 +23,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.ejb.interceptor.SpringBeanAutowiringInterceptor;
 import ru.runa.wfe.commons.SystemProperties;
 import ru.runa.wfe.datasource.DataSourceStorage;
+import ru.runa.wfe.datasource.JdbcConnectionPool;
 import ru.runa.wfe.datasource.JdbcDataSource;
 import ru.runa.wfe.service.decl.DataSourceServiceLocal;
 import ru.runa.wfe.service.decl.DataSourceServiceRemote;
@@ -103,7 +104,12 @@ public class DataSourceServiceBean implements DataSourceServiceLocal, DataSource
     @WebMethod(exclude = true)
     public String getDbServerInfo(String name) {
         JdbcDataSource dataSource = (JdbcDataSource) DataSourceStorage.getDataSource(name);
-        return dataSource.serverVersion();
+        String info = dataSource.serverVersion();
+        JdbcConnectionPool pool = dataSource.getPoolIfCreated();
+        if (pool != null) {
+            info += "; Connection pool: " + pool.getStatistics();
+        }
+        return info;
     }
 
 }
@@ -230,6 +230,13 @@ public class ExecutionServiceBean implements ExecutionServiceLocal, ExecutionSer
         return null;
     }
 
+    @WebMethod(exclude = true)
+    @Override
+    public FileVariable getFileVariable(@NonNull User user, @NonNull Long processId, @NonNull String variableName) {
+        WfVariable variable = variableLogic.getVariable(user, processId, variableName);
+        return variable != null ? (FileVariable) variable.getValue() : null;
+    }
+
     @WebMethod(exclude = true)
     @Override
     public void updateVariables(@NonNull User user, @NonNull Long processId, @NonNull Map<String, Object> variables) {
@@ -45,7 +45,6 @@ import org.springframework.ejb.interceptor.SpringBeanAutowiringInterceptor;
 import ru.runa.wfe.InternalApplicationException;
 import ru.runa.wfe.audit.ReceiveMessageLog;
 import ru.runa.wfe.commons.SystemErrors;
-import ru.runa.wfe.commons.SystemProperties;
 import ru.runa.wfe.commons.TransactionalExecutor;
 import ru.runa.wfe.commons.Utils;
 import ru.runa.wfe.definition.dao.ProcessDefinitionLoader;
@@ -56,7 +55,6 @@ import ru.runa.wfe.execution.logic.ExecutionLogic;
 import ru.runa.wfe.lang.BaseMessageNode;
 import ru.runa.wfe.lang.BaseReceiveMessageNode;
 import ru.runa.wfe.lang.Node;
-import ru.runa.wfe.lang.NodeType;
 import ru.runa.wfe.lang.ProcessDefinition;
 import ru.runa.wfe.lang.bpmn2.MessageEventType;
 import ru.runa.wfe.service.interceptors.EjbExceptionSupport;
@@ -92,15 +90,9 @@ public class ReceiveMessageBean implements MessageListener {
             log.debug("Received " + messageString);
             errorEventData = ErrorEventData.match(message);
             transaction.begin();
-            List<Token> tokens;
-            if (SystemProperties.isProcessExecutionMessagePredefinedSelectorEnabled()) {
-                Map<String, String> routingData = getRoutingData(message);
-                tokens = executionLogic.findTokensForMessageSelector(routingData);
-                log.debug("Checking " + tokens.size() + " tokens by routingData = " + routingData);
-            } else {
-                tokens = tokenDao.findByNodeTypeInActiveProcesses(NodeType.RECEIVE_MESSAGE);
-                log.debug("Checking " + tokens.size() + " tokens");
-            }
+            Map<String, String> routingData = getRoutingData(message);
+            List<Token> tokens = executionLogic.findTokensForMessageSelector(routingData);
+            log.debug("Checking " + tokens.size() + " tokens by routingData = " + routingData);
             for (Token token : tokens) {
                 try {
                     ProcessDefinition processDefinition = processDefinitionLoader.getDefinition(token.getProcess().getDeployment().getId());
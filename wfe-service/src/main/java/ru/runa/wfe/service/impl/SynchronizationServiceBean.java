@@ -48,7 +48,7 @@ public class SynchronizationServiceBean implements SynchronizationService {
 
             @Override
             protected void doExecute() {
-                result.set(ldapLogic.synchronizeExecutors());
+                result.set(ldapLogic.synchronizeExecutors(true));
             }
 
         }.execute();
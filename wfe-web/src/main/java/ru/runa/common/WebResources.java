@@ -230,4 +230,30 @@ public class WebResources {
     public static int getChatMaxMessageSize() {
         return RESOURCES.getIntegerProperty("chat.max.message.size.bytes", DEFAULT_CHAT_MAX_MESSAGE_SIZE);
     }
+
+    public static int getUploadMemoryThreshold() {
+        return RESOURCES.getIntegerProperty("upload.memory.threshold.bytes", 102400);
+    }
+
+    public static int getUploadTempFileLifetimeMinutes() {
+        return RESOURCES.getIntegerProperty("upload.temp.file.lifetime.minutes", 1440);
+    }
+
+    /**
+     * Exported list objects are loaded by pages of this size.
+     */
+    public static int getExportPageSize() {
+        return RESOURCES.getIntegerProperty("export.page.size", 1000);
+    }
+
+    /**
+     * Rows count, kept in memory during Excel export; older rows are flushed to temporary file.
+     */
+    public static int getExportExcelRowAccessWindowSize() {
+        return RESOURCES.getIntegerProperty("export.excel.row.access.window.size", 100);
+    }
+
+    public static String getExportCsvSeparator() {
+        return RESOURCES.getStringProperty("export.csv.separator", ";");
+    }
 }
@@ -17,23 +17,33 @@
  */
 package ru.runa.common.web.action;
 
+import com.google.common.base.Charsets;
 import com.google.common.net.MediaType;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.jsp.PageContext;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.util.CellUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.struts.action.ActionForm;
 import org.apache.struts.action.ActionForward;
 import org.apache.struts.action.ActionMapping;
 import ru.runa.af.web.BatchPresentationUtils;
+import ru.runa.common.WebResources;
 import ru.runa.common.web.HTMLUtils;
 import ru.runa.common.web.Messages;
 import ru.runa.common.web.ProfileHttpSessionHelper;
@@ -49,12 +59,26 @@ import ru.runa.wfe.user.Profile;
 import ru.runa.wfe.user.User;
 
 /**
+ * Exports list to Excel (xlsx) or, if {@link #FORMAT} parameter is {@link #FORMAT_CSV}, to CSV. Rows are written as data pages are loaded, so
+ * only one page and Excel row access window are kept in memory.
+ *
  * @since 4.3.0
  */
 public abstract class AbstractExportExcelAction<T> extends ActionBase {
+    public static final String FORMAT = "format";
+    public static final String FORMAT_CSV = "csv";
 
+    /**
+     * Loads data page of export page size, see {@link #loadPages(User, BatchPresentation, int, PageHandler)}. Actions which do not support paging
+     * load all data on first call.
+     */
     protected abstract List<T> getData(User user, BatchPresentation batchPresentation);
 
+    /**
+     * @return object id for keyset paging or <code>null</code> if data is not paged
+     */
+    protected abstract Long getId(T object);
+
     protected abstract String getFileNamePrefix();
 
     @Override
@@ -64,52 +88,225 @@ public abstract class AbstractExportExcelAction<T> extends ActionBase {
             String batchPresentationId = ((BatchPresentationForm) form).getBatchPresentationId();
             Profile profile = ProfileHttpSessionHelper.getProfile(request.getSession());
             BatchPresentation batchPresentation = profile.getActiveBatchPresentation(batchPresentationId);
-            List<T> data = getData(user, batchPresentation);
-            HSSFWorkbook workbook = new HSSFWorkbook();
-            Sheet dataSheet = workbook.createSheet("data");
-            buildHeader(request, workbook, batchPresentation);
-            buildData(dataSheet, user, batchPresentation, data);
-            response.setContentType(MediaType.MICROSOFT_EXCEL.toString());
-            String encodedFileName = HTMLUtils.encodeFileName(request,
-                    getFileNamePrefix() + "-" + CalendarUtil.formatDateTime(Calendar.getInstance()) + ".xls");
-            response.setHeader("Content-disposition", "attachment; filename=\"" + encodedFileName + "\"");
+            boolean csv = FORMAT_CSV.equals(request.getParameter(FORMAT));
+            String fileName = getFileNamePrefix() + "-" + CalendarUtil.formatDateTime(Calendar.getInstance()) + (csv ? ".csv" : ".xlsx");
+            response.setContentType(csv ? MediaType.CSV_UTF_8.toString() : MediaType.OOXML_SHEET.toString());
+            response.setHeader("Content-disposition", "attachment; filename=\"" + HTMLUtils.encodeFileName(request, fileName) + "\"");
             response.setHeader("Content-Transfer-Encoding", "binary");
-            workbook.write(response.getOutputStream());
-            response.getOutputStream().flush();
+            OutputStream outputStream = response.getOutputStream();
+            try (RowWriter writer = csv ? new CsvRowWriter(outputStream, WebResources.getExportCsvSeparator()) : new ExcelRowWriter(outputStream)) {
+                writer.writeHeader(getHeader(request, batchPresentation));
+                writeData(writer, user, batchPresentation);
+                writer.finish();
+            }
+            outputStream.flush();
         } catch (Exception e) {
             log.error("Unable to export excel", e);
         }
         return null;
     }
 
-    private void buildHeader(HttpServletRequest request, HSSFWorkbook workbook, BatchPresentation batchPresentation) {
-        CellStyle boldCellStyle = workbook.createCellStyle();
-        Font boldFont = workbook.createFont();
-        boldFont.setBold(true);
-        boldCellStyle.setFont(boldFont);
-        Row header = workbook.getSheetAt(0).createRow(0);
-        int i = 0;
+    private List<String> getHeader(HttpServletRequest request, BatchPresentation batchPresentation) {
+        List<String> header = new ArrayList<>();
         for (FieldDescriptor fieldDescriptor : batchPresentation.getDisplayFields()) {
             if (fieldDescriptor.isPrototype() || fieldDescriptor.groupableByProcessId || fieldDescriptor.fieldState != FieldState.ENABLED) {
                 continue;
             }
-            Cell cell = header.createCell(i++);
-            cell.setCellStyle(boldCellStyle);
-            cell.setCellValue(Messages.getMessage(batchPresentation, fieldDescriptor, getResources(request)));
+            header.add(Messages.getMessage(batchPresentation, fieldDescriptor, getResources(request)));
+        }
+        return header;
+    }
+
+    private void writeData(final RowWriter writer, User user, BatchPresentation batchPresentation) throws IOException {
+        final TdBuilder[] builders = BatchPresentationUtils.getBuilders(null, batchPresentation, null);
+        final EnvImpl env = new EnvImpl(user, batchPresentation);
+        loadPages(user, batchPresentation, WebResources.getExportPageSize(), new PageHandler<T>() {
+
+            @Override
+            public void onPage(List<T> data) throws IOException {
+                writeRows(writer, builders, env, data);
+                writer.flush();
+            }
+        });
+    }
+
+    /**
+     * Loads data by pages. Both next page number and last object id are set to batch presentation: page is loaded by keyset if sorting allows it,
+     * by page number otherwise (see {@link BatchPresentation#getPageAfterId()}).
+     */
+    void loadPages(User user, BatchPresentation batchPresentation, int pageSize, PageHandler<T> handler) throws IOException {
+        int oldPageNumber = batchPresentation.getPageNumber();
+        int oldRangeSize = batchPresentation.getRangeSize();
+        Long oldPageAfterId = batchPresentation.getPageAfterId();
+        try {
+            batchPresentation.setRangeSize(pageSize);
+            batchPresentation.setPageNumber(1);
+            batchPresentation.setPageAfterId(0L);
+            while (true) {
+                List<T> data = getData(user, batchPresentation);
+                handler.onPage(data);
+                if (data.size() < pageSize) {
+                    break;
+                }
+                Long lastId = getId(data.get(data.size() - 1));
+                if (lastId == null) {
+                    break;
+                }
+                batchPresentation.setPageAfterId(lastId);
+                batchPresentation.setPageNumber(batchPresentation.getPageNumber() + 1);
+            }
+        } finally {
+            batchPresentation.setPageNumber(oldPageNumber);
+            batchPresentation.setRangeSize(oldRangeSize);
+            batchPresentation.setPageAfterId(oldPageAfterId);
         }
     }
 
-    private void buildData(Sheet dataSheet, User user, BatchPresentation batchPresentation, List<T> data) {
-        TdBuilder[] builders = BatchPresentationUtils.getBuilders(null, batchPresentation, null);
-        int rowNum = 1;
-        EnvImpl env = new EnvImpl(user, batchPresentation);
+    private void writeRows(RowWriter writer, TdBuilder[] builders, EnvImpl env, List<T> data) throws IOException {
+        List<String> values = new ArrayList<>(builders.length);
         for (T object : data) {
-            Row row = dataSheet.createRow(rowNum++);
-            int i = 0;
+            values.clear();
             for (TdBuilder builder : builders) {
-                String string = builder.getValue(object, env);
-                CellUtil.createCell(row, i++, string);
+                values.add(builder.getValue(object, env));
             }
+            writer.writeRow(values);
+        }
+    }
+
+    interface PageHandler<T> {
+
+        void onPage(List<T> data) throws IOException;
+    }
+
+    interface RowWriter extends Closeable {
+
+        void writeHeader(List<String> values) throws IOException;
+
+        void writeRow(List<String> values) throws IOException;
+
+        /**
+         * Makes written rows available to client if format allows it.
+         */
+        void flush() throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    /**
+     * Streaming xlsx workbook: rows out of access window are flushed to temporary file, workbook is written to response on finish. Rows exceeding
+     * sheet limit are continued on next sheet.
+     */
+    private static class ExcelRowWriter implements RowWriter {
+        private final OutputStream outputStream;
+        private final SXSSFWorkbook workbook = new SXSSFWorkbook(WebResources.getExportExcelRowAccessWindowSize());
+        private final int maxRows = SpreadsheetVersion.EXCEL2007.getMaxRows();
+        private List<String> header;
+        private Sheet sheet;
+        private int rowNum;
+
+        public ExcelRowWriter(OutputStream outputStream) {
+            this.outputStream = outputStream;
+            workbook.setCompressTempFiles(true);
+        }
+
+        @Override
+        public void writeHeader(List<String> values) {
+            header = values;
+            createSheet();
+        }
+
+        @Override
+        public void writeRow(List<String> values) {
+            if (rowNum == maxRows) {
+                createSheet();
+            }
+            Row row = sheet.createRow(rowNum++);
+            for (int i = 0; i < values.size(); i++) {
+                CellUtil.createCell(row, i, values.get(i));
+            }
+        }
+
+        private void createSheet() {
+            sheet = workbook.createSheet(workbook.getNumberOfSheets() == 0 ? "data" : "data" + (workbook.getNumberOfSheets() + 1));
+            CellStyle boldCellStyle = workbook.createCellStyle();
+            Font boldFont = workbook.createFont();
+            boldFont.setBold(true);
+            boldCellStyle.setFont(boldFont);
+            Row row = sheet.createRow(0);
+            for (int i = 0; i < header.size(); i++) {
+                Cell cell = row.createCell(i);
+                cell.setCellStyle(boldCellStyle);
+                cell.setCellValue(header.get(i));
+            }
+            rowNum = 1;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void finish() throws IOException {
+            workbook.write(outputStream);
+        }
+
+        @Override
+        public void close() {
+            workbook.dispose();
+        }
+    }
+
+    /**
+     * UTF-8 CSV with byte order mark (for Excel), values are quoted when needed.
+     */
+    static class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+        private final String separator;
+
+        public CsvRowWriter(OutputStream outputStream, String separator) throws IOException {
+            this.separator = separator;
+            writer = new BufferedWriter(new OutputStreamWriter(outputStream, Charsets.UTF_8));
+            writer.write('\uFEFF');
+        }
+
+        @Override
+        public void writeHeader(List<String> values) throws IOException {
+            writeRow(values);
+        }
+
+        @Override
+        public void writeRow(List<String> values) throws IOException {
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    writer.write(separator);
+                }
+                writer.write(quote(values.get(i)));
+            }
+            writer.write("\r\n");
+        }
+
+        private String quote(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.contains(separator) || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                return "\"" + value.replace("\"", "\"\"") + "\"";
+            }
+            return value;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() {
         }
     }
 
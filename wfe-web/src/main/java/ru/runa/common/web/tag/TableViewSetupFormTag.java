@@ -42,6 +42,7 @@ import ru.runa.common.web.MessagesBatch;
 import ru.runa.common.web.MessagesCommon;
 import ru.runa.common.web.ProfileHttpSessionHelper;
 import ru.runa.common.web.Resources;
+import ru.runa.common.web.action.AbstractExportExcelAction;
 import ru.runa.common.web.action.TableViewSetupFormAction;
 import ru.runa.common.web.form.BatchPresentationForm;
 import ru.runa.common.web.form.TableViewSetupForm;
@@ -215,6 +216,12 @@ public class TableViewSetupFormTag extends AbstractReturningTag implements Batch
             exportLink.addElement(Entities.NBSP);
             exportLink.addElement(MessagesProcesses.BUTTON_EXPORT_EXCEL.message(pageContext));
             td.addElement(exportLink);
+            parameters.put(AbstractExportExcelAction.FORMAT, AbstractExportExcelAction.FORMAT_CSV);
+            A csvExportLink = new A(Commons.getActionUrl(excelExportAction, parameters, pageContext, PortletUrlType.Render),
+                    MessagesProcesses.BUTTON_EXPORT_CSV.message(pageContext));
+            csvExportLink.setClass(Resources.CLASS_LINK);
+            csvExportLink.setStyle("display: block; float: right; margin-right: 10px; line-height: 21px;");
+            td.addElement(csvExportLink);
         }
     }
 
@@ -17,8 +17,6 @@
  */
 package ru.runa.report.web.action;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.sql.Connection;
 import java.util.HashMap;
@@ -34,7 +32,6 @@ import org.apache.struts.action.ActionMapping;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 
 import net.sf.jasperreports.engine.JRException;
-import net.sf.jasperreports.engine.JasperFillManager;
 import net.sf.jasperreports.engine.JasperPrint;
 import ru.runa.common.web.HTMLUtils;
 import ru.runa.common.web.Resources;
@@ -46,7 +43,7 @@ import ru.runa.wfe.report.ReportFormatter;
 import ru.runa.wfe.report.ReportFormatterImpl;
 import ru.runa.wfe.report.dto.WfReport;
 import ru.runa.wfe.report.dto.WfReportParameter;
-import ru.runa.wfe.report.impl.ReportBuildResult;
+import ru.runa.wfe.report.impl.ReportFiller;
 import ru.runa.wfe.report.impl.ReportGenerationType;
 import ru.runa.wfe.report.impl.ReportParameterParseOperation;
 import ru.runa.wfe.service.delegate.Delegates;
@@ -76,19 +73,20 @@ public class BuildReportAction extends ActionBase {
             }
 
             ReportGenerationType reportGenerationType = ReportGenerationType.valueOf(request.getParameter(BuildReportFormTag.BUILD_TYPE));
-            JasperPrint jasperPrint = fillReport(params, reportGenerationType, report);
-            ReportBuildResult result = reportGenerationType.exportReport(report.getName(), request, response, jasperPrint);
-            String encodedFileName = HTMLUtils.encodeFileName(request, result.getReportFileName());
-            if (reportGenerationType.equals(ReportGenerationType.PDF)) {
-                response.setContentType("application/pdf");
-                response.setHeader("Content-disposition", "attachment; filename=\"" + encodedFileName + "\"");
-            } else if (!reportGenerationType.equals(ReportGenerationType.HTML_EMBEDDED)) {
-                response.setContentType("application/octet-stream");
-                response.setHeader("Content-disposition", "attachment; filename=\"" + encodedFileName + "\"");
+            try (ReportFiller reportFiller = new ReportFiller()) {
+                JasperPrint jasperPrint = fillReport(reportFiller, params, reportGenerationType, report);
+                String encodedFileName = HTMLUtils.encodeFileName(request, reportGenerationType.getFileName(report.getName()));
+                if (reportGenerationType.equals(ReportGenerationType.PDF)) {
+                    response.setContentType("application/pdf");
+                    response.setHeader("Content-disposition", "attachment; filename=\"" + encodedFileName + "\"");
+                } else if (!reportGenerationType.equals(ReportGenerationType.HTML_EMBEDDED)) {
+                    response.setContentType("application/octet-stream");
+                    response.setHeader("Content-disposition", "attachment; filename=\"" + encodedFileName + "\"");
+                }
+                OutputStream os = response.getOutputStream();
+                reportGenerationType.exportReport(request, jasperPrint, os);
+                os.flush();
             }
-            OutputStream os = response.getOutputStream();
-            os.write((byte[]) result.getReportData());
-            os.flush();
             return null;
         } catch (Exception e) {
             addError(request, e);
@@ -96,15 +94,14 @@ public class BuildReportAction extends ActionBase {
         }
     }
 
-    private JasperPrint fillReport(Map<String, Object> params, ReportGenerationType reportGenerationType, WfReport report)
-            throws NamingException, JRException {
+    private JasperPrint fillReport(ReportFiller reportFiller, Map<String, Object> params, ReportGenerationType reportGenerationType,
+            WfReport report) throws NamingException, JRException {
         reportGenerationType.setParameters(params);
         ReportFormatter dataFormatter = new ReportFormatterImpl();
         params.put("DataFormatter", dataFormatter);
-        InputStream compiledReport = new ByteArrayInputStream(report.getCompiledReport());
         Connection connection = DataSourceUtils.getConnection(ApplicationContextFactory.getDataSource());
         try {
-            return JasperFillManager.fillReport(compiledReport, params, connection);
+            return reportFiller.fill(report, params, connection);
         } finally {
             DataSourceUtils.releaseConnection(connection, ApplicationContextFactory.getDataSource());
         }
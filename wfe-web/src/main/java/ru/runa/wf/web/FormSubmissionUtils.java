@@ -75,11 +75,18 @@ public class FormSubmissionUtils {
     public static void removeUserInputFile(HttpServletRequest request, String taskId, String variableName) {
         Preconditions.checkNotNull(taskId, "taskId");
         String key = taskId + FormSubmissionUtils.FILES_MAP_QUALIFIER + variableName;
-        getUserInputFiles(request).remove(key);
+        UploadedFile file = getUserInputFiles(request).remove(key);
+        if (file != null) {
+            file.delete();
+        }
     }
 
     public static void clearUserInputFiles(HttpServletRequest request) {
-        getUserInputFiles(request).clear();
+        Map<String, UploadedFile> map = getUserInputFiles(request);
+        for (UploadedFile file : map.values()) {
+            file.delete();
+        }
+        map.clear();
     }
 
     public static Map<String, Object> getPreviousUserInputVariables(HttpServletRequest request, Interaction interaction,
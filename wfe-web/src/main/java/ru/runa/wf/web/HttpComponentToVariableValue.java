@@ -7,11 +7,13 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.struts.upload.FormFile;
 
 import ru.runa.wf.web.servlet.UploadedFile;
+import ru.runa.wf.web.servlet.UploadedFileStorage;
 import ru.runa.wfe.InternalApplicationException;
 import ru.runa.wfe.commons.TypeConversionUtil;
 import ru.runa.wfe.service.client.FileVariableProxy;
 import ru.runa.wfe.user.ExecutorLoader;
 import ru.runa.wfe.var.file.FileVariableImpl;
+import ru.runa.wfe.var.file.LocalFileSystemVariable;
 import ru.runa.wfe.var.format.BigDecimalFormat;
 import ru.runa.wfe.var.format.BooleanFormat;
 import ru.runa.wfe.var.format.DateFormat;
@@ -133,9 +135,16 @@ public class HttpComponentToVariableValue implements VariableFormatVisitor<Objec
             else if (uploadedFile.getFileVariable() instanceof FileVariableImpl) {
                 return uploadedFile.getFileVariable();
             }
-            if (uploadedFile.getContent() == null) {
+            if (!uploadedFile.hasContent()) {
                 throw new InternalApplicationException("No content submitted for " + uploadedFile);
             }
+            if (uploadedFile.getContentFile() != null) {
+                String path = UploadedFileStorage.getLocalFileStoragePath(uploadedFile.getContentFile());
+                if (path != null) {
+                    // content is moved to blob by LocalFileSystemStorage without reading to memory
+                    return new LocalFileSystemVariable(uploadedFile.getName(), uploadedFile.getMimeType(), path);
+                }
+            }
             return new FileVariableImpl(uploadedFile.getName(), uploadedFile.getContent(), uploadedFile.getMimeType());
         }
         return null;
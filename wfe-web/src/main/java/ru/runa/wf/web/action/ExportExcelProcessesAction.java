@@ -32,16 +32,12 @@ public class ExportExcelProcessesAction extends AbstractExportExcelAction<WfProc
 
     @Override
     protected List<WfProcess> getData(User user, BatchPresentation batchPresentation) {
-        int oldPageNumber = batchPresentation.getPageNumber();
-        int oldRangeSize = batchPresentation.getRangeSize();
-        try {
-            batchPresentation.setPageNumber(1);
-            batchPresentation.setRangeSize(Integer.MAX_VALUE);
-            return Delegates.getExecutionService().getProcesses(user, batchPresentation);
-        } finally {
-            batchPresentation.setPageNumber(oldPageNumber);
-            batchPresentation.setRangeSize(oldRangeSize);
-        }
+        return Delegates.getExecutionService().getProcesses(user, batchPresentation);
+    }
+
+    @Override
+    protected Long getId(WfProcess process) {
+        return process.getId();
     }
 
     @Override
@@ -35,6 +35,11 @@ public class ExportExcelTasksAction extends AbstractExportExcelAction<WfTask> {
         return Delegates.getTaskService().getMyTasks(user, batchPresentation);
     }
 
+    @Override
+    protected Long getId(WfTask task) {
+        return null;
+    }
+
     @Override
     protected String getFileNamePrefix() {
         return "tasks";
@@ -11,11 +11,14 @@ public class ExportExcelTokenErrorsAction extends AbstractExportExcelAction<WfTo
 
     @Override
     protected List<WfTokenError> getData(User user, BatchPresentation batchPresentation) {
-        batchPresentation.setPageNumber(1);
-        batchPresentation.setRangeSize(Integer.MAX_VALUE);
         return Delegates.getSystemService().getTokenErrors(user, batchPresentation);
     }
 
+    @Override
+    protected Long getId(WfTokenError tokenError) {
+        return tokenError.getId();
+    }
+
     @Override
     protected String getFileNamePrefix() {
         return "tokenErrors";
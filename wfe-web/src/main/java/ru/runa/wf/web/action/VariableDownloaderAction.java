@@ -30,6 +30,8 @@ import ru.runa.wf.web.form.VariableForm;
 import ru.runa.wfe.commons.web.WebHelper;
 import ru.runa.wfe.service.delegate.Delegates;
 import ru.runa.wfe.var.file.FileVariable;
+import ru.runa.wfe.var.file.LocalFileSystemStorage;
+import ru.runa.wfe.var.file.LocalFileSystemVariable;
 
 /**
  * Created on 27.09.2005
@@ -52,7 +54,11 @@ public class VariableDownloaderAction extends ActionBase {
             String encodedFileName = HTMLUtils.encodeFileName(request, fileVariable.getName());
             response.setHeader("Content-Disposition", "attachment; filename=\"" + encodedFileName + "\"");
             OutputStream os = response.getOutputStream();
-            os.write(fileVariable.getData());
+            if (fileVariable instanceof LocalFileSystemVariable) {
+                LocalFileSystemStorage.transferContent(((LocalFileSystemVariable) fileVariable).getVariablePath(), os);
+            } else {
+                os.write(fileVariable.getData());
+            }
             os.flush();
         } catch (Exception e) {
             log.error("", e);
@@ -65,16 +71,24 @@ public class VariableDownloaderAction extends ActionBase {
         if (form.getLogId() != null) {
             return (FileVariable) Delegates.getAuditService().getProcessLogValue(getLoggedUser(request), form.getLogId());
         } else {
-            return form.getId() != null ?
-                    Delegates.getExecutionService().getFileVariableValue(getLoggedUser(request), form.getId(), form.getVariableName()) :
-                    Delegates.getDefinitionService().getFileVariableDefaultValue(
-                            getLoggedUser(request),
-                            Long.parseLong(Objects.requireNonNull(
-                                    request.getParameter(WebHelper.PARAM_DEFINITION_ID),
-                                    "One of processId or definitionId should not be null"
-                            )),
-                            form.getVariableName()
-                    );
+            if (form.getId() != null) {
+                FileVariable fileVariable = Delegates.getExecutionService().getFileVariable(getLoggedUser(request), form.getId(),
+                        form.getVariableName());
+                if (fileVariable instanceof LocalFileSystemVariable
+                        && !LocalFileSystemStorage.hasContentFile(((LocalFileSystemVariable) fileVariable).getVariablePath())) {
+                    // storage is not accessible from this node
+                    return Delegates.getExecutionService().getFileVariableValue(getLoggedUser(request), form.getId(), form.getVariableName());
+                }
+                return fileVariable;
+            }
+            return Delegates.getDefinitionService().getFileVariableDefaultValue(
+                    getLoggedUser(request),
+                    Long.parseLong(Objects.requireNonNull(
+                            request.getParameter(WebHelper.PARAM_DEFINITION_ID),
+                            "One of processId or definitionId should not be null"
+                    )),
+                    form.getVariableName()
+            );
         }
     }
 
@@ -30,7 +30,7 @@ public class FtlFormBuilder extends TaskFormBuilder {
         model.clearSession();
         // #173
         model.put("context", new BeanModel(new Context(this), BeansWrapper.getDefaultInstance()));
-        return FreemarkerProcessor.process(template, model);
+        return FreemarkerProcessor.process(definitionId, interaction.getNodeId(), template, model);
     }
 
     public static class Context {
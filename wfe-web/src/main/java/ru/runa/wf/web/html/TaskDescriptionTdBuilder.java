@@ -44,7 +44,7 @@ public class TaskDescriptionTdBuilder implements TdBuilder {
         if (description != null && description.contains("${")) {
             VariableProvider variableProvider = new DelegateTaskVariableProvider(env.getUser(), task);
             FormHashModel model = new FormHashModel(env.getUser(), variableProvider, new StrutsWebHelper(env.getPageContext()));
-            description = FreemarkerProcessor.process(description, model);
+            description = FreemarkerProcessor.process(task.getDefinitionId(), task.getNodeId(), description, model);
         }
         return description;
     }
@@ -12,14 +12,12 @@ import javax.servlet.http.HttpSession;
 
 import org.apache.commons.fileupload.FileItem;
 import org.apache.commons.fileupload.FileUploadException;
-import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
 import com.google.common.base.Charsets;
 import com.google.common.collect.Maps;
-import com.google.common.io.ByteStreams;
 
 public class BulkUploadServlet extends HttpServlet {
     private static final long serialVersionUID = 1L;
@@ -42,8 +40,9 @@ public class BulkUploadServlet extends HttpServlet {
         Map<String, UploadedFile> uploadedParFiles = getUploadedFilesMap(request);
         if ("delete".equals(action)) {
             String key = request.getParameter("key");
-            if (uploadedParFiles.containsKey(key)) {
-                uploadedParFiles.remove(key);
+            UploadedFile uploadedFile = uploadedParFiles.remove(key);
+            if (uploadedFile != null) {
+                uploadedFile.delete();
             }
         }
         if ("view".equals(action)) {
@@ -70,8 +69,7 @@ public class BulkUploadServlet extends HttpServlet {
         JSONArray jarray = new JSONArray();
         boolean isMultipart = ServletFileUpload.isMultipartContent(request);
         if (isMultipart) {
-            DiskFileItemFactory factory = new DiskFileItemFactory();
-            ServletFileUpload upload = new ServletFileUpload(factory);
+            ServletFileUpload upload = new ServletFileUpload(UploadedFileStorage.createFileItemFactory());
             upload.setHeaderEncoding(Charsets.UTF_8.name());
             try {
                 List<FileItem> items = upload.parseRequest(request);
@@ -84,7 +82,7 @@ public class BulkUploadServlet extends HttpServlet {
                             name = name.substring(index + 1);
                         }
                         file.setName(name);
-                        file.setContent(ByteStreams.toByteArray(item.getInputStream()));
+                        file.setContent(item);
                         file.setMimeType(item.getContentType());
 
                         key++;
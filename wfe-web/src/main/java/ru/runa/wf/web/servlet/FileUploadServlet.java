@@ -63,14 +63,18 @@ public class FileUploadServlet extends HttpServlet {
                 LogFactory.getLog(getClass()).error("No session file found by '" + inputId + "', all files = " + map);
                 return;
             }
-            if (file.getContent() == null && file.getFileVariable() == null) {
+            if (!file.hasContent() && file.getFileVariable() == null) {
                 LogFactory.getLog(getClass()).error("No file content exists for '" + inputId + "'");
                 return;
             }
             response.setContentType(file.getMimeType());
             String encodedFileName = HTMLUtils.encodeFileName(request, file.getName());
             response.setHeader("Content-disposition", "attachment; filename=\"" + encodedFileName + "\"");
-            response.getOutputStream().write(file.getContent() != null ? file.getContent() : file.getFileVariable().getData());
+            if (file.hasContent()) {
+                file.writeContent(response.getOutputStream());
+            } else {
+                response.getOutputStream().write(file.getFileVariable().getData());
+            }
             response.getOutputStream().flush();
             response.getOutputStream().close();
         }
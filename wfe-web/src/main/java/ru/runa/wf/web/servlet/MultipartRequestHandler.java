@@ -7,7 +7,6 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.apache.commons.fileupload.FileItem;
 import org.apache.commons.fileupload.FileUploadException;
-import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
 
 import com.google.common.base.Charsets;
@@ -37,8 +36,7 @@ public class MultipartRequestHandler {
         boolean isMultipart = ServletFileUpload.isMultipartContent(request);
         String inputId = "";
         if (isMultipart) {
-            DiskFileItemFactory factory = new DiskFileItemFactory();
-            ServletFileUpload upload = new ServletFileUpload(factory);
+            ServletFileUpload upload = new ServletFileUpload(UploadedFileStorage.createFileItemFactory());
             upload.setHeaderEncoding(Charsets.UTF_8.name());
             try {
                 List<FileItem> items = upload.parseRequest(request);
@@ -54,7 +52,7 @@ public class MultipartRequestHandler {
                             name = name.substring(index + 1);
                         }
                         file.setName(name);
-                        file.setContent(item.get());
+                        file.setContent(item);
                         file.setMimeType(item.getContentType());
                     }
                 }
@@ -1,10 +1,17 @@
 package ru.runa.wf.web.servlet;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 
+import org.apache.commons.fileupload.FileItem;
+
+import ru.runa.wfe.InternalApplicationException;
 import ru.runa.wfe.var.file.FileVariable;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.io.Files;
 
 /*
  * Options not implemented: acceptFileTypes, maxFileSize
@@ -14,6 +21,8 @@ import com.google.common.base.MoreObjects;
  * Remove buttons in EditList component break on next lines
  *
  * IE file removal does not remove it on server-side eventually
+ *
+ * Large content is kept in temporary file (see UploadedFileStorage), only file handle is stored in session then.
  */
 public class UploadedFile implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -21,6 +30,7 @@ public class UploadedFile implements Serializable {
     private String size;
     private String mimeType;
     private byte[] content;
+    private File contentFile;
     private FileVariable fileVariable;
 
     public UploadedFile() {
@@ -52,16 +62,69 @@ public class UploadedFile implements Serializable {
         this.mimeType = fileType;
     }
 
+    /**
+     * @return content, read from temporary file if it was stored there
+     */
     public byte[] getContent() {
+        if (contentFile != null) {
+            try {
+                return Files.toByteArray(contentFile);
+            } catch (IOException e) {
+                throw new InternalApplicationException("Unable to read uploaded file '" + contentFile + "'", e);
+            }
+        }
         return content;
     }
 
     public void setContent(byte[] content) {
         this.content = content;
-        if (content.length > 1024 * 1024) {
-            this.size = content.length / (1024 * 1024) + " Mb";
+        setSize(content.length);
+    }
+
+    /**
+     * Takes content from upload, large content is moved to temporary file without reading to memory.
+     */
+    public void setContent(FileItem item) throws IOException {
+        if (item.isInMemory()) {
+            setContent(item.get());
+            return;
+        }
+        File file = UploadedFileStorage.createFile();
+        try {
+            item.write(file);
+        } catch (Exception e) {
+            file.delete();
+            throw new IOException("Unable to store uploaded file to '" + file + "'", e);
+        }
+        this.contentFile = file;
+        setSize(file.length());
+    }
+
+    public boolean hasContent() {
+        return content != null || contentFile != null;
+    }
+
+    /**
+     * @return temporary file with content or <code>null</code> if content is kept in memory
+     */
+    public File getContentFile() {
+        return contentFile;
+    }
+
+    public void writeContent(OutputStream outputStream) throws IOException {
+        if (contentFile != null) {
+            Files.copy(contentFile, outputStream);
         } else {
-            this.size = content.length / 1024 + " Kb";
+            outputStream.write(content);
+        }
+    }
+
+    /**
+     * Deletes temporary file with content if any.
+     */
+    public void delete() {
+        if (contentFile != null) {
+            contentFile.delete();
         }
     }
 
@@ -69,6 +132,14 @@ public class UploadedFile implements Serializable {
         return fileVariable;
     }
 
+    private void setSize(long length) {
+        if (length > 1024 * 1024) {
+            this.size = length / (1024 * 1024) + " Mb";
+        } else {
+            this.size = length / 1024 + " Kb";
+        }
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(getClass()).add("name", name).toString();
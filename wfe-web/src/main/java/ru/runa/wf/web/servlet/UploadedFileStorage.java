@@ -0,0 +1,85 @@
+package ru.runa.wf.web.servlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.fileupload.disk.DiskFileItemFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import ru.runa.common.WebResources;
+import ru.runa.wfe.commons.SystemProperties;
+import ru.runa.wfe.var.file.LocalFileSystemStorage;
+
+/**
+ * Temporary files for uploaded content exceeding {@link WebResources#getUploadMemoryThreshold()}, so http session keeps only file handles.
+ *
+ * Files are placed to local file storage if it is enabled, this allows to save them to file variables without reading to memory; forgotten
+ * ones are deleted by {@link ru.runa.wfe.job.impl.UnusedFileBlobsCleaner} then. Otherwise temporary directory is used and forgotten files
+ * are deleted after {@link WebResources#getUploadTempFileLifetimeMinutes()}. Files of destroyed sessions are deleted by
+ * {@link UploadedFilesSessionListener}.
+ */
+public class UploadedFileStorage {
+    private static final Log log = LogFactory.getLog(UploadedFileStorage.class);
+    private static final String PREFIX = "upload";
+    private static final long CLEANUP_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+    private static final AtomicLong lastCleanupTime = new AtomicLong();
+
+    public static DiskFileItemFactory createFileItemFactory() {
+        return new DiskFileItemFactory(WebResources.getUploadMemoryThreshold(), getDirectory());
+    }
+
+    public static File getDirectory() {
+        File directory;
+        if (SystemProperties.isLocalFileStorageEnabled()) {
+            directory = LocalFileSystemStorage.getUploadsDirectory();
+        } else {
+            directory = new File(System.getProperty("java.io.tmpdir"), "wfe.uploads");
+        }
+        directory.mkdirs();
+        return directory;
+    }
+
+    public static File createFile() throws IOException {
+        cleanupIfNeeded();
+        return File.createTempFile(PREFIX, null, getDirectory());
+    }
+
+    /**
+     * @return path of file in local file storage (as in {@link ru.runa.wfe.var.file.LocalFileSystemVariable}) or <code>null</code> if file is
+     *         located outside of it
+     */
+    public static String getLocalFileStoragePath(File file) {
+        if (!SystemProperties.isLocalFileStorageEnabled() || !LocalFileSystemStorage.getUploadsDirectory().equals(file.getParentFile())) {
+            return null;
+        }
+        return LocalFileSystemStorage.UPLOADS_DIRECTORY + "/" + file.getName();
+    }
+
+    private static void cleanupIfNeeded() {
+        if (SystemProperties.isLocalFileStorageEnabled()) {
+            return;
+        }
+        long lastTime = lastCleanupTime.get();
+        long now = System.currentTimeMillis();
+        if (now - lastTime < CLEANUP_INTERVAL || !lastCleanupTime.compareAndSet(lastTime, now)) {
+            return;
+        }
+        long expirationTime = now - TimeUnit.MINUTES.toMillis(WebResources.getUploadTempFileLifetimeMinutes());
+        File[] files = getDirectory().listFiles();
+        if (files == null) {
+            return;
+        }
+        int count = 0;
+        for (File file : files) {
+            if (file.isFile() && file.lastModified() < expirationTime && file.delete()) {
+                count++;
+            }
+        }
+        if (count > 0) {
+            log.info("Deleted " + count + " expired uploaded file(s)");
+        }
+    }
+}
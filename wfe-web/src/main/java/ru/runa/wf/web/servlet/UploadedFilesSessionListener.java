@@ -0,0 +1,34 @@
+package ru.runa.wf.web.servlet;
+
+import java.util.Enumeration;
+import java.util.Map;
+
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+
+/**
+ * Deletes temporary files of uploaded but not submitted files on session destroy.
+ */
+public class UploadedFilesSessionListener implements HttpSessionListener {
+
+    @Override
+    public void sessionCreated(HttpSessionEvent event) {
+    }
+
+    @Override
+    public void sessionDestroyed(HttpSessionEvent event) {
+        HttpSession session = event.getSession();
+        Enumeration<String> names = session.getAttributeNames();
+        while (names.hasMoreElements()) {
+            Object value = session.getAttribute(names.nextElement());
+            if (value instanceof Map) {
+                for (Object file : ((Map<?, ?>) value).values()) {
+                    if (file instanceof UploadedFile) {
+                        ((UploadedFile) file).delete();
+                    }
+                }
+            }
+        }
+    }
+}
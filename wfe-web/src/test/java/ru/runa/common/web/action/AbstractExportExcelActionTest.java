@@ -0,0 +1,115 @@
+package ru.runa.common.web.action;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.runa.wfe.presentation.BatchPresentation;
+import ru.runa.wfe.presentation.BatchPresentationFactory;
+import ru.runa.wfe.user.User;
+
+public class AbstractExportExcelActionTest extends Assert {
+    private static final int PAGE_SIZE = 3;
+
+    /**
+     * Rows in order of start date descending and id: dates are repeated over page bounds.
+     */
+    private static final List<Row> ROWS = Arrays.asList(new Row(5, 30), new Row(2, 20), new Row(4, 20), new Row(7, 20), new Row(8, 20),
+            new Row(1, 10), new Row(3, 10), new Row(6, 10));
+
+    @Test
+    public void sortedDataIsExportedByKeysetPages() throws Exception {
+        TestExportAction action = new TestExportAction(true);
+        BatchPresentation batchPresentation = BatchPresentationFactory.PROCESSES.createDefault();
+        List<Row> exported = export(action, batchPresentation);
+        assertEquals(exported, ROWS);
+        assertEquals(action.pageAfterIds, Arrays.asList(0L, 4L, 1L));
+        assertNull(batchPresentation.getPageAfterId());
+        assertEquals(batchPresentation.getPageNumber(), 1);
+    }
+
+    @Test
+    public void sortedDataIsExportedByPageNumbersIfKeysetIsNotPossible() throws Exception {
+        TestExportAction action = new TestExportAction(false);
+        List<Row> exported = export(action, BatchPresentationFactory.PROCESSES.createDefault());
+        assertEquals(exported, ROWS);
+        assertEquals(action.pageNumbers, Arrays.asList(1, 2, 3));
+    }
+
+    @Test
+    public void exportOfFullLastPageEndsWithEmptyPage() throws Exception {
+        TestExportAction action = new TestExportAction(true);
+        action.rows = ROWS.subList(0, 2 * PAGE_SIZE);
+        List<Row> exported = export(action, BatchPresentationFactory.PROCESSES.createDefault());
+        assertEquals(exported, action.rows);
+        assertEquals(action.pageAfterIds, Arrays.asList(0L, 4L, 1L));
+    }
+
+    private static List<Row> export(TestExportAction action, BatchPresentation batchPresentation) throws Exception {
+        final List<Row> exported = new ArrayList<>();
+        action.loadPages(null, batchPresentation, PAGE_SIZE, new AbstractExportExcelAction.PageHandler<Row>() {
+
+            @Override
+            public void onPage(List<Row> data) {
+                exported.addAll(data);
+            }
+        });
+        return exported;
+    }
+
+    private static class Row {
+        private final long id;
+        private final int startDate;
+
+        Row(long id, int startDate) {
+            this.id = id;
+            this.startDate = startDate;
+        }
+
+        @Override
+        public String toString() {
+            return id + "@" + startDate;
+        }
+    }
+
+    /**
+     * Loads pages like presentation compiler: after keyset object if keyset paging is possible, by page number otherwise.
+     */
+    private static class TestExportAction extends AbstractExportExcelAction<Row> {
+        private final boolean keysetPaging;
+        private final List<Long> pageAfterIds = new ArrayList<>();
+        private final List<Integer> pageNumbers = new ArrayList<>();
+        private List<Row> rows = ROWS;
+
+        TestExportAction(boolean keysetPaging) {
+            this.keysetPaging = keysetPaging;
+        }
+
+        @Override
+        protected List<Row> getData(User user, BatchPresentation batchPresentation) {
+            pageAfterIds.add(batchPresentation.getPageAfterId());
+            pageNumbers.add(batchPresentation.getPageNumber());
+            int start = (batchPresentation.getPageNumber() - 1) * batchPresentation.getRangeSize();
+            if (keysetPaging) {
+                start = 0;
+                for (int i = 0; i < rows.size(); i++) {
+                    if (rows.get(i).id == batchPresentation.getPageAfterId()) {
+                        start = i + 1;
+                    }
+                }
+            }
+            return rows.subList(start, Math.min(start + batchPresentation.getRangeSize(), rows.size()));
+        }
+
+        @Override
+        protected Long getId(Row row) {
+            return row.id;
+        }
+
+        @Override
+        protected String getFileNamePrefix() {
+            return "test";
+        }
+    }
+}
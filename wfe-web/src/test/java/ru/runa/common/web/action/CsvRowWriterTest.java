@@ -0,0 +1,60 @@
+package ru.runa.common.web.action;
+
+import com.google.common.base.Charsets;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.runa.common.web.action.AbstractExportExcelAction.CsvRowWriter;
+
+public class CsvRowWriterTest extends Assert {
+
+    @Test
+    public void plainValuesAreNotQuoted() throws IOException {
+        assertEquals(write(";", Arrays.asList("name", "1", " value ")), "\uFEFFname;1; value \r\n");
+    }
+
+    @Test
+    public void nullValueIsEmpty() throws IOException {
+        assertEquals(write(";", Arrays.asList("a", null, "b")), "\uFEFFa;;b\r\n");
+    }
+
+    @Test
+    public void valueWithSeparatorIsQuoted() throws IOException {
+        assertEquals(write(";", Arrays.asList("a;b", "a,b")), "\uFEFF\"a;b\";a,b\r\n");
+        assertEquals(write(",", Arrays.asList("a;b", "a,b")), "\uFEFFa;b,\"a,b\"\r\n");
+    }
+
+    @Test
+    public void quotesAreDoubled() throws IOException {
+        assertEquals(write(";", Arrays.asList("say \"hello\"", "\"")), "\uFEFF\"say \"\"hello\"\"\";\"\"\"\"\r\n");
+    }
+
+    @Test
+    public void lineBreaksAreQuoted() throws IOException {
+        assertEquals(write(";", Arrays.asList("a\nb", "a\rb", "a\r\nb")), "\uFEFF\"a\nb\";\"a\rb\";\"a\r\nb\"\r\n");
+    }
+
+    @Test
+    public void rowsAreSeparated() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (CsvRowWriter writer = new CsvRowWriter(outputStream, ";")) {
+            writer.writeHeader(Arrays.asList("id", "name"));
+            writer.writeRow(Arrays.asList("1", "first"));
+            writer.writeRow(Arrays.asList("2", "second"));
+            writer.finish();
+        }
+        assertEquals(new String(outputStream.toByteArray(), Charsets.UTF_8), "\uFEFFid;name\r\n1;first\r\n2;second\r\n");
+    }
+
+    private static String write(String separator, List<String> values) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (CsvRowWriter writer = new CsvRowWriter(outputStream, separator)) {
+            writer.writeRow(values);
+            writer.finish();
+        }
+        return new String(outputStream.toByteArray(), Charsets.UTF_8);
+    }
+}